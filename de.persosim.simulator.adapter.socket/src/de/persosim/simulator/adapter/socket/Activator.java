@@ -1,5 +1,7 @@
 package de.persosim.simulator.adapter.socket;
 
+import java.io.FileNotFoundException;
+
 import org.globaltester.simulator.Simulator;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
@@ -7,9 +9,23 @@ import org.osgi.framework.ServiceReference;
 import org.osgi.util.tracker.ServiceTracker;
 import org.osgi.util.tracker.ServiceTrackerCustomizer;
 
+import de.persosim.simulator.CommandParser;
+
 /**
  * This bundle activator tracks the {@link Simulator} service provided via OSGi
  * and manages the lifecycle of the socket.
+ * <p/>
+ * If the framework property {@link #PROP_MULTI_CLIENT_PERSO} is set, a
+ * {@link MultiClientSocketAdapter} is started instead. It serves each
+ * connection with its own simulator loaded with the given personalization. The
+ * number of simultaneous connections and worker threads can be configured
+ * using {@link #PROP_MAX_CONNECTIONS} and {@link #PROP_WORKERS}.
+ * <p/>
+ * If the framework property {@link #PROP_BINARY_PORT} is set, APDUs are
+ * additionally accepted with {@link MultiClientSocketAdapter.Framing#BINARY}
+ * framing on the given port. Without {@link #PROP_MULTI_CLIENT_PERSO} both
+ * sockets share the simulator provided as service, calls to it are serialized
+ * (see {@link SynchronizedSimulator}).
  * 
  * @author mboonk
  *
@@ -19,8 +35,15 @@ public class Activator implements BundleActivator, SimulatorProvider {
 	private static BundleContext context;
 	private static SocketAdapter simulatorSocket;
 	private static ServiceTracker<Simulator, Simulator> serviceTracker;
+	private static MultiClientSocketAdapter multiClientSocket;
+	private static MultiClientSocketAdapter binarySocket;
 	private static final int SIM_PORT = 9876;
 
+	public static final String PROP_MULTI_CLIENT_PERSO = "de.persosim.simulator.adapter.socket.multiclient.perso";
+	public static final String PROP_MAX_CONNECTIONS = "de.persosim.simulator.adapter.socket.multiclient.maxConnections";
+	public static final String PROP_WORKERS = "de.persosim.simulator.adapter.socket.multiclient.workers";
+	public static final String PROP_BINARY_PORT = "de.persosim.simulator.adapter.socket.binary.port";
+
 	public static BundleContext getContext() {
 		return context;
 	}
@@ -31,12 +54,40 @@ public class Activator implements BundleActivator, SimulatorProvider {
 	 */
 	public void start(final BundleContext bundleContext) throws Exception {
 		Activator.context = bundleContext;
+
+		String multiClientPerso = bundleContext.getProperty(PROP_MULTI_CLIENT_PERSO);
+		if (multiClientPerso != null) {
+			startMultiClientSocket(bundleContext, multiClientPerso);
+			return;
+		}
+
 		simulatorSocket = new SocketAdapter(this, SIM_PORT);
+
+		int binaryPort = getIntProperty(bundleContext, PROP_BINARY_PORT, -1);
+		if (binaryPort >= 0) {
+			// all connections share the simulator provided as service
+			SimulatorFactory simFactory = new SimulatorFactory() {
+				@Override
+				public Simulator createSimulator() {
+					return getSimulator();
+				}
+
+				@Override
+				public void releaseSimulator(Simulator simulator) {
+					// the simulator provided as service outlives the connections
+				}
+			};
+			binarySocket = new MultiClientSocketAdapter(simFactory, binaryPort, MultiClientSocketAdapter.Framing.BINARY, 1, 1);
+		}
+
 		serviceTracker = new ServiceTracker<Simulator, Simulator>(bundleContext, Simulator.class.getName(), new ServiceTrackerCustomizer<Simulator, Simulator>() {
 
 			@Override
 			public Simulator addingService(ServiceReference<Simulator> reference) {
 				simulatorSocket.start();
+				if (binarySocket != null) {
+					binarySocket.start();
+				}
 				return bundleContext.getService(reference);
 			}
 
@@ -48,7 +99,9 @@ public class Activator implements BundleActivator, SimulatorProvider {
 			@Override
 			public void removedService(ServiceReference<Simulator> reference, Simulator service) {
 				simulatorSocket.stop();
-				
+				if (binarySocket != null) {
+					binarySocket.stop();
+				}
 			}
 		});
 		serviceTracker.open();
@@ -60,11 +113,58 @@ public class Activator implements BundleActivator, SimulatorProvider {
 	 */
 	public void stop(BundleContext bundleContext) throws Exception {
 		Activator.context = null;
-		serviceTracker.close();
+		if (multiClientSocket != null) {
+			multiClientSocket.stop();
+			multiClientSocket = null;
+		}
+		if (binarySocket != null) {
+			binarySocket.stop();
+			binarySocket = null;
+		}
+		if (serviceTracker != null) {
+			serviceTracker.close();
+			serviceTracker = null;
+		}
+	}
+
+	private void startMultiClientSocket(BundleContext bundleContext, String persoFileName) throws FileNotFoundException {
+		int maxConnections = getIntProperty(bundleContext, PROP_MAX_CONNECTIONS, MultiClientSocketAdapter.DEFAULT_MAX_CONNECTIONS);
+		int noOfWorkers = getIntProperty(bundleContext, PROP_WORKERS, Runtime.getRuntime().availableProcessors());
+
+		SimulatorFactory simFactory = new PersonalizationSimulatorFactory(CommandParser.parsePersonalization(persoFileName));
+		multiClientSocket = new MultiClientSocketAdapter(simFactory, SIM_PORT, maxConnections, noOfWorkers);
+		multiClientSocket.start();
+
+		int binaryPort = getIntProperty(bundleContext, PROP_BINARY_PORT, -1);
+		if (binaryPort >= 0) {
+			binarySocket = new MultiClientSocketAdapter(simFactory, binaryPort, MultiClientSocketAdapter.Framing.BINARY, maxConnections, noOfWorkers);
+			binarySocket.start();
+		}
+	}
+
+	private static int getIntProperty(BundleContext bundleContext, String key, int defaultValue) {
+		String value = bundleContext.getProperty(key);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			CommandParser.showExceptionToUser(e);
+			return defaultValue;
+		}
 	}
 
 	@Override
 	public Simulator getSimulator() {
-		return serviceTracker.getService();
+		if (serviceTracker == null) {
+			return null;
+		}
+		Simulator simulator = serviceTracker.getService();
+		if (simulator == null) {
+			return null;
+		}
+		// the simulator may be used by the hex and the binary socket concurrently
+		return new SynchronizedSimulator(simulator);
 	}
 }
@@ -0,0 +1,607 @@
+package de.persosim.simulator.adapter.socket;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.globaltester.simulator.Simulator;
+
+import de.persosim.simulator.CommandParser;
+import de.persosim.simulator.utils.HexString;
+
+/**
+ * This class provides a socket interface to PersoSim that serves multiple
+ * clients at the same time.
+ * 
+ * In contrast to the {@link SocketAdapter} every connection is handled by its
+ * own {@link Simulator} instance created by a {@link SimulatorFactory}, so
+ * parallel clients do not interfere with each other. The wire protocol is the
+ * same as for the {@link SocketAdapter}, i.e. one hex encoded APDU per line
+ * including the special control APDUs. Alternatively APDUs can be exchanged
+ * as length prefixed raw bytes, see {@link Framing#BINARY}. Binary framing
+ * uses direct buffers that are reused for all APDUs of a connection.
+ * 
+ * All socket I/O is done by a single selector thread, the actual processing
+ * of APDUs (and the creation of the simulators) is done by a fixed pool of
+ * worker threads. At most one APDU per connection is processed at a time.
+ * 
+ * Connections sending frames or lines exceeding {@link #MAX_FRAME_LENGTH}
+ * resp. {@link #MAX_LINE_LENGTH} are closed. The simulator of a connection is
+ * released via {@link SimulatorFactory#releaseSimulator(Simulator)} when the
+ * connection is closed.
+ * 
+ */
+public class MultiClientSocketAdapter implements Runnable {
+
+	public static final int DEFAULT_MAX_CONNECTIONS = 256;
+
+	/**
+	 * The framing used on the socket.
+	 */
+	public enum Framing {
+		/**
+		 * One hex encoded APDU per line, as used by the {@link SocketAdapter}
+		 */
+		LINE,
+		/**
+		 * Each APDU is sent as raw bytes preceded by its length as 4 byte
+		 * unsigned big endian integer, responses are framed the same way
+		 */
+		BINARY
+	}
+
+	public static final int FRAME_HEADER_LENGTH = 4;
+
+	/**
+	 * Maximum accepted length of a binary frame, large enough for extended
+	 * length APDUs
+	 */
+	public static final int MAX_FRAME_LENGTH = 65544;
+
+	/**
+	 * Maximum accepted length of a line including its terminator, large
+	 * enough for hex encoded APDUs of {@link #MAX_FRAME_LENGTH}
+	 */
+	public static final int MAX_LINE_LENGTH = 2 * MAX_FRAME_LENGTH + 2;
+
+	private static final int INITIAL_BUFFER_SIZE = 1024;
+
+	private final SimulatorFactory simFactory;
+	private final int port;
+	private final Framing framing;
+	private final int maxConnections;
+	private final int noOfWorkers;
+
+	private Thread selectorThread = null;
+	private volatile boolean isRunning;
+	private Selector selector;
+	private ServerSocketChannel server;
+	private SelectionKey serverKey;
+	private ExecutorService workers;
+	private volatile int noOfConnections = 0;
+
+	/**
+	 * Tasks that need to be executed by the selector thread, e.g. changes of
+	 * interest sets requested by worker threads.
+	 */
+	private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Create new instance.
+	 * 
+	 * @param simFactory
+	 *            factory providing one new simulator per connection
+	 * @param simPort
+	 *            port the server socket should listen on
+	 * @param framing
+	 *            the framing of APDUs on the socket
+	 * @param maxConnections
+	 *            maximum number of simultaneously served connections, further
+	 *            clients are not accepted until a connection is closed
+	 * @param noOfWorkers
+	 *            number of threads processing APDUs
+	 */
+	public MultiClientSocketAdapter(SimulatorFactory simFactory, int simPort, Framing framing, int maxConnections, int noOfWorkers) {
+		if (simFactory == null) {throw new NullPointerException("simulator factory must not be null");}
+		if (framing == null) {throw new NullPointerException("framing must not be null");}
+		if (maxConnections < 1) {throw new IllegalArgumentException("maximum number of connections must be positive");}
+		if (noOfWorkers < 1) {throw new IllegalArgumentException("number of workers must be positive");}
+
+		this.simFactory = simFactory;
+		this.port = simPort;
+		this.framing = framing;
+		this.maxConnections = maxConnections;
+		this.noOfWorkers = noOfWorkers;
+	}
+
+	/**
+	 * Create new instance using {@link Framing#LINE}.
+	 * 
+	 * @param simFactory
+	 *            factory providing one new simulator per connection
+	 * @param simPort
+	 *            port the server socket should listen on
+	 * @param maxConnections
+	 *            maximum number of simultaneously served connections, further
+	 *            clients are not accepted until a connection is closed
+	 * @param noOfWorkers
+	 *            number of threads processing APDUs
+	 */
+	public MultiClientSocketAdapter(SimulatorFactory simFactory, int simPort, int maxConnections, int noOfWorkers) {
+		this(simFactory, simPort, Framing.LINE, maxConnections, noOfWorkers);
+	}
+
+	/**
+	 * Create new instance using {@link Framing#LINE}, {@link #DEFAULT_MAX_CONNECTIONS} and one
+	 * worker per available processor.
+	 * 
+	 * @param simFactory
+	 *            factory providing one new simulator per connection
+	 * @param simPort
+	 *            port the server socket should listen on
+	 */
+	public MultiClientSocketAdapter(SimulatorFactory simFactory, int simPort) {
+		this(simFactory, simPort, DEFAULT_MAX_CONNECTIONS, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Start execution of the server (within its own thread).
+	 * 
+	 * If this server already owns a (running) Thread this method does nothing
+	 * and returns the current state.
+	 * 
+	 * @return true iff the server is running
+	 */
+	public synchronized boolean start() {
+		if (selectorThread != null) {
+			return isRunning();
+		}
+
+		try {
+			selector = Selector.open();
+			server = ServerSocketChannel.open();
+			server.bind(new InetSocketAddress(port));
+			server.configureBlocking(false);
+			serverKey = server.register(selector, SelectionKey.OP_ACCEPT);
+		} catch (IOException e) {
+			CommandParser.showExceptionToUser(e);
+			closeQuietly();
+			return false;
+		}
+
+		workers = Executors.newFixedThreadPool(noOfWorkers);
+		isRunning = true;
+
+		selectorThread = new Thread(this, getClass().getSimpleName());
+		selectorThread.start();
+
+		return isRunning();
+	}
+
+	public boolean isRunning() {
+		return isRunning;
+	}
+
+	public synchronized boolean stop() {
+		isRunning = false;
+
+		if (selector != null) {
+			selector.wakeup();
+		}
+
+		//wait for selector thread
+		if (selectorThread != null) {
+			try {
+				selectorThread.join();
+			} catch (InterruptedException e) {
+				CommandParser.showExceptionToUser(e);
+			}
+			selectorThread = null;
+		}
+
+		if (workers != null) {
+			workers.shutdownNow();
+			workers = null;
+		}
+
+		closeQuietly();
+
+		return !isRunning();
+	}
+
+	/**
+	 * @return the number of currently open connections
+	 */
+	public int getNoOfConnections() {
+		return noOfConnections;
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (isRunning) {
+				selector.select();
+
+				Runnable task;
+				while ((task = selectorTasks.poll()) != null) {
+					task.run();
+				}
+
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+
+					if (!key.isValid()) {
+						continue;
+					}
+
+					if (key.isAcceptable()) {
+						accept();
+					} else {
+						Connection connection = (Connection) key.attachment();
+						if (key.isReadable()) {
+							connection.read();
+						}
+						if (key.isValid() && key.isWritable()) {
+							connection.write();
+						}
+					}
+				}
+			}
+		} catch (IOException | ClosedSelectorException e) {
+			//show the exception only if the server is still running, otherwise it is expected behavior
+			if (isRunning) {
+				CommandParser.showExceptionToUser(e);
+			}
+		} finally {
+			isRunning = false;
+			closeQuietly();
+		}
+	}
+
+	/**
+	 * Accepts a pending connection. If the configured maximum number of
+	 * connections is reached no further connections are accepted until one of
+	 * the existing connections is closed.
+	 */
+	private void accept() throws IOException {
+		SocketChannel channel = server.accept();
+		if (channel == null) {
+			return;
+		}
+
+		channel.configureBlocking(false);
+		SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+		key.attach(new Connection(channel, key));
+
+		noOfConnections++;
+		if (noOfConnections >= maxConnections) {
+			serverKey.interestOps(0);
+		}
+	}
+
+	/**
+	 * Executes the given task on the selector thread.
+	 */
+	private void runOnSelectorThread(Runnable task) {
+		selectorTasks.add(task);
+		selector.wakeup();
+	}
+
+	private void closeQuietly() {
+		if (selector != null && selector.isOpen()) {
+			for (SelectionKey key : selector.keys()) {
+				if (key.attachment() instanceof Connection) {
+					((Connection) key.attachment()).close();
+				}
+			}
+			try {
+				selector.close();
+			} catch (IOException e) {
+				// nothing to be done
+			}
+		}
+
+		if (server != null) {
+			try {
+				server.close();
+			} catch (IOException e) {
+				CommandParser.showExceptionToUser(e);
+			}
+		}
+	}
+
+	/**
+	 * This class holds the state of a single client connection including its
+	 * own {@link Simulator}. All methods except {@link #process(byte[])} are
+	 * called by the selector thread only. While an APDU is processed the
+	 * selector does not touch the buffers of the connection.
+	 */
+	private class Connection {
+
+		private final SocketChannel channel;
+		private final SelectionKey key;
+		private Simulator simulator;
+		private ByteBuffer readBuffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+		private ByteBuffer writeBuffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+		private boolean processing = false;
+		private boolean closed = false;
+
+		/* number of bytes at the start of the read buffer known not to contain a line terminator */
+		private int noOfScannedBytes = 0;
+
+		/* guarded by this connection, a worker is using the simulator */
+		private boolean simulatorInUse = false;
+		/* guarded by this connection, the simulator is to be released as soon as it is no longer used */
+		private boolean simulatorReleaseRequested = false;
+
+		Connection(SocketChannel channel, SelectionKey key) {
+			this.channel = channel;
+			this.key = key;
+		}
+
+		void read() {
+			int noOfBytes;
+			try {
+				if (!readBuffer.hasRemaining()) {
+					readBuffer = enlarge(readBuffer, readBuffer.capacity() * 2);
+				}
+				noOfBytes = channel.read(readBuffer);
+			} catch (IOException e) {
+				//if the other side closed the the connection, this is expected behavior
+				noOfBytes = -1;
+			}
+
+			if (noOfBytes < 0) {
+				// connection closed by peer
+				close();
+				return;
+			}
+
+			dispatchNext();
+		}
+
+		/**
+		 * Hands the next complete APDU (if any) to the workers for processing.
+		 */
+		void dispatchNext() {
+			if (processing || closed) {
+				return;
+			}
+
+			final byte[] frame = (framing == Framing.BINARY) ? extractBinaryFrame() : extractLine();
+
+			if (frame == null) {
+				return;
+			}
+
+			processing = true;
+			key.interestOps(0);
+			try {
+				workers.execute(new Runnable() {
+					@Override
+					public void run() {
+						process(frame);
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				// server is shutting down
+				close();
+			}
+		}
+
+		/**
+		 * @return the content of the next complete line without line
+		 *         terminator or null if no complete line has been received yet
+		 */
+		private byte[] extractLine() {
+			int lineEnd = -1;
+			for (int i = noOfScannedBytes; i < readBuffer.position(); i++) {
+				if (readBuffer.get(i) == '\n') {
+					lineEnd = i;
+					break;
+				}
+			}
+
+			if (lineEnd < 0) {
+				noOfScannedBytes = readBuffer.position();
+				if (noOfScannedBytes >= MAX_LINE_LENGTH) {
+					CommandParser.showExceptionToUser(new IOException("line exceeds " + MAX_LINE_LENGTH + " bytes, closing connection"));
+					close();
+				}
+				return null;
+			}
+
+			noOfScannedBytes = 0;
+
+			int contentEnd = ((lineEnd > 0) && (readBuffer.get(lineEnd - 1) == '\r')) ? lineEnd - 1 : lineEnd;
+			byte[] lineBytes = new byte[contentEnd];
+			readBuffer.flip();
+			readBuffer.get(lineBytes);
+			readBuffer.position(lineEnd + 1);
+			readBuffer.compact();
+
+			return lineBytes;
+		}
+
+		/**
+		 * @return the APDU of the next complete frame or null if no complete
+		 *         frame has been received yet
+		 */
+		private byte[] extractBinaryFrame() {
+			if (readBuffer.position() < FRAME_HEADER_LENGTH) {
+				return null;
+			}
+
+			int frameLength = readBuffer.getInt(0);
+			if ((frameLength < 0) || (frameLength > MAX_FRAME_LENGTH)) {
+				CommandParser.showExceptionToUser(new IOException("invalid frame length " + frameLength + ", closing connection"));
+				close();
+				return null;
+			}
+
+			if (readBuffer.position() < FRAME_HEADER_LENGTH + frameLength) {
+				if (readBuffer.capacity() < FRAME_HEADER_LENGTH + frameLength) {
+					readBuffer = enlarge(readBuffer, FRAME_HEADER_LENGTH + frameLength);
+				}
+				return null;
+			}
+
+			byte[] apdu = new byte[frameLength];
+			readBuffer.flip();
+			readBuffer.position(FRAME_HEADER_LENGTH);
+			readBuffer.get(apdu);
+			readBuffer.compact();
+
+			return apdu;
+		}
+
+		/**
+		 * Processes the given APDU frame, called by the worker threads.
+		 */
+		void process(byte[] frame) {
+			synchronized (this) {
+				if (simulatorReleaseRequested) {
+					// the connection has been closed in the meantime
+					return;
+				}
+				simulatorInUse = true;
+			}
+
+			byte[] response;
+			try {
+				if (simulator == null) {
+					simulator = simFactory.createSimulator();
+				}
+				if (framing == Framing.BINARY) {
+					response = SocketAdapter.processApdu(simulator, frame);
+				} else {
+					response = SocketAdapter.processApduLine(simulator, new String(frame, StandardCharsets.US_ASCII));
+				}
+			} catch (RuntimeException e) {
+				CommandParser.showExceptionToUser(e);
+				response = new byte[] { 0x6F, 0x00 };
+			} finally {
+				synchronized (this) {
+					simulatorInUse = false;
+					if (simulatorReleaseRequested) {
+						releaseSimulator();
+					}
+				}
+			}
+
+			writeBuffer.clear();
+			if (framing == Framing.BINARY) {
+				if (writeBuffer.capacity() < FRAME_HEADER_LENGTH + response.length) {
+					writeBuffer = ByteBuffer.allocateDirect(FRAME_HEADER_LENGTH + response.length);
+				}
+				writeBuffer.putInt(response.length);
+				writeBuffer.put(response);
+			} else {
+				byte[] responseLine = (HexString.encode(response) + System.lineSeparator()).getBytes(StandardCharsets.US_ASCII);
+				if (writeBuffer.capacity() < responseLine.length) {
+					writeBuffer = ByteBuffer.allocateDirect(responseLine.length);
+				}
+				writeBuffer.put(responseLine);
+			}
+			writeBuffer.flip();
+
+			runOnSelectorThread(new Runnable() {
+				@Override
+				public void run() {
+					if (closed) {
+						return;
+					}
+					key.interestOps(SelectionKey.OP_WRITE);
+				}
+			});
+		}
+
+		void write() {
+			try {
+				channel.write(writeBuffer);
+			} catch (IOException e) {
+				close();
+				return;
+			}
+
+			if (!writeBuffer.hasRemaining()) {
+				processing = false;
+				key.interestOps(SelectionKey.OP_READ);
+
+				// the client may already have sent the next APDU
+				dispatchNext();
+			}
+		}
+
+		void close() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+
+			key.cancel();
+			try {
+				channel.close();
+			} catch (IOException e) {
+				CommandParser.showExceptionToUser(e);
+			}
+
+			noOfConnections--;
+			if (serverKey.isValid()) {
+				serverKey.interestOps(SelectionKey.OP_ACCEPT);
+			}
+
+			// a simulator currently in use is released by the worker when it is done
+			synchronized (this) {
+				simulatorReleaseRequested = true;
+				if (!simulatorInUse) {
+					releaseSimulator();
+				}
+			}
+		}
+
+		/**
+		 * Releases the simulator of this connection, must be called while
+		 * holding the lock of this connection.
+		 */
+		private void releaseSimulator() {
+			if (simulator == null) {
+				return;
+			}
+
+			try {
+				simFactory.releaseSimulator(simulator);
+			} catch (RuntimeException e) {
+				CommandParser.showExceptionToUser(e);
+			}
+			simulator = null;
+		}
+
+	}
+
+	/**
+	 * Returns a new direct buffer of the given capacity containing the data
+	 * written to the provided buffer so far.
+	 */
+	private static ByteBuffer enlarge(ByteBuffer buffer, int capacity) {
+		ByteBuffer enlarged = ByteBuffer.allocateDirect(capacity);
+		buffer.flip();
+		enlarged.put(buffer);
+		return enlarged;
+	}
+
+}
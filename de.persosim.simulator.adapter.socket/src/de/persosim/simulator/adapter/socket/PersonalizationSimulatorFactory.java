@@ -0,0 +1,56 @@
+package de.persosim.simulator.adapter.socket;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.globaltester.simulator.Simulator;
+
+import de.persosim.simulator.PersoSim;
+import de.persosim.simulator.perso.Personalization;
+import de.persosim.simulator.perso.PersonalizationFactory;
+
+/**
+ * This {@link SimulatorFactory} creates a new {@link PersoSim} instance for
+ * each call. Every instance is loaded with its own copy of a template
+ * {@link Personalization}, so the simulated cards do not share any state.
+ * <p/>
+ * The template is serialized once during construction, each simulator then
+ * only needs to deserialize its own copy. Released simulators are stopped.
+ * 
+ */
+public class PersonalizationSimulatorFactory implements SimulatorFactory {
+
+	private final String serializedPersonalization;
+
+	/**
+	 * Create new instance.
+	 * 
+	 * @param template
+	 *            the not yet initialized personalization to be copied for
+	 *            each simulator
+	 */
+	public PersonalizationSimulatorFactory(Personalization template) {
+		StringWriter writer = new StringWriter();
+		PersonalizationFactory.marshal(template, writer);
+		serializedPersonalization = writer.toString();
+	}
+
+	@Override
+	public Simulator createSimulator() {
+		Personalization personalization = (Personalization) PersonalizationFactory.unmarshal(new StringReader(serializedPersonalization));
+
+		PersoSim sim = new PersoSim();
+		if (!sim.loadPersonalization(personalization)) {
+			return null;
+		}
+		sim.startSimulator();
+
+		return sim;
+	}
+
+	@Override
+	public void releaseSimulator(Simulator simulator) {
+		simulator.stopSimulator();
+	}
+
+}
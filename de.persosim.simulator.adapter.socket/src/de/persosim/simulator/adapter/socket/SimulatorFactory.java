@@ -0,0 +1,28 @@
+package de.persosim.simulator.adapter.socket;
+
+import org.globaltester.simulator.Simulator;
+
+/**
+ * Implementations of this interface provide the {@link Simulator} to be used
+ * for a single connection handled by the {@link MultiClientSocketAdapter}.
+ * Usually a new and isolated instance is created on each call.
+ * 
+ */
+public interface SimulatorFactory {
+
+	/**
+	 * @return a started {@link Simulator} implementation or null if none is
+	 *         available
+	 */
+	abstract Simulator createSimulator();
+
+	/**
+	 * Called when the given {@link Simulator}, previously returned by
+	 * {@link #createSimulator()}, is no longer used, e.g. because the
+	 * connection it has been created for has been closed.
+	 * 
+	 * @param simulator
+	 *            the simulator that is no longer used
+	 */
+	abstract void releaseSimulator(Simulator simulator);
+}
@@ -190,47 +190,8 @@ public class SocketAdapter implements Runnable {
 					break;
 				}
 				
-				// parse hex APDU
-				byte[] apdu = null;
-				byte[] response = new byte[] { 0x6F, 0x23 };
-				try {
-					apdu = HexString.toByteArray(apduLine);
-				} catch (RuntimeException e) {
-					CommandParser.showExceptionToUser(e);
-					// nothing else needs to be done, will lead to an empty
-					// apdu==null, thus no processing is done and the default SW
-					// 6F23 is returned
-				}
-
 				// process the APDU, generate response
-				
-				Simulator sim = simProvider.getSimulator();
-				// if there is a simulator available, get the response
-				if (sim != null){
-					int clains = Utils.maskUnsignedShortToInt(Utils.concatenate(apdu[0], apdu[1]));
-					switch (clains) {
-					case 0xFF00:
-						response = sim.cardPowerDown();
-						break;
-					case 0xFF01:
-						response = sim.cardPowerUp();
-						break;
-					case 0xFF6F:
-						response = NACK;
-						break;
-					case 0xFF90:
-						response = ACK;
-						break;
-					case 0xFFFF:
-						response = sim.cardReset();
-						break;
-					default:
-						// all other (unknown) APDUs are forwarded to the
-						// simulator processingl
-						response = sim.processCommand(apdu);
-					}
-					
-				}
+				byte[] response = processApduLine(simProvider.getSimulator(), apduLine);
 
 				// encode response and return it
 				String respLine = HexString.encode(response);
@@ -256,4 +217,73 @@ public class SocketAdapter implements Runnable {
 
 	}
 
+	/**
+	 * Parses a single hex encoded APDU line as received from the socket and
+	 * processes it with the provided simulator.
+	 * 
+	 * @param sim
+	 *            the simulator to process the APDU, may be null
+	 * @param apduLine
+	 *            the hex encoded APDU
+	 * @return the response to be returned to the client
+	 */
+	static byte[] processApduLine(Simulator sim, String apduLine) {
+		// parse hex APDU
+		byte[] apdu = null;
+		try {
+			apdu = HexString.toByteArray(apduLine);
+		} catch (RuntimeException e) {
+			CommandParser.showExceptionToUser(e);
+			// nothing else needs to be done, will lead to an empty
+			// apdu==null, thus no processing is done and the default SW
+			// 6F23 is returned
+		}
+
+		return processApdu(sim, apdu);
+	}
+
+	/**
+	 * Processes a single APDU with the provided simulator. This handles the
+	 * special control APDUs (power up/down, reset) and forwards all other
+	 * APDUs to the simulator.
+	 * 
+	 * @param sim
+	 *            the simulator to process the APDU, may be null
+	 * @param apdu
+	 *            the APDU, may be null
+	 * @return the response to be returned to the client
+	 */
+	static byte[] processApdu(Simulator sim, byte[] apdu) {
+		byte[] response = new byte[] { 0x6F, 0x23 };
+
+		// if there is a simulator available, get the response
+		if (sim != null && apdu != null && apdu.length >= 2){
+			int clains = Utils.maskUnsignedShortToInt(Utils.concatenate(apdu[0], apdu[1]));
+			switch (clains) {
+			case 0xFF00:
+				response = sim.cardPowerDown();
+				break;
+			case 0xFF01:
+				response = sim.cardPowerUp();
+				break;
+			case 0xFF6F:
+				response = NACK;
+				break;
+			case 0xFF90:
+				response = ACK;
+				break;
+			case 0xFFFF:
+				response = sim.cardReset();
+				break;
+			default:
+				// all other (unknown) APDUs are forwarded to the
+				// simulator processingl
+				response = sim.processCommand(apdu);
+			}
+					
+		}
+
+		return response;
+	}
+
 }
@@ -0,0 +1,83 @@
+package de.persosim.simulator.adapter.socket;
+
+import org.globaltester.simulator.Simulator;
+
+/**
+ * This {@link Simulator} forwards all calls to another simulator while holding
+ * the lock of that simulator. It is used to share a single simulator between
+ * several sockets, as simulators themselves are not thread safe. All wrappers
+ * of the same simulator serialize their calls against each other.
+ * 
+ */
+class SynchronizedSimulator implements Simulator {
+
+	private final Simulator simulator;
+
+	/**
+	 * Create new instance.
+	 * 
+	 * @param simulator
+	 *            the simulator to forward the calls to
+	 */
+	SynchronizedSimulator(Simulator simulator) {
+		if (simulator == null) {throw new NullPointerException("simulator must not be null");}
+		this.simulator = simulator;
+	}
+
+	@Override
+	public boolean startSimulator() {
+		synchronized (simulator) {
+			return simulator.startSimulator();
+		}
+	}
+
+	@Override
+	public boolean stopSimulator() {
+		synchronized (simulator) {
+			return simulator.stopSimulator();
+		}
+	}
+
+	@Override
+	public boolean restartSimulator() {
+		synchronized (simulator) {
+			return simulator.restartSimulator();
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		synchronized (simulator) {
+			return simulator.isRunning();
+		}
+	}
+
+	@Override
+	public byte[] processCommand(byte[] apdu) {
+		synchronized (simulator) {
+			return simulator.processCommand(apdu);
+		}
+	}
+
+	@Override
+	public byte[] cardPowerUp() {
+		synchronized (simulator) {
+			return simulator.cardPowerUp();
+		}
+	}
+
+	@Override
+	public byte[] cardPowerDown() {
+		synchronized (simulator) {
+			return simulator.cardPowerDown();
+		}
+	}
+
+	@Override
+	public byte[] cardReset() {
+		synchronized (simulator) {
+			return simulator.cardReset();
+		}
+	}
+
+}
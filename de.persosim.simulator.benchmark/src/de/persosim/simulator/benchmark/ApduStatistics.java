@@ -0,0 +1,190 @@
+package de.persosim.simulator.benchmark;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * This class collects latency, size and allocation figures of processed APDUs
+ * grouped by command type. Instances are not thread safe, every thread is
+ * expected to record into its own instance and to {@link #merge(ApduStatistics)}
+ * the results afterwards.
+ */
+class ApduStatistics {
+	
+	private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+	
+	private final Map<String, CommandStatistics> commands = new LinkedHashMap<>();
+	private long wallNanos;
+	
+	/**
+	 * This method records a single processed APDU.
+	 * @param command the command type, e.g. "READ BINARY"
+	 * @param nanos the time spent by the simulator processing the APDU
+	 * @param allocatedBytes the bytes allocated while processing the APDU, negative if unknown
+	 * @param commandLength the length of the command APDU
+	 * @param response the response APDU
+	 */
+	void record(String command, long nanos, long allocatedBytes, int commandLength, byte[] response) {
+		CommandStatistics statistics = commands.get(command);
+		if (statistics == null) {
+			statistics = new CommandStatistics();
+			commands.put(command, statistics);
+		}
+		statistics.add(nanos, allocatedBytes, commandLength, response);
+	}
+	
+	/**
+	 * This method adds all figures recorded by the given instance.
+	 * @param other the statistics to add
+	 */
+	void merge(ApduStatistics other) {
+		for (Entry<String, CommandStatistics> entry : other.commands.entrySet()) {
+			CommandStatistics statistics = commands.get(entry.getKey());
+			if (statistics == null) {
+				statistics = new CommandStatistics();
+				commands.put(entry.getKey(), statistics);
+			}
+			statistics.addAll(entry.getValue());
+		}
+		wallNanos += other.wallNanos;
+	}
+	
+	/**
+	 * This method adds wall clock time spent on the recorded APDUs, including
+	 * the processing on the terminal side.
+	 * @param nanos the wall clock time to add
+	 */
+	void addWallNanos(long nanos) {
+		wallNanos += nanos;
+	}
+	
+	/**
+	 * @return the accumulated wall clock time
+	 */
+	long getWallNanos() {
+		return wallNanos;
+	}
+	
+	/**
+	 * @return the number of recorded APDUs
+	 */
+	long getCount() {
+		long count = 0;
+		for (CommandStatistics statistics : commands.values()) {
+			count += statistics.count;
+		}
+		return count;
+	}
+	
+	/**
+	 * @return the accumulated time spent by the simulator processing APDUs
+	 */
+	long getTotalNanos() {
+		long nanos = 0;
+		for (CommandStatistics statistics : commands.values()) {
+			nanos += statistics.totalNanos;
+		}
+		return nanos;
+	}
+	
+	/**
+	 * @return the accumulated bytes allocated while processing APDUs, negative if unknown
+	 */
+	long getTotalAllocatedBytes() {
+		long allocatedBytes = 0;
+		for (CommandStatistics statistics : commands.values()) {
+			if (statistics.allocatedBytes < 0) {
+				return -1;
+			}
+			allocatedBytes += statistics.allocatedBytes;
+		}
+		return allocatedBytes;
+	}
+	
+	/**
+	 * This method prints a table with one row per command type.
+	 * @param out the stream to print to
+	 */
+	void print(PrintStream out) {
+		out.printf("%-28s %9s %9s %9s %9s %9s %9s %9s %11s %9s%n", "command", "count", "not 9000", "p50 us", "p90 us", "p99 us",
+				"p99.9 us", "max us", "B/APDU", "alloc/APDU");
+		for (Entry<String, CommandStatistics> entry : commands.entrySet()) {
+			CommandStatistics statistics = entry.getValue();
+			long[] latencies = statistics.getSortedLatencies();
+			out.printf("%-28s %9d %9d", entry.getKey(), statistics.count, statistics.notNoError);
+			for (double percentile : PERCENTILES) {
+				out.printf(" %9.1f", percentile(latencies, percentile) / 1000.0);
+			}
+			out.printf(" %9.1f %11.1f %9s%n", latencies[latencies.length - 1] / 1000.0,
+					(double) statistics.transferredBytes / statistics.count, formatAllocation(statistics.allocatedBytes, statistics.count));
+		}
+	}
+	
+	/**
+	 * This method formats the average allocation per APDU.
+	 * @param allocatedBytes the accumulated allocation, negative if unknown
+	 * @param count the number of APDUs
+	 * @return the formatted value
+	 */
+	static String formatAllocation(long allocatedBytes, long count) {
+		if (allocatedBytes < 0) {
+			return "n/a";
+		}
+		return String.format("%.0f", (double) allocatedBytes / count);
+	}
+	
+	private static long percentile(long[] sorted, double percentile) {
+		int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+	}
+	
+	/**
+	 * Figures of a single command type.
+	 */
+	private static class CommandStatistics {
+		
+		private long[] latencies = new long[64];
+		private int count;
+		private long totalNanos;
+		private long allocatedBytes;
+		private long transferredBytes;
+		private int notNoError;
+		
+		void add(long nanos, long allocated, int commandLength, byte[] response) {
+			if (count == latencies.length) {
+				latencies = Arrays.copyOf(latencies, count << 1);
+			}
+			latencies[count++] = nanos;
+			totalNanos += nanos;
+			allocatedBytes = ((allocatedBytes < 0) || (allocated < 0)) ? -1 : allocatedBytes + allocated;
+			transferredBytes += commandLength + response.length;
+			int length = response.length;
+			if ((length < 2) || (response[length - 2] != (byte) 0x90) || (response[length - 1] != 0x00)) {
+				notNoError++;
+			}
+		}
+		
+		void addAll(CommandStatistics other) {
+			if (count + other.count > latencies.length) {
+				latencies = Arrays.copyOf(latencies, count + other.count);
+			}
+			System.arraycopy(other.latencies, 0, latencies, count, other.count);
+			count += other.count;
+			totalNanos += other.totalNanos;
+			allocatedBytes = ((allocatedBytes < 0) || (other.allocatedBytes < 0)) ? -1 : allocatedBytes + other.allocatedBytes;
+			transferredBytes += other.transferredBytes;
+			notNoError += other.notNoError;
+		}
+		
+		long[] getSortedLatencies() {
+			long[] sorted = Arrays.copyOf(latencies, count);
+			Arrays.sort(sorted);
+			return sorted;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,213 @@
+package de.persosim.simulator.benchmark;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.persosim.simulator.PersoSim;
+import de.persosim.simulator.crypto.certificates.CardVerifiableCertificate;
+import de.persosim.simulator.perso.BenchmarkPersonalization;
+import de.persosim.simulator.perso.DefaultPersonalization;
+import de.persosim.simulator.protocols.Tr03110;
+
+/**
+ * End-to-end APDU throughput benchmark of the simulator.
+ * <p/>
+ * For every selected personalization complete EAC sessions (see
+ * {@link EacTerminal}) are performed directly against
+ * {@link PersoSim#processCommand(byte[])}, i.e. without socket and without
+ * driver in between. The TA trust points of all personalizations are replaced
+ * by the CVCAs of the shipped GlobalTester test PKI, see
+ * {@link BenchmarkPersonalization}.
+ * <p/>
+ * The benchmark reports APDUs per second (based on the time spent within the
+ * simulator as well as on wall clock time including the terminal side),
+ * latency percentiles and allocation per command type. With more than one
+ * thread every thread drives its own simulator instance, so the figures show
+ * how well independent instances scale.
+ * <p/>
+ * Options are given as key=value:
+ * <ul>
+ * <li>profiles - comma separated class names from de.persosim.simulator.perso, default Profile01 to Profile10 and DefaultPersoGt</li>
+ * <li>threads - number of parallel simulator instances, default 1</li>
+ * <li>sessions - measured sessions per thread and profile, default 30</li>
+ * <li>warmup - unmeasured sessions per thread and profile, default 10</li>
+ * <li>passwords - comma separated PACE passwords used round robin, default PIN,CAN,MRZ</li>
+ * <li>chunk - maximum number of bytes per READ BINARY, default 223</li>
+ * <li>certificates - directory of the test PKI, default {@value TerminalCredentials#DEFAULT_CERTIFICATES_DIR}</li>
+ * </ul>
+ */
+public class ApduThroughputBenchmark {
+	
+	private static final String[] DEFAULT_PROFILES = {"Profile01", "Profile02", "Profile03", "Profile04", "Profile05", "Profile06",
+			"Profile07", "Profile08", "Profile09", "Profile10", "DefaultPersoGt"};
+	
+	private final List<String> profiles;
+	private final int threads;
+	private final int sessions;
+	private final int warmup;
+	private final String passwordNames;
+	private final int[] passwords;
+	private final int chunkSize;
+	private final Path certificatesDir;
+	
+	private ApduThroughputBenchmark(Map<String, String> options) {
+		profiles = Arrays.asList(getOption(options, "profiles", String.join(",", DEFAULT_PROFILES)).split(","));
+		threads = Integer.parseInt(getOption(options, "threads", "1"));
+		sessions = Integer.parseInt(getOption(options, "sessions", "30"));
+		warmup = Integer.parseInt(getOption(options, "warmup", "10"));
+		chunkSize = Integer.parseInt(getOption(options, "chunk", "223"));
+		certificatesDir = Paths.get(getOption(options, "certificates", TerminalCredentials.DEFAULT_CERTIFICATES_DIR));
+		
+		passwordNames = getOption(options, "passwords", "PIN,CAN,MRZ");
+		String[] names = passwordNames.split(",");
+		passwords = new int[names.length];
+		for (int i = 0; i < names.length; i++) {
+			passwords[i] = getPasswordId(names[i]);
+		}
+		
+		if (!options.isEmpty()) {
+			throw new IllegalArgumentException("unknown options " + options.keySet());
+		}
+		if ((threads < 1) || (sessions < 1) || (warmup < 0)) {
+			throw new IllegalArgumentException("threads and sessions must be positive, warmup must not be negative");
+		}
+	}
+	
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new LinkedHashMap<>();
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			if (separator < 1) {
+				throw new IllegalArgumentException("options must be given as key=value, got " + arg);
+			}
+			options.put(arg.substring(0, separator), arg.substring(separator + 1));
+		}
+		
+		BenchmarkUtils.setUp();
+		new ApduThroughputBenchmark(options).run(System.out);
+	}
+	
+	private void run(PrintStream out) throws Exception {
+		SecureRandom random = BenchmarkUtils.getSecureRandom();
+		List<CardVerifiableCertificate> cvcaCertificates = TerminalCredentials.loadCvcaCertificates(certificatesDir);
+		TerminalCredentials authenticationTerminal = TerminalCredentials.issueAuthenticationTerminal(certificatesDir, random);
+		TerminalCredentials inspectionSystem = TerminalCredentials.loadInspectionSystem(certificatesDir);
+		
+		out.printf("profiles %s, %d thread(s), %d warmup and %d measured sessions per thread and profile, passwords %s, chunk size %d%n%n",
+				profiles, threads, warmup, sessions, passwordNames, chunkSize);
+		
+		Map<String, ApduStatistics> statisticsPerProfile = new LinkedHashMap<>();
+		ApduStatistics total = new ApduStatistics();
+		
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (String profile : profiles) {
+				List<Callable<ApduStatistics>> workers = new ArrayList<>();
+				for (int i = 0; i < threads; i++) {
+					long seed = BenchmarkUtils.SEED + i;
+					workers.add(() -> runSessions(profile, cvcaCertificates, authenticationTerminal, inspectionSystem, seed));
+				}
+				
+				ApduStatistics profileStatistics = new ApduStatistics();
+				for (Future<ApduStatistics> result : executor.invokeAll(workers)) {
+					profileStatistics.merge(result.get());
+				}
+				
+				statisticsPerProfile.put(profile, profileStatistics);
+				total.merge(profileStatistics);
+			}
+		} finally {
+			executor.shutdown();
+		}
+		
+		out.printf("%-16s %9s %14s %14s %11s%n", "profile", "APDUs", "card APDUs/s", "wall APDUs/s", "alloc/APDU");
+		for (Entry<String, ApduStatistics> entry : statisticsPerProfile.entrySet()) {
+			printSummary(out, entry.getKey(), entry.getValue());
+		}
+		printSummary(out, "all", total);
+		out.println();
+		total.print(out);
+	}
+	
+	/**
+	 * This method performs all sessions of a single thread on its own
+	 * simulator instance. The statistics of the warmup sessions are
+	 * discarded.
+	 */
+	private ApduStatistics runSessions(String profile, List<CardVerifiableCertificate> cvcaCertificates, TerminalCredentials authenticationTerminal,
+			TerminalCredentials inspectionSystem, long seed) throws Exception {
+		BenchmarkPersonalization personalization = new BenchmarkPersonalization(createPersonalization(profile), cvcaCertificates);
+		PersoSim simulator = new PersoSim();
+		simulator.startSimulator();
+		if (!simulator.loadPersonalization(personalization)) {
+			throw new IllegalStateException("personalization " + profile + " could not be loaded");
+		}
+		simulator.cardPowerUp();
+		
+		SecureRandom random = SecureRandom.getInstance("SHA1PRNG");
+		random.setSeed(seed);
+		EacTerminal terminal = new EacTerminal(simulator, personalization.getMasterFile(), authenticationTerminal, inspectionSystem, chunkSize, random);
+		
+		terminal.setStatistics(new ApduStatistics());
+		for (int i = 0; i < warmup; i++) {
+			terminal.performSession(passwords[i % passwords.length]);
+		}
+		
+		ApduStatistics statistics = new ApduStatistics();
+		terminal.setStatistics(statistics);
+		long start = System.nanoTime();
+		for (int i = 0; i < sessions; i++) {
+			terminal.performSession(passwords[i % passwords.length]);
+		}
+		statistics.addWallNanos(System.nanoTime() - start);
+		return statistics;
+	}
+	
+	private void printSummary(PrintStream out, String name, ApduStatistics statistics) {
+		long count = statistics.getCount();
+		// times are accumulated over all threads running in parallel
+		double cardThroughput = count * 1e9 * threads / statistics.getTotalNanos();
+		double wallThroughput = count * 1e9 * threads / statistics.getWallNanos();
+		out.printf("%-16s %9d %14.0f %14.0f %11s%n", name, count, cardThroughput, wallThroughput,
+				ApduStatistics.formatAllocation(statistics.getTotalAllocatedBytes(), count));
+	}
+	
+	private static DefaultPersonalization createPersonalization(String profile) throws ReflectiveOperationException {
+		Class<?> personalizationClass = Class.forName("de.persosim.simulator.perso." + profile);
+		if (!DefaultPersonalization.class.isAssignableFrom(personalizationClass)) {
+			throw new IllegalArgumentException(profile + " is no DefaultPersonalization");
+		}
+		return (DefaultPersonalization) personalizationClass.newInstance();
+	}
+	
+	private static int getPasswordId(String name) {
+		switch (name) {
+		case "MRZ":
+			return Tr03110.ID_MRZ;
+		case "CAN":
+			return Tr03110.ID_CAN;
+		case "PIN":
+			return Tr03110.ID_PIN;
+		default:
+			throw new IllegalArgumentException("unsupported password " + name);
+		}
+	}
+	
+	private static String getOption(Map<String, String> options, String key, String defaultValue) {
+		String value = options.remove(key);
+		return (value == null) ? defaultValue : value;
+	}
+	
+}
@@ -0,0 +1,154 @@
+package de.persosim.simulator.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.globaltester.cryptoprovider.Crypto;
+import org.globaltester.cryptoprovider.bc.ProviderBc;
+import org.globaltester.logging.BasicLogger;
+
+import de.persosim.simulator.crypto.DomainParameterSet;
+import de.persosim.simulator.crypto.DomainParameterSetEcdh;
+import de.persosim.simulator.crypto.StandardizedDomainParameters;
+import de.persosim.simulator.tlv.ConstructedTlvDataObject;
+import de.persosim.simulator.tlv.TlvDataObject;
+import de.persosim.simulator.utils.LazyLogger;
+import de.persosim.simulator.utils.Utils;
+
+/**
+ * This class provides the common setup of all benchmarks. All random input is
+ * derived from fixed seeds so that subsequent runs measure identical
+ * operations.
+ */
+public class BenchmarkUtils {
+	
+	/** seed used for all randomly chosen benchmark input */
+	public static final long SEED = 0x5045525330534D4CL;
+	
+	private BenchmarkUtils() {
+		// utility class, not to be instantiated
+	}
+	
+	/**
+	 * Set the crypto provider used by the simulator to the BouncyCastle based
+	 * provider, as done by the test cases. Level-checked log messages below
+	 * {@link BasicLogger#ERROR} are suppressed, so the benchmarks are not
+	 * dominated by building log messages.
+	 */
+	public static void setUp() {
+		Crypto.setCryptoProvider(new ProviderBc().getCryptoProviderObject());
+		LazyLogger.setMinimumLogLevel(BasicLogger.ERROR);
+	}
+	
+	/**
+	 * @return a new deterministic source of randomness
+	 */
+	public static Random getRandom() {
+		return new Random(SEED);
+	}
+	
+	/**
+	 * @return a new deterministic {@link SecureRandom}, e.g. for key generation
+	 */
+	public static SecureRandom getSecureRandom() {
+		try {
+			SecureRandom secureRandom = SecureRandom.getInstance("SHA1PRNG");
+			secureRandom.setSeed(SEED);
+			return secureRandom;
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA1PRNG is not available", e);
+		}
+	}
+	
+	/**
+	 * This method returns the standardized ECDH domain parameters with the
+	 * given id.
+	 * @param id the standardized domain parameter id
+	 * @return the ECDH domain parameters
+	 * @throws IllegalArgumentException if the id does not denote supported ECDH domain parameters
+	 */
+	public static DomainParameterSetEcdh getDomainParameterSetEcdh(int id) {
+		DomainParameterSet domainParameterSet = StandardizedDomainParameters.getDomainParameterSetById(id);
+		if (!(domainParameterSet instanceof DomainParameterSetEcdh)) {
+			throw new IllegalArgumentException("standardized domain parameters " + id + " are not supported ECDH domain parameters");
+		}
+		return (DomainParameterSetEcdh) domainParameterSet;
+	}
+	
+	/**
+	 * This method returns a random scalar from [1, order-1].
+	 * @param random the source of randomness
+	 * @param order the order of the group
+	 * @return the scalar
+	 */
+	public static BigInteger getRandomScalar(Random random, BigInteger order) {
+		BigInteger scalar;
+		do {
+			scalar = new BigInteger(order.bitLength(), random);
+		} while ((scalar.signum() == 0) || (scalar.compareTo(order) >= 0));
+		return scalar;
+	}
+	
+	/**
+	 * This method converts an ASN.1 encoded ECDSA signature as generated by
+	 * the JCE into the plain r||s format used within CV certificates.
+	 * @param asn1Signature the ASN.1 encoded signature
+	 * @param referenceLength the length of r and s in bytes
+	 * @return the plain signature
+	 */
+	public static byte[] toPlainSignature(byte[] asn1Signature, int referenceLength) {
+		Iterator<TlvDataObject> integers = new ConstructedTlvDataObject(asn1Signature).iterator();
+		byte[] r = toFixedLength(integers.next().getValueField(), referenceLength);
+		byte[] s = toFixedLength(integers.next().getValueField(), referenceLength);
+		return Utils.concatByteArrays(r, s);
+	}
+	
+	/**
+	 * This method encodes a command APDU. Extended length is used if the
+	 * command data or the expected response length exceed the limits of a
+	 * short APDU.
+	 * @param header the header CLA, INS, P1, P2
+	 * @param data the command data, may be null
+	 * @param ne the expected response length from 0 (no Le field) to 65536
+	 * @return the command APDU
+	 */
+	public static byte[] buildCommandApdu(byte[] header, byte[] data, int ne) {
+		int nc = (data == null) ? 0 : data.length;
+		if ((nc > 65535) || (ne < 0) || (ne > 65536)) {
+			throw new IllegalArgumentException("command data or expected length exceed the limits of an APDU");
+		}
+		boolean extendedLength = (nc > 255) || (ne > 256);
+		
+		ByteArrayOutputStream apdu = new ByteArrayOutputStream();
+		apdu.write(header, 0, 4);
+		if (extendedLength) {
+			apdu.write(0x00);
+		}
+		if (nc > 0) {
+			if (extendedLength) {
+				apdu.write(nc >>> 8);
+			}
+			apdu.write(nc);
+			apdu.write(data, 0, nc);
+		}
+		if (ne > 0) {
+			if (extendedLength) {
+				apdu.write(ne >>> 8);
+			}
+			apdu.write(ne);
+		}
+		return apdu.toByteArray();
+	}
+	
+	private static byte[] toFixedLength(byte[] integer, int length) {
+		byte[] unsigned = Utils.toUnsignedByteArray(new BigInteger(integer));
+		byte[] result = new byte[length];
+		System.arraycopy(unsigned, 0, result, length - unsigned.length, unsigned.length);
+		return result;
+	}
+	
+}
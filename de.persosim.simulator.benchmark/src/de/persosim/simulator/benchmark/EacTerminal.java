@@ -0,0 +1,538 @@
+package de.persosim.simulator.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.crypto.KeyAgreement;
+import javax.crypto.spec.SecretKeySpec;
+
+import de.persosim.simulator.PersoSim;
+import de.persosim.simulator.cardobjects.AuthObjectIdentifier;
+import de.persosim.simulator.cardobjects.CardObject;
+import de.persosim.simulator.cardobjects.CardObjectIdentifier;
+import de.persosim.simulator.cardobjects.DedicatedFileIdentifier;
+import de.persosim.simulator.cardobjects.ElementaryFile;
+import de.persosim.simulator.cardobjects.KeyIdentifier;
+import de.persosim.simulator.cardobjects.KeyPairObject;
+import de.persosim.simulator.cardobjects.MasterFile;
+import de.persosim.simulator.cardobjects.OidIdentifier;
+import de.persosim.simulator.cardobjects.PasswordAuthObject;
+import de.persosim.simulator.cardobjects.ShortFileIdentifier;
+import de.persosim.simulator.crypto.CryptoInstanceCache;
+import de.persosim.simulator.crypto.CryptoSupport;
+import de.persosim.simulator.crypto.CryptoUtil;
+import de.persosim.simulator.crypto.DomainParameterSet;
+import de.persosim.simulator.crypto.KeyDerivationFunction;
+import de.persosim.simulator.crypto.StandardizedDomainParameters;
+import de.persosim.simulator.perso.DefaultPersonalization;
+import de.persosim.simulator.protocols.GenericOid;
+import de.persosim.simulator.protocols.Tr03110;
+import de.persosim.simulator.protocols.Tr03110Utils;
+import de.persosim.simulator.protocols.ca.Ca;
+import de.persosim.simulator.protocols.ca.CaOid;
+import de.persosim.simulator.protocols.pace.GenericMapping;
+import de.persosim.simulator.protocols.pace.Pace;
+import de.persosim.simulator.protocols.pace.PaceOid;
+import de.persosim.simulator.protocols.ri.Ri;
+import de.persosim.simulator.tlv.ConstructedTlvDataObject;
+import de.persosim.simulator.tlv.PrimitiveTlvDataObject;
+import de.persosim.simulator.tlv.TlvConstants;
+import de.persosim.simulator.tlv.TlvDataObject;
+import de.persosim.simulator.tlv.TlvDataObjectContainer;
+import de.persosim.simulator.tlv.TlvPath;
+import de.persosim.simulator.tlv.TlvTag;
+import de.persosim.simulator.utils.HexString;
+import de.persosim.simulator.utils.Utils;
+
+/**
+ * This class implements a terminal performing complete EAC sessions against a
+ * {@link PersoSim} instance without any socket in between.
+ * <p/>
+ * Sessions with PIN or CAN are performed as authentication terminal (PACE,
+ * TA, CA, RI with all RI keys and reading of EF.CardSecurity and all files of
+ * the eID application), sessions with MRZ are performed as inspection system
+ * (PACE, TA, CA and reading of all files of the ePassport application). Every
+ * APDU is recorded by command type in the current {@link ApduStatistics}.
+ * <p/>
+ * The card specific parameters of PACE and CA are read from EF.CardAccess, the
+ * passwords as well as the static CA and RI public keys are taken from the
+ * object tree of the card, as a real terminal would know them from the
+ * document or from EF.CardSecurity.
+ */
+class EacTerminal implements Tr03110 {
+	
+	static final String PLAIN_READ_BINARY = "READ BINARY (plain)";
+	static final String PACE_SET_AT = "PACE MSE:Set AT";
+	static final String PACE_ENCRYPTED_NONCE = "PACE GA Encrypted Nonce";
+	static final String PACE_MAP_NONCE = "PACE GA Map Nonce";
+	static final String PACE_KEY_AGREEMENT = "PACE GA Key Agreement";
+	static final String PACE_MUTUAL_AUTHENTICATION = "PACE GA Mutual Auth";
+	static final String TA_SET_DST = "TA MSE:Set DST";
+	static final String TA_VERIFY_CERTIFICATE = "TA PSO:Verify Certificate";
+	static final String TA_SET_AT = "TA MSE:Set AT";
+	static final String TA_GET_CHALLENGE = "TA GET CHALLENGE";
+	static final String TA_EXTERNAL_AUTHENTICATE = "TA EXTERNAL AUTHENTICATE";
+	static final String CA_SET_AT = "CA MSE:Set AT";
+	static final String CA_GENERAL_AUTHENTICATE = "CA GA";
+	static final String RI_SET_AT = "RI MSE:Set AT";
+	static final String RI_GENERAL_AUTHENTICATE = "RI GA";
+	static final String SELECT = "SELECT";
+	static final String READ_BINARY = "READ BINARY";
+	
+	private static final byte[] AID_EPASS = HexString.toByteArray("A0 00 00 02 47 10 01");
+	private static final byte[] AID_EID = HexString.toByteArray(DefaultPersonalization.AID_EID);
+	
+	private static final int SFI_CARD_ACCESS = 0x1C;
+	private static final int SFI_CARD_SECURITY = 0x1D;
+	private static final int MAX_OFFSET_READ_BINARY = 0x7FFF;
+	
+	private static final byte[] HEADER_MSE_SET_AT_PACE = {0x00, 0x22, (byte) 0xC1, (byte) 0xA4};
+	private static final byte[] HEADER_MSE_SET_AT_TA = {0x00, 0x22, (byte) 0x81, (byte) 0xA4};
+	private static final byte[] HEADER_MSE_SET_AT_CA = {0x00, 0x22, 0x41, (byte) 0xA4};
+	private static final byte[] HEADER_MSE_SET_DST = {0x00, 0x22, (byte) 0x81, (byte) 0xB6};
+	private static final byte[] HEADER_PSO_VERIFY_CERTIFICATE = {0x00, 0x2A, 0x00, (byte) 0xBE};
+	private static final byte[] HEADER_GET_CHALLENGE = {0x00, (byte) 0x84, 0x00, 0x00};
+	private static final byte[] HEADER_EXTERNAL_AUTHENTICATE = {0x00, (byte) 0x82, 0x00, 0x00};
+	private static final byte[] HEADER_GENERAL_AUTHENTICATE = {0x00, (byte) 0x86, 0x00, 0x00};
+	private static final byte[] HEADER_GENERAL_AUTHENTICATE_CHAINED = {0x10, (byte) 0x86, 0x00, 0x00};
+	private static final byte[] HEADER_SELECT_AID = {0x00, (byte) 0xA4, 0x04, 0x0C};
+	
+	private final PersoSim simulator;
+	private final MasterFile mf;
+	private final TerminalCredentials authenticationTerminal;
+	private final TerminalCredentials inspectionSystem;
+	private final int chunkSize;
+	private final SecureRandom random;
+	
+	private final com.sun.management.ThreadMXBean threadBean;
+	private final long allocationOverhead;
+	
+	private final Map<Integer, byte[]> passwords = new HashMap<>();
+	private final List<KeyPairObject> riKeys = new ArrayList<>();
+	private final List<Integer> eidFiles;
+	private final List<Integer> epassFiles;
+	
+	private ApduStatistics statistics = new ApduStatistics();
+	private TerminalSecureMessaging secureMessaging;
+	
+	private PaceOid paceOid;
+	private int paceDomainParameterId;
+	private CaOid caOid;
+	private int caKeyId;
+	
+	/**
+	 * @param simulator
+	 *            the started simulator with the card loaded
+	 * @param mf
+	 *            the object tree of the loaded card
+	 * @param authenticationTerminal
+	 *            the credentials used for sessions with PIN or CAN
+	 * @param inspectionSystem
+	 *            the credentials used for sessions with MRZ
+	 * @param chunkSize
+	 *            the maximum number of bytes requested by a single READ BINARY
+	 * @param random
+	 *            the source of randomness for all ephemeral keys
+	 */
+	EacTerminal(PersoSim simulator, MasterFile mf, TerminalCredentials authenticationTerminal, TerminalCredentials inspectionSystem,
+			int chunkSize, SecureRandom random) {
+		if ((chunkSize < 8) || (chunkSize > 256)) {
+			throw new IllegalArgumentException("chunk size must be within 8 and 256");
+		}
+		this.simulator = simulator;
+		this.mf = mf;
+		this.authenticationTerminal = authenticationTerminal;
+		this.inspectionSystem = inspectionSystem;
+		this.chunkSize = chunkSize;
+		this.random = random;
+		
+		for (int passwordId : new int[] {ID_MRZ, ID_CAN, ID_PIN}) {
+			for (CardObject password : mf.findChildren(new AuthObjectIdentifier(passwordId))) {
+				passwords.put(passwordId, ((PasswordAuthObject) password).getPassword());
+			}
+		}
+		for (CardObject riKey : mf.findChildren(new OidIdentifier(new GenericOid(Ri.id_RI)))) {
+			riKeys.add((KeyPairObject) riKey);
+		}
+		eidFiles = getShortFileIdentifiers(AID_EID);
+		epassFiles = getShortFileIdentifiers(AID_EPASS);
+		
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if ((bean instanceof com.sun.management.ThreadMXBean) && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+			threadBean = (com.sun.management.ThreadMXBean) bean;
+			threadBean.setThreadAllocatedMemoryEnabled(true);
+			long before = getAllocatedBytes();
+			allocationOverhead = getAllocatedBytes() - before;
+		} else {
+			threadBean = null;
+			allocationOverhead = 0;
+		}
+	}
+	
+	/**
+	 * This method sets the statistics all subsequently processed APDUs are
+	 * recorded in.
+	 * @param statistics the statistics to record in
+	 */
+	void setStatistics(ApduStatistics statistics) {
+		this.statistics = statistics;
+	}
+	
+	/**
+	 * This method resets the card and performs a complete session.
+	 * @param passwordId the PACE password to use, one of {@link #ID_MRZ}, {@link #ID_CAN} or {@link #ID_PIN}
+	 * @throws GeneralSecurityException if the card could not be authenticated
+	 * @throws IllegalStateException if the card responds with an unexpected status word
+	 */
+	void performSession(int passwordId) throws GeneralSecurityException {
+		byte[] password = passwords.get(passwordId);
+		if (password == null) {
+			throw new IllegalArgumentException("card does not provide password " + passwordId);
+		}
+		TerminalCredentials terminal = (passwordId == ID_MRZ) ? inspectionSystem : authenticationTerminal;
+		
+		simulator.cardReset();
+		secureMessaging = null;
+		
+		parseCardAccess(readFile(SFI_CARD_ACCESS));
+		byte[] idPicc = performPace(passwordId, password, terminal);
+		
+		PublicKey caStaticPublicKey = getStaticPublicKey(new KeyIdentifier(caKeyId), new OidIdentifier(caOid));
+		DomainParameterSet caDomainParameters = Tr03110Utils.getDomainParameterSetFromKey(caStaticPublicKey);
+		KeyPair caEphemeralKeyPair = CryptoUtil.generateKeyPair(caDomainParameters, random);
+		
+		performTa(terminal, idPicc, caDomainParameters.comp(caEphemeralKeyPair.getPublic()));
+		performCa(caStaticPublicKey, caDomainParameters, caEphemeralKeyPair);
+		
+		if (terminal == authenticationTerminal) {
+			readFile(SFI_CARD_SECURITY);
+			performRi();
+			readApplication(AID_EID, eidFiles);
+		} else {
+			readApplication(AID_EPASS, epassFiles);
+		}
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	
+	private byte[] performPace(int passwordId, byte[] password, TerminalCredentials terminal) throws GeneralSecurityException {
+		if (!(paceOid.getMapping() instanceof GenericMapping)) {
+			throw new IllegalArgumentException("only generic mapping is supported, card offers " + paceOid);
+		}
+		GenericMapping mapping = (GenericMapping) paceOid.getMapping();
+		DomainParameterSet domainParameters = StandardizedDomainParameters.getDomainParameterSetById(paceDomainParameterId);
+		CryptoSupport cryptoSupport = paceOid.getCryptoSupport();
+		KeyDerivationFunction kdf = new KeyDerivationFunction(paceOid.getSymmetricCipherKeyLengthInBytes());
+		
+		TlvDataObjectContainer setAtData = new TlvDataObjectContainer();
+		setAtData.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_80, paceOid.toByteArray()));
+		setAtData.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_83, new byte[] {(byte) passwordId}));
+		setAtData.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_84, new byte[] {(byte) paceDomainParameterId}));
+		setAtData.addTlvDataObject(terminal.getChat());
+		transmitPlain(PACE_SET_AT, HEADER_MSE_SET_AT_PACE, setAtData.toByteArray(), 0);
+		
+		byte[] response = transmitPlain(PACE_ENCRYPTED_NONCE, HEADER_GENERAL_AUTHENTICATE_CHAINED, new ConstructedTlvDataObject(TlvConstants.TAG_7C).toByteArray(), 256);
+		byte[] nonce = cryptoSupport.decryptWithIvZero(getDynamicAuthenticationData(response, TlvConstants.TAG_80),
+				cryptoSupport.generateSecretKeySpecCipher(kdf.derivePI(password)));
+		
+		KeyPair mappingKeyPair = CryptoUtil.generateKeyPair(domainParameters, random);
+		response = transmitPlain(PACE_MAP_NONCE, HEADER_GENERAL_AUTHENTICATE_CHAINED,
+				buildDynamicAuthenticationData(TlvConstants.TAG_81, domainParameters.encodePublicKey(mappingKeyPair.getPublic())), 256);
+		PublicKey piccMappingKey = domainParameters.reconstructPublicKey(getDynamicAuthenticationData(response, TlvConstants.TAG_82));
+		DomainParameterSet mappedDomainParameters = mapping.performMappingOfDomainParameters(domainParameters, nonce,
+				mapping.performKeyAgreement(domainParameters, mappingKeyPair.getPrivate(), piccMappingKey));
+		
+		KeyPair ephemeralKeyPair = CryptoUtil.generateKeyPair(mappedDomainParameters, random);
+		response = transmitPlain(PACE_KEY_AGREEMENT, HEADER_GENERAL_AUTHENTICATE_CHAINED,
+				buildDynamicAuthenticationData(TlvConstants.TAG_83, mappedDomainParameters.encodePublicKey(ephemeralKeyPair.getPublic())), 256);
+		PublicKey piccEphemeralKey = mappedDomainParameters.reconstructPublicKey(getDynamicAuthenticationData(response, TlvConstants.TAG_84));
+		
+		KeyAgreement keyAgreement = CryptoInstanceCache.getKeyAgreement(paceOid.getKeyAgreementName());
+		keyAgreement.init(ephemeralKeyPair.getPrivate());
+		keyAgreement.doPhase(piccEphemeralKey, true);
+		byte[] sharedSecret = keyAgreement.generateSecret();
+		SecretKeySpec keyEnc = cryptoSupport.generateSecretKeySpecCipher(kdf.deriveENC(sharedSecret));
+		SecretKeySpec keyMac = cryptoSupport.generateSecretKeySpecMac(kdf.deriveMAC(sharedSecret));
+		
+		byte[] pcdToken = Arrays.copyOf(cryptoSupport.macAuthenticationToken(
+				Tr03110Utils.buildAuthenticationTokenInput(piccEphemeralKey, mappedDomainParameters, paceOid).toByteArray(), keyMac), 8);
+		response = transmitPlain(PACE_MUTUAL_AUTHENTICATION, HEADER_GENERAL_AUTHENTICATE, buildDynamicAuthenticationData(TlvConstants.TAG_85, pcdToken), 256);
+		byte[] expectedPiccToken = Arrays.copyOf(cryptoSupport.macAuthenticationToken(
+				Tr03110Utils.buildAuthenticationTokenInput(ephemeralKeyPair.getPublic(), mappedDomainParameters, paceOid).toByteArray(), keyMac), 8);
+		if (!Arrays.equals(expectedPiccToken, getDynamicAuthenticationData(response, TlvConstants.TAG_86))) {
+			throw new GeneralSecurityException("PACE authentication token of the card could not be verified");
+		}
+		
+		secureMessaging = new TerminalSecureMessaging(keyEnc, keyMac);
+		return mappedDomainParameters.comp(piccEphemeralKey);
+	}
+	
+	private void performTa(TerminalCredentials terminal, byte[] idPicc, byte[] compressedEphemeralPublicKey) throws GeneralSecurityException {
+		byte[] reference = terminal.getCvcaReference();
+		for (ConstructedTlvDataObject certificate : terminal.getCertificates()) {
+			transmitSecured(TA_SET_DST, HEADER_MSE_SET_DST, new PrimitiveTlvDataObject(TlvConstants.TAG_83, reference).toByteArray(), 0);
+			
+			ConstructedTlvDataObject body = (ConstructedTlvDataObject) certificate.getTlvDataObject(TlvConstants.TAG_7F4E);
+			TlvDataObject signature = certificate.getTlvDataObject(TlvConstants.TAG_5F37);
+			transmitSecured(TA_VERIFY_CERTIFICATE, HEADER_PSO_VERIFY_CERTIFICATE, Utils.concatByteArrays(body.toByteArray(), signature.toByteArray()), 0);
+			
+			reference = body.getTlvDataObject(TlvConstants.TAG_5F20).getValueField();
+		}
+		
+		TlvDataObjectContainer setAtData = new TlvDataObjectContainer();
+		setAtData.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_80, terminal.getTaOid().toByteArray()));
+		setAtData.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_83, reference));
+		setAtData.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_91, compressedEphemeralPublicKey));
+		transmitSecured(TA_SET_AT, HEADER_MSE_SET_AT_TA, setAtData.toByteArray(), 0);
+		
+		byte[] response = transmitSecured(TA_GET_CHALLENGE, HEADER_GET_CHALLENGE, null, 8);
+		byte[] challenge = Arrays.copyOf(response, response.length - 2);
+		
+		byte[] signature = terminal.sign(Utils.concatByteArrays(idPicc, challenge, compressedEphemeralPublicKey));
+		transmitSecured(TA_EXTERNAL_AUTHENTICATE, HEADER_EXTERNAL_AUTHENTICATE, signature, 0);
+	}
+	
+	private void performCa(PublicKey staticPublicKey, DomainParameterSet domainParameters, KeyPair ephemeralKeyPair) throws GeneralSecurityException {
+		TlvDataObjectContainer setAtData = new TlvDataObjectContainer();
+		setAtData.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_80, caOid.toByteArray()));
+		setAtData.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_84, new byte[] {(byte) caKeyId}));
+		transmitSecured(CA_SET_AT, HEADER_MSE_SET_AT_CA, setAtData.toByteArray(), 0);
+		
+		byte[] response = transmitSecured(CA_GENERAL_AUTHENTICATE, HEADER_GENERAL_AUTHENTICATE,
+				buildDynamicAuthenticationData(TlvConstants.TAG_80, domainParameters.encodePublicKey(ephemeralKeyPair.getPublic())), 256);
+		byte[] nonce = getDynamicAuthenticationData(response, TlvConstants.TAG_81);
+		
+		KeyAgreement keyAgreement = CryptoInstanceCache.getKeyAgreement(caOid.getKeyAgreementName());
+		keyAgreement.init(ephemeralKeyPair.getPrivate());
+		keyAgreement.doPhase(staticPublicKey, true);
+		byte[] sharedSecret = keyAgreement.generateSecret();
+		
+		CryptoSupport cryptoSupport = caOid.getCryptoSupport();
+		KeyDerivationFunction kdf = new KeyDerivationFunction(caOid.getSymmetricCipherKeyLengthInBytes());
+		SecretKeySpec keyEnc = cryptoSupport.generateSecretKeySpecCipher(kdf.deriveENC(sharedSecret, nonce));
+		SecretKeySpec keyMac = cryptoSupport.generateSecretKeySpecMac(kdf.deriveMAC(sharedSecret, nonce));
+		
+		byte[] expectedToken = Arrays.copyOf(cryptoSupport.macAuthenticationToken(
+				Tr03110Utils.buildAuthenticationTokenInput(ephemeralKeyPair.getPublic(), domainParameters, caOid).toByteArray(), keyMac), 8);
+		if (!Arrays.equals(expectedToken, getDynamicAuthenticationData(response, TlvConstants.TAG_82))) {
+			throw new GeneralSecurityException("CA authentication token of the card could not be verified");
+		}
+		
+		secureMessaging = new TerminalSecureMessaging(keyEnc, keyMac);
+	}
+	
+	private void performRi() throws GeneralSecurityException {
+		List<ConstructedTlvDataObject> sectorPublicKeys = authenticationTerminal.getSectorPublicKeys();
+		ConstructedTlvDataObject dynamicAuthenticationData = new ConstructedTlvDataObject(TlvConstants.TAG_7C);
+		dynamicAuthenticationData.addTlvDataObject(new ConstructedTlvDataObject(Ri.RI_FIRST_SECTOR_KEY_TAG, sectorPublicKeys.get(0).getTlvDataObjectContainer()));
+		dynamicAuthenticationData.addTlvDataObject(new ConstructedTlvDataObject(Ri.RI_SECOND_SECTOR_KEY_TAG, sectorPublicKeys.get(1).getTlvDataObjectContainer()));
+		byte[] generalAuthenticateData = dynamicAuthenticationData.toByteArray();
+		
+		for (KeyPairObject riKey : riKeys) {
+			TlvDataObjectContainer setAtData = new TlvDataObjectContainer();
+			setAtData.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_80, getOid(riKey, Ri.id_RI)));
+			setAtData.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_84, new byte[] {(byte) riKey.getPrimaryIdentifier().getKeyReference()}));
+			transmitSecured(RI_SET_AT, HEADER_MSE_SET_AT_CA, setAtData.toByteArray(), 0);
+			
+			byte[] response = transmitSecured(RI_GENERAL_AUTHENTICATE, HEADER_GENERAL_AUTHENTICATE, generalAuthenticateData, 256);
+			getDynamicAuthenticationData(response, TlvConstants.TAG_81);
+			getDynamicAuthenticationData(response, TlvConstants.TAG_83);
+		}
+	}
+	
+	private void readApplication(byte[] aid, List<Integer> shortFileIdentifiers) throws GeneralSecurityException {
+		if (shortFileIdentifiers.isEmpty()) {
+			return;
+		}
+		transmitSecured(SELECT, HEADER_SELECT_AID, aid, 0);
+		for (int shortFileIdentifier : shortFileIdentifiers) {
+			readFile(shortFileIdentifier);
+		}
+	}
+	
+	/**
+	 * This method reads a complete transparent file in chunks of at most
+	 * {@link #chunkSize} bytes, secured if secure messaging is established.
+	 * The file is selected by its short file identifier with the first READ
+	 * BINARY, its length is taken from the encoding of the contained data
+	 * object. Reading stops early if the card reports the end of the file
+	 * (6282).
+	 */
+	private byte[] readFile(int shortFileIdentifier) throws GeneralSecurityException {
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		int offset = 0;
+		int fileLength = -1;
+		do {
+			if (offset > MAX_OFFSET_READ_BINARY) {
+				throw new IllegalStateException("file " + shortFileIdentifier + " exceeds the offsets supported by READ BINARY with even INS");
+			}
+			byte[] header = (offset == 0) ? new byte[] {0x00, (byte) 0xB0, (byte) (0x80 | shortFileIdentifier), 0x00}
+					: new byte[] {0x00, (byte) 0xB0, (byte) (offset >>> 8), (byte) offset};
+			int ne = (fileLength < 0) ? chunkSize : Math.min(chunkSize, fileLength - offset);
+			
+			byte[] response;
+			if (secureMessaging == null) {
+				response = transmit(PLAIN_READ_BINARY, BenchmarkUtils.buildCommandApdu(header, null, ne));
+			} else {
+				response = secureMessaging.unwrap(transmit(READ_BINARY, secureMessaging.wrap(header, null, ne)));
+			}
+			int length = response.length - 2;
+			boolean endOfFile = (length >= 0) && (response[length] == 0x62) && (response[length + 1] == (byte) 0x82);
+			if (!endOfFile) {
+				checkStatus(READ_BINARY, response);
+			}
+			content.write(response, 0, length);
+			offset += length;
+			if (endOfFile || (length == 0)) {
+				break;
+			}
+			
+			if (fileLength < 0) {
+				fileLength = getEncodedLength(content.toByteArray());
+			}
+		} while (offset < fileLength);
+		return content.toByteArray();
+	}
+	
+	private void parseCardAccess(byte[] cardAccess) {
+		paceOid = null;
+		caOid = null;
+		for (TlvDataObject securityInfo : new ConstructedTlvDataObject(cardAccess).getTlvDataObjectContainer()) {
+			List<TlvDataObject> elements = new ArrayList<>();
+			for (TlvDataObject element : ((ConstructedTlvDataObject) securityInfo).getTlvDataObjectContainer()) {
+				elements.add(element);
+			}
+			byte[] oid = elements.get(0).getValueField();
+			GenericOid genericOid = new GenericOid(oid);
+			int parameter = (elements.size() > 2) ? Utils.getIntFromUnsignedByteArray(elements.get(2).getValueField()) : -1;
+			
+			if ((paceOid == null) && genericOid.startsWithPrefix(Pace.id_PACE) && (oid.length == Pace.id_PACE.length + 2)) {
+				paceOid = new PaceOid(oid);
+				paceDomainParameterId = parameter;
+			} else if ((caOid == null) && genericOid.startsWithPrefix(Ca.id_CA) && (oid.length == Ca.id_CA.length + 2)) {
+				caOid = new CaOid(oid);
+				caKeyId = parameter;
+			}
+		}
+		if ((paceOid == null) || (caOid == null)) {
+			throw new IllegalStateException("EF.CardAccess does not contain PACE and CA information");
+		}
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	
+	private byte[] transmitPlain(String command, byte[] header, byte[] data, int ne) {
+		return checkStatus(command, transmit(command, BenchmarkUtils.buildCommandApdu(header, data, ne)));
+	}
+	
+	private byte[] transmitSecured(String command, byte[] header, byte[] data, int ne) throws GeneralSecurityException {
+		byte[] response = secureMessaging.unwrap(transmit(command, secureMessaging.wrap(header, data, ne)));
+		return checkStatus(command, response);
+	}
+	
+	private byte[] transmit(String command, byte[] commandApdu) {
+		long allocatedBefore = getAllocatedBytes();
+		long start = System.nanoTime();
+		byte[] response = simulator.processCommand(commandApdu);
+		long nanos = System.nanoTime() - start;
+		long allocated = (threadBean == null) ? -1 : getAllocatedBytes() - allocatedBefore - allocationOverhead;
+		statistics.record(command, nanos, allocated, commandApdu.length, response);
+		return response;
+	}
+	
+	private long getAllocatedBytes() {
+		return (threadBean == null) ? -1 : threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	
+	private static byte[] checkStatus(String command, byte[] response) {
+		int length = response.length;
+		if ((length < 2) || (response[length - 2] != (byte) 0x90) || (response[length - 1] != 0x00)) {
+			throw new IllegalStateException(command + " failed with status word " + HexString.encode(Arrays.copyOfRange(response, Math.max(0, length - 2), length)));
+		}
+		return response;
+	}
+	
+	private static byte[] buildDynamicAuthenticationData(TlvTag tag, byte[] value) {
+		ConstructedTlvDataObject dynamicAuthenticationData = new ConstructedTlvDataObject(TlvConstants.TAG_7C);
+		dynamicAuthenticationData.addTlvDataObject(new PrimitiveTlvDataObject(tag, value));
+		return dynamicAuthenticationData.toByteArray();
+	}
+	
+	private static byte[] getDynamicAuthenticationData(byte[] response, TlvTag tag) throws GeneralSecurityException {
+		TlvDataObject dataObject = new TlvDataObjectContainer(Arrays.copyOf(response, response.length - 2)).getTlvDataObject(new TlvPath(TlvConstants.TAG_7C, tag));
+		if (dataObject == null) {
+			throw new GeneralSecurityException("response is missing dynamic authentication data " + tag);
+		}
+		return dataObject.getValueField();
+	}
+	
+	/**
+	 * This method returns the length of the data object encoded at the
+	 * beginning of the given data.
+	 */
+	private static int getEncodedLength(byte[] data) {
+		int offset = 1;
+		if ((data[0] & 0x1F) == 0x1F) {
+			while ((data[offset] & 0x80) != 0) {
+				offset++;
+			}
+			offset++;
+		}
+		int length = data[offset++] & 0xFF;
+		if (length > 0x80) {
+			int noOfLengthBytes = length & 0x7F;
+			length = 0;
+			for (int i = 0; i < noOfLengthBytes; i++) {
+				length = (length << 8) | (data[offset++] & 0xFF);
+			}
+		}
+		return offset + length;
+	}
+	
+	private PublicKey getStaticPublicKey(CardObjectIdentifier... identifiers) {
+		Collection<CardObject> keys = mf.findChildren(identifiers);
+		if (keys.size() != 1) {
+			throw new IllegalStateException("static key could not be determined unambiguously from the object tree");
+		}
+		return ((KeyPairObject) keys.iterator().next()).getKeyPair().getPublic();
+	}
+	
+	private static byte[] getOid(CardObject cardObject, byte[] prefix) {
+		for (CardObjectIdentifier identifier : cardObject.getAllIdentifiers()) {
+			if ((identifier instanceof OidIdentifier) && ((OidIdentifier) identifier).getOid().startsWithPrefix(prefix)) {
+				return ((OidIdentifier) identifier).getOid().toByteArray();
+			}
+		}
+		throw new IllegalStateException("card object has no OID with the expected prefix");
+	}
+	
+	private List<Integer> getShortFileIdentifiers(byte[] aid) {
+		List<Integer> shortFileIdentifiers = new ArrayList<>();
+		for (CardObject application : mf.findChildren(new DedicatedFileIdentifier(aid))) {
+			for (CardObject file : application.getChildren()) {
+				if (!(file instanceof ElementaryFile)) {
+					continue;
+				}
+				for (CardObjectIdentifier identifier : file.getAllIdentifiers()) {
+					if (identifier instanceof ShortFileIdentifier) {
+						shortFileIdentifiers.add(((ShortFileIdentifier) identifier).getShortFileIdentifier());
+					}
+				}
+			}
+		}
+		Collections.sort(shortFileIdentifiers);
+		return shortFileIdentifiers;
+	}
+	
+}
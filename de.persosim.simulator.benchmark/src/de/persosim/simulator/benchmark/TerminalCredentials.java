@@ -0,0 +1,269 @@
+package de.persosim.simulator.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.globaltester.cryptoprovider.Crypto;
+
+import de.persosim.simulator.crypto.CryptoUtil;
+import de.persosim.simulator.crypto.DomainParameterSet;
+import de.persosim.simulator.crypto.StandardizedDomainParameters;
+import de.persosim.simulator.crypto.certificates.CardVerifiableCertificate;
+import de.persosim.simulator.crypto.certificates.CvEcPublicKey;
+import de.persosim.simulator.crypto.certificates.ExtensionOid;
+import de.persosim.simulator.exception.CertificateNotParseableException;
+import de.persosim.simulator.protocols.Tr03110Utils;
+import de.persosim.simulator.protocols.ri.Ri;
+import de.persosim.simulator.protocols.ta.TaOid;
+import de.persosim.simulator.tlv.ConstructedTlvDataObject;
+import de.persosim.simulator.tlv.PrimitiveTlvDataObject;
+import de.persosim.simulator.tlv.TlvConstants;
+import de.persosim.simulator.tlv.TlvDataObject;
+
+/**
+ * This class holds the credentials of a terminal, i.e. the certificate chain
+ * to be presented during TA, the matching private key and, for authentication
+ * terminals, the sector keys used during RI.
+ * <p/>
+ * All credentials are based on the GlobalTester test PKI shipped with the
+ * simulator (CFG.DFLT.EAC.*). The shipped authentication terminal certificate
+ * contains hashes of sector keys that are not available, so the chain of the
+ * authentication terminal is issued freshly below the shipped CVCA.
+ */
+class TerminalCredentials {
+	
+	/** the default location of the shipped test PKI relative to the repository root */
+	static final String DEFAULT_CERTIFICATES_DIR = "de.persosim.simulator/personalization/gtCertificates";
+	
+	private static final String DIR_AT = "CFG.DFLT.EAC.AT";
+	private static final String DIR_IS = "CFG.DFLT.EAC.IS";
+	private static final String DIR_ST = "CFG.DFLT.EAC.ST";
+	private static final String FILE_CVCA_CERTIFICATE = "CVCA_Cert_01.cvcert";
+	private static final String FILE_CVCA_KEY = "CVCA_KEY_01.pkcs8";
+	
+	private static final byte[] HOLDER_REFERENCE_DV = "DEDVBENCH00001".getBytes();
+	private static final byte[] HOLDER_REFERENCE_TERMINAL = "DEBENCHAT00001".getBytes();
+	private static final TaOid SIGNATURE_OID = TaOid.id_TA_ECDSA_SHA_256;
+	
+	/** the standardized domain parameters of the RI keys of all shipped profiles (brainpoolP256r1) */
+	private static final int SECTOR_KEY_DOMAIN_PARAMETER_ID = 13;
+	
+	private final byte[] cvcaReference;
+	private final List<ConstructedTlvDataObject> certificates;
+	private final ConstructedTlvDataObject chat;
+	private final PrivateKey privateKey;
+	private final TaOid taOid;
+	private final int signatureReferenceLength;
+	private final List<ConstructedTlvDataObject> sectorPublicKeys;
+	
+	private TerminalCredentials(List<ConstructedTlvDataObject> certificates, PrivateKey privateKey, List<ConstructedTlvDataObject> sectorPublicKeys) {
+		this.certificates = certificates;
+		this.privateKey = privateKey;
+		this.sectorPublicKeys = sectorPublicKeys;
+		
+		ConstructedTlvDataObject firstBody = getBody(certificates.get(0));
+		cvcaReference = firstBody.getTlvDataObject(TlvConstants.TAG_42).getValueField();
+		
+		ConstructedTlvDataObject terminalBody = getBody(certificates.get(certificates.size() - 1));
+		chat = (ConstructedTlvDataObject) terminalBody.getTlvDataObject(TlvConstants.TAG_7F4C);
+		ConstructedTlvDataObject publicKey = (ConstructedTlvDataObject) terminalBody.getTlvDataObject(TlvConstants.TAG_7F49);
+		taOid = new TaOid(publicKey.getTlvDataObject(TlvConstants.TAG_06).getValueField());
+		signatureReferenceLength = (Tr03110Utils.getDomainParameterSetFromKey(privateKey).getOrder().bitLength() + 7) >> 3;
+	}
+	
+	/**
+	 * This method loads the CVCA certificates of all terminal types from the
+	 * shipped test PKI, e.g. in order to be used as trust points.
+	 * @param certificatesDir the directory containing the test PKI
+	 * @return the CVCA certificates for AT, IS and ST
+	 * @throws IOException
+	 * @throws CertificateNotParseableException
+	 */
+	static List<CardVerifiableCertificate> loadCvcaCertificates(Path certificatesDir) throws IOException, CertificateNotParseableException {
+		List<CardVerifiableCertificate> cvcaCertificates = new ArrayList<>();
+		for (String dir : new String[] {DIR_AT, DIR_IS, DIR_ST}) {
+			cvcaCertificates.add(new CardVerifiableCertificate(readCertificate(certificatesDir.resolve(dir).resolve(FILE_CVCA_CERTIFICATE))));
+		}
+		return cvcaCertificates;
+	}
+	
+	/**
+	 * This method loads the shipped inspection system credentials.
+	 * @param certificatesDir the directory containing the test PKI
+	 * @return the inspection system credentials
+	 * @throws IOException
+	 * @throws GeneralSecurityException
+	 */
+	static TerminalCredentials loadInspectionSystem(Path certificatesDir) throws IOException, GeneralSecurityException {
+		Path dir = certificatesDir.resolve(DIR_IS);
+		List<ConstructedTlvDataObject> certificates = new ArrayList<>();
+		certificates.add(readCertificate(dir.resolve("dv_is_cert_1.cvcert")));
+		certificates.add(readCertificate(dir.resolve("is_cert_1.cvcert")));
+		return new TerminalCredentials(certificates, readPrivateKey(dir.resolve("IS_Key_01_default.pkcs8")), Collections.<ConstructedTlvDataObject>emptyList());
+	}
+	
+	/**
+	 * This method issues a new DV and authentication terminal certificate
+	 * below the shipped AT CVCA. Authorizations and validity periods are
+	 * taken from the shipped certificates, the terminal certificate
+	 * additionally contains the hashes of two freshly generated sector keys.
+	 * @param certificatesDir the directory containing the test PKI
+	 * @param random the source of randomness used for key generation
+	 * @return the authentication terminal credentials
+	 * @throws IOException
+	 * @throws GeneralSecurityException
+	 */
+	static TerminalCredentials issueAuthenticationTerminal(Path certificatesDir, SecureRandom random) throws IOException, GeneralSecurityException {
+		Path dir = certificatesDir.resolve(DIR_AT);
+		ConstructedTlvDataObject cvcaBody = getBody(readCertificate(dir.resolve(FILE_CVCA_CERTIFICATE)));
+		ConstructedTlvDataObject shippedDvBody = getBody(readCertificate(dir.resolve("dv_at_cert_1.cvcert")));
+		ConstructedTlvDataObject shippedTerminalBody = getBody(readCertificate(dir.resolve("at_cert_1.cvcert")));
+		PrivateKey cvcaKey = readPrivateKey(dir.resolve(FILE_CVCA_KEY));
+		
+		DomainParameterSet domainParameters = Tr03110Utils.getDomainParameterSetFromKey(cvcaKey);
+		KeyPair dvKeyPair = CryptoUtil.generateKeyPair(domainParameters, random);
+		KeyPair terminalKeyPair = CryptoUtil.generateKeyPair(domainParameters, random);
+		
+		DomainParameterSet sectorDomainParameters = StandardizedDomainParameters.getDomainParameterSetById(SECTOR_KEY_DOMAIN_PARAMETER_ID);
+		List<ConstructedTlvDataObject> sectorPublicKeys = new ArrayList<>();
+		MessageDigest digest = MessageDigest.getInstance(SIGNATURE_OID.getHashAlgorithmName(), Crypto.getCryptoProvider());
+		ConstructedTlvDataObject sector = new ConstructedTlvDataObject(TlvConstants.TAG_73);
+		sector.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_06, ExtensionOid.id_Sector.toByteArray()));
+		for (int i = 0; i < 2; i++) {
+			ConstructedTlvDataObject sectorPublicKey = buildSectorPublicKey((ECPublicKey) CryptoUtil.generateKeyPair(sectorDomainParameters, random).getPublic());
+			sectorPublicKeys.add(sectorPublicKey);
+			sector.addTlvDataObject(new PrimitiveTlvDataObject((i == 0) ? TlvConstants.TAG_80 : TlvConstants.TAG_81, digest.digest(sectorPublicKey.toByteArray())));
+		}
+		ConstructedTlvDataObject extensions = new ConstructedTlvDataObject(TlvConstants.TAG_65);
+		extensions.addTlvDataObject(sector);
+		
+		byte[] cvcaReference = cvcaBody.getTlvDataObject(TlvConstants.TAG_5F20).getValueField();
+		List<ConstructedTlvDataObject> certificates = new ArrayList<>();
+		certificates.add(issueCertificate(cvcaReference, HOLDER_REFERENCE_DV, (ECPublicKey) dvKeyPair.getPublic(), shippedDvBody, null, cvcaKey));
+		certificates.add(issueCertificate(HOLDER_REFERENCE_DV, HOLDER_REFERENCE_TERMINAL, (ECPublicKey) terminalKeyPair.getPublic(), shippedTerminalBody, extensions, dvKeyPair.getPrivate()));
+		
+		return new TerminalCredentials(certificates, terminalKeyPair.getPrivate(), sectorPublicKeys);
+	}
+	
+	private static ConstructedTlvDataObject issueCertificate(byte[] authorityReference, byte[] holderReference, ECPublicKey publicKey,
+			ConstructedTlvDataObject template, ConstructedTlvDataObject extensions, PrivateKey signingKey) throws GeneralSecurityException {
+		ConstructedTlvDataObject body = new ConstructedTlvDataObject(TlvConstants.TAG_7F4E);
+		body.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_5F29, new byte[] {0x00}));
+		body.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_42, authorityReference));
+		body.addTlvDataObject(new CvEcPublicKey(SIGNATURE_OID, publicKey).toTlvDataObject(false));
+		body.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_5F20, holderReference));
+		body.addTlvDataObject(template.getTlvDataObject(TlvConstants.TAG_7F4C));
+		body.addTlvDataObject(template.getTlvDataObject(TlvConstants.TAG_5F25));
+		body.addTlvDataObject(template.getTlvDataObject(TlvConstants.TAG_5F24));
+		if (extensions != null) {
+			body.addTlvDataObject(extensions);
+		}
+		
+		Signature signature = SIGNATURE_OID.getSignature();
+		signature.initSign(signingKey);
+		signature.update(body.toByteArray());
+		int referenceLength = (Tr03110Utils.getDomainParameterSetFromKey(signingKey).getOrder().bitLength() + 7) >> 3;
+		
+		ConstructedTlvDataObject certificate = new ConstructedTlvDataObject(TlvConstants.TAG_7F21);
+		certificate.addTlvDataObject(body, new PrimitiveTlvDataObject(TlvConstants.TAG_5F37, BenchmarkUtils.toPlainSignature(signature.sign(), referenceLength)));
+		return certificate;
+	}
+	
+	/**
+	 * This method encodes a sector public key as expected by RI, i.e. as CV
+	 * public key including all domain parameters with the RI OID.
+	 */
+	private static ConstructedTlvDataObject buildSectorPublicKey(ECPublicKey publicKey) {
+		ConstructedTlvDataObject sectorPublicKey = new ConstructedTlvDataObject(TlvConstants.TAG_7F49);
+		sectorPublicKey.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_06, Ri.id_RI_ECDH_SHA_256));
+		for (TlvDataObject dataObject : new CvEcPublicKey(SIGNATURE_OID, publicKey).toTlvDataObject(true).getTlvDataObjectContainer()) {
+			if (!dataObject.getTlvTag().equals(TlvConstants.TAG_06)) {
+				sectorPublicKey.addTlvDataObject(dataObject);
+			}
+		}
+		return sectorPublicKey;
+	}
+	
+	private static ConstructedTlvDataObject getBody(ConstructedTlvDataObject certificate) {
+		return (ConstructedTlvDataObject) certificate.getTlvDataObject(TlvConstants.TAG_7F4E);
+	}
+	
+	private static ConstructedTlvDataObject readCertificate(Path file) throws IOException {
+		return new ConstructedTlvDataObject(Files.readAllBytes(file));
+	}
+	
+	private static PrivateKey readPrivateKey(Path file) throws IOException, GeneralSecurityException {
+		return KeyFactory.getInstance("EC", Crypto.getCryptoProvider()).generatePrivate(new PKCS8EncodedKeySpec(Files.readAllBytes(file)));
+	}
+	
+	/**
+	 * @return the holder reference of the CVCA the certificate chain starts with
+	 */
+	byte[] getCvcaReference() {
+		return Arrays.copyOf(cvcaReference, cvcaReference.length);
+	}
+	
+	/**
+	 * @return the certificate chain starting with the DV certificate
+	 */
+	List<ConstructedTlvDataObject> getCertificates() {
+		return Collections.unmodifiableList(certificates);
+	}
+	
+	/**
+	 * @return the holder reference of the terminal certificate
+	 */
+	byte[] getTerminalReference() {
+		return getBody(certificates.get(certificates.size() - 1)).getTlvDataObject(TlvConstants.TAG_5F20).getValueField();
+	}
+	
+	/**
+	 * @return the CHAT of the terminal certificate, to be used during PACE
+	 */
+	ConstructedTlvDataObject getChat() {
+		return chat;
+	}
+	
+	/**
+	 * @return the TA OID denoting the signature algorithm of the terminal key
+	 */
+	TaOid getTaOid() {
+		return taOid;
+	}
+	
+	/**
+	 * This method signs the given data with the terminal key as required by
+	 * EXTERNAL AUTHENTICATE.
+	 * @param data the data to be signed
+	 * @return the plain signature
+	 * @throws GeneralSecurityException
+	 */
+	byte[] sign(byte[] data) throws GeneralSecurityException {
+		Signature signature = taOid.getSignature();
+		signature.initSign(privateKey);
+		signature.update(data);
+		return BenchmarkUtils.toPlainSignature(signature.sign(), signatureReferenceLength);
+	}
+	
+	/**
+	 * @return the encoded sector public keys for RI, empty if the terminal has no sector
+	 */
+	List<ConstructedTlvDataObject> getSectorPublicKeys() {
+		return Collections.unmodifiableList(sectorPublicKeys);
+	}
+	
+}
@@ -0,0 +1,133 @@
+package de.persosim.simulator.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import de.persosim.simulator.crypto.CryptoUtil;
+import de.persosim.simulator.securemessaging.SecureMessaging;
+import de.persosim.simulator.securemessaging.SmDataProviderTr03110;
+import de.persosim.simulator.tlv.PrimitiveTlvDataObject;
+import de.persosim.simulator.tlv.TlvConstants;
+import de.persosim.simulator.tlv.TlvDataObject;
+import de.persosim.simulator.tlv.TlvDataObjectContainer;
+import de.persosim.simulator.utils.HexString;
+import de.persosim.simulator.utils.Utils;
+
+/**
+ * This class implements the terminal side of secure messaging as established
+ * by PACE or CA, i.e. it secures command APDUs and verifies and decrypts the
+ * response APDUs.
+ * <p/>
+ * The send sequence counter and the derived IVs are taken from a
+ * {@link SmDataProviderTr03110} which mirrors the state of the card.
+ */
+class TerminalSecureMessaging {
+	
+	private final SmDataProviderTr03110 dataProvider;
+	
+	/**
+	 * Start a new secure messaging session with send sequence counter 0.
+	 * @param keyEnc the session key for encryption
+	 * @param keyMac the session key for MAC computation
+	 */
+	TerminalSecureMessaging(SecretKeySpec keyEnc, SecretKeySpec keyMac) {
+		dataProvider = new SmDataProviderTr03110(keyEnc, keyMac);
+	}
+	
+	/**
+	 * This method secures a plain command APDU. Extended length is used
+	 * whenever the secured APDU does not fit into a short APDU.
+	 * @param header the plain header CLA, INS, P1, P2
+	 * @param data the plain command data, may be null
+	 * @param ne the expected response length, 0 if no response data is expected
+	 * @return the secured command APDU
+	 * @throws GeneralSecurityException
+	 */
+	byte[] wrap(byte[] header, byte[] data, int ne) throws GeneralSecurityException {
+		dataProvider.nextIncoming();
+		
+		Cipher cipher = dataProvider.getCipher();
+		int blockSize = cipher.getBlockSize();
+		
+		byte[] securedHeader = Arrays.copyOf(header, 4);
+		securedHeader[0] |= 0x0C;
+		
+		ByteArrayOutputStream dataObjects = new ByteArrayOutputStream();
+		if ((data != null) && (data.length > 0)) {
+			cipher.init(Cipher.ENCRYPT_MODE, dataProvider.getKeyEnc(), dataProvider.getCipherIv());
+			byte[] cryptogram = cipher.doFinal(CryptoUtil.padData(data, blockSize));
+			write(dataObjects, new PrimitiveTlvDataObject(TlvConstants.TAG_87, Utils.concatByteArrays(new byte[] {0x01}, cryptogram)));
+		}
+		if (ne > 0) {
+			byte[] le = (ne <= 256) ? new byte[] {(byte) ne} : new byte[] {(byte) (ne >>> 8), (byte) ne};
+			write(dataObjects, new PrimitiveTlvDataObject(TlvConstants.TAG_97, le));
+		}
+		
+		Mac mac = dataProvider.getMac();
+		mac.init(dataProvider.getKeyMac());
+		mac.update(dataProvider.getMacAuxiliaryData());
+		mac.update(CryptoUtil.padData(securedHeader, blockSize));
+		if (dataObjects.size() > 0) {
+			mac.update(CryptoUtil.padData(dataObjects.toByteArray(), blockSize));
+		}
+		write(dataObjects, new PrimitiveTlvDataObject(TlvConstants.TAG_8E, Arrays.copyOf(mac.doFinal(), dataProvider.getMacLength())));
+		
+		// secured command APDUs are always case 4, the extended length Le denotes 65536 bytes
+		boolean extendedLength = (dataObjects.size() > 255) || (ne > 256);
+		return BenchmarkUtils.buildCommandApdu(securedHeader, dataObjects.toByteArray(), extendedLength ? 65536 : 256);
+	}
+	
+	/**
+	 * This method verifies and decrypts a secured response APDU.
+	 * @param response the secured response APDU
+	 * @return the plain response APDU
+	 * @throws GeneralSecurityException if the response is not properly secured
+	 */
+	byte[] unwrap(byte[] response) throws GeneralSecurityException {
+		dataProvider.nextOutgoing();
+		
+		if (response.length <= 2) {
+			throw new GeneralSecurityException("response is not secured, status word is " + HexString.encode(response));
+		}
+		
+		TlvDataObjectContainer dataObjects = new TlvDataObjectContainer(Arrays.copyOf(response, response.length - 2));
+		TlvDataObject cryptogram = dataObjects.getTlvDataObject(TlvConstants.TAG_87);
+		TlvDataObject statusWord = dataObjects.getTlvDataObject(TlvConstants.TAG_99);
+		TlvDataObject macValue = dataObjects.getTlvDataObject(TlvConstants.TAG_8E);
+		if ((statusWord == null) || (macValue == null)) {
+			throw new GeneralSecurityException("secured response is missing mandatory data objects");
+		}
+		
+		Cipher cipher = dataProvider.getCipher();
+		int blockSize = cipher.getBlockSize();
+		
+		byte[] macInput = (cryptogram != null) ? Utils.concatByteArrays(cryptogram.toByteArray(), statusWord.toByteArray()) : statusWord.toByteArray();
+		Mac mac = dataProvider.getMac();
+		mac.init(dataProvider.getKeyMac());
+		mac.update(dataProvider.getMacAuxiliaryData());
+		mac.update(CryptoUtil.padData(macInput, blockSize));
+		if (!Arrays.equals(Arrays.copyOf(mac.doFinal(), dataProvider.getMacLength()), macValue.getValueField())) {
+			throw new GeneralSecurityException("MAC of secured response could not be verified");
+		}
+		
+		if (cryptogram == null) {
+			return statusWord.getValueField();
+		}
+		
+		byte[] encrypted = cryptogram.getValueField();
+		cipher.init(Cipher.DECRYPT_MODE, dataProvider.getKeyEnc(), dataProvider.getCipherIv());
+		byte[] plain = SecureMessaging.unpadData(cipher.doFinal(encrypted, 1, encrypted.length - 1), blockSize);
+		return Utils.concatByteArrays(plain, statusWord.getValueField());
+	}
+	
+	private static void write(ByteArrayOutputStream out, TlvDataObject dataObject) {
+		byte[] encoding = dataObject.toByteArray();
+		out.write(encoding, 0, encoding.length);
+	}
+	
+}
@@ -0,0 +1,82 @@
+package de.persosim.simulator.crypto;
+
+import java.math.BigInteger;
+import java.security.spec.ECPoint;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.persosim.simulator.benchmark.BenchmarkUtils;
+
+/**
+ * Benchmarks EC scalar point multiplication for all standardized ECDH domain
+ * parameters supported by default (ids 8 to 18) and all available
+ * {@link EcArithmetic} implementations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CryptoUtilBenchmark {
+	
+	@Param({"8", "9", "10", "11", "12", "13", "14", "15", "16", "17", "18"})
+	public int domainParameterId;
+	
+	@Param({"Jacobian", "Affine"})
+	public String arithmetic;
+	
+	private EcArithmetic previousArithmetic;
+	
+	private DomainParameterSetEcdh domainParameterSet;
+	private ECPoint point;
+	private BigInteger scalar;
+	
+	@Setup
+	public void setUp() {
+		BenchmarkUtils.setUp();
+		
+		previousArithmetic = CryptoUtil.getEcArithmetic();
+		CryptoUtil.setEcArithmetic("Affine".equals(arithmetic) ? new EcArithmeticAffine() : new EcArithmeticJacobian());
+		
+		domainParameterSet = BenchmarkUtils.getDomainParameterSetEcdh(domainParameterId);
+		Random random = BenchmarkUtils.getRandom();
+		point = domainParameterSet.computePublicPoint(BenchmarkUtils.getRandomScalar(random, domainParameterSet.getOrder()));
+		scalar = BenchmarkUtils.getRandomScalar(random, domainParameterSet.getOrder());
+	}
+	
+	@TearDown
+	public void tearDown() {
+		CryptoUtil.setEcArithmetic(previousArithmetic);
+	}
+	
+	/**
+	 * Multiplication of an arbitrary point, e.g. during ECDH key agreement.
+	 */
+	@Benchmark
+	public ECPoint scalarPointMultiplication() {
+		return CryptoUtil.scalarPointMultiplication(domainParameterSet.getCurve(), domainParameterSet.getOrder(), point, scalar);
+	}
+	
+	/**
+	 * Multiplication of the generator, e.g. during key pair generation.
+	 */
+	@Benchmark
+	public ECPoint computePublicPoint() {
+		return domainParameterSet.computePublicPoint(scalar);
+	}
+	
+}
@@ -0,0 +1,63 @@
+package de.persosim.simulator.crypto;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.persosim.simulator.benchmark.BenchmarkUtils;
+
+/**
+ * Benchmarks the key derivation for all key lengths used by PACE and CA, i.e.
+ * 3DES and AES-128 (SHA-1) as well as AES-192 and AES-256 (SHA-256). The
+ * secret length matches the 32 byte shared secret of brainpoolP256r1.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class KeyDerivationFunctionBenchmark {
+	
+	@Param({"16", "24", "32"})
+	public int keyLength;
+	
+	private KeyDerivationFunction kdf;
+	private byte[] secret;
+	private byte[] nonce;
+	
+	@Setup
+	public void setUp() {
+		BenchmarkUtils.setUp();
+		
+		kdf = new KeyDerivationFunction(keyLength);
+		
+		Random random = BenchmarkUtils.getRandom();
+		secret = new byte[32];
+		random.nextBytes(secret);
+		nonce = new byte[16];
+		random.nextBytes(nonce);
+	}
+	
+	@Benchmark
+	public byte[] deriveKey() {
+		return kdf.deriveKey(secret, null, KeyDerivationFunction.COUNTER_ENC);
+	}
+	
+	@Benchmark
+	public byte[] deriveKeyWithNonce() {
+		return kdf.deriveKey(secret, nonce, KeyDerivationFunction.COUNTER_MAC);
+	}
+	
+}
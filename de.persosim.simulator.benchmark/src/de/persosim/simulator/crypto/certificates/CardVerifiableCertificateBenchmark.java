@@ -0,0 +1,105 @@
+package de.persosim.simulator.crypto.certificates;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.persosim.simulator.benchmark.BenchmarkUtils;
+import de.persosim.simulator.crypto.CryptoUtil;
+import de.persosim.simulator.crypto.DomainParameterSetEcdh;
+import de.persosim.simulator.exception.CertificateNotParseableException;
+import de.persosim.simulator.protocols.ta.TaOid;
+import de.persosim.simulator.tlv.ConstructedTlvDataObject;
+import de.persosim.simulator.tlv.PrimitiveTlvDataObject;
+import de.persosim.simulator.tlv.TlvConstants;
+import de.persosim.simulator.utils.HexString;
+
+/**
+ * Benchmarks parsing and signature verification of CV certificates for all
+ * standardized ECDH domain parameters supported by default (ids 8 to 18).
+ * <p/>
+ * For every domain parameter set a self-signed certificate including the
+ * domain parameters is generated during setup. The signature is verified as
+ * done by the terminal authentication.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CardVerifiableCertificateBenchmark {
+	
+	private static final TaOid SIGNATURE_OID = TaOid.id_TA_ECDSA_SHA_256;
+	private static final byte[] HOLDER_REFERENCE = "DETESTCVCA00001".getBytes();
+	private static final String CHAT = "7F4C12060904007F0007030102025305FC0F13FFFF";
+	
+	@Param({"8", "9", "10", "11", "12", "13", "14", "15", "16", "17", "18"})
+	public int domainParameterId;
+	
+	private byte[] certificateData;
+	private CardVerifiableCertificate certificate;
+	private byte[] bodyData;
+	private byte[] signatureData;
+	
+	@Setup
+	public void setUp() throws GeneralSecurityException, CertificateNotParseableException {
+		BenchmarkUtils.setUp();
+		
+		DomainParameterSetEcdh domainParameterSet = BenchmarkUtils.getDomainParameterSetEcdh(domainParameterId);
+		KeyPair keyPair = CryptoUtil.generateKeyPair(domainParameterSet, BenchmarkUtils.getSecureRandom());
+		CvEcPublicKey publicKey = new CvEcPublicKey(SIGNATURE_OID, (ECPublicKey) keyPair.getPublic());
+		
+		ConstructedTlvDataObject body = new ConstructedTlvDataObject(TlvConstants.TAG_7F4E);
+		body.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_5F29, new byte[] {0x00}));
+		body.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_42, HOLDER_REFERENCE));
+		body.addTlvDataObject(publicKey.toTlvDataObject(true));
+		body.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_5F20, HOLDER_REFERENCE));
+		body.addTlvDataObject(new ConstructedTlvDataObject(HexString.toByteArray(CHAT)));
+		body.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_5F25, HexString.toByteArray("010600010001")));
+		body.addTlvDataObject(new PrimitiveTlvDataObject(TlvConstants.TAG_5F24, HexString.toByteArray("020600010001")));
+		bodyData = body.toByteArray();
+		
+		Signature signature = SIGNATURE_OID.getSignature();
+		signature.initSign(keyPair.getPrivate());
+		signature.update(bodyData);
+		signatureData = BenchmarkUtils.toPlainSignature(signature.sign(), domainParameterSet.getOrder().bitLength() + 7 >> 3);
+		
+		ConstructedTlvDataObject certificateTlv = new ConstructedTlvDataObject(TlvConstants.TAG_7F21);
+		certificateTlv.addTlvDataObject(body, new PrimitiveTlvDataObject(TlvConstants.TAG_5F37, signatureData));
+		certificateData = certificateTlv.toByteArray();
+		
+		certificate = new CardVerifiableCertificate(certificateTlv);
+		if (!verifySignature()) {
+			throw new IllegalStateException("generated certificate signature can not be verified");
+		}
+	}
+	
+	@Benchmark
+	public CardVerifiableCertificate parseCertificate() throws CertificateNotParseableException {
+		return new CardVerifiableCertificate(new ConstructedTlvDataObject(certificateData));
+	}
+	
+	@Benchmark
+	public boolean verifySignature() throws GeneralSecurityException {
+		Signature signature = ((TaOid) certificate.getPublicKey().getCvOid()).getSignature();
+		signature.initVerify(certificate.getPublicKey());
+		signature.update(bodyData);
+		return signature.verify(CryptoUtil.restoreAsn1SignatureStructure(signatureData).toByteArray());
+	}
+	
+}
@@ -0,0 +1,83 @@
+package de.persosim.simulator.perso;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import de.persosim.simulator.cardobjects.CardObject;
+import de.persosim.simulator.cardobjects.MasterFile;
+import de.persosim.simulator.cardobjects.TrustPointCardObject;
+import de.persosim.simulator.cardobjects.TrustPointIdentifier;
+import de.persosim.simulator.cardobjects.TypeIdentifier;
+import de.persosim.simulator.crypto.certificates.CardVerifiableCertificate;
+import de.persosim.simulator.exception.AccessDeniedException;
+import de.persosim.simulator.platform.CommandProcessor;
+import de.persosim.simulator.platform.IoManager;
+import de.persosim.simulator.platform.Layer;
+import de.persosim.simulator.protocols.Protocol;
+import de.persosim.simulator.securemessaging.SecureMessaging;
+
+/**
+ * This class provides the layers of a {@link DefaultPersonalization} with the
+ * TA trust points replaced by the given CVCA certificates.
+ * <p/>
+ * Object tree and protocol list are built by the wrapped personalization, so
+ * the card behaves as the shipped profile apart from the trust anchors. This
+ * allows terminals to authenticate against all profiles with the same
+ * certificate chains.
+ */
+public class BenchmarkPersonalization implements Personalization {
+	
+	private final MasterFile mf;
+	private final List<Layer> layers;
+	
+	/**
+	 * @param personalization
+	 *            the personalization to build the object tree and the
+	 *            protocols with
+	 * @param cvcaCertificates
+	 *            the CVCA certificates to use as trust points, at most one
+	 *            per terminal type
+	 * @throws AccessDeniedException
+	 */
+	public BenchmarkPersonalization(DefaultPersonalization personalization, Collection<CardVerifiableCertificate> cvcaCertificates) throws AccessDeniedException {
+		mf = personalization.buildObjectTree();
+		
+		for (CardObject trustPoint : mf.findChildren(new TypeIdentifier(TrustPointCardObject.class))) {
+			mf.removeChild(trustPoint);
+		}
+		for (CardVerifiableCertificate cvcaCertificate : cvcaCertificates) {
+			mf.addChild(new TrustPointCardObject(new TrustPointIdentifier(
+					cvcaCertificate.getCertificateHolderAuthorizationTemplate().getTerminalType()), cvcaCertificate));
+		}
+		
+		List<Protocol> protocols = personalization.buildProtocolList();
+		
+		layers = new ArrayList<>();
+		layers.add(new IoManager());
+		layers.add(new SecureMessaging());
+		CommandProcessor commandProcessor = new CommandProcessor(protocols, mf);
+		commandProcessor.init();
+		layers.add(commandProcessor);
+	}
+	
+	/**
+	 * @return the object tree used by the card
+	 */
+	public MasterFile getMasterFile() {
+		return mf;
+	}
+	
+	@Override
+	public List<Layer> getLayerList() {
+		return layers;
+	}
+	
+	@Override
+	public void initialize() {
+		for (Layer layer : layers) {
+			layer.initializeForUse();
+		}
+	}
+	
+}
@@ -0,0 +1,64 @@
+package de.persosim.simulator.protocols.pace;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.persosim.simulator.benchmark.BenchmarkUtils;
+import de.persosim.simulator.crypto.CryptoUtil;
+import de.persosim.simulator.crypto.DomainParameterSet;
+import de.persosim.simulator.crypto.DomainParameterSetEcdh;
+
+/**
+ * Benchmarks the generic mapping of PACE for all standardized ECDH domain
+ * parameters supported by default (ids 8 to 18).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class GenericMappingEcdhBenchmark {
+	
+	@Param({"8", "9", "10", "11", "12", "13", "14", "15", "16", "17", "18"})
+	public int domainParameterId;
+	
+	private GenericMappingEcdh mapping;
+	private DomainParameterSetEcdh domainParameterSet;
+	private byte[] nonceS;
+	private byte[] secretOfKeyAgreement;
+	
+	@Setup
+	public void setUp() {
+		BenchmarkUtils.setUp();
+		
+		mapping = new GenericMappingEcdh();
+		domainParameterSet = BenchmarkUtils.getDomainParameterSetEcdh(domainParameterId);
+		
+		Random random = BenchmarkUtils.getRandom();
+		nonceS = new byte[16];
+		random.nextBytes(nonceS);
+		
+		BigInteger secret = BenchmarkUtils.getRandomScalar(random, domainParameterSet.getOrder());
+		secretOfKeyAgreement = CryptoUtil.encode(domainParameterSet.computePublicPoint(secret), domainParameterSet.getPublicPointReferenceLengthL(), CryptoUtil.ENCODING_UNCOMPRESSED);
+	}
+	
+	@Benchmark
+	public DomainParameterSet performMappingOfDomainParameters() {
+		return mapping.performMappingOfDomainParameters(domainParameterSet, nonceS, secretOfKeyAgreement);
+	}
+	
+}
@@ -0,0 +1,61 @@
+package de.persosim.simulator.protocols.ri;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.persosim.simulator.benchmark.BenchmarkUtils;
+import de.persosim.simulator.crypto.CryptoUtil;
+import de.persosim.simulator.crypto.DomainParameterSetEcdh;
+
+/**
+ * Benchmarks the sector identifier derivation of the restricted
+ * identification for all standardized ECDH domain parameters supported by
+ * default (ids 8 to 18) using id-RI-ECDH-SHA-256.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RiProtocolBenchmark {
+	
+	private static final RiOid RI_OID = new RiOid(Ri.id_RI_ECDH_SHA_256);
+	
+	@Param({"8", "9", "10", "11", "12", "13", "14", "15", "16", "17", "18"})
+	public int domainParameterId;
+	
+	private PrivateKey staticPrivateKey;
+	private PublicKey sectorPublicKey;
+	
+	@Setup
+	public void setUp() throws GeneralSecurityException {
+		BenchmarkUtils.setUp();
+		
+		DomainParameterSetEcdh domainParameterSet = BenchmarkUtils.getDomainParameterSetEcdh(domainParameterId);
+		SecureRandom secureRandom = BenchmarkUtils.getSecureRandom();
+		staticPrivateKey = CryptoUtil.generateKeyPair(domainParameterSet, secureRandom).getPrivate();
+		sectorPublicKey = CryptoUtil.generateKeyPair(domainParameterSet, secureRandom).getPublic();
+	}
+	
+	@Benchmark
+	public byte[] calculateSectorIdentifier() throws GeneralSecurityException {
+		return RiProtocol.calculateSectorIdentifier(staticPrivateKey, sectorPublicKey, RI_OID.getKeyAgreement(), RI_OID.getHash());
+	}
+	
+}
@@ -0,0 +1,160 @@
+package de.persosim.simulator.securemessaging;
+
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.globaltester.logging.InfoSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.persosim.simulator.apdu.CommandApdu;
+import de.persosim.simulator.apdu.CommandApduFactory;
+import de.persosim.simulator.apdu.ResponseApdu;
+import de.persosim.simulator.benchmark.BenchmarkUtils;
+import de.persosim.simulator.crypto.CryptoUtil;
+import de.persosim.simulator.platform.Iso7816;
+import de.persosim.simulator.processing.ProcessingData;
+import de.persosim.simulator.tlv.PrimitiveTlvDataObject;
+import de.persosim.simulator.tlv.TlvConstants;
+import de.persosim.simulator.tlv.TlvValuePlain;
+import de.persosim.simulator.utils.Utils;
+
+/**
+ * Benchmarks unwrapping of secured command APDUs and wrapping of response
+ * APDUs within the {@link SecureMessaging} layer for 3DES and all AES key
+ * lengths.
+ * <p/>
+ * The command is secured once during setup. In order to unwrap it repeatedly
+ * every invocation of {@link #unwrapCommand()} starts a new session with the
+ * same keys, so the benchmark includes the creation of the
+ * {@link SmDataProviderTr03110}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SecureMessagingBenchmark {
+	
+	private static final InfoSource SOURCE = new InfoSource() {
+		@Override
+		public String getIDString() {
+			return "SecureMessagingBenchmark";
+		}
+	};
+	
+	private static final byte[] HEADER = new byte[] {0x0C, (byte) 0xB0, 0x00, 0x00};
+	
+	@Param({"DESede", "AES-128", "AES-192", "AES-256"})
+	public String cipher;
+	
+	@Param({"16", "223"})
+	public int dataLength;
+	
+	private SecretKeySpec keyEnc;
+	private SecretKeySpec keyMac;
+	
+	private SecureMessaging secureMessaging;
+	private byte[] securedCommand;
+	private CommandApdu unwrappedCommand;
+	private byte[] responseData;
+	
+	@Setup
+	public void setUp() throws GeneralSecurityException {
+		BenchmarkUtils.setUp();
+		
+		Random random = BenchmarkUtils.getRandom();
+		if ("DESede".equals(cipher)) {
+			byte[] key = new byte[16];
+			random.nextBytes(key);
+			keyEnc = new SecretKeySpec(key, "DESede/CBC/NoPadding");
+			random.nextBytes(key);
+			keyMac = new SecretKeySpec(key, "DESede");
+		} else {
+			byte[] key = new byte[Integer.parseInt(cipher.substring(4)) / 8];
+			random.nextBytes(key);
+			keyEnc = new SecretKeySpec(key, "AES/CBC/NoPadding");
+			random.nextBytes(key);
+			keyMac = new SecretKeySpec(key, "AESCMAC");
+		}
+		
+		byte[] commandData = new byte[dataLength];
+		random.nextBytes(commandData);
+		responseData = new byte[dataLength];
+		random.nextBytes(responseData);
+		
+		securedCommand = secureCommand(new SmDataProviderTr03110(keyEnc, keyMac), commandData);
+		
+		secureMessaging = new SecureMessaging();
+		unwrappedCommand = unwrapCommand();
+		if (!Arrays.equals(commandData, unwrappedCommand.getCommandData().toByteArray())) {
+			throw new IllegalStateException("secured command APDU could not be unwrapped");
+		}
+	}
+	
+	/**
+	 * This method secures a case 4 command APDU as done by the terminal.
+	 * @param terminalDataProvider the data provider mirroring the state of the card
+	 * @param commandData the plain command data
+	 * @return the secured command APDU
+	 * @throws GeneralSecurityException
+	 */
+	private static byte[] secureCommand(SmDataProvider terminalDataProvider, byte[] commandData) throws GeneralSecurityException {
+		terminalDataProvider.nextIncoming();
+		
+		Cipher cipher = terminalDataProvider.getCipher();
+		int blockSize = cipher.getBlockSize();
+		cipher.init(Cipher.ENCRYPT_MODE, terminalDataProvider.getKeyEnc(), terminalDataProvider.getCipherIv());
+		byte[] cryptogram = cipher.doFinal(CryptoUtil.padData(commandData, blockSize));
+		
+		byte[] dataObjects = Utils.concatByteArrays(
+				new PrimitiveTlvDataObject(TlvConstants.TAG_87, Utils.concatByteArrays(new byte[] {0x01}, cryptogram)).toByteArray(),
+				new PrimitiveTlvDataObject(TlvConstants.TAG_97, new byte[] {0x00}).toByteArray());
+		
+		Mac mac = terminalDataProvider.getMac();
+		mac.init(terminalDataProvider.getKeyMac());
+		mac.update(terminalDataProvider.getMacAuxiliaryData());
+		mac.update(CryptoUtil.padData(HEADER, blockSize));
+		mac.update(CryptoUtil.padData(dataObjects, blockSize));
+		byte[] macValue = Arrays.copyOf(mac.doFinal(), terminalDataProvider.getMacLength());
+		
+		byte[] commandDataField = Utils.concatByteArrays(dataObjects, new PrimitiveTlvDataObject(TlvConstants.TAG_8E, macValue).toByteArray());
+		return Utils.concatByteArrays(HEADER, new byte[] {(byte) commandDataField.length}, commandDataField, new byte[] {0x00});
+	}
+	
+	@Benchmark
+	public CommandApdu unwrapCommand() {
+		secureMessaging.dataProvider = new SmDataProviderTr03110(keyEnc, keyMac);
+		
+		ProcessingData processingData = new ProcessingData(false);
+		processingData.updateCommandApdu(SOURCE, "secured command APDU", CommandApduFactory.createCommandApdu(securedCommand));
+		secureMessaging.processAscending(processingData);
+		return processingData.getCommandApdu();
+	}
+	
+	@Benchmark
+	public ResponseApdu wrapResponse() {
+		ProcessingData processingData = new ProcessingData(false);
+		processingData.updateCommandApdu(SOURCE, "unwrapped command APDU", unwrappedCommand);
+		processingData.updateResponseAPDU(SOURCE, "plain response APDU", new ResponseApdu(new TlvValuePlain(responseData), Iso7816.SW_9000_NO_ERROR));
+		secureMessaging.processDescending(processingData);
+		return processingData.getResponseApdu();
+	}
+	
+}
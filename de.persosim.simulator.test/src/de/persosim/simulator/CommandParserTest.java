@@ -1,10 +1,18 @@
 package de.persosim.simulator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -13,7 +21,9 @@ import com.thoughtworks.xstream.io.StreamException;
 
 import de.persosim.simulator.perso.PersonalizationImpl;
 import de.persosim.simulator.perso.Personalization;
+import de.persosim.simulator.perso.PersonalizationBinaryFormat;
 import de.persosim.simulator.perso.PersonalizationFactory;
+import de.persosim.simulator.platform.ProcessingMetrics;
 
 public class CommandParserTest {
 
@@ -89,6 +99,94 @@ public class CommandParserTest {
 		assertNotNull(perso);
 	}
 	
+	/**
+	 * Positive test case: parse personalization from the binary file next to the given file.
+	 * @throws Exception
+	 */
+	@Test
+	public void testParsePersonalization_BinaryFile() throws Exception {
+		String persoFileName = DUMMY_PERSONALIZATION_FOLDER + "/dummyBinaryPerso" + CommandParser.PERSO_FILE_POSTFIX;
+		File binaryFile = new File(DUMMY_PERSONALIZATION_FOLDER + "/dummyBinaryPerso" + CommandParser.PERSO_FILE_POSTFIX_BINARY);
+		try {
+			PersonalizationFactory.marshalBinary(new PersonalizationImpl(), binaryFile.getPath());
+			
+			Personalization perso = CommandParser.parsePersonalization(persoFileName);
+			
+			assertTrue(perso instanceof PersonalizationImpl);
+		} finally {
+			binaryFile.delete();
+		}
+	}
+	
+	/**
+	 * Positive test case: parse personalization from the given file if the
+	 * binary file next to it is corrupt.
+	 * @throws Exception
+	 */
+	@Test
+	public void testParsePersonalization_CorruptBinaryFile() throws Exception {
+		String persoFileName = DUMMY_PERSONALIZATION_FOLDER + "/dummyCorruptPerso" + CommandParser.PERSO_FILE_POSTFIX;
+		File binaryFile = new File(DUMMY_PERSONALIZATION_FOLDER + "/dummyCorruptPerso" + CommandParser.PERSO_FILE_POSTFIX_BINARY);
+		try {
+			PersonalizationFactory.marshal(new PersonalizationImpl(), persoFileName);
+			try (FileOutputStream out = new FileOutputStream(binaryFile)) {
+				out.write("PERSOSIM".getBytes(StandardCharsets.US_ASCII));
+				out.write(new byte[] {0, (byte) PersonalizationBinaryFormat.VERSION, (byte) 0xFF, 0x7F});
+			}
+			
+			Personalization perso = CommandParser.parsePersonalization(persoFileName);
+			
+			assertTrue(perso instanceof PersonalizationImpl);
+		} finally {
+			binaryFile.delete();
+			new File(persoFileName).delete();
+			CommandParser.clearPersonalizationCache();
+		}
+	}
+	
+	/**
+	 * Positive test case: parsing an unchanged file again returns a new copy
+	 * of the cached personalization.
+	 * @throws Exception
+	 */
+	@Test
+	public void testParsePersonalization_Cached() throws Exception {
+		File binaryFile = new File(DUMMY_PERSONALIZATION_FOLDER + "/dummyCachedPerso" + CommandParser.PERSO_FILE_POSTFIX_BINARY);
+		try {
+			PersonalizationFactory.marshalBinary(new PersonalizationImpl(), binaryFile.getPath());
+			
+			Personalization perso1 = CommandParser.parsePersonalization(binaryFile.getPath());
+			Personalization perso2 = CommandParser.parsePersonalization(binaryFile.getPath());
+			
+			assertTrue(perso2 instanceof PersonalizationImpl);
+			assertNotSame(perso1, perso2);
+		} finally {
+			binaryFile.delete();
+			CommandParser.clearPersonalizationCache();
+		}
+	}
+	
+	/**
+	 * Positive test case: export a personalization to a binary file.
+	 * @throws Exception
+	 */
+	@Test
+	public void testCmdExportPersonalization() throws Exception {
+		File sourceFile = new File(DUMMY_PERSONALIZATION_FOLDER + "/dummySourcePerso" + CommandParser.PERSO_FILE_POSTFIX_BINARY);
+		File exportedFile = new File(DUMMY_PERSONALIZATION_FOLDER + "/dummyExportedPerso" + CommandParser.PERSO_FILE_POSTFIX_BINARY);
+		try {
+			PersonalizationFactory.marshalBinary(new PersonalizationImpl(), sourceFile.getPath());
+			List<String> args = new ArrayList<>(Arrays.asList(CommandParser.CMD_EXPORT_PERSONALIZATION, sourceFile.getPath(), exportedFile.getPath()));
+			
+			assertTrue(CommandParser.cmdExportPersonalization(args));
+			assertTrue(args.isEmpty());
+			assertTrue(CommandParser.parsePersonalization(exportedFile.getPath()) instanceof PersonalizationImpl);
+		} finally {
+			sourceFile.delete();
+			exportedFile.delete();
+		}
+	}
+	
 	/**
 	 * Negative test case: parse personalization from a non-existing file.
 	 * @throws Exception
@@ -106,4 +204,26 @@ public class CommandParserTest {
 	public void testParsePersonalization_InvalidFile() throws Exception {
 		CommandParser.parsePersonalization("src/de/persosim/simulator/PersoSimTest.java");
 	}
+	
+	/**
+	 * Positive test case: the metrics command consumes its optional argument
+	 * and toggles recording.
+	 */
+	@Test
+	public void testCmdMetrics() {
+		List<String> args = new ArrayList<>(Arrays.asList(CommandParser.CMD_METRICS, CommandParser.ARG_METRICS_DISABLE, CommandParser.CMD_HELP));
+		
+		CommandParser.cmdMetrics(args);
+		assertFalse(ProcessingMetrics.getInstance().isEnabled());
+		assertEquals(Arrays.asList(CommandParser.CMD_HELP), args);
+		
+		args = new ArrayList<>(Arrays.asList(CommandParser.CMD_METRICS, CommandParser.ARG_METRICS_ENABLE));
+		CommandParser.cmdMetrics(args);
+		assertTrue(ProcessingMetrics.getInstance().isEnabled());
+		assertTrue(args.isEmpty());
+		
+		args = new ArrayList<>(Arrays.asList(CommandParser.CMD_METRICS));
+		assertTrue(CommandParser.cmdMetrics(args).contains("count"));
+		assertTrue(args.isEmpty());
+	}
 }
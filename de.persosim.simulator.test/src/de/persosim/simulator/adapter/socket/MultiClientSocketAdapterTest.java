@@ -0,0 +1,229 @@
+package de.persosim.simulator.adapter.socket;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.globaltester.simulator.Simulator;
+import org.junit.After;
+import org.junit.Test;
+
+import de.persosim.simulator.adapter.socket.MultiClientSocketAdapter.Framing;
+import de.persosim.simulator.utils.HexString;
+
+public class MultiClientSocketAdapterTest {
+	
+	private static final int TIMEOUT = 5000;
+	
+	private MultiClientSocketAdapter adapter;
+	private EchoSimulatorFactory simFactory = new EchoSimulatorFactory();
+	
+	@After
+	public void tearDown() {
+		if (adapter != null) {
+			adapter.stop();
+		}
+	}
+	
+	/**
+	 * Positive test: hex encoded APDUs are exchanged line by line, including
+	 * lines split across several writes and control APDUs.
+	 */
+	@Test
+	public void testLineFraming() throws Exception {
+		int port = startAdapter(Framing.LINE);
+		
+		try (Socket socket = connect(port)) {
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+			OutputStream out = socket.getOutputStream();
+			
+			out.write("00A4".getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+			out.write("000C\r\nFF90\n".getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+			
+			assertEquals("00A4000C9000", in.readLine());
+			assertEquals("9000", in.readLine());
+		}
+	}
+	
+	/**
+	 * Positive test: raw APDUs are exchanged in length prefixed frames.
+	 */
+	@Test
+	public void testBinaryFraming() throws Exception {
+		int port = startAdapter(Framing.BINARY);
+		
+		try (Socket socket = connect(port)) {
+			DataInputStream in = new DataInputStream(socket.getInputStream());
+			DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+			
+			byte[] apdu = HexString.toByteArray("00B0000000");
+			out.writeInt(apdu.length);
+			out.write(apdu);
+			out.flush();
+			
+			byte[] response = new byte[in.readInt()];
+			in.readFully(response);
+			
+			assertEquals("00B00000009000", HexString.encode(response));
+		}
+	}
+	
+	/**
+	 * Negative test: a line exceeding the maximum line length closes the
+	 * connection and releases its simulator.
+	 */
+	@Test
+	public void testLineFraming_oversizeLine() throws Exception {
+		int port = startAdapter(Framing.LINE);
+		
+		try (Socket socket = connect(port)) {
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+			OutputStream out = socket.getOutputStream();
+			
+			out.write("FF00\n".getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+			assertEquals("9000", in.readLine());
+			
+			byte[] oversizeLine = new byte[MultiClientSocketAdapter.MAX_LINE_LENGTH];
+			Arrays.fill(oversizeLine, (byte) 'A');
+			writeIgnoringReset(out, oversizeLine);
+			
+			assertConnectionClosed(socket);
+		}
+		
+		assertReleased(1);
+	}
+	
+	/**
+	 * Negative test: a frame exceeding the maximum frame length closes the
+	 * connection.
+	 */
+	@Test
+	public void testBinaryFraming_oversizeFrame() throws Exception {
+		int port = startAdapter(Framing.BINARY);
+		
+		try (Socket socket = connect(port)) {
+			DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+			out.writeInt(MultiClientSocketAdapter.MAX_FRAME_LENGTH + 1);
+			out.flush();
+			
+			assertConnectionClosed(socket);
+		}
+	}
+	
+	private int startAdapter(Framing framing) throws IOException {
+		int port;
+		try (ServerSocket freePort = new ServerSocket(0)) {
+			port = freePort.getLocalPort();
+		}
+		
+		adapter = new MultiClientSocketAdapter(simFactory, port, framing, 4, 2);
+		assertTrue(adapter.start());
+		return port;
+	}
+	
+	private static Socket connect(int port) throws IOException {
+		Socket socket = new Socket("localhost", port);
+		socket.setSoTimeout(TIMEOUT);
+		return socket;
+	}
+	
+	private static void writeIgnoringReset(OutputStream out, byte[] data) {
+		try {
+			out.write(data);
+			out.flush();
+		} catch (IOException e) {
+			// the server may already have closed the connection
+		}
+	}
+	
+	private static void assertConnectionClosed(Socket socket) {
+		try {
+			assertEquals(-1, socket.getInputStream().read());
+		} catch (IOException e) {
+			// connection reset by the server
+		}
+	}
+	
+	private void assertReleased(int expectedNoOfReleasedSimulators) throws InterruptedException {
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while ((simFactory.noOfReleasedSimulators.get() < expectedNoOfReleasedSimulators) && (System.currentTimeMillis() < end)) {
+			Thread.sleep(10);
+		}
+		assertEquals(expectedNoOfReleasedSimulators, simFactory.noOfReleasedSimulators.get());
+	}
+	
+	/**
+	 * Creates simulators responding with the command APDU followed by 9000.
+	 */
+	private static class EchoSimulatorFactory implements SimulatorFactory {
+		
+		private final AtomicInteger noOfReleasedSimulators = new AtomicInteger();
+		
+		@Override
+		public Simulator createSimulator() {
+			return new Simulator() {
+				
+				@Override
+				public boolean startSimulator() {
+					return true;
+				}
+				
+				@Override
+				public boolean stopSimulator() {
+					return true;
+				}
+				
+				@Override
+				public boolean restartSimulator() {
+					return true;
+				}
+				
+				@Override
+				public boolean isRunning() {
+					return true;
+				}
+				
+				@Override
+				public byte[] processCommand(byte[] apdu) {
+					return HexString.toByteArray(HexString.encode(apdu) + "9000");
+				}
+				
+				@Override
+				public byte[] cardPowerUp() {
+					return new byte[] { (byte) 0x90, 0x00 };
+				}
+				
+				@Override
+				public byte[] cardPowerDown() {
+					return new byte[] { (byte) 0x90, 0x00 };
+				}
+				
+				@Override
+				public byte[] cardReset() {
+					return new byte[] { (byte) 0x90, 0x00 };
+				}
+				
+			};
+		}
+		
+		@Override
+		public void releaseSimulator(Simulator simulator) {
+			noOfReleasedSimulators.incrementAndGet();
+		}
+		
+	}
+	
+}
@@ -1,10 +1,13 @@
 package de.persosim.simulator.apdu;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 
 import org.junit.Test;
 
 import de.persosim.simulator.test.PersoSimTestCase;
+import de.persosim.simulator.tlv.TlvDataObjectContainer;
+import de.persosim.simulator.tlv.TlvTag;
 import de.persosim.simulator.tlv.TlvValue;
 import de.persosim.simulator.tlv.TlvValuePlain;
 import de.persosim.simulator.utils.HexString;
@@ -28,4 +31,21 @@ public class CommandApduImplTest extends PersoSimTestCase {
 		assertArrayEquals(cApduDataExpected, cApduDataReceived);
 	}
 	
+	/**
+	 * Positive test: modifications of a {@link TlvDataObjectContainer}
+	 * returned by getCommandDataObjectContainer() must not affect the
+	 * {@link CommandApdu} or any later retrieved container.
+	 */
+	@Test
+	public void testImmutability_CommandDataObjectContainer() {
+		byte[] cApduData = HexString.toByteArray("00220000067F4903800101");
+		CommandApduImpl cApdu = new CommandApduImpl(cApduData);
+		
+		TlvDataObjectContainer container = cApdu.getCommandDataObjectContainer();
+		container.removeTlvDataObject(new TlvTag(new byte[] {0x7F, 0x49}));
+		
+		assertEquals(1, cApdu.getCommandDataObjectContainer().getNoOfElements());
+		assertArrayEquals(cApduData, cApdu.toByteArray());
+	}
+	
 }
@@ -1,6 +1,11 @@
 package de.persosim.simulator.cardobjects;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.Iterator;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -60,4 +65,69 @@ public class CardObjectUtilsTest extends PersoSimTestCase {
 		CardObjectUtils.getSpecificChild(masterFile, commonSfi);
 	}
 	
+	/**
+	 * Positive test: findObject returns the first match in breadth-first order.
+	 */
+	@Test
+	public void testFindObject_BreadthFirstOrder() throws Exception {
+		DedicatedFile df = new DedicatedFile(new FileIdentifier(0x0200), new DedicatedFileIdentifier(new byte[] {1, 2, 3}));
+		masterFile.addChild(df);
+		ElementaryFile nestedEf = new ElementaryFile(new FileIdentifier(0x0201), commonSfi, new byte[0], SecCondition.ALLOWED, SecCondition.ALLOWED, SecCondition.ALLOWED);
+		df.addChild(nestedEf);
+		
+		assertSame(ef1, CardObjectUtils.findObject(masterFile, commonSfi));
+		assertSame(nestedEf, CardObjectUtils.findObject(df, commonSfi));
+		assertSame(masterFile, CardObjectUtils.findObject(masterFile, new TypeIdentifier(DedicatedFile.class)));
+		assertSame(nestedEf, CardObjectUtils.findObject(df, new TypeIdentifier(ElementaryFile.class)));
+		assertSame(masterFile, CardObjectUtils.findObject(masterFile, new MasterFileIdentifier()));
+	}
+	
+	/**
+	 * Positive test: findObject reflects modifications of the tree after the
+	 * first lookup.
+	 */
+	@Test
+	public void testFindObject_ModifiedTree() throws Exception {
+		assertSame(ef1, CardObjectUtils.findObject(masterFile, fid1));
+		
+		masterFile.removeChild(ef1);
+		assertTrue(CardObjectUtils.findObject(masterFile, fid1) instanceof NullCardObject);
+		assertSame(ef2, CardObjectUtils.findObject(masterFile, commonSfi));
+		
+		ef2.delete();
+		assertTrue(CardObjectUtils.findObject(masterFile, commonSfi) instanceof NullCardObject);
+		
+		DedicatedFile df = new DedicatedFile(new FileIdentifier(0x0200), new DedicatedFileIdentifier(new byte[] {1, 2, 3}));
+		df.addChild(ef1);
+		masterFile.addChild(df);
+		assertSame(ef1, CardObjectUtils.findObject(masterFile, fid1));
+		assertSame(df, CardObjectUtils.findObject(masterFile, new DedicatedFileIdentifier(new byte[] {1, 2, 3})));
+	}
+	
+	/**
+	 * Positive test: findObject reflects modified identifiers.
+	 */
+	@Test
+	public void testFindObject_ModifiedIdentifier() throws Exception {
+		assertSame(ef1, CardObjectUtils.findObject(masterFile, commonSfi));
+		
+		ef1.setShortFileIdentifier(unusedSfi);
+		
+		assertSame(ef1, CardObjectUtils.findObject(masterFile, unusedSfi));
+		assertSame(ef2, CardObjectUtils.findObject(masterFile, commonSfi));
+	}
+	
+	/**
+	 * Positive test: findChildren keeps the order of the children.
+	 */
+	@Test
+	public void testFindChildren_Order() {
+		Collection<CardObject> children = masterFile.findChildren(commonSfi);
+		
+		assertEquals(2, children.size());
+		Iterator<CardObject> iterator = children.iterator();
+		assertSame(ef1, iterator.next());
+		assertSame(ef2, iterator.next());
+	}
+	
 }
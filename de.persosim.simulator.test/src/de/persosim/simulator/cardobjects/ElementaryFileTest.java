@@ -4,15 +4,19 @@ import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import de.persosim.simulator.apdu.ResponseApdu;
 import de.persosim.simulator.exception.AccessDeniedException;
+import de.persosim.simulator.platform.Iso7816;
 import de.persosim.simulator.seccondition.SecCondition;
 import de.persosim.simulator.secstatus.SecStatus;
 import de.persosim.simulator.test.PersoSimTestCase;
 import de.persosim.simulator.tlv.ConstructedTlvDataObject;
 import de.persosim.simulator.tlv.TlvTag;
+import de.persosim.simulator.tlv.TlvValuePlain;
 
 public class ElementaryFileTest extends PersoSimTestCase {
 
@@ -219,4 +223,47 @@ public class ElementaryFileTest extends PersoSimTestCase {
 		assertTrue(fcp.containsTlvDataObject(new TlvTag((byte) 0x80)));
 		assertTrue(fcp.containsTlvDataObject(new TlvTag((byte) 0x88)));
 	}
+	
+	/**
+	 * Positive test: a slice of the content contains the requested range and
+	 * can be converted to a response without further copies of the file.
+	 */
+	@Test
+	public void testGetContentSlice() throws Exception {
+		ElementaryFile file = new ElementaryFile(new FileIdentifier(0), new ShortFileIdentifier(1), new byte[] { 1, 2, 3, 4, 5 },
+				SecCondition.ALLOWED, SecCondition.ALLOWED, SecCondition.ALLOWED);
+		file.setSecStatus(securityStatus);
+		file.updateLifeCycleState(Iso7816LifeCycleState.OPERATIONAL_ACTIVATED);
+		
+		TlvValuePlain slice = file.getContentSlice(1, 3);
+		
+		assertEquals(5, file.getContentLength());
+		assertEquals(3, slice.getLength());
+		assertArrayEquals(new byte[] { 2, 3, 4 }, slice.toByteArray());
+		assertEquals(new TlvValuePlain(new byte[] { 2, 3, 4 }), slice);
+		assertArrayEquals(new byte[] { 2, 3, 4, (byte) 0x90, 0x00 }, new ResponseApdu(slice, Iso7816.SW_9000_NO_ERROR).toByteArray());
+	}
+	
+	/**
+	 * Negative test: a slice must lie within the content.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetContentSlice_OutOfRange() throws Exception {
+		ElementaryFile file = new ElementaryFile(new FileIdentifier(0), new ShortFileIdentifier(1), new byte[] { 1, 2, 3, 4, 5 },
+				SecCondition.ALLOWED, SecCondition.ALLOWED, SecCondition.ALLOWED);
+		
+		file.getContentSlice(3, 3);
+	}
+	
+	/**
+	 * Negative test: slices are subject to the reading conditions.
+	 */
+	@Test(expected = AccessDeniedException.class)
+	public void testGetContentSlice_ReadingDenied() throws Exception {
+		ElementaryFile file = new ElementaryFile(new FileIdentifier(0), new ShortFileIdentifier(1), new byte[] { 1, 2, 3, 4, 5 });
+		file.setSecStatus(securityStatus);
+		file.updateLifeCycleState(Iso7816LifeCycleState.OPERATIONAL_ACTIVATED);
+		
+		file.getContentSlice(0, 1);
+	}
 }
@@ -0,0 +1,85 @@
+package de.persosim.simulator.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.security.MessageDigest;
+import java.security.Provider;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.crypto.Cipher;
+
+import org.globaltester.cryptoprovider.Crypto;
+import org.globaltester.cryptoprovider.bc.ProviderBc;
+import org.junit.Test;
+
+import de.persosim.simulator.test.PersoSimTestCase;
+import de.persosim.simulator.utils.HexString;
+
+public class CryptoInstanceCacheTest extends PersoSimTestCase {
+	
+	/**
+	 * Positive test case: the same instance is returned for the same
+	 * algorithm within one thread.
+	 */
+	@Test
+	public void testGetCipher_sameThread() throws Exception {
+		Cipher cipher = CryptoInstanceCache.getCipher("AES/CBC/NoPadding");
+		
+		assertSame(cipher, CryptoInstanceCache.getCipher("AES/CBC/NoPadding"));
+		assertNotSame(cipher, CryptoInstanceCache.getCipher("DESede/CBC/NoPadding"));
+	}
+	
+	/**
+	 * Positive test case: different threads get different instances.
+	 */
+	@Test
+	public void testGetCipher_otherThread() throws Exception {
+		final AtomicReference<Cipher> otherCipher = new AtomicReference<>();
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					otherCipher.set(CryptoInstanceCache.getCipher("AES/CBC/NoPadding"));
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		});
+		thread.start();
+		thread.join();
+		
+		assertNotSame(CryptoInstanceCache.getCipher("AES/CBC/NoPadding"), otherCipher.get());
+	}
+	
+	/**
+	 * Positive test case: instances are discarded if the provider changes.
+	 */
+	@Test
+	public void testGetMessageDigest_providerChanged() throws Exception {
+		Provider previousProvider = Crypto.getCryptoProvider();
+		MessageDigest messageDigest = CryptoInstanceCache.getMessageDigest("SHA-256");
+		
+		try {
+			Crypto.setCryptoProvider(new ProviderBc().getCryptoProviderObject());
+			assertNotSame(messageDigest, CryptoInstanceCache.getMessageDigest("SHA-256"));
+		} finally {
+			Crypto.setCryptoProvider(previousProvider);
+		}
+	}
+	
+	/**
+	 * Positive test case: message digests are returned in reset state.
+	 */
+	@Test
+	public void testGetMessageDigest_reset() throws Exception {
+		MessageDigest messageDigest = CryptoInstanceCache.getMessageDigest("SHA-1");
+		messageDigest.update(new byte[] {1, 2, 3});
+		
+		byte[] digest = CryptoInstanceCache.getMessageDigest("SHA-1").digest();
+		
+		assertArrayEquals(HexString.toByteArray("DA39A3EE5E6B4B0D3255BFEF95601890AFD80709"), digest);
+	}
+	
+}
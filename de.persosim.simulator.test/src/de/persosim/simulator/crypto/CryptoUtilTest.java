@@ -71,6 +71,46 @@ public class CryptoUtilTest extends PersoSimTestCase {
 		assertEquals("mult y", expectedEcPoint.getAffineY(), receivedEcPoint.getAffineY());
 	}
 	
+	/**
+	 * Positive test case: scalar point multiplication in Jacobian coordinates
+	 * matches the affine reference implementation for all standardized curves.
+	 */
+	@Test
+	public void testScalarPointMultiplication_JacobianMatchesAffine() {
+		EcArithmetic affine = new EcArithmeticAffine();
+		EcArithmetic jacobian = new EcArithmeticJacobian();
+		
+		BigInteger mult = new BigInteger(1, HexString.toByteArray("FA587945E9FE2AEB417DF0ADF951B7CBD9D5E476F8F6EF1B701C59C56B180204"));
+		
+		for (int id = 8; id <= 18; id++) {
+			DomainParameterSetEcdh domParamsEcdh = (DomainParameterSetEcdh) StandardizedDomainParameters.getDomainParameterSetById(id);
+			BigInteger scalar = mult.mod(domParamsEcdh.getOrder());
+			
+			ECPoint expectedEcPoint = affine.scalarPointMultiplication(domParamsEcdh.getCurve(), domParamsEcdh.getGenerator(), scalar);
+			ECPoint receivedEcPoint = jacobian.scalarPointMultiplication(domParamsEcdh.getCurve(), domParamsEcdh.getGenerator(), scalar);
+			
+			assertEquals("domain parameters " + id, expectedEcPoint, receivedEcPoint);
+		}
+	}
+	
+	/**
+	 * Positive test case: scalar point multiplication in Jacobian coordinates
+	 * handles the neutral element and the order of the point.
+	 */
+	@Test
+	public void testScalarPointMultiplication_JacobianEdgeCases() {
+		DomainParameterSetEcdh domParamsEcdh = (DomainParameterSetEcdh) StandardizedDomainParameters.getDomainParameterSetById(13);
+		EcArithmetic jacobian = new EcArithmeticJacobian();
+		BigInteger p = domParamsEcdh.getPrime();
+		ECPoint g = domParamsEcdh.getGenerator();
+		
+		assertEquals("zero", ECPoint.POINT_INFINITY, jacobian.scalarPointMultiplication(domParamsEcdh.getCurve(), g, BigInteger.ZERO));
+		assertEquals("one", g, jacobian.scalarPointMultiplication(domParamsEcdh.getCurve(), g, BigInteger.ONE));
+		assertEquals("order", ECPoint.POINT_INFINITY, jacobian.scalarPointMultiplication(domParamsEcdh.getCurve(), g, domParamsEcdh.getOrder()));
+		assertEquals("order - 1", new ECPoint(g.getAffineX(), p.subtract(g.getAffineY())), jacobian.scalarPointMultiplication(domParamsEcdh.getCurve(), g, domParamsEcdh.getOrder().subtract(BigInteger.ONE)));
+		assertEquals("negative", new ECPoint(g.getAffineX(), p.subtract(g.getAffineY())), jacobian.scalarPointMultiplication(domParamsEcdh.getCurve(), g, BigInteger.ONE.negate()));
+	}
+	
 	/**
 	 * Positive test case: add two EC points.
 	 */
@@ -0,0 +1,94 @@
+package de.persosim.simulator.crypto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.math.BigInteger;
+import java.security.spec.ECPoint;
+
+import org.junit.Test;
+
+import de.persosim.simulator.test.PersoSimTestCase;
+import de.persosim.simulator.utils.HexString;
+
+public class EcFixedBaseTableTest extends PersoSimTestCase {
+	
+	/**
+	 * Positive test case: multiplication using the precomputed table matches
+	 * plain scalar point multiplication for all standardized curves.
+	 */
+	@Test
+	public void testMultiply() {
+		BigInteger mult = new BigInteger(1, HexString.toByteArray("FA587945E9FE2AEB417DF0ADF951B7CBD9D5E476F8F6EF1B701C59C56B180204"));
+		
+		for (int id = 8; id <= 18; id++) {
+			DomainParameterSetEcdh domParamsEcdh = (DomainParameterSetEcdh) StandardizedDomainParameters.getDomainParameterSetById(id);
+			EcFixedBaseTable table = StandardizedDomainParameters.getFixedBaseTable(domParamsEcdh);
+			
+			ECPoint expectedEcPoint = CryptoUtil.scalarPointMultiplication(domParamsEcdh.getCurve(), domParamsEcdh.getOrder(), domParamsEcdh.getGenerator(), mult);
+			
+			assertEquals("domain parameters " + id, expectedEcPoint, table.multiply(mult));
+		}
+	}
+	
+	/**
+	 * Positive test case: multiplication using the precomputed table handles
+	 * the neutral element, the order and small scalars.
+	 */
+	@Test
+	public void testMultiply_EdgeCases() {
+		DomainParameterSetEcdh domParamsEcdh = (DomainParameterSetEcdh) StandardizedDomainParameters.getDomainParameterSetById(13);
+		EcFixedBaseTable table = StandardizedDomainParameters.getFixedBaseTable(domParamsEcdh);
+		ECPoint g = domParamsEcdh.getGenerator();
+		
+		assertEquals("zero", ECPoint.POINT_INFINITY, table.multiply(BigInteger.ZERO));
+		assertEquals("order", ECPoint.POINT_INFINITY, table.multiply(domParamsEcdh.getOrder()));
+		assertEquals("one", g, table.multiply(BigInteger.ONE));
+		assertEquals("two", CryptoUtil.doublePoint(domParamsEcdh.getCurve(), g), table.multiply(CryptoUtil.TWO));
+		assertEquals("order + 1", g, table.multiply(domParamsEcdh.getOrder().add(BigInteger.ONE)));
+	}
+	
+	/**
+	 * Positive test case: the table is shared between different instances of
+	 * the same standardized domain parameters.
+	 */
+	@Test
+	public void testGetFixedBaseTable_Shared() {
+		DomainParameterSetEcdh domParamsEcdh1 = (DomainParameterSetEcdh) StandardizedDomainParameters.getDomainParameterSetById(13);
+		DomainParameterSetEcdh domParamsEcdh2 = (DomainParameterSetEcdh) StandardizedDomainParameters.getDomainParameterSetById(13);
+		
+		EcFixedBaseTable table = StandardizedDomainParameters.getFixedBaseTable(domParamsEcdh1);
+		
+		assertNotNull(table);
+		assertSame(table, StandardizedDomainParameters.getFixedBaseTable(domParamsEcdh2));
+	}
+	
+	/**
+	 * Negative test case: no table is provided for mapped domain parameters.
+	 */
+	@Test
+	public void testGetFixedBaseTable_MappedGenerator() {
+		DomainParameterSetEcdh domParamsEcdh = (DomainParameterSetEcdh) StandardizedDomainParameters.getDomainParameterSetById(13);
+		ECPoint gMapped = CryptoUtil.doublePoint(domParamsEcdh.getCurve(), domParamsEcdh.getGenerator());
+		
+		assertNull(StandardizedDomainParameters.getFixedBaseTable(domParamsEcdh.getUpdatedDomainParameterSet(gMapped)));
+	}
+	
+	/**
+	 * Positive test case: the public point computed for mapped domain
+	 * parameters is not affected by the tables.
+	 */
+	@Test
+	public void testComputePublicPoint_MappedGenerator() {
+		DomainParameterSetEcdh domParamsEcdh = (DomainParameterSetEcdh) StandardizedDomainParameters.getDomainParameterSetById(13);
+		ECPoint gMapped = CryptoUtil.doublePoint(domParamsEcdh.getCurve(), domParamsEcdh.getGenerator());
+		DomainParameterSetEcdh domParamsEcdhMapped = domParamsEcdh.getUpdatedDomainParameterSet(gMapped);
+		
+		BigInteger privateS = new BigInteger(1, HexString.toByteArray("7FC3DE0EDE951E6181392527612FF2A50D4E6C6FE00F7A92E66CB3D7B7D23044"));
+		
+		assertEquals(domParamsEcdh.computePublicPoint(privateS.shiftLeft(1)), domParamsEcdhMapped.computePublicPoint(privateS));
+	}
+	
+}
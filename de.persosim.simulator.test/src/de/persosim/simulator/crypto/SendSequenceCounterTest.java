@@ -9,6 +9,7 @@ import org.junit.Test;
 
 import de.persosim.simulator.test.PersoSimTestCase;
 import de.persosim.simulator.utils.HexString;
+import de.persosim.simulator.utils.Serializer;
 
 public class SendSequenceCounterTest extends PersoSimTestCase {
 	
@@ -120,4 +121,80 @@ public class SendSequenceCounterTest extends PersoSimTestCase {
 		assertArrayEquals(expected, ssc.toByteArray());
 	}
 	
+	/**
+	 * Positive test case: a copy of a send sequence counter is equal to its
+	 * template but is not affected by later increments of the template
+	 */
+	@Test
+	public void testSendSequenceCounterSendSequenceCounter_independentCopy() {
+		SendSequenceCounter ssc = new SendSequenceCounter(BigInteger.ONE, 2);
+		SendSequenceCounter copy = new SendSequenceCounter(ssc);
+		
+		assertEquals(ssc, copy);
+		
+		ssc.increment();
+		
+		assertEquals(BigInteger.ONE, copy.getValue());
+		assertEquals(ssc.getMaxValue(), copy.getMaxValue());
+	}
+	
+	/**
+	 * Negative test case: construct send sequence counter exceeding the maximum byte length
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testSendSequenceCounterBigIntegerInt_exceedingMaxByteLength() {
+		new SendSequenceCounter(BigInteger.ZERO, SendSequenceCounter.MAX_BYTE_LENGTH + 1);
+	}
+	
+	/**
+	 * Positive test case: increment 16 byte ssc with carry into the upper 8 bytes
+	 */
+	@Test
+	public void testIncrement_carry16ByteLength() {
+		SendSequenceCounter ssc = new SendSequenceCounter(new BigInteger("FFFFFFFFFFFFFFFF", 16), 16);
+		ssc.increment();
+		assertEquals(new BigInteger("10000000000000000", 16), ssc.getValue());
+		assertArrayEquals(HexString.toByteArray("00000000000000010000000000000000"), ssc.toByteArray());
+	}
+	
+	/**
+	 * Positive test case: increment 16 byte ssc with expected overflow
+	 */
+	@Test
+	public void testIncrement_overflow16ByteLength() {
+		SendSequenceCounter ssc = new SendSequenceCounter(new BigInteger("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF", 16), 16);
+		ssc.increment();
+		assertEquals(BigInteger.ZERO, ssc.getValue());
+		assertArrayEquals(new byte[16], ssc.toByteArray());
+	}
+	
+	/**
+	 * Positive test case: the byte array encoding follows increments and is
+	 * not affected by modifications of previously returned arrays
+	 */
+	@Test
+	public void testToByteArray_afterIncrement() {
+		SendSequenceCounter ssc = new SendSequenceCounter(new BigInteger("00FF", 16), 2);
+		byte[] previous = ssc.toByteArray();
+		previous[0] = (byte) 0xFF;
+		ssc.increment();
+		assertArrayEquals(HexString.toByteArray("0100"), ssc.toByteArray());
+	}
+	
+	/**
+	 * Positive test case: a serialized send sequence counter is restored with
+	 * value and maximum value
+	 */
+	@Test
+	public void testSerialization() {
+		SendSequenceCounter ssc = new SendSequenceCounter(new BigInteger("42"), 16);
+		SendSequenceCounter copy = Serializer.deepCopy(ssc);
+		
+		assertEquals(ssc, copy);
+		assertArrayEquals(ssc.toByteArray(), copy.toByteArray());
+		
+		copy.increment();
+		assertEquals(new BigInteger("43"), copy.getValue());
+	}
+	
 }
@@ -3,12 +3,17 @@ package de.persosim.simulator.perso;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.LinkedList;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 
+import org.junit.Test;
+
 import de.persosim.simulator.exception.AccessDeniedException;
 
 /**
@@ -67,6 +72,26 @@ public abstract class ArtifactPersonalizationTest extends PersonalizationTest {
 
 	}
 
+	/**
+	 * Positive test: the artifact is unmarshalled to the {@link Personalization}
+	 * under test and marshalled to the identical XML again.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void test_UnmarshallMarshall_Artifact() throws Exception {
+		String artifactXmlFile = getArtifactXmlFilename();
+		
+		Personalization unmarshalledPerso = (Personalization) PersonalizationFactory.unmarshal(artifactXmlFile);
+		assertEquals(getPerso().getClass(), unmarshalledPerso.getClass());
+		
+		StringWriter writer = new StringWriter();
+		PersonalizationFactory.marshal(unmarshalledPerso, writer);
+		
+		String artifact = new String(Files.readAllBytes(Paths.get(artifactXmlFile)), StandardCharsets.UTF_8);
+		assertEquals(artifact, writer.toString());
+	}
+	
 	/**
 	 * Converts a list of bytes to a string using UTF-8
 	 * @param list
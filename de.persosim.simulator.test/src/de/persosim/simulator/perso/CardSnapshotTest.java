@@ -0,0 +1,121 @@
+package de.persosim.simulator.perso;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.persosim.simulator.PersoSim;
+import de.persosim.simulator.cardobjects.ElementaryFile;
+import de.persosim.simulator.cardobjects.FileIdentifier;
+import de.persosim.simulator.test.PersoSimTestCase;
+import de.persosim.simulator.utils.HexString;
+
+public class CardSnapshotTest extends PersoSimTestCase {
+	
+	private static final String SELECT_MF = "00A4000C023F00";
+	private static final String READ_EF_CARD_ACCESS = "00B09C0000";
+	private static final String MSE_SET_AT_PACE_PIN = "0022C1A40F800A04007F00070202040202830103";
+	private static final String GA_ENCRYPTED_NONCE = "10860000027C0000";
+	
+	private PersoSim original;
+	private CardSnapshot snapshot;
+	
+	@Before
+	public void setUp() {
+		original = new PersoSim();
+		original.startSimulator();
+		original.loadPersonalization(new Profile01());
+		original.cardPowerUp();
+		snapshot = original.takeSnapshot();
+	}
+	
+	private PersoSim startFork() {
+		PersoSim fork = new PersoSim();
+		fork.startSimulator();
+		fork.loadPersonalization(snapshot.fork());
+		fork.cardPowerUp();
+		return fork;
+	}
+	
+	private static String process(PersoSim sim, String apdu) {
+		return HexString.encode(sim.processCommand(HexString.toByteArray(apdu)));
+	}
+	
+	/**
+	 * Positive test: a fork behaves like the original card.
+	 */
+	@Test
+	public void testFork() {
+		PersoSim fork = startFork();
+		
+		assertEquals("9000", process(fork, SELECT_MF));
+		String expected = process(original, READ_EF_CARD_ACCESS);
+		assertEquals(expected, process(fork, READ_EF_CARD_ACCESS));
+		assertEquals("9000", expected.substring(expected.length() - 4));
+	}
+	
+	/**
+	 * Positive test: the protocol state of forks is independent.
+	 */
+	@Test
+	public void testFork_IndependentState() {
+		PersoSim fork1 = startFork();
+		PersoSim fork2 = startFork();
+		
+		assertEquals("9000", process(fork1, MSE_SET_AT_PACE_PIN));
+		assertTrue(process(fork1, GA_ENCRYPTED_NONCE).endsWith("9000"));
+		assertFalse(process(fork2, GA_ENCRYPTED_NONCE).endsWith("9000"));
+	}
+	
+	/**
+	 * Positive test: a snapshot of a fork is a snapshot of the same card.
+	 */
+	@Test
+	public void testTakeSnapshot_OfFork() {
+		PersoSim fork = startFork();
+		snapshot = fork.takeSnapshot();
+		PersoSim forkOfFork = startFork();
+		
+		assertEquals(process(original, READ_EF_CARD_ACCESS), process(forkOfFork, READ_EF_CARD_ACCESS));
+	}
+	
+	/**
+	 * Positive test: the contents of elementary files are copied on write.
+	 */
+	@Test
+	public void testCopy_ElementaryFileContentCopyOnWrite() throws Exception {
+		ElementaryFile file = new ElementaryFile(new FileIdentifier(0x0101), new byte[] {1, 2, 3});
+		ElementaryFile copy = CardSnapshot.copy(file);
+		assertNotSame(file, copy);
+		
+		copy.update(0, new byte[] {9});
+		assertArrayEquals(new byte[] {1, 2, 3}, file.getContent());
+		assertArrayEquals(new byte[] {9, 2, 3}, copy.getContent());
+		
+		file.erase(1);
+		assertArrayEquals(new byte[] {1, 0, 0}, file.getContent());
+		assertArrayEquals(new byte[] {9, 2, 3}, copy.getContent());
+	}
+	
+	/**
+	 * Positive test: cycles and shared references are preserved.
+	 */
+	@Test
+	public void testCopy_SharedReferences() {
+		Object[] shared = new Object[1];
+		shared[0] = shared;
+		Object[] graph = new Object[] {shared, shared};
+		
+		Object[] copy = CardSnapshot.copy(graph);
+		
+		assertNotSame(graph[0], copy[0]);
+		assertEquals(copy[0], copy[1]);
+		assertEquals(copy[0], ((Object[]) copy[0])[0]);
+	}
+	
+}
@@ -0,0 +1,213 @@
+package de.persosim.simulator.perso;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.InvalidClassException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECParameterSpec;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.globaltester.cryptoprovider.Crypto;
+import org.junit.Test;
+
+import de.persosim.simulator.PersoSim;
+import de.persosim.simulator.test.PersoSimTestCase;
+import de.persosim.simulator.utils.HexString;
+
+public class PersonalizationBinaryFormatTest extends PersoSimTestCase {
+	
+	private static final String SELECT_MF = "00A4000C023F00";
+	private static final String READ_EF_CARD_ACCESS = "00B09C0000";
+	private static final String MSE_SET_AT_PACE_PIN = "0022C1A40F800A04007F00070202040202830103";
+	private static final String GA_ENCRYPTED_NONCE = "10860000027C0000";
+	
+	private static byte[] write(Object object) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PersonalizationBinaryFormat.write(object, out);
+		return out.toByteArray();
+	}
+	
+	private static Object read(byte[] data) throws Exception {
+		return PersonalizationBinaryFormat.read(new ByteArrayInputStream(data));
+	}
+	
+	private static PersoSim start(Personalization personalization) {
+		PersoSim sim = new PersoSim();
+		sim.startSimulator();
+		sim.loadPersonalization(personalization);
+		sim.cardPowerUp();
+		return sim;
+	}
+	
+	private static String process(PersoSim sim, String apdu) {
+		return HexString.encode(sim.processCommand(HexString.toByteArray(apdu)));
+	}
+	
+	/**
+	 * Positive test: a personalization read from the binary format behaves
+	 * like the original one.
+	 */
+	@Test
+	public void testWriteRead_Profile01() throws Exception {
+		PersoSim original = start(new Profile01());
+		PersoSim loaded = start((Personalization) read(write(new Profile01())));
+		
+		assertEquals("9000", process(loaded, SELECT_MF));
+		String expected = process(original, READ_EF_CARD_ACCESS);
+		assertTrue(expected.endsWith("9000"));
+		assertEquals(expected, process(loaded, READ_EF_CARD_ACCESS));
+		assertEquals("9000", process(loaded, MSE_SET_AT_PACE_PIN));
+		assertTrue(process(loaded, GA_ENCRYPTED_NONCE).endsWith("9000"));
+	}
+	
+	/**
+	 * Positive test: all shipped personalizations read from the binary format
+	 * behave like the original ones and are written unchanged.
+	 */
+	@Test
+	public void testWriteRead_AllProfiles() throws Exception {
+		for (Personalization personalization : getShippedPersonalizations()) {
+			String name = personalization.getClass().getSimpleName();
+			byte[] data = write(personalization);
+			Personalization loadedPersonalization = (Personalization) read(data);
+			assertArrayEquals(name, data, write(loadedPersonalization));
+			
+			PersoSim original = start(personalization);
+			PersoSim loaded = start(loadedPersonalization);
+			assertEquals(name, process(original, SELECT_MF), process(loaded, SELECT_MF));
+			assertEquals(name, process(original, READ_EF_CARD_ACCESS), process(loaded, READ_EF_CARD_ACCESS));
+		}
+	}
+	
+	private static Personalization[] getShippedPersonalizations() throws Exception {
+		return new Personalization[] {new DefaultPersoGt(), new DefaultPersoTestPki(), new MinimumPersonalization(),
+				new Profile01(), new Profile01Tr03124(), new Profile02(), new Profile03(), new Profile04(),
+				new Profile05(), new Profile06(), new Profile07(), new Profile08(), new Profile09(), new Profile10()};
+	}
+	
+	/**
+	 * Positive test: writing a personalization read from the binary format
+	 * results in the same data.
+	 */
+	@Test
+	public void testWriteRead_Stable() throws Exception {
+		byte[] data = write(new Profile01());
+		assertArrayEquals(data, write(read(data)));
+	}
+	
+	/**
+	 * Positive test: cycles and shared references are preserved.
+	 */
+	@Test
+	public void testWriteRead_SharedReferences() throws Exception {
+		Object[] shared = new Object[1];
+		shared[0] = shared;
+		Object[] graph = new Object[] {shared, shared};
+		
+		Object[] copy = (Object[]) read(write(graph));
+		
+		assertNotSame(graph[0], copy[0]);
+		assertSame(copy[0], copy[1]);
+		assertSame(copy[0], ((Object[]) copy[0])[0]);
+	}
+	
+	/**
+	 * Positive test: keys and domain parameters are restored from their encodings.
+	 */
+	@Test
+	public void testWriteRead_KeyPair() throws Exception {
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("EC", Crypto.getCryptoProvider());
+		generator.initialize(256);
+		KeyPair keyPair = generator.generateKeyPair();
+		ECParameterSpec spec = ((ECPublicKey) keyPair.getPublic()).getParams();
+		
+		Object[] copy = (Object[]) read(write(new Object[] {keyPair, spec}));
+		
+		KeyPair keyPairCopy = (KeyPair) copy[0];
+		assertArrayEquals(keyPair.getPublic().getEncoded(), keyPairCopy.getPublic().getEncoded());
+		assertArrayEquals(keyPair.getPrivate().getEncoded(), keyPairCopy.getPrivate().getEncoded());
+		ECParameterSpec specCopy = (ECParameterSpec) copy[1];
+		assertEquals(spec.getCurve(), specCopy.getCurve());
+		assertEquals(spec.getGenerator(), specCopy.getGenerator());
+		assertEquals(spec.getOrder(), specCopy.getOrder());
+		assertEquals(spec.getCofactor(), specCopy.getCofactor());
+	}
+	
+	/**
+	 * Negative test: data of an unknown version of the format is rejected.
+	 */
+	@Test(expected = InvalidClassException.class)
+	public void testRead_UnsupportedVersion() throws Exception {
+		byte[] data = write("test");
+		data[9] = (byte) (PersonalizationBinaryFormat.VERSION + 1);
+		read(data);
+	}
+	
+	/**
+	 * Negative test: other data is not read as binary personalization.
+	 */
+	@Test(expected = StreamCorruptedException.class)
+	public void testRead_NoBinaryPersonalization() throws Exception {
+		read("<de.persosim.simulator.perso.Profile01/>".getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Negative test: Java serialized objects of classes other than PersoSim
+	 * classes and JDK value types are rejected.
+	 */
+	@Test(expected = InvalidClassException.class)
+	public void testRead_SerializedClassNotAllowed() throws Exception {
+		read(write(new AtomicInteger(1)));
+	}
+	
+	/**
+	 * Negative test: negative lengths are rejected.
+	 */
+	@Test(expected = StreamCorruptedException.class)
+	public void testRead_NegativeLength() throws Exception {
+		byte[] data = write("test");
+		// replace the length of the string by the encoding of -1
+		byte[] corrupted = Arrays.copyOf(data, 16);
+		System.arraycopy(HexString.toByteArray("FFFFFFFF0F"), 0, corrupted, 11, 5);
+		read(corrupted);
+	}
+	
+	/**
+	 * Negative test: a length exceeding the available data is detected when
+	 * reading the data instead of allocating memory for it up front.
+	 */
+	@Test(expected = EOFException.class)
+	public void testRead_LengthExceedsData() throws Exception {
+		byte[] data = write("test");
+		// replace the length of the string by the encoding of Integer.MAX_VALUE
+		byte[] corrupted = Arrays.copyOf(data, 16);
+		System.arraycopy(HexString.toByteArray("FFFFFFFF07"), 0, corrupted, 11, 5);
+		read(corrupted);
+	}
+	
+	/**
+	 * Negative test: arrays exceeding the maximum length are rejected before
+	 * they are allocated.
+	 */
+	@Test(expected = StreamCorruptedException.class)
+	public void testRead_ArrayLengthExceedsMaximum() throws Exception {
+		byte[] data = write(new String[] {"a"});
+		// replace the length of the array following the component type by the encoding of Integer.MAX_VALUE
+		byte[] corrupted = Arrays.copyOf(data, 34);
+		System.arraycopy(HexString.toByteArray("FFFFFFFF07"), 0, corrupted, 29, 5);
+		read(corrupted);
+	}
+	
+}
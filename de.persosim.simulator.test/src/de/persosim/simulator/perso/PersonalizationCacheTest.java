@@ -0,0 +1,157 @@
+package de.persosim.simulator.perso;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.persosim.simulator.PersoSim;
+import de.persosim.simulator.test.PersoSimTestCase;
+import de.persosim.simulator.utils.HexString;
+
+public class PersonalizationCacheTest extends PersoSimTestCase {
+	
+	private static final String SELECT_MF = "00A4000C023F00";
+	private static final String MSE_SET_AT_PACE_PIN = "0022C1A40F800A04007F00070202040202830103";
+	private static final String GA_ENCRYPTED_NONCE = "10860000027C0000";
+	
+	private File folder;
+	private File file;
+	private PersonalizationCache cache;
+	
+	@Before
+	public void setUp() {
+		folder = new File(new File("").getAbsolutePath() + "/tmp");
+		folder.mkdirs();
+		file = new File(folder, "cachedPerso.persobin");
+		cache = new PersonalizationCache(2);
+	}
+	
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+	
+	private static void write(File file, byte[] content) throws IOException {
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(content);
+		}
+	}
+	
+	private static String process(PersoSim sim, String apdu) {
+		return HexString.encode(sim.processCommand(HexString.toByteArray(apdu)));
+	}
+	
+	private static PersoSim start(Personalization personalization) {
+		PersoSim sim = new PersoSim();
+		sim.startSimulator();
+		sim.loadPersonalization(personalization);
+		sim.cardPowerUp();
+		return sim;
+	}
+	
+	/**
+	 * Positive test: cached personalizations are independent working copies.
+	 */
+	@Test
+	public void testGet_IndependentCopies() throws Exception {
+		write(file, new byte[] {1, 2, 3});
+		Profile01 perso = new Profile01();
+		cache.put(file, perso);
+		
+		Personalization copy1 = cache.get(file);
+		Personalization copy2 = cache.get(file);
+		assertNotSame(perso, copy1);
+		assertNotSame(copy1, copy2);
+		
+		PersoSim sim1 = start(copy1);
+		PersoSim sim2 = start(copy2);
+		assertEquals("9000", process(sim1, SELECT_MF));
+		assertEquals("9000", process(sim1, MSE_SET_AT_PACE_PIN));
+		assertTrue(process(sim1, GA_ENCRYPTED_NONCE).endsWith("9000"));
+		assertFalse(process(sim2, GA_ENCRYPTED_NONCE).endsWith("9000"));
+	}
+	
+	/**
+	 * Negative test: files that are not cached are not found.
+	 */
+	@Test
+	public void testGet_NotCached() throws Exception {
+		write(file, new byte[] {1, 2, 3});
+		assertNull(cache.get(file));
+	}
+	
+	/**
+	 * Positive test: a changed modification time alone does not invalidate
+	 * the cached personalization.
+	 */
+	@Test
+	public void testGet_SameContentModified() throws Exception {
+		write(file, new byte[] {1, 2, 3});
+		cache.put(file, new PersonalizationImpl());
+		assertTrue(file.setLastModified(file.lastModified() - 10000));
+		
+		assertNotNull(cache.get(file));
+		assertEquals(1, cache.size());
+	}
+	
+	/**
+	 * Negative test: changed content invalidates the cached personalization.
+	 */
+	@Test
+	public void testGet_ContentModified() throws Exception {
+		write(file, new byte[] {1, 2, 3});
+		cache.put(file, new PersonalizationImpl());
+		write(file, new byte[] {1, 2, 4});
+		assertTrue(file.setLastModified(file.lastModified() - 10000));
+		
+		assertNull(cache.get(file));
+		assertEquals(0, cache.size());
+	}
+	
+	/**
+	 * Negative test: the least recently used personalization is evicted.
+	 */
+	@Test
+	public void testPut_Eviction() throws Exception {
+		File file2 = new File(folder, file.getName() + "2");
+		File file3 = new File(folder, file.getName() + "3");
+		try {
+			write(file, new byte[] {1});
+			write(file2, new byte[] {2});
+			write(file3, new byte[] {3});
+			
+			cache.put(file, new PersonalizationImpl());
+			cache.put(file2, new PersonalizationImpl());
+			assertNotNull(cache.get(file));
+			cache.put(file3, new PersonalizationImpl());
+			
+			assertEquals(2, cache.size());
+			assertNotNull(cache.get(file));
+			assertNull(cache.get(file2));
+			assertNotNull(cache.get(file3));
+		} finally {
+			file2.delete();
+			file3.delete();
+		}
+	}
+	
+	/**
+	 * Negative test: the capacity must be positive.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_InvalidCapacity() {
+		new PersonalizationCache(0);
+	}
+	
+}
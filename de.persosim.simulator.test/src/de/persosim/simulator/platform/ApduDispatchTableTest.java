@@ -0,0 +1,122 @@
+package de.persosim.simulator.platform;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.persosim.simulator.apdu.CommandApduFactory;
+import de.persosim.simulator.cardobjects.MasterFile;
+import de.persosim.simulator.processing.ProcessingData;
+import de.persosim.simulator.protocols.Protocol;
+import de.persosim.simulator.protocols.SecInfoPublicity;
+import de.persosim.simulator.protocols.file.DefaultFileProtocol;
+import de.persosim.simulator.protocols.pace.DefaultPaceProtocol;
+import de.persosim.simulator.test.PersoSimTestCase;
+import de.persosim.simulator.tlv.TlvDataObject;
+import de.persosim.simulator.utils.HexString;
+
+public class ApduDispatchTableTest extends PersoSimTestCase {
+	
+	private ApduDispatchTable dispatchTable;
+	
+	/**
+	 * Protocol not providing its APDU specifications
+	 */
+	private static class UnspecifiedProtocol implements Protocol {
+		
+		@Override
+		public String getProtocolName() {
+			return "Unspecified";
+		}
+		
+		@Override
+		public void setCardStateAccessor(CardStateAccessor cardState) {
+		}
+		
+		@Override
+		public Collection<? extends TlvDataObject> getSecInfos(SecInfoPublicity publicity, MasterFile mf) {
+			return Collections.emptySet();
+		}
+		
+		@Override
+		public void process(ProcessingData processingData) {
+		}
+		
+		@Override
+		public void reset() {
+		}
+		
+		@Override
+		public boolean isMoveToStackRequested() {
+			return false;
+		}
+		
+	}
+	
+	@Before
+	public void setUp() {
+		DefaultFileProtocol fileProtocol = new DefaultFileProtocol();
+		fileProtocol.init();
+		DefaultPaceProtocol paceProtocol = new DefaultPaceProtocol();
+		paceProtocol.init();
+		
+		List<Protocol> protocols = new ArrayList<>();
+		protocols.add(fileProtocol);
+		protocols.add(paceProtocol);
+		protocols.add(new UnspecifiedProtocol());
+		dispatchTable = new ApduDispatchTable(protocols);
+	}
+	
+	private int[] getCandidates(String apdu) {
+		ProcessingData processingData = new ProcessingData();
+		processingData.updateCommandApdu(this, "test APDU", CommandApduFactory.createCommandApdu(HexString.toByteArray(apdu)));
+		return dispatchTable.getCandidates(processingData);
+	}
+	
+	/**
+	 * Positive test: APDUs are offered to the protocols specifying them and to protocols without specifications.
+	 */
+	@Test
+	public void testGetCandidates_SelectFile() {
+		assertArrayEquals(new int[] {0, 2}, getCandidates("00A4020C02011C"));
+	}
+	
+	/**
+	 * Positive test: the command data field is matched as well.
+	 */
+	@Test
+	public void testGetCandidates_MseSetAt() {
+		assertArrayEquals(new int[] {1, 2}, getCandidates("0022C1A40F800A04007F00070202040202830103"));
+	}
+	
+	/**
+	 * Negative test: APDUs with command data not matching the specified tags are not offered.
+	 */
+	@Test
+	public void testGetCandidates_MseSetAtUnexpectedTag() {
+		assertArrayEquals(new int[] {2}, getCandidates("0022C1A4038401FF"));
+	}
+	
+	/**
+	 * Negative test: APDUs with P1/P2 not matching the specification are not offered.
+	 */
+	@Test
+	public void testGetCandidates_MseWrongP1P2() {
+		assertArrayEquals(new int[] {2}, getCandidates("002241A40F800A04007F00070202040202830103"));
+	}
+	
+	/**
+	 * Positive test: without command APDU all protocols are candidates.
+	 */
+	@Test
+	public void testGetCandidates_NoApdu() {
+		assertArrayEquals(new int[] {0, 1, 2}, dispatchTable.getCandidates(new ProcessingData()));
+	}
+	
+}
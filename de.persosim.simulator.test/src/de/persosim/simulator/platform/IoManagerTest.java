@@ -4,6 +4,8 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.List;
+
 import org.junit.Test;
 
 import de.persosim.simulator.apdu.CommandApdu;
@@ -68,8 +70,9 @@ public class IoManagerTest extends PersoSimTestCase {
 		ioManager.processDescending(processingData);
 
 		// extract/check converted response
-		UpdatePropagation lastHardwareResponseUpdate = processingData
-				.getUpdatePropagations(HardwareResponseApduPropagation.class).getLast();
+		List<UpdatePropagation> hardwareResponses = processingData
+				.getUpdatePropagations(HardwareResponseApduPropagation.class);
+		UpdatePropagation lastHardwareResponseUpdate = hardwareResponses.get(hardwareResponses.size() - 1);
 		assertNotNull("no HardwareResponseApduUpdate was created", lastHardwareResponseUpdate);
 		assertTrue("last HardwareResponseApduUpdate has wrong type", lastHardwareResponseUpdate instanceof HardwareResponseApduPropagation);
 		assertArrayEquals("converted response Apdu does not match input",
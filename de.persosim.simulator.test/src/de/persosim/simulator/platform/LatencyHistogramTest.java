@@ -0,0 +1,113 @@
+package de.persosim.simulator.platform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+	
+	/**
+	 * Positive test: small values are counted exactly.
+	 */
+	@Test
+	public void testGetPercentile_SmallValues() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 50; i++) {
+			histogram.record(i);
+		}
+		
+		assertEquals(50, histogram.getCount());
+		assertEquals(1275, histogram.getTotal());
+		assertEquals(25, histogram.getPercentile(50));
+		assertEquals(45, histogram.getPercentile(90));
+		assertEquals(50, histogram.getPercentile(100));
+		assertEquals(50, histogram.getMax());
+	}
+	
+	/**
+	 * Positive test: percentiles of large values are within the relative
+	 * precision of the buckets.
+	 */
+	@Test
+	public void testGetPercentile_LargeValues() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000L);
+		}
+		
+		long median = histogram.getPercentile(50);
+		assertTrue(median >= 500000);
+		assertTrue(median <= 500000 * 33 / 32);
+		assertEquals(1000000, histogram.getPercentile(100));
+		assertEquals(500500.0, histogram.getMean(), 0.001);
+	}
+	
+	/**
+	 * Positive test: every value lies within the bounds of its bucket and
+	 * buckets are contiguous.
+	 */
+	@Test
+	public void testGetBucket() {
+		long[] values = {0, 1, 63, 64, 65, 127, 128, 1000, 123456789, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+		for (long value : values) {
+			int bucket = LatencyHistogram.getBucket(value);
+			assertTrue(value <= LatencyHistogram.getUpperBound(bucket));
+			if (bucket > 0) {
+				assertTrue(value > LatencyHistogram.getUpperBound(bucket - 1));
+			}
+		}
+		
+		for (int bucket = 0; bucket < LatencyHistogram.getBucket(Long.MAX_VALUE); bucket++) {
+			assertEquals(bucket + 1, LatencyHistogram.getBucket(LatencyHistogram.getUpperBound(bucket) + 1));
+		}
+	}
+	
+	/**
+	 * Positive test: an empty histogram and a reset histogram report 0.
+	 */
+	@Test
+	public void testReset() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getPercentile(99));
+		
+		histogram.record(4711);
+		histogram.reset();
+		
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getPercentile(99));
+	}
+	
+	/**
+	 * Positive test: values recorded concurrently are all counted.
+	 */
+	@Test
+	public void testRecord_Concurrent() throws InterruptedException {
+		LatencyHistogram histogram = new LatencyHistogram();
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(() -> {
+				for (int j = 0; j < 10000; j++) {
+					histogram.record(j);
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		
+		assertEquals(40000, histogram.getCount());
+		assertEquals(9999, histogram.getMax());
+	}
+	
+	/**
+	 * Negative test: percentiles outside of 0 and 100 are rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetPercentile_Invalid() {
+		new LatencyHistogram().getPercentile(100.1);
+	}
+	
+}
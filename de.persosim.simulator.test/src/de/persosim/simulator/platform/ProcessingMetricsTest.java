@@ -0,0 +1,92 @@
+package de.persosim.simulator.platform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.persosim.simulator.PersoSim;
+import de.persosim.simulator.perso.DefaultPersoTestPki;
+import de.persosim.simulator.test.PersoSimTestCase;
+import de.persosim.simulator.utils.HexString;
+
+public class ProcessingMetricsTest extends PersoSimTestCase {
+	
+	private ProcessingMetrics metrics = ProcessingMetrics.getInstance();
+	
+	@Before
+	public void setUp() {
+		metrics.reset();
+		metrics.setEnabled(true);
+	}
+	
+	@After
+	public void tearDown() {
+		metrics.reset();
+		metrics.setEnabled(true);
+	}
+	
+	/**
+	 * Positive test: processing an APDU records layers, protocols, instruction
+	 * byte and status word.
+	 */
+	@Test
+	public void testProcessCommand() {
+		PersoSim persoSim = new PersoSim();
+		persoSim.startSimulator();
+		persoSim.loadPersonalization(new DefaultPersoTestPki());
+		persoSim.cardPowerUp();
+		
+		// SELECT MF
+		byte[] response = persoSim.processCommand(HexString.toByteArray("00A4000C023F00"));
+		assertEquals("9000", HexString.encode(response));
+		
+		assertEquals(1, metrics.getInstructionHistogram(0xA4).getCount());
+		assertEquals(1, metrics.getStatusWordHistogram(0x9000).getCount());
+		assertEquals(1, metrics.getLayerHistogram(AbstractCommandProcessor.COMMANDPROCESSOR, true).getCount());
+		assertEquals(1, metrics.getLayerHistogram(AbstractCommandProcessor.COMMANDPROCESSOR, false).getCount());
+		assertNotNull(metrics.getProtocolHistogram("FM"));
+		assertTrue(metrics.getReport().contains("INS A4"));
+	}
+	
+	/**
+	 * Positive test: nothing is recorded while recording is disabled.
+	 */
+	@Test
+	public void testProcessCommand_Disabled() {
+		PersoSim persoSim = new PersoSim();
+		persoSim.startSimulator();
+		persoSim.loadPersonalization(new DefaultPersoTestPki());
+		persoSim.cardPowerUp();
+		
+		metrics.setEnabled(false);
+		persoSim.processCommand(HexString.toByteArray("00A4000C023F00"));
+		
+		assertNull(metrics.getInstructionHistogram(0xA4));
+		assertNull(metrics.getStatusWordHistogram(0x9000));
+	}
+	
+	/**
+	 * Positive test: the report contains one line per recorded figure.
+	 */
+	@Test
+	public void testGetReport() {
+		metrics.recordLayer("IoManager", true, 1000);
+		metrics.recordProtocol("PACE", 2000);
+		metrics.recordApdu(0x86, 0x6982, 3000);
+		
+		String report = metrics.getReport();
+		assertTrue(report.contains("layer IoManager ascending"));
+		assertTrue(report.contains("protocol PACE"));
+		assertTrue(report.contains("INS 86"));
+		assertTrue(report.contains("SW 6982"));
+		
+		metrics.reset();
+		assertEquals(1, metrics.getReport().split("\n").length);
+	}
+	
+}
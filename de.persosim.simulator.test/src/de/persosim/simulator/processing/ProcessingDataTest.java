@@ -0,0 +1,127 @@
+package de.persosim.simulator.processing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.globaltester.logging.InfoSource;
+import org.junit.Test;
+
+import de.persosim.simulator.apdu.CommandApdu;
+import de.persosim.simulator.apdu.CommandApduFactory;
+import de.persosim.simulator.test.PersoSimTestCase;
+import de.persosim.simulator.utils.HexString;
+
+public class ProcessingDataTest extends PersoSimTestCase {
+	
+	private static final InfoSource SOURCE = new InfoSource() {
+		@Override
+		public String getIDString() {
+			return "ProcessingDataTest";
+		}
+	};
+	
+	private static class TestPropagation implements UpdatePropagation {
+		@Override
+		public Class<? extends UpdatePropagation> getKey() {
+			return TestPropagation.class;
+		}
+	}
+	
+	private static class OtherTestPropagation implements UpdatePropagation {
+		@Override
+		public Class<? extends UpdatePropagation> getKey() {
+			return OtherTestPropagation.class;
+		}
+	}
+	
+	/**
+	 * Positive test case: UpdatePropagations are returned for their key only
+	 * and in the order they have been added.
+	 */
+	@Test
+	public void testAddUpdatePropagation() {
+		for (boolean recordHistory : new boolean[] {true, false}) {
+			ProcessingData processingData = new ProcessingData(recordHistory);
+			TestPropagation first = new TestPropagation();
+			TestPropagation second = new TestPropagation();
+			
+			processingData.addUpdatePropagation(SOURCE, "first", first);
+			processingData.addUpdatePropagation(SOURCE, "second", second);
+			
+			List<UpdatePropagation> propagations = processingData.getUpdatePropagations(TestPropagation.class);
+			assertEquals(2, propagations.size());
+			assertSame(first, propagations.get(0));
+			assertSame(second, propagations.get(1));
+			assertTrue(processingData.getUpdatePropagations(OtherTestPropagation.class).isEmpty());
+		}
+	}
+	
+	/**
+	 * Negative test case: UpdatePropagations not matching their key are skipped.
+	 */
+	@Test
+	public void testUpdateProcessingState_TypeMismatch() {
+		ProcessingData processingData = new ProcessingData();
+		ProcessingStateDelta delta = new ProcessingStateDelta((UpdatePropagation) null);
+		delta.getUpdatePropagations().put(TestPropagation.class, new OtherTestPropagation());
+		
+		processingData.updateProcessingState(SOURCE, "mismatch", delta);
+		
+		assertTrue(processingData.getUpdatePropagations(TestPropagation.class).isEmpty());
+	}
+	
+	/**
+	 * Positive test case: the history is only recorded if requested.
+	 */
+	@Test
+	public void testGetProcessingHistory() {
+		ProcessingData withHistory = new ProcessingData(true);
+		ProcessingData withoutHistory = new ProcessingData(false);
+		
+		withHistory.addUpdatePropagation(SOURCE, "message", new TestPropagation());
+		withoutHistory.addUpdatePropagation(SOURCE, "message", new TestPropagation());
+		
+		assertEquals(1, withHistory.getProcessingHistory().size());
+		assertEquals("message", withHistory.getProcessingHistory().get(0).getMessage());
+		assertTrue(withoutHistory.getProcessingHistory().isEmpty());
+	}
+	
+	/**
+	 * Negative test case: returned lists can not be used to modify the stored
+	 * UpdatePropagations.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void testGetUpdatePropagations_Unmodifiable() {
+		ProcessingData processingData = new ProcessingData(false);
+		processingData.addUpdatePropagation(SOURCE, "first", new TestPropagation());
+		
+		processingData.getUpdatePropagations(TestPropagation.class).clear();
+	}
+	
+	/**
+	 * Negative test case: the list returned for absent keys can not be used to
+	 * add UpdatePropagations.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void testGetUpdatePropagations_AbsentKeyUnmodifiable() {
+		ProcessingData processingData = new ProcessingData(false);
+		
+		processingData.getUpdatePropagations(TestPropagation.class).add(new TestPropagation());
+	}
+	
+	/**
+	 * Negative test case: a new command APDU must have the current one in its
+	 * line of predecessors, also if no history is recorded.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testUpdateCommandApdu_NoPredecessor() {
+		ProcessingData processingData = new ProcessingData(false);
+		
+		processingData.updateCommandApdu(SOURCE, "first", CommandApduFactory.createCommandApdu(HexString.toByteArray("00A4020C02011C")));
+		processingData.updateCommandApdu(SOURCE, "second", CommandApduFactory.createCommandApdu(HexString.toByteArray("00A4020C02011D")));
+	}
+	
+}
@@ -8,7 +8,7 @@ import static org.junit.Assert.fail;
 import java.io.FileNotFoundException;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -39,6 +39,7 @@ import de.persosim.simulator.tlv.PrimitiveTlvDataObject;
 import de.persosim.simulator.tlv.TlvDataObjectContainer;
 import de.persosim.simulator.tlv.TlvTag;
 import de.persosim.simulator.tlv.TlvValue;
+import de.persosim.simulator.tlv.TlvValuePlain;
 import de.persosim.simulator.utils.HexString;
 import mockit.Deencapsulation;
 
@@ -483,7 +484,7 @@ public class AbstractFileProtocolTest extends PersoSimTestCase {
 		fileProtocol.process(processingData);
 		
 		//check that the protocol is removed
-		LinkedList<UpdatePropagation> updatePropagations = processingData.getUpdatePropagations(ProtocolUpdate.class);
+		List<UpdatePropagation> updatePropagations = processingData.getUpdatePropagations(ProtocolUpdate.class);
 		assertEquals("No ProtocolUpdate available", 1, updatePropagations.size());
 		assertTrue("Protocol shall not be removed", ((ProtocolUpdate) updatePropagations.get(0)).isFinished());
 	}
@@ -505,7 +506,7 @@ public class AbstractFileProtocolTest extends PersoSimTestCase {
 		fileProtocol.process(processingData);
 
 		//check that the protocol is removed
-		LinkedList<UpdatePropagation> updatePropagations = processingData.getUpdatePropagations(ProtocolUpdate.class);
+		List<UpdatePropagation> updatePropagations = processingData.getUpdatePropagations(ProtocolUpdate.class);
 		assertEquals("No ProtocolUpdate available", 1, updatePropagations.size());
 		assertTrue("Protocol shall not be removed", ((ProtocolUpdate) updatePropagations.get(0)).isFinished());
 	}
@@ -528,7 +529,7 @@ public class AbstractFileProtocolTest extends PersoSimTestCase {
 		fileProtocol.process(processingData);
 
 		//check that the protocol is removed
-		LinkedList<UpdatePropagation> updatePropagations = processingData.getUpdatePropagations(ProtocolUpdate.class);
+		List<UpdatePropagation> updatePropagations = processingData.getUpdatePropagations(ProtocolUpdate.class);
 		assertEquals("No ProtocolUpdate available", 1, updatePropagations.size());
 		assertTrue("Protocol shall not be removed", ((ProtocolUpdate) updatePropagations.get(0)).isFinished());
 	}
@@ -539,12 +540,13 @@ public class AbstractFileProtocolTest extends PersoSimTestCase {
 	@Test
 	public void testGetFileContents() {
 		byte[] testDataSource = HexString.toByteArray("00 01 02 03 04 05 06 07 08 09");
+		ElementaryFile testFile = new ElementaryFile(new FileIdentifier(0x011D), testDataSource, SecCondition.ALLOWED, SecCondition.ALLOWED, SecCondition.ALLOWED, SecCondition.ALLOWED);
 		
-		byte[] dataReceived = Deencapsulation.invoke(AbstractFileProtocol.class, "getFileContents", 2, 2, testDataSource);
+		TlvValuePlain dataReceived = Deencapsulation.invoke(AbstractFileProtocol.class, "getFileContents", 2, 2, testFile);
 		
 		byte[] dataExpected = HexString.toByteArray("02 03");
 		
-		assertArrayEquals("array not matching", dataExpected, dataReceived);
+		assertArrayEquals("array not matching", dataExpected, dataReceived.toByteArray());
 	}
 	//TODO missing tests getContents, with zero offset, with range larger than file, etc.
 
@@ -10,7 +10,7 @@ import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
 
@@ -234,7 +234,7 @@ public class SecStatusTest extends PersoSimTestCase{
 		securityStatus.updateSecStatus(processingData);
 		
 		// check if restore security status propagation has been processed
-		LinkedList<UpdatePropagation> secStoreUpdatePropagations = processingData.getUpdatePropagations(SecStatusStoreUpdatePropagation.class);
+		List<UpdatePropagation> secStoreUpdatePropagations = processingData.getUpdatePropagations(SecStatusStoreUpdatePropagation.class);
 		assertEquals(1, secStoreUpdatePropagations.size());
 		
 		// ensure that the SmDataProviderGenerator mechanism is correctly restored
@@ -250,9 +250,9 @@ public class SecStatusTest extends PersoSimTestCase{
 		assertEquals(0, storedProtocolMechanism.size());
 		
 		// ensure that the correct SmDataUpgradePropagation is fired
-		LinkedList<UpdatePropagation> smDataProviders = processingData.getUpdatePropagations(SmDataProvider.class);
+		List<UpdatePropagation> smDataProviders = processingData.getUpdatePropagations(SmDataProvider.class);
 		assertEquals(1, smDataProviders.size());
-		assertEquals(smDataProvider, smDataProviders.getFirst());
+		assertEquals(smDataProvider, smDataProviders.get(0));
 		
 		// ensure that the status word is not modified by the process
 		assertEquals("Statusword is not 9000", Iso7816.SW_9000_NO_ERROR, processingData.getResponseApdu()
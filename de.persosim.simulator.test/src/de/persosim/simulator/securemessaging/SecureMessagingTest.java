@@ -41,6 +41,10 @@ public class SecureMessagingTest extends PersoSimTestCase {
 	
 	private static final String ICAO_PLAIN_APDU = "00A4020C02011E";
 	private static final String ICAO_SM_APDU = "0CA4020C158709016375432908C044F68E08BF8B92D635FF24F800";
+	// case 4 APDU with 130 bytes of data, the mac input length of which requires a padding of one byte only
+	private static final String ICAO_CASE4_SM_APDU = "0C2200009987818901FFB4C9CB7970F8E0E1E65F404C5B919C4C0636F6725D2599A0046503647B5150301DBAE1C173C6D1CA13379F8C03204B93DCE3B634775C0B621D48A9A7AEC862C076AC0C3FB4076B32153956CA037EA760082082837E2ACAEDEB3ED2ED9962251F28D74BB1C5660BB3AA42B5947DD588106D459C4E0BF6D972980CC13E83CE4BA5811422C3463FE59701108E0875DAF4D9FCA966AB00";
+	private static final String ICAO_CASE4_PLAIN_APDU = "0022000082" + HexString.encode(new byte[130]) + "10";
+	
 //	private static final String ICAO_PLAIN_RESPONSE = "9000";
 //	private static final String ICAO_SM_RESPONSE = "990290008E08FA855A5D4C50A8ED9000";
 	
@@ -198,6 +202,41 @@ public class SecureMessagingTest extends PersoSimTestCase {
 
 	}
 	
+	/**
+	 * SM after BAC, the mac input (without the padded header) is exactly one
+	 * byte shorter than a multiple of the block size
+	 * @throws GeneralSecurityException
+	 */
+	@Test
+	public void processAscending_isoCase4_macPaddingSingleByte() throws GeneralSecurityException {
+		//prepare dataProvider
+		SmDataProviderContainerProxy dataProvider = new SmDataProviderContainerProxy();
+		dataProvider.setEncIv(new IvParameterSpec(new byte[8]));
+		dataProvider.setCipher(Cipher.getInstance("DESede/CBC/NoPadding", Crypto.getCryptoProvider()));
+		dataProvider.setKeyEnc(new SecretKeySpec(HexString.toByteArray(ICAO_SK_ENC), "DESede"));
+		dataProvider.setMac(Mac.getInstance("ISO9797ALG3", Crypto.getCryptoProvider()));
+		dataProvider.setKeySpecMAC(new SecretKeySpec(HexString.toByteArray(ICAO_SK_MAC), "DESede"));
+		dataProvider.setMacAuxiliaryData(HexString.toByteArray(ICAO_SSC_PLUS1));
+		dataProvider.setMacLength(8);
+		
+		SecureMessaging secureMessaging = new SecureMessaging();
+		setField(secureMessaging, "dataProvider", dataProvider);
+		
+		// provide sample APDU
+		ProcessingData pData = new ProcessingData();
+		pData.updateCommandApdu(this, "test command APDU", CommandApduFactory.createCommandApdu(
+				HexString.toByteArray(ICAO_CASE4_SM_APDU)));
+		
+		// call mut
+		secureMessaging.processAscending(pData);
+		
+		// extract/check CommandApdu
+		CommandApdu commandApdu = pData.getCommandApdu();
+		assertNotNull("commandApdu is empty", commandApdu);
+		assertArrayEquals("unwrapped APDU incorrect", HexString.toByteArray(ICAO_CASE4_PLAIN_APDU),
+				commandApdu.toByteArray());
+	}
+	
 	/**
 	 * Encoding of SM Response APDU must not contain DO87 if data field of plain response is absent
 	 * @throws Exception
@@ -2,7 +2,6 @@ package de.persosim.simulator.tlv;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
-import mockit.Deencapsulation;
 
 import org.junit.Test;
 
@@ -175,10 +174,11 @@ public class ConstructedTlvDataObjectTest {
 	
 	/**
 	 * Positive test case: Construct constructed TLV data object from basic
-	 * T-L-V elements; returned T must not be the same object as provided T
+	 * T-L-V elements; returned T must equal provided T, tags are immutable and
+	 * thus may be shared
 	 */
 	@Test
-	public void testConstructorTagLengthValueTagNotSameWhenRetrieved() {
+	public void testConstructorTagLengthValueTagEqualWhenRetrieved() {
 		/* set arbitrary but valid constructed tag */
 		byte[] tagExpected = new byte[] { (byte) 0x21 };
 		/* set arbitrary but valid length matching actual length of value */
@@ -195,16 +195,16 @@ public class ConstructedTlvDataObjectTest {
 		ConstructedTlvDataObject tlvObject = new ConstructedTlvDataObject(tag,
 				length, value);
 
-		boolean isSame = tag == tlvObject.getTlvTag();
-		assertEquals("Provided tag must mismatch retrieved", isSame, false);
+		assertEquals("Provided tag must match retrieved", tag, tlvObject.getTlvTag());
 	}
 	
 	/**
 	 * Positive test case: Construct constructed TLV data object from basic
-	 * T-L-V elements; stored T must not be the same object as provided T
+	 * T-L-V elements; later modifications of the array the provided T was
+	 * created from must not be reflected by the stored T
 	 */
 	@Test
-	public void testConstructorTagLengthValueStoredTNotSameAsProvided() {
+	public void testConstructorTagLengthValueStoredTImmutable() {
 		/* set arbitrary but valid constructed tag */
 		byte[] tagExpected = new byte[] { (byte) 0x21 };
 		/* set arbitrary but valid length matching actual length of value */
@@ -222,21 +222,18 @@ public class ConstructedTlvDataObjectTest {
 				length, value);
 		
 		/* set arbitrary but valid constructed tag different from the one defined before */
-		byte[] tagExpected2 = new byte[] { (byte) 0x24 };
-		
-		Deencapsulation.setField(tag, "tagField", tagExpected2);
+		tagExpected[0] = (byte) 0x24;
 
-		boolean isEqual = tag.equals(tlvObject.getTlvTag());
-		assertEquals("Provided tag must not be imported directly", isEqual,
-				false);
+		assertArrayEquals("Provided tag must not be imported by reference",
+				new byte[] { (byte) 0x21 }, tlvObject.getTlvTag().toByteArray());
 	}
 	
 	/**
 	 * Positive test case:
-	 * Construct constructed TLV data object from basic T-L-V elements; returned T must not be the same object as stored T
+	 * Construct constructed TLV data object from basic T-L-V elements; modifications of the encoding of the returned T must not be reflected by the stored T
 	 */
 	@Test
-	public void testConstructorTagLengthValueReturnedTNotSameAsStored() {	
+	public void testConstructorTagLengthValueReturnedTImmutable() {	
 		/* set arbitrary but valid constructed tag */
 		byte[] tagExpected = new byte[] { (byte) 0x21 };
 		/* set arbitrary but valid length matching actual length of value */
@@ -252,13 +249,10 @@ public class ConstructedTlvDataObjectTest {
 		ConstructedTlvDataObject tlvObject = new ConstructedTlvDataObject(tag, length, value);
 		
 		/* set arbitrary but valid constructed tag different from the one defined before */
-		byte[] tagExpected2 = new byte[] { (byte) 0x24 };
-		
-		TlvTag tagMod = tlvObject.getTlvTag();
-		Deencapsulation.setField(tagMod, "tagField", tagExpected2);
+		byte[] tagMod = tlvObject.getTlvTag().toByteArray();
+		tagMod[0] = (byte) 0x24;
 		
-		boolean isEqual = tagMod.equals(tlvObject.getTlvTag());
-		assertEquals("Stored tag must not be returned directly", isEqual, false);
+		assertArrayEquals("Stored tag must not be returned by reference", tagExpected, tlvObject.getTlvTag().toByteArray());
 	}
 	
 	/**
@@ -2,9 +2,6 @@ package de.persosim.simulator.tlv;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotEquals;
-import static org.junit.Assert.assertNotSame;
-import mockit.Deencapsulation;
 
 import org.junit.Test;
 
@@ -221,10 +218,10 @@ public class PrimitiveTlvDataObjectTest {
 	
 	/**
 	 * Construct primitive TLV data object from basic T-L-V elements; returned T
-	 * must not be the same object as provided T
+	 * must equal provided T, tags are immutable and thus may be shared
 	 */
 	@Test
-	public void testGetTlvTag_DifferentFromConstructor() {
+	public void testGetTlvTag_EqualToConstructor() {
 		/* set arbitrary but valid primitive tag */
 		byte[] tagExpected = new byte[] { (byte) 0x80 };
 		/* set arbitrary but valid length matching actual length of value */
@@ -241,13 +238,13 @@ public class PrimitiveTlvDataObjectTest {
 		PrimitiveTlvDataObject tlvObject = new PrimitiveTlvDataObject(tag,
 				length, value);
 
-		assertNotSame(tag, tlvObject.getTlvTag());
+		assertEquals(tag, tlvObject.getTlvTag());
 	}
 	
 	/**
-	 * Construct primitive TLV data object from basic T-L-V elements; stored T
-	 * must not be the same object as provided T, thus later modifications on
-	 * the parameter T should NOT be reflected by the TlvDataObject
+	 * Construct primitive TLV data object from basic T-L-V elements; later
+	 * modifications on the array the parameter T was created from should NOT
+	 * be reflected by the TlvDataObject
 	 */
 	@Test
 	public void testConstructorTagLengthValue_TagImmutableFromOutside() {
@@ -271,17 +268,15 @@ public class PrimitiveTlvDataObjectTest {
 		 * set arbitrary but valid primitive tag different than the one defined
 		 * above
 		 */
-		byte[] tagExpectedNew = new byte[] { (byte) 0x08 };
+		tagExpected[0] = (byte) 0x08;
 
-		Deencapsulation.setField(tag, "tagField", tagExpectedNew);
-
-		assertNotEquals(tag, tlvObject.getTlvTag());
+		assertEquals(TlvTag.getInstance((byte) 0x80), tlvObject.getTlvTag());
 	}
 	
 	/**
-	 * After setting tag through setTlvTag() stored tag
-	 * must not be the same object as provided parameter, thus later modifications on
-	 * the parameter should NOT be reflected by the TlvDataObject
+	 * After setting tag through setTlvTag() later modifications on the array
+	 * the parameter was created from should NOT be reflected by the
+	 * TlvDataObject
 	 */
 	@Test
 	public void testSetTag_TagImmutableFromOutside() {
@@ -301,17 +296,17 @@ public class PrimitiveTlvDataObjectTest {
 		PrimitiveTlvDataObject tlvObject = new PrimitiveTlvDataObject(tag,
 				length, value);
 
-		TlvTag newTag = new TlvTag(new byte[] { (byte) 0x08 });
+		byte[] newTagField = new byte[] { (byte) 0x08 };
+		TlvTag newTag = new TlvTag(newTagField);
 		tlvObject.setTag(newTag);
 
 		/*
 		 * set arbitrary but valid primitive tag different than the one defined
 		 * above
 		 */
-		byte[] tagExpectedNew = new byte[] { (byte) 0x05 };
-		Deencapsulation.setField(newTag, "tagField", tagExpectedNew);
+		newTagField[0] = (byte) 0x05;
 
-		assertNotEquals(newTag, tlvObject.getTlvTag());
+		assertEquals(TlvTag.getInstance((byte) 0x08), tlvObject.getTlvTag());
 	}
 	
 	/**
@@ -67,4 +67,84 @@ public class TlvDataObjectContainerTest implements TlvConstants {
 
 		assertEquals(child2, container.getTlvDataObject(new TlvPath(new TlvTagIdentifier(TAG_INTEGER, 1))));
 	}
+	
+	/**
+	 * Positive test: a copy of a {@link TlvDataObjectContainer} has the same
+	 * encoding as the original but does not share any sub-elements with it.
+	 */
+	@Test
+	public void testCopy() {
+		TlvDataObjectContainer container = new TlvDataObjectContainer(HexString.toByteArray("3006020101020102040101"));
+		
+		TlvDataObjectContainer copy = container.copy();
+		
+		assertArrayEquals(container.toByteArray(), copy.toByteArray());
+		
+		((ConstructedTlvDataObject) copy.getTlvDataObject(TAG_SEQUENCE)).removeTlvDataObject(TAG_INTEGER);
+		((PrimitiveTlvDataObject) copy.getTlvDataObject(TAG_OCTET_STRING)).setValue(HexString.toByteArray("FF"));
+		
+		assertArrayEquals(HexString.toByteArray("3006020101020102040101"), container.toByteArray());
+	}
+	
+	/**
+	 * Positive test: copying preserves explicitly set length fields that do
+	 * not comply with DER encoding rules.
+	 */
+	@Test
+	public void testCopy_nonDerLength() {
+		PrimitiveTlvDataObject child = new PrimitiveTlvDataObject(TAG_INTEGER, new TlvLength(HexString.toByteArray("8101")), new TlvValuePlain(HexString.toByteArray("01")));
+		TlvDataObjectContainer container = new TlvDataObjectContainer(child);
+		
+		assertArrayEquals(HexString.toByteArray("02810101"), container.copy().toByteArray());
+	}
+	
+	/**
+	 * Positive test: lookups in a wide container find the requested
+	 * occurrence and reflect modifications of the container.
+	 */
+	@Test
+	public void testGetTlvDataObject_wideContainer() {
+		TlvDataObjectContainer container = new TlvDataObjectContainer(HexString.toByteArray("800100" + "810101" + "820102" + "830103" + "810104" + "840105" + "850106" + "860107" + "810108"));
+		
+		assertEquals("810101", HexString.encode(container.getTlvDataObject(TAG_81).toByteArray()));
+		assertEquals("810108", HexString.encode(container.getTlvDataObject(new TlvTagIdentifier(TAG_81, 2)).toByteArray()));
+		assertNull(container.getTlvDataObject(new TlvTagIdentifier(TAG_81, 3)));
+		assertNull(container.getTlvDataObject(TAG_87));
+		
+		container.removeTlvDataObject(TAG_81);
+		container.addTlvDataObject(new PrimitiveTlvDataObject(TAG_87, HexString.toByteArray("09")));
+		
+		assertEquals("810104", HexString.encode(container.getTlvDataObject(TAG_81).toByteArray()));
+		assertEquals("870109", HexString.encode(container.getTlvDataObject(TAG_87).toByteArray()));
+	}
+	
+	/**
+	 * Positive test: lookups in a wide container reflect tags changed in
+	 * contained objects.
+	 */
+	@Test
+	public void testGetTlvDataObject_wideContainerTagChanged() {
+		TlvDataObjectContainer container = new TlvDataObjectContainer(HexString.toByteArray("800100" + "810101" + "820102" + "830103" + "840104" + "850105" + "860106" + "870107"));
+		assertEquals("870107", HexString.encode(container.getTlvDataObject(TAG_87).toByteArray()));
+		
+		container.getTlvDataObject(TAG_87).setTag(TAG_88);
+		container.getTlvDataObject(TAG_80).setTag(TAG_88);
+		
+		assertNull(container.getTlvDataObject(TAG_87));
+		assertEquals("880100", HexString.encode(container.getTlvDataObject(TAG_88).toByteArray()));
+	}
+	
+	/**
+	 * Positive test: DER sorting keeps equal elements in the order they have been added.
+	 */
+	@Test
+	public void testSort_stable() {
+		TlvDataObjectContainer container = new TlvDataObjectContainer(HexString.toByteArray("0401FF" + "020101" + "0401AA" + "020102"));
+		
+		container.sort(new TlvDataObjectComparatorDer());
+		
+		assertEquals("020101" + "020102" + "0401FF" + "0401AA", HexString.encode(container.toByteArray()));
+		assertTrue(container.isValidDerEncoding());
+	}
+	
 }
@@ -0,0 +1,145 @@
+package de.persosim.simulator.tlv;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import de.persosim.simulator.exception.ISO7816Exception;
+import de.persosim.simulator.platform.Iso7816;
+import de.persosim.simulator.utils.HexString;
+
+public class TlvDataObjectViewTest implements TlvConstants {
+	
+	private static final String CERTIFICATE = "7F211A7F4E125F29010042024445" + "7F4907060101860201025F3702AABB";
+	
+	/**
+	 * Positive test: navigate a view with a {@link TlvPath} and compare the
+	 * result to the one found in the parsed {@link TlvDataObject}.
+	 */
+	@Test
+	public void testGetTlvDataObject_TlvPath() {
+		byte[] data = HexString.toByteArray(CERTIFICATE);
+		TlvPath path = new TlvPath(TAG_7F4E, TAG_7F49, TAG_86);
+		
+		TlvDataObjectView view = new TlvDataObjectView(data).getTlvDataObject(path);
+		
+		ConstructedTlvDataObject parsed = new ConstructedTlvDataObject(data);
+		assertArrayEquals(parsed.getTlvDataObject(path).toByteArray(), view.toByteArray());
+		assertArrayEquals(HexString.toByteArray("0102"), view.getValueField());
+		assertTrue(view.matches(TAG_86));
+		assertEquals(TAG_86, view.getTlvTag());
+	}
+	
+	/**
+	 * Positive test: get the second occurrence of a given tag.
+	 */
+	@Test
+	public void testGetTlvDataObject_secondOccurence() {
+		TlvDataObjectView view = new TlvDataObjectView(HexString.toByteArray("3006020101020102"));
+		
+		assertEquals("020102", view.getTlvDataObject(new TlvTagIdentifier(TAG_INTEGER, 1)).toString());
+	}
+	
+	/**
+	 * Negative test: navigate to missing elements and through primitive elements.
+	 */
+	@Test
+	public void testGetTlvDataObject_missing() {
+		TlvDataObjectView view = new TlvDataObjectView(HexString.toByteArray(CERTIFICATE));
+		
+		assertNull(view.getTlvDataObject(TAG_5F29));
+		assertNull(view.getTlvDataObject(new TlvPath(TAG_7F4E, TAG_42, TAG_06)));
+		assertFalse(view.containsTlvDataObject(TAG_42));
+		assertTrue(view.containsTlvDataObject(TAG_5F37));
+	}
+	
+	/**
+	 * Positive test: iterate over the direct sub elements of a view.
+	 */
+	@Test
+	public void testIterator() {
+		TlvDataObjectView body = new TlvDataObjectView(HexString.toByteArray(CERTIFICATE)).getTlvDataObject(TAG_7F4E);
+		
+		Iterator<TlvDataObjectView> iterator = body.iterator();
+		assertTrue(iterator.next().matches(TAG_5F29));
+		assertTrue(iterator.next().matches(TAG_42));
+		assertTrue(iterator.next().matches(TAG_7F49));
+		assertFalse(iterator.hasNext());
+		assertEquals(3, body.getNoOfElements());
+		assertFalse(body.getTlvDataObject(TAG_42).iterator().hasNext());
+	}
+	
+	/**
+	 * Positive test: offsets of a sub element refer to the viewed byte array.
+	 */
+	@Test
+	public void testOffsets() {
+		TlvDataObjectView view = new TlvDataObjectView(HexString.toByteArray(CERTIFICATE)).getTlvDataObject(new TlvPath(TAG_7F4E, TAG_42));
+		
+		assertEquals(10, view.getOffset());
+		assertEquals(12, view.getValueOffset());
+		assertEquals(4, view.getLength());
+	}
+	
+	/**
+	 * Positive test: materialize a view as {@link TlvDataObject}.
+	 */
+	@Test
+	public void testToTlvDataObject() {
+		byte[] data = HexString.toByteArray("00" + CERTIFICATE + "00");
+		
+		TlvDataObject tlvDataObject = new TlvDataObjectView(data, 1, data.length).toTlvDataObject();
+		
+		assertTrue(tlvDataObject instanceof ConstructedTlvDataObject);
+		assertEquals(TlvDataObjectFactory.createTLVDataObject(CERTIFICATE), tlvDataObject);
+		assertEquals(new TlvDataObjectView(tlvDataObject), new TlvDataObjectView(data, 1, data.length));
+	}
+	
+	/**
+	 * Positive test: BER encoded length fields are kept as is.
+	 */
+	@Test
+	public void testBerLength() {
+		TlvDataObjectView view = new TlvDataObjectView(HexString.toByteArray("04810101"));
+		
+		assertEquals(2, view.getNoOfLengthBytes());
+		assertEquals(1, view.getLengthValue());
+		assertEquals("04810101", view.toString());
+	}
+	
+	/**
+	 * Positive test: malformed elements are only detected when they are accessed.
+	 */
+	@Test
+	public void testLazyDecoding() {
+		TlvDataObjectView view = new TlvDataObjectView(HexString.toByteArray("30050201010405"));
+		
+		assertEquals("020101", view.getTlvDataObject(TAG_INTEGER).toString());
+		
+		try {
+			view.checkEncoding();
+			fail("malformed encoding not detected");
+		} catch (ISO7816Exception e) {
+			assertEquals(Iso7816.SW_6A85_NC_INCONSISTENT_WITH_TLV_STRUCTURE, e.getStatusWord());
+		}
+	}
+	
+	/**
+	 * Negative test: the indicated length exceeds the viewed range.
+	 */
+	@Test(expected = ISO7816Exception.class)
+	public void testGetLength_exceedsRange() {
+		new TlvDataObjectView(HexString.toByteArray("040201")).getLength();
+	}
+	
+	/**
+	 * Negative test: invalid multi byte tag.
+	 */
+	@Test(expected = ISO7816Exception.class)
+	public void testGetLength_invalidTag() {
+		new TlvDataObjectView(HexString.toByteArray("1F050100")).getLength();
+	}
+	
+}
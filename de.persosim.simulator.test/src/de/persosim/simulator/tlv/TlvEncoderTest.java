@@ -0,0 +1,191 @@
+package de.persosim.simulator.tlv;
+
+import static org.junit.Assert.*;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import de.persosim.simulator.utils.HexString;
+
+public class TlvEncoderTest implements TlvConstants {
+	
+	/**
+	 * Positive test: a parsed structure with BER encoded length fields is encoded unchanged.
+	 */
+	@Test
+	public void testEncode_BerLength() {
+		String encoding = "30810C" + "0481020102" + "A100" + "02820001" + "01";
+		
+		ConstructedTlvDataObject tlvDataObject = new ConstructedTlvDataObject(HexString.toByteArray(encoding));
+		
+		assertEquals(encoding, HexString.encode(TlvEncoder.encode(tlvDataObject)));
+		assertEquals(encoding.length() / 2, TlvEncoder.getLength(tlvDataObject));
+	}
+	
+	/**
+	 * Positive test: length fields of long values are DER encoded.
+	 */
+	@Test
+	public void testEncode_LongValues() {
+		byte[] value = new byte[0x1234];
+		Arrays.fill(value, (byte) 0x55);
+		ConstructedTlvDataObject tlvDataObject = new ConstructedTlvDataObject(TAG_SEQUENCE,
+				new PrimitiveTlvDataObject(TAG_OCTET_STRING, value),
+				new PrimitiveTlvDataObject(TAG_OCTET_STRING, new byte[0x80]));
+		
+		byte[] encoding = TlvEncoder.encode(tlvDataObject);
+		
+		assertEquals("3082" + "12BB" + "04821234", HexString.encode(Arrays.copyOf(encoding, 8)));
+		assertEquals("048180", HexString.encode(Arrays.copyOfRange(encoding, 8 + 0x1234, 8 + 0x1234 + 3)));
+		assertEquals(8 + 0x1234 + 3 + 0x80, encoding.length);
+	}
+	
+	/**
+	 * Positive test: encode into a buffer at its current position.
+	 */
+	@Test
+	public void testEncode_ByteBuffer() {
+		TlvDataObject tlvDataObject = TlvDataObjectFactory.createTLVDataObject("3003020101");
+		ByteBuffer buffer = ByteBuffer.allocate(7);
+		buffer.put((byte) 0xFF);
+		
+		assertEquals(5, tlvDataObject.writeTo(buffer));
+		
+		assertEquals(6, buffer.position());
+		assertEquals("FF300302010100", HexString.encode(buffer.array()));
+	}
+	
+	/**
+	 * Negative test: the buffer is too small and remains unchanged.
+	 */
+	@Test
+	public void testEncode_ByteBufferOverflow() {
+		TlvDataObject tlvDataObject = TlvDataObjectFactory.createTLVDataObject("3003020101");
+		ByteBuffer buffer = ByteBuffer.allocate(4);
+		
+		try {
+			tlvDataObject.writeTo(buffer);
+			fail("BufferOverflowException expected");
+		} catch (BufferOverflowException e) {
+			assertEquals(0, buffer.position());
+			assertEquals("00000000", HexString.encode(buffer.array()));
+		}
+	}
+	
+	/**
+	 * Positive test: modifications of a sub element are reflected by the
+	 * encoding of an object whose encoding has been cached before.
+	 */
+	@Test
+	public void testEncode_ModifiedAfterCaching() {
+		ConstructedTlvDataObject tlvDataObject = (ConstructedTlvDataObject) TlvDataObjectFactory.createTLVDataObject("3005A103020101");
+		for (int i = 0; i < 3; i++) {
+			assertEquals("3005A103020101", HexString.encode(tlvDataObject.toByteArray()));
+		}
+		
+		((ConstructedTlvDataObject) tlvDataObject.getTlvDataObject(new TlvTag((byte) 0xA1))).addTlvDataObject(new PrimitiveTlvDataObject(TAG_INTEGER, new byte[] {2}));
+		
+		assertEquals("3008A106020101020102", HexString.encode(tlvDataObject.toByteArray()));
+	}
+	
+	/**
+	 * Positive test: modifications of a nested value and length field are
+	 * reflected by the encodings of the enclosing object and the nested
+	 * object, both having been cached before.
+	 */
+	@Test
+	public void testEncode_NestedModifiedAfterCaching() {
+		ConstructedTlvDataObject tlvDataObject = (ConstructedTlvDataObject) TlvDataObjectFactory.createTLVDataObject("3005A103020101");
+		PrimitiveTlvDataObject nested = (PrimitiveTlvDataObject) tlvDataObject.getTlvDataObject(new TlvPath(new TlvTag((byte) 0xA1), TAG_INTEGER));
+		for (int i = 0; i < 3; i++) {
+			assertEquals("020101", HexString.encode(nested.toByteArray()));
+			assertEquals("3005A103020101", HexString.encode(tlvDataObject.toByteArray()));
+		}
+		
+		nested.getTlvValue().setValueField(new TlvValuePlain(new byte[] {2}));
+		
+		assertEquals("020102", HexString.encode(nested.toByteArray()));
+		assertEquals("3005A103020102", HexString.encode(tlvDataObject.toByteArray()));
+		
+		nested.getTlvLength().forceLengthField(new byte[] {(byte) 0x81, 0x01});
+		
+		assertEquals("02810102", HexString.encode(nested.toByteArray()));
+		assertEquals("3006A10402810102", HexString.encode(tlvDataObject.toByteArray()));
+	}
+	
+	/**
+	 * Positive test: cached encodings remain valid if unrelated objects are
+	 * created or modified.
+	 */
+	@Test
+	public void testEncode_UnrelatedModification() {
+		TlvDataObject tlvDataObject = TlvDataObjectFactory.createTLVDataObject("3003020101");
+		tlvDataObject.toByteArray();
+		tlvDataObject.toByteArray();
+		TlvEncoder.CachedEncoding cachedEncoding = tlvDataObject.cachedEncoding;
+		assertNotNull(cachedEncoding.encoding);
+		
+		PrimitiveTlvDataObject unrelated = new PrimitiveTlvDataObject(TAG_INTEGER, new byte[] {1});
+		unrelated.setValue(new byte[] {2});
+		
+		assertEquals("3003020101", HexString.encode(tlvDataObject.toByteArray()));
+		assertSame(cachedEncoding, tlvDataObject.cachedEncoding);
+	}
+	
+	/**
+	 * Positive test: the returned encoding may be modified without affecting
+	 * subsequent encodings.
+	 */
+	@Test
+	public void testEncode_ResultNotShared() {
+		TlvDataObject tlvDataObject = TlvDataObjectFactory.createTLVDataObject("3003020101");
+		for (int i = 0; i < 3; i++) {
+			byte[] encoding = tlvDataObject.toByteArray();
+			assertEquals("3003020101", HexString.encode(encoding));
+			encoding[4] = 0x00;
+		}
+	}
+	
+	/**
+	 * Positive test: modifications of an array viewed by a value are
+	 * reflected by the encoding.
+	 */
+	@Test
+	public void testEncode_View() {
+		byte[] data = HexString.toByteArray("0102");
+		ConstructedTlvDataObject tlvDataObject = new ConstructedTlvDataObject(TAG_SEQUENCE, new PrimitiveTlvDataObject(TAG_OCTET_STRING, TlvValuePlain.view(data, 0, 2)));
+		for (int i = 0; i < 3; i++) {
+			assertEquals("300404020102", HexString.encode(tlvDataObject.toByteArray()));
+		}
+		
+		data[1] = 0x03;
+		
+		assertEquals("300404020103", HexString.encode(tlvDataObject.toByteArray()));
+	}
+	
+	/**
+	 * Positive test: the length of an omitted value is still indicated by the enclosing object.
+	 */
+	@Test
+	public void testEncode_OmittedValue() {
+		ConstructedTlvDataObject tlvDataObject = new ConstructedTlvDataObject(TAG_SEQUENCE, new BogusPrimitiveTlvDataObject(TAG_53, new byte[] {1, 2}, true));
+		
+		assertEquals("30045302", HexString.encode(tlvDataObject.toByteArray()));
+		assertEquals(6, tlvDataObject.getLength());
+	}
+	
+	/**
+	 * Positive test: encode the elements of a container.
+	 */
+	@Test
+	public void testEncode_Container() {
+		TlvDataObjectContainer container = new TlvDataObjectContainer(HexString.toByteArray("020101" + "3003020102"));
+		
+		assertEquals("0201013003020102", HexString.encode(TlvEncoder.encode(container)));
+		assertEquals(8, container.getLength());
+	}
+	
+}
@@ -383,4 +383,17 @@ public class TlvLengthTest {
 	}
 	
 	
+	/**
+	 * Positive test case: constructing a length from a value results in the minimum length encoding
+	 */
+	@Test
+	public void testConstructor_LengthValue() {
+		assertArrayEquals(new byte[] { 0x7F }, new TlvLength(0x7F).toByteArray());
+		assertArrayEquals(new byte[] { (byte) 0x81, (byte) 0x80 }, new TlvLength(0x80).toByteArray());
+		assertArrayEquals(new byte[] { (byte) 0x82, 0x12, 0x34 }, new TlvLength(0x1234).toByteArray());
+		assertArrayEquals(new byte[] { (byte) 0x84, 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF }, new TlvLength(Integer.MAX_VALUE).toByteArray());
+		assertEquals(Integer.MAX_VALUE, new TlvLength(Integer.MAX_VALUE).getIndicatedLength());
+		assertEquals(new TlvLength(new byte[] { (byte) 0x82, 0x12, 0x34 }), new TlvLength(0x1234));
+	}
+	
 }
@@ -2,6 +2,12 @@ package de.persosim.simulator.tlv;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 
 import org.junit.Test;
 
@@ -243,4 +249,57 @@ public class TlvTagTest {
 		assertEquals("Is valid DER encoding", tag.isValidDerEncoding(), true);
 	}
 
+	/**
+	 * Positive test case: equal valid tags are interned, independent of how they are provided
+	 */
+	@Test
+	public void testGetInstance_Interned() {
+		byte[] data = new byte[] { 0x30, 0x03, 0x7F, 0x4C, 0x00 };
+		
+		assertSame(TlvConstants.TAG_SEQUENCE, TlvTag.getInstance(Asn1.SEQUENCE));
+		assertSame(TlvConstants.TAG_SEQUENCE, TlvTag.getInstance(data, 0, data.length));
+		assertSame(TlvConstants.TAG_7F4C, TlvTag.getInstance((short) 0x7F4C));
+		assertSame(TlvConstants.TAG_7F4C, TlvTag.getInstance(data, 2, data.length));
+		assertSame(TlvConstants.TAG_7F4C, new TlvDataObjectContainer(new byte[] { 0x7F, 0x4C, 0x00 }).getTlvObjects().get(0).getTlvTag());
+		assertEquals(TlvConstants.TAG_7F4C, new TlvTag(TlvConstants.TAG_7F4C.toByteArray()));
+	}
+	
+	/**
+	 * Negative test case: invalid tags are rejected by the interning cache
+	 */
+	@Test(expected = ISO7816Exception.class)
+	public void testGetInstance_Invalid() {
+		TlvTag.getInstance((byte) 0x1F);
+	}
+	
+	/**
+	 * Positive test case: forced tags longer than a packed tag keep their encoding
+	 */
+	@Test
+	public void testConstructor_LongForcedTag() {
+		byte[] tagField = new byte[] { 0x1F, (byte) 0x81, (byte) 0x82, (byte) 0x83, (byte) 0x84, (byte) 0x85, (byte) 0x86, (byte) 0x87, 0x08 };
+		
+		TlvTag tag = new TlvTag(tagField, false);
+		
+		assertArrayEquals(tagField, tag.toByteArray());
+		assertEquals(9, tag.getLength());
+		assertEquals(tag, new TlvTag(tagField, false));
+		assertFalse(tag.isValidBerEncoding());
+		assertFalse(tag.matches(new TlvTag(new byte[] { 0x1F, (byte) 0x81, 0x02 }, false)));
+	}
+	
+	/**
+	 * Positive test case: tags are immutable, so they can be interned and
+	 * shared by TLV data objects, see {@link TlvTag#clone()}
+	 */
+	@Test
+	public void testImmutable() {
+		for (Field field : TlvTag.class.getDeclaredFields()) {
+			assertTrue(field.getName() + " must be final", Modifier.isFinal(field.getModifiers()));
+		}
+		
+		TlvTag tag = TlvTag.getInstance((byte) 0x80);
+		assertSame(tag, tag.clone());
+	}
+	
 }
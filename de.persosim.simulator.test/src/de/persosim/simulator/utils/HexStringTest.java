@@ -79,6 +79,27 @@ public class HexStringTest {
 		assertArrayEquals(exp, recv);
 	}
 	
+	/**
+	 * Positive test case: convert String containing whitespace and lower case
+	 * digits to byte array
+	 */
+	@Test
+	public void testToByteArray_Whitespace() {
+		byte[] exp = new byte[]{(byte) 0x0A, (byte) 0xBC, (byte) 0xFF};
+		byte[] recv = HexString.toByteArray(" 0A bc\n\tF F ");
+		
+		assertArrayEquals(exp, recv);
+	}
+	
+	/**
+	 * Negative test case: get NumberFormatException because of non
+	 * hexadecimal characters
+	 */
+	@Test(expected=NumberFormatException.class)
+	public void testToByteArray_InvalidCharacter() {
+		HexString.toByteArray("0G");
+	}
+	
 	/**
 	 * Positive test case: converts a very long String into a byte array.
 	 */
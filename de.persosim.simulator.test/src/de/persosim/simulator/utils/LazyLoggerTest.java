@@ -0,0 +1,83 @@
+package de.persosim.simulator.utils;
+
+import static org.globaltester.logging.BasicLogger.DEBUG;
+import static org.globaltester.logging.BasicLogger.INFO;
+import static org.globaltester.logging.BasicLogger.TRACE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LazyLoggerTest {
+	
+	private byte previousLogLevel;
+	
+	@Before
+	public void setUp() {
+		previousLogLevel = LazyLogger.getMinimumLogLevel();
+	}
+	
+	@After
+	public void tearDown() {
+		LazyLogger.setMinimumLogLevel(previousLogLevel);
+	}
+	
+	/**
+	 * Positive test case: without configuration messages of all levels are
+	 * forwarded, so lazily built messages are filtered like all others.
+	 */
+	@Test
+	public void testGetMinimumLogLevel_Default() {
+		assertEquals(LazyLogger.DEFAULT_LOG_LEVEL, LazyLogger.getMinimumLogLevel());
+		assertTrue(LazyLogger.isLogLevelEnabled(TRACE));
+		assertTrue(LazyLogger.isLogLevelEnabled(DEBUG));
+	}
+	
+	/**
+	 * Positive test case: the message supplier is not called for log levels
+	 * below the minimum log level.
+	 */
+	@Test
+	public void testLog_DisabledLevel() {
+		AtomicInteger calls = new AtomicInteger();
+		LazyLogger.setMinimumLogLevel(INFO);
+		
+		LazyLogger.log(LazyLoggerTest.class, () -> "message " + calls.incrementAndGet(), TRACE);
+		LazyLogger.log(LazyLoggerTest.class, () -> "message " + calls.incrementAndGet(), DEBUG);
+		
+		assertEquals(0, calls.get());
+	}
+	
+	/**
+	 * Positive test case: the message supplier is called for log levels
+	 * starting from the minimum log level.
+	 */
+	@Test
+	public void testLog_EnabledLevel() {
+		AtomicInteger calls = new AtomicInteger();
+		LazyLogger.setMinimumLogLevel(DEBUG);
+		
+		LazyLogger.log(LazyLoggerTest.class, () -> "message " + calls.incrementAndGet(), DEBUG);
+		LazyLogger.log(LazyLoggerTest.class, () -> "message " + calls.incrementAndGet(), INFO);
+		
+		assertEquals(2, calls.get());
+	}
+	
+	/**
+	 * Positive test case: check enabled log levels.
+	 */
+	@Test
+	public void testIsLogLevelEnabled() {
+		LazyLogger.setMinimumLogLevel(DEBUG);
+		
+		assertFalse(LazyLogger.isLogLevelEnabled(TRACE));
+		assertTrue(LazyLogger.isLogLevelEnabled(DEBUG));
+		assertTrue(LazyLogger.isLogLevelEnabled(INFO));
+	}
+	
+}
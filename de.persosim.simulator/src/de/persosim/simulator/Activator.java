@@ -9,6 +9,8 @@ import org.osgi.framework.BundleContext;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceRegistration;
 
+import de.persosim.simulator.platform.ProcessingMetrics;
+
 public class Activator implements BundleActivator {
 
 	public static BundleContext context;
@@ -16,15 +18,21 @@ public class Activator implements BundleActivator {
 	private static Activator plugin;
 	private static PersoSim sim = null;
 	private ServiceRegistration<Simulator> simRegistration;
+	private ServiceRegistration<ProcessingMetrics> metricsRegistration;
 	
 	@Override
 	public void start(BundleContext context) throws Exception {
 		Activator.context = context;
 		plugin = this;
+		metricsRegistration = context.registerService(ProcessingMetrics.class, ProcessingMetrics.getInstance(), null);
 }
 
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		if (metricsRegistration != null) {
+			metricsRegistration.unregister();
+			metricsRegistration = null;
+		}
 		Activator.context = null;
 	}
 	
@@ -22,7 +22,10 @@ import org.globaltester.simulator.Simulator;
 import org.osgi.framework.Bundle;
 
 import de.persosim.simulator.perso.Personalization;
+import de.persosim.simulator.perso.PersonalizationBinaryFormat;
+import de.persosim.simulator.perso.PersonalizationCache;
 import de.persosim.simulator.perso.PersonalizationFactory;
+import de.persosim.simulator.platform.ProcessingMetrics;
 import de.persosim.simulator.utils.HexString;
 
 /**
@@ -45,7 +48,12 @@ public class CommandParser {
 	public static final String ARG_SET_PORT = "-port";
 	public static final String CMD_LOAD_PERSONALIZATION = "loadperso";
 	public static final String ARG_LOAD_PERSONALIZATION = "-perso";
+	public static final String CMD_EXPORT_PERSONALIZATION = "exportperso";
 	public static final String CMD_SEND_APDU = "sendapdu";
+	public static final String CMD_METRICS = "metrics";
+	public static final String ARG_METRICS_RESET = "reset";
+	public static final String ARG_METRICS_ENABLE = "enable";
+	public static final String ARG_METRICS_DISABLE = "disable";
 	public static final String CMD_HELP = "help";
 	public static final String ARG_HELP = "-h";
 	public static final String CMD_CONSOLE_ONLY = "--consoleOnly";
@@ -55,9 +63,12 @@ public class CommandParser {
 	
 	private static boolean processingCommandLineArguments = false;
 	
+	private static final PersonalizationCache personalizationCache = new PersonalizationCache(PersonalizationCache.DEFAULT_CAPACITY);
+	
 	public static final String PERSO_PATH = "personalization/profiles/";
 	public static final String PERSO_FILE_PREFIX = "Profile";
 	public static final String PERSO_FILE_POSTFIX = ".perso";
+	public static final String PERSO_FILE_POSTFIX_BINARY = ".persobin";
 	
 	/**
 	 * This method processes the command for starting the simulator.
@@ -164,6 +175,45 @@ public class CommandParser {
 		}
 	}
 	
+	/**
+	 * This method processes the command for the APDU processing metrics. The
+	 * command without argument prints the recorded figures, the optional
+	 * argument resets the figures or enables resp. disables recording.
+	 * @param args arguments that may contain a metrics command
+	 * @return the printed report or an empty String if no report was printed
+	 */
+	public static String cmdMetrics(List<String> args) {
+		if((args != null) && (args.size() >= 1)) {
+			String cmd = args.get(0);
+			
+			if(cmd.equals(CMD_METRICS)) {
+				args.remove(0);
+				ProcessingMetrics metrics = ProcessingMetrics.getInstance();
+				
+				if(args.size() >= 1) {
+					String arg = args.get(0);
+					if(arg.equals(ARG_METRICS_RESET)) {
+						args.remove(0);
+						metrics.reset();
+						log(CommandParser.class, "APDU processing metrics have been reset", INFO);
+						return "";
+					} else if(arg.equals(ARG_METRICS_ENABLE) || arg.equals(ARG_METRICS_DISABLE)) {
+						args.remove(0);
+						metrics.setEnabled(arg.equals(ARG_METRICS_ENABLE));
+						log(CommandParser.class, "recording of APDU processing metrics is " + arg + "d", INFO);
+						return "";
+					}
+				}
+				
+				String report = metrics.getReport();
+				log(CommandParser.class, "APDU processing metrics" + (metrics.isEnabled() ? "" : " (recording disabled)") + ":\n" + report, INFO);
+				return report;
+			}
+		}
+		
+		return "";
+	}
+	
 	/**
 	 * This method prints the help menu to the command line.
 	 */
@@ -181,6 +231,8 @@ public class CommandParser {
 		log(CommandParser.class, "Available commands:", INFO);
 		log(CommandParser.class, CMD_SEND_APDU + " <hexstring>", INFO);
 		log(CommandParser.class, CMD_LOAD_PERSONALIZATION + " <file name>", INFO);
+		log(CommandParser.class, CMD_EXPORT_PERSONALIZATION + " <file name> <binary file name>", INFO);
+		log(CommandParser.class, CMD_METRICS + " [" + ARG_METRICS_RESET + "|" + ARG_METRICS_ENABLE + "|" + ARG_METRICS_DISABLE + "]", INFO);
 		log(CommandParser.class, CMD_START, INFO);
 		log(CommandParser.class, CMD_RESTART, INFO);
 		log(CommandParser.class, CMD_STOP, INFO);
@@ -221,6 +273,44 @@ public class CommandParser {
 		return false;
 	}
 	
+	/**
+	 * This method processes the export personalization command according to
+	 * the provided arguments. The personalization is loaded like with the
+	 * load personalization command and written to the given file in the
+	 * binary format, see {@link PersonalizationBinaryFormat}.
+	 * @param args the arguments provided for processing the export personalization command
+	 * @return whether processing of the export personalization command has been successful
+	 */
+	public static boolean cmdExportPersonalization(List<String> args) {
+		
+		if((args != null) && (args.size() >= 3)) {
+			String cmd = args.get(0);
+			
+			if(cmd.equals(CMD_EXPORT_PERSONALIZATION)) {
+				
+				String arg = args.get(1);
+				String binaryFileName = args.get(2);
+				
+				args.remove(0);
+				args.remove(0);
+				args.remove(0);
+				Personalization perso = getPerso(arg);
+				
+				if (perso != null) {
+					try {
+						PersonalizationFactory.marshalBinary(perso, binaryFileName);
+						log(CommandParser.class, "Exported personalization to binary file " + binaryFileName, INFO);
+						return true;
+					} catch (IOException e) {
+						log(CommandParser.class, "unable to export personalization, reason is: " + e.getMessage(), ERROR);
+					}
+				}
+			}
+		}
+		
+		return false;
+	}
+	
 	/**
 	 * This method parses the given identifier and loads the personalization
 	 * @param identifier
@@ -276,14 +366,99 @@ public class CommandParser {
 	
 	/**
 	 * This method parses a {@link Personalization} object from a file identified by its name.
+	 * <p/>
+	 * If the file is a binary personalization (see
+	 * {@link PersonalizationBinaryFormat}) or a binary personalization with the
+	 * same name and the postfix {@value #PERSO_FILE_POSTFIX_BINARY} exists that
+	 * is not older than the file, the binary personalization is loaded instead
+	 * of parsing the XML.
+	 * <p/>
+	 * Parsed personalizations are cached (see {@link PersonalizationCache}),
+	 * selecting an unchanged file again returns a new copy of the cached
+	 * personalization without parsing the file.
+	 * 
 	 * @param persoFileName the name of the file to contain the personalization
 	 * @return the parsed personalization
 	 * @throws FileNotFoundException 
 	 * @throws JAXBException if parsing of personalization not successful
 	 */
 	public static Personalization parsePersonalization(String persoFileName) throws FileNotFoundException {
+		File binaryFile = getBinaryPersoFile(persoFileName);
+		if (binaryFile != null) {
+			Personalization cached = personalizationCache.get(binaryFile);
+			if (cached != null) {
+				log(CommandParser.class, "Using cached personalization from file " + binaryFile.getPath(), INFO);
+				return cached;
+			}
+			
+			log(CommandParser.class, "Loading binary personalization from file " + binaryFile.getPath(), INFO);
+			try {
+				return cachePersonalization(binaryFile, (Personalization) PersonalizationFactory.unmarshalBinary(binaryFile.getPath()));
+			} catch (IOException | RuntimeException e) {
+				log(CommandParser.class, "unable to load binary personalization, reason is: " + e.getMessage(), WARN);
+			}
+		}
+		
+		File persoFile = new File(persoFileName);
+		Personalization cached = personalizationCache.get(persoFile);
+		if (cached != null) {
+			log(CommandParser.class, "Using cached personalization from file " + persoFileName, INFO);
+			return cached;
+		}
+		
 		log(CommandParser.class, "Parsing personalization from file " + persoFileName, INFO);
-		return (Personalization) PersonalizationFactory.unmarshal(persoFileName);
+		return cachePersonalization(persoFile, (Personalization) PersonalizationFactory.unmarshal(persoFileName));
+	}
+	
+	/**
+	 * This method stores a copy of the given freshly parsed personalization in the cache.
+	 * @param persoFile the file the personalization was parsed from
+	 * @param perso the parsed personalization
+	 * @return the given personalization
+	 */
+	private static Personalization cachePersonalization(File persoFile, Personalization perso) {
+		if (perso != null) {
+			try {
+				personalizationCache.put(persoFile, perso);
+			} catch (IOException | RuntimeException e) {
+				log(CommandParser.class, "unable to cache personalization, reason is: " + e.getMessage(), WARN);
+			}
+		}
+		return perso;
+	}
+	
+	/**
+	 * This method removes all cached personalizations, following selections
+	 * of personalization files parse the files again.
+	 */
+	public static void clearPersonalizationCache() {
+		personalizationCache.clear();
+	}
+	
+	/**
+	 * This method returns the binary personalization to be loaded instead of the given file.
+	 * @param persoFileName the name of the file to contain the personalization
+	 * @return the binary personalization file or null if the given file is to be parsed as XML
+	 */
+	private static File getBinaryPersoFile(String persoFileName) {
+		File persoFile = new File(persoFileName);
+		if (PersonalizationBinaryFormat.isBinaryPersonalization(persoFile)) {
+			return persoFile;
+		}
+		
+		String baseName = persoFileName;
+		if (baseName.endsWith(PERSO_FILE_POSTFIX)) {
+			baseName = baseName.substring(0, baseName.length() - PERSO_FILE_POSTFIX.length());
+		}
+		File binaryFile = new File(baseName + PERSO_FILE_POSTFIX_BINARY);
+		if (!binaryFile.isFile()) {
+			return null;
+		}
+		if (persoFile.exists() && (binaryFile.lastModified() < persoFile.lastModified())) {
+			log(CommandParser.class, "binary personalization " + binaryFile.getPath() + " is older than " + persoFileName + " and is ignored", WARN);
+			return null;
+		}
+		return binaryFile;
 	}
 	
 	public static void executeUserCommands(String... args) {
@@ -304,7 +479,9 @@ public class CommandParser {
 			noOfArgsWhenCheckedLast = currentArgs.size();
 			
 			cmdLoadPersonalization(currentArgs);
+			cmdExportPersonalization(currentArgs);
 			cmdSendApdu(currentArgs);
+			cmdMetrics(currentArgs);
 			cmdStartSimulator(currentArgs);
 			cmdRestartSimulator(currentArgs);
 			cmdStopSimulator(currentArgs);
@@ -9,6 +9,7 @@ import org.globaltester.logging.BasicLogger;
 import org.globaltester.simulator.Simulator;
 
 import de.persosim.simulator.exception.AccessDeniedException;
+import de.persosim.simulator.perso.CardSnapshot;
 import de.persosim.simulator.perso.Personalization;
 import de.persosim.simulator.platform.PersoSimKernel;
 
@@ -112,6 +113,22 @@ public class PersoSim implements Simulator {
 		return true;
 	}
 
+	/**
+	 * This method takes a snapshot of the current state of the loaded card.
+	 * Independent copies of the card can be loaded from the snapshot using
+	 * {@link CardSnapshot#fork()}, which is much faster than loading the
+	 * personalization again.
+	 * 
+	 * @return the snapshot or null if no personalization has been loaded
+	 */
+	public CardSnapshot takeSnapshot() {
+		if (kernel == null) {
+			log(this.getClass(), "The simulator is not initialized, no snapshot can be taken", INFO);
+			return null;
+		}
+		return new CardSnapshot(currentPersonalization);
+	}
+
 	@Override
 	public byte[] processCommand(byte[] apdu) {
 
@@ -11,7 +11,6 @@ import de.persosim.simulator.tlv.TlvDataObjectContainer;
 import de.persosim.simulator.tlv.TlvValue;
 import de.persosim.simulator.tlv.TlvValuePlain;
 import de.persosim.simulator.utils.HexString;
-import de.persosim.simulator.utils.Serializer;
 import de.persosim.simulator.utils.Utils;
 
 /**
@@ -33,6 +32,12 @@ public class CommandApduImpl implements CommandApdu {
 	private final int ne;
 	private final short nc;
 	private final TlvValue commandData;
+	
+	/*
+	 * Parsed representation of the command data, created on first request.
+	 * This object is never handed out directly but only as copy.
+	 */
+	private TlvDataObjectContainer commandDataObjectContainer = null;
 
 	private CommandApdu predecessor = null;
 
@@ -160,13 +165,14 @@ public class CommandApduImpl implements CommandApdu {
 	 */
 	@Override
 	public TlvDataObjectContainer getCommandDataObjectContainer() {
-		TlvDataObjectContainer commandDataRet;
-		if (!(commandData instanceof TlvDataObjectContainer)) {
-			commandDataRet = new TlvDataObjectContainer(commandData);
-		} else {
-			commandDataRet = (TlvDataObjectContainer) commandData;
+		if (commandDataObjectContainer == null) {
+			if (!(commandData instanceof TlvDataObjectContainer)) {
+				commandDataObjectContainer = new TlvDataObjectContainer(commandData);
+			} else {
+				commandDataObjectContainer = (TlvDataObjectContainer) commandData;
+			}
 		}
-		return Serializer.deepCopy(commandDataRet);
+		return commandDataObjectContainer.copy();
 	}
 
 	/* (non-Javadoc)
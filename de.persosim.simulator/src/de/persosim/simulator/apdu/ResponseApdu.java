@@ -2,6 +2,7 @@ package de.persosim.simulator.apdu;
 
 import de.persosim.simulator.platform.Iso7816Lib;
 import de.persosim.simulator.tlv.TlvValue;
+import de.persosim.simulator.tlv.TlvValuePlain;
 import de.persosim.simulator.utils.HexString;
 import de.persosim.simulator.utils.Utils;
 
@@ -56,7 +57,14 @@ public class ResponseApdu {
 	public byte[] toByteArray() {
 		byte[] swArray = Utils.toUnsignedByteArray(statusWord);
 		
-		if (data != null) {
+		if (data instanceof TlvValuePlain) {
+			// copy the value only once, it may be a view on larger data
+			TlvValuePlain plainData = (TlvValuePlain) data;
+			byte[] result = new byte[plainData.getLength() + swArray.length];
+			int dataLength = plainData.copyTo(result, 0);
+			System.arraycopy(swArray, 0, result, dataLength, swArray.length);
+			return result;
+		} else if (data != null) {
 			return Utils.concatByteArrays(data.toByteArray(), swArray);
 		} else {
 			return swArray;
@@ -190,6 +190,37 @@ public class ApduSpecification implements Iso7816, ApduSpecificationConstants {
 	 * @return whether the specification defined within this object matches against the provided {@link CommandApduImpl}
 	 */
 	public boolean matchesFullApdu(CommandApdu apdu) {
+		if (!matchesHeader(apdu)) {
+			return false;
+		}
+		
+		if (tags.isEmpty()) {
+			return true;
+		}
+		
+		return matchesCommandData(parseCommandData(apdu));
+	}
+	
+	/**
+	 * This method performs the same matching as
+	 * {@link #matchesFullApdu(CommandApdu)} but uses the provided command data
+	 * instead of parsing the command data field of the APDU again. This allows
+	 * to match several specifications against a single parsed representation
+	 * of the command data.
+	 * @param apdu the {@link CommandApdu} to match
+	 * @param commandData the command data field of the APDU as returned by {@link #parseCommandData(CommandApdu)}
+	 * @return whether the specification defined within this object matches against the provided {@link CommandApduImpl}
+	 */
+	public boolean matchesFullApdu(CommandApdu apdu, TlvDataObjectContainer commandData) {
+		return matchesHeader(apdu) && (tags.isEmpty() || matchesCommandData(commandData));
+	}
+	
+	/**
+	 * This method performs the matching of all parameters except the command data field.
+	 * @param apdu the {@link CommandApdu} to match
+	 * @return whether all parameters except the command data field match
+	 */
+	public boolean matchesHeader(CommandApdu apdu) {
 		byte isoCaseReceived;
 		boolean elementMatch;
 		
@@ -297,24 +328,41 @@ public class ApduSpecification implements Iso7816, ApduSpecificationConstants {
 			
 		}
 		
-		if (!tags.isEmpty()) {
-			
-			TlvDataObjectContainer constructedDataField;
-			
-			byte[] commandDataBytes = apdu.getCommandData().toByteArray();
-			
-			try {
-				constructedDataField = new TlvDataObjectContainer(commandDataBytes, 0, commandDataBytes.length);
-				
-				return tags.matches(constructedDataField);
-			} catch (IllegalArgumentException e) {
-				log(ApduSpecification.class, "command data field does not contain TLV constructed data");
-				return false;
-			}
-					
+		return true;
+	}
+	
+	/**
+	 * This method performs the matching of the command data field.
+	 * @param commandData the command data field as returned by {@link #parseCommandData(CommandApdu)}
+	 * @return whether the command data field matches
+	 */
+	public boolean matchesCommandData(TlvDataObjectContainer commandData) {
+		if (tags.isEmpty()) {
+			return true;
 		}
 		
-		return true;
+		if (commandData == null) {
+			log(ApduSpecification.class, "command data field does not contain TLV constructed data");
+			return false;
+		}
+		
+		return tags.matches(commandData);
+	}
+	
+	/**
+	 * This method parses the command data field of the provided APDU for
+	 * matching. The parsed representation is cached by the APDU, so the data
+	 * field is parsed only once regardless of the number of matched
+	 * specifications.
+	 * @param apdu the {@link CommandApdu} to parse the command data field from
+	 * @return the parsed command data field or null if it does not contain TLV constructed data
+	 */
+	public static TlvDataObjectContainer parseCommandData(CommandApdu apdu) {
+		try {
+			return apdu.getCommandDataObjectContainer();
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
 	}
 	
 	/*--------------------------------------------------------------------------------*/
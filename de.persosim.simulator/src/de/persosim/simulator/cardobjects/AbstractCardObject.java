@@ -2,8 +2,11 @@ package de.persosim.simulator.cardobjects;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 import de.persosim.simulator.exception.AccessDeniedException;
 import de.persosim.simulator.exception.LifeCycleChangeException;
@@ -67,6 +70,10 @@ public abstract class AbstractCardObject implements CardObject {
 		if (newChild instanceof AbstractCardObject) {
 			((AbstractCardObject) newChild).parent = this;
 		}
+		CardObjectIndex index = getExistingIndex();
+		if (index != null) {
+			index.add(newChild);
+		}
 		try {
 			newChild.setSecStatus(securityStatus);
 		} catch (AccessDeniedException e) {
@@ -81,11 +88,39 @@ public abstract class AbstractCardObject implements CardObject {
 			if (child instanceof AbstractCardObject) {
 				((AbstractCardObject) child).parent = null;
 			}
+			CardObjectIndex index = getExistingIndex();
+			if (index != null) {
+				index.remove(child);
+			}
 			return child;
 		}
 		return null;
 	}
 
+	/**
+	 * This method must be called by subclasses after the result of
+	 * {@link #getAllIdentifiers()} has changed, so that lookups using the
+	 * index of the {@link MasterFile} stay correct.
+	 */
+	protected void identifiersChanged() {
+		CardObjectIndex index = getExistingIndex();
+		if (index != null) {
+			index.update(this);
+		}
+	}
+
+	/**
+	 * @return the index of the {@link MasterFile} this object belongs to or
+	 *         null if there is none or it has not been built yet
+	 */
+	private CardObjectIndex getExistingIndex() {
+		CardObject root = this;
+		while (root.getParent() != null) {
+			root = root.getParent();
+		}
+		return (root instanceof MasterFile) ? ((MasterFile) root).getExistingIndex() : null;
+	}
+
 	@Override
 	public Iso7816LifeCycleState getLifeCycleState() {
 		return lifeCycleState;
@@ -136,6 +171,11 @@ public abstract class AbstractCardObject implements CardObject {
 	public Collection<CardObject> findChildren(CardObjectIdentifier... cardObjectIdentifiers) {
 		if(cardObjectIdentifiers.length == 0) {throw new IllegalArgumentException("must provide at least 1 identifier");}
 
+		Collection<CardObject> candidates = CardObjectUtils.getCandidates(this, cardObjectIdentifiers);
+		if (candidates != null) {
+			return findChildren(candidates, cardObjectIdentifiers);
+		}
+
 		Collection<CardObject> matchingChildren = new ArrayList<>();
 
 		// check the immediate children of the current DF
@@ -149,6 +189,40 @@ public abstract class AbstractCardObject implements CardObject {
 		return matchingChildren;
 	}
 
+	/**
+	 * Select the matching children of this object from the given candidates
+	 * while keeping the order of {@link #getChildren()}.
+	 * 
+	 * @param candidates
+	 *            all objects that possibly match
+	 * @param cardObjectIdentifiers
+	 *            set of identifiers that are required to match
+	 * @return all children that match the given identifiers
+	 */
+	private Collection<CardObject> findChildren(Collection<CardObject> candidates, CardObjectIdentifier... cardObjectIdentifiers) {
+		Collection<CardObject> matchingChildren = new ArrayList<>();
+		for (CardObject curCandidate : candidates) {
+			if (curCandidate.getParent() == this && CardObjectUtils.matches(curCandidate, cardObjectIdentifiers)) {
+				matchingChildren.add(curCandidate);
+			}
+		}
+
+		if (matchingChildren.size() <= 1) {
+			return matchingChildren;
+		}
+
+		// restore order of children
+		Set<CardObject> matching = Collections.newSetFromMap(new IdentityHashMap<CardObject, Boolean>());
+		matching.addAll(matchingChildren);
+		matchingChildren.clear();
+		for (CardObject curChild : getChildren()) {
+			if (matching.contains(curChild)) {
+				matchingChildren.add(curChild);
+			}
+		}
+		return matchingChildren;
+	}
+
 	@Override
 	public Collection<CardObjectIdentifier> getAllIdentifiers() {
 		HashSet<CardObjectIdentifier> set = new HashSet<>();
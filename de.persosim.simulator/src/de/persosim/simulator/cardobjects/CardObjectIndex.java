@@ -0,0 +1,289 @@
+package de.persosim.simulator.cardobjects;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * This class indexes all {@link CardObject}s of a tree by the keys derived from
+ * their {@link CardObjectIdentifier}s. It is maintained incrementally by the
+ * {@link MasterFile} owning the tree, see {@link MasterFile#getIndex()}.
+ * <p/>
+ * The index only narrows down the set of candidates for a lookup, callers
+ * still need to check all identifiers on the candidates. Supported lookup
+ * identifiers are all {@link AbstractCardObjectIdentifier}s relying on
+ * {@link #equals(Object)} (e.g. {@link FileIdentifier},
+ * {@link ShortFileIdentifier}, {@link DedicatedFileIdentifier} and
+ * {@link AuthObjectIdentifier}), {@link IntegerIdentifier}s like
+ * {@link KeyIdentifier}, {@link OidIdentifier}s (prefix matching),
+ * {@link TypeIdentifier}s and {@link MasterFileIdentifier}s.
+ */
+class CardObjectIndex {
+
+	/** caches whether an identifier type relies on the generic equals based matching */
+	private static final ClassValue<Boolean> matchesByEquality = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			if (!AbstractCardObjectIdentifier.class.isAssignableFrom(type)) {
+				return false;
+			}
+			try {
+				return type.getMethod("matches", CardObject.class).getDeclaringClass() == AbstractCardObjectIdentifier.class;
+			} catch (NoSuchMethodException e) {
+				return false;
+			}
+		}
+	};
+
+	private final HashMap<Object, Set<CardObject>> objectsByKey = new HashMap<>();
+	private final IdentityHashMap<CardObject, Set<Object>> keysByObject = new IdentityHashMap<>();
+
+	/** set if an object without parent reference has been added, such objects can not be located by the index */
+	private boolean complete = true;
+
+	/**
+	 * Creates a new index containing the given tree.
+	 * 
+	 * @param root
+	 *            the root of the tree to index
+	 */
+	CardObjectIndex(CardObject root) {
+		add(root);
+	}
+
+	/**
+	 * @return true iff all indexed objects can be located using their parents
+	 */
+	boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * Adds the given object and all its children to the index.
+	 * 
+	 * @param subtree
+	 *            the root of the subtree to add
+	 */
+	void add(CardObject subtree) {
+		if (!(subtree instanceof AbstractCardObject)) {
+			complete = false;
+		}
+
+		Set<Object> keys = getIndexKeys(subtree);
+		keysByObject.put(subtree, keys);
+		for (Object curKey : keys) {
+			Set<CardObject> objects = objectsByKey.get(curKey);
+			if (objects == null) {
+				objects = Collections.newSetFromMap(new IdentityHashMap<CardObject, Boolean>());
+				objectsByKey.put(curKey, objects);
+			}
+			objects.add(subtree);
+		}
+
+		for (CardObject curChild : subtree.getChildren()) {
+			add(curChild);
+		}
+	}
+
+	/**
+	 * Removes the given object and all its children from the index.
+	 * 
+	 * @param subtree
+	 *            the root of the subtree to remove
+	 */
+	void remove(CardObject subtree) {
+		removeObject(subtree);
+
+		for (CardObject curChild : subtree.getChildren()) {
+			remove(curChild);
+		}
+	}
+
+	/**
+	 * Updates the keys of a single object, e.g. after its identifiers have
+	 * been changed. Children are not affected.
+	 * 
+	 * @param object
+	 *            the object to update
+	 */
+	void update(CardObject object) {
+		if (!keysByObject.containsKey(object)) {
+			return;
+		}
+
+		removeObject(object);
+
+		Set<Object> keys = getIndexKeys(object);
+		keysByObject.put(object, keys);
+		for (Object curKey : keys) {
+			Set<CardObject> objects = objectsByKey.get(curKey);
+			if (objects == null) {
+				objects = Collections.newSetFromMap(new IdentityHashMap<CardObject, Boolean>());
+				objectsByKey.put(curKey, objects);
+			}
+			objects.add(object);
+		}
+	}
+
+	private void removeObject(CardObject object) {
+		Set<Object> keys = keysByObject.remove(object);
+		if (keys == null) {
+			return;
+		}
+
+		for (Object curKey : keys) {
+			Set<CardObject> objects = objectsByKey.get(curKey);
+			if (objects != null) {
+				objects.remove(object);
+				if (objects.isEmpty()) {
+					objectsByKey.remove(curKey);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns all indexed objects that possibly match all given identifiers.
+	 * The set is determined using the most selective identifier supported by
+	 * the index.
+	 * 
+	 * @param identifiers
+	 *            identifiers the objects need to match
+	 * @return the candidates (possibly empty) or null if none of the
+	 *         identifiers is supported by the index
+	 */
+	Collection<CardObject> getCandidates(CardObjectIdentifier... identifiers) {
+		Collection<CardObject> candidates = null;
+
+		for (CardObjectIdentifier curIdentifier : identifiers) {
+			Object key = getLookupKey(curIdentifier);
+			if (key == null) {
+				continue;
+			}
+
+			Set<CardObject> objects = objectsByKey.get(key);
+			if (objects == null) {
+				return Collections.emptySet();
+			}
+
+			if (candidates == null || objects.size() < candidates.size()) {
+				candidates = objects;
+			}
+		}
+
+		return candidates;
+	}
+
+	/*--------------------------------------------------------------------------------*/
+
+	/**
+	 * Returns the key to be used for looking up objects that match the given
+	 * identifier.
+	 * 
+	 * @param identifier
+	 *            the identifier to look up
+	 * @return the key or null if the identifier is not supported by the index
+	 */
+	static Object getLookupKey(CardObjectIdentifier identifier) {
+		if (identifier == null) {
+			return null;
+		}
+
+		if (identifier instanceof IntegerIdentifier) {
+			return new IndexKey(identifier.getClass(), ((IntegerIdentifier) identifier).getInteger());
+		}
+
+		if (identifier instanceof OidIdentifier) {
+			return new IndexKey(OidIdentifier.class, ByteBuffer.wrap(((OidIdentifier) identifier).getOid().toByteArray()));
+		}
+
+		if (identifier instanceof TypeIdentifier) {
+			return new IndexKey(TypeIdentifier.class, ((TypeIdentifier) identifier).getType());
+		}
+
+		if (identifier instanceof MasterFileIdentifier) {
+			return new IndexKey(TypeIdentifier.class, MasterFile.class);
+		}
+
+		if (matchesByEquality.get(identifier.getClass())) {
+			return identifier;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns all keys the given object needs to be indexed with, so that it
+	 * is found by all supported identifiers matching it.
+	 * 
+	 * @param object
+	 *            the object to be indexed
+	 * @return all keys for the object
+	 */
+	static Set<Object> getIndexKeys(CardObject object) {
+		Set<Object> keys = new HashSet<>();
+
+		for (Class<?> curType = object.getClass(); curType != null; curType = curType.getSuperclass()) {
+			keys.add(new IndexKey(TypeIdentifier.class, curType));
+		}
+
+		for (CardObjectIdentifier curIdentifier : object.getAllIdentifiers()) {
+			if (curIdentifier == null) {
+				continue;
+			}
+
+			if (curIdentifier instanceof IntegerIdentifier) {
+				// IntegerIdentifiers also match on instances of subclasses
+				int integer = ((IntegerIdentifier) curIdentifier).getInteger();
+				for (Class<?> curType = curIdentifier.getClass(); curType != IntegerIdentifier.class; curType = curType.getSuperclass()) {
+					keys.add(new IndexKey(curType, integer));
+					keys.add(new IndexKey(curType, IntegerIdentifier.MATCHES_ALWAYS));
+				}
+			} else if (curIdentifier instanceof OidIdentifier) {
+				// OidIdentifiers match on all objects the OID of which starts with the prefix
+				byte[] oid = ((OidIdentifier) curIdentifier).getOid().toByteArray();
+				for (int i = 0; i <= oid.length; i++) {
+					keys.add(new IndexKey(OidIdentifier.class, ByteBuffer.wrap(Arrays.copyOf(oid, i))));
+				}
+			} else if (matchesByEquality.get(curIdentifier.getClass())) {
+				keys.add(curIdentifier);
+			}
+		}
+
+		return keys;
+	}
+
+	/**
+	 * Key for identifiers not relying on the generic equals based matching.
+	 */
+	private static final class IndexKey {
+		private final Object type;
+		private final Object value;
+
+		IndexKey(Object type, Object value) {
+			this.type = type;
+			this.value = value;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * type.hashCode() + value.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof IndexKey))
+				return false;
+			IndexKey other = (IndexKey) obj;
+			return type.equals(other.type) && value.equals(other.value);
+		}
+	}
+
+}
@@ -8,6 +8,7 @@ import java.util.LinkedList;
 
 import de.persosim.simulator.exception.ProcessingException;
 import de.persosim.simulator.platform.Iso7816;
+import de.persosim.simulator.utils.LazyLogger;
 
 public class CardObjectUtils {
 
@@ -24,6 +25,11 @@ public class CardObjectUtils {
 	 *         {@link NullCardObject} if no matching object can be found
 	 */
 	public static CardObject findObject(CardObject searchRoot, CardObjectIdentifier... identifiers) {
+		Collection<CardObject> candidates = getCandidates(searchRoot, identifiers);
+		if (candidates != null) {
+			return findFirstObject(searchRoot, candidates, identifiers);
+		}
+
 		LinkedList<CardObject> objectsToSearch = new LinkedList<>();
 
 		objectsToSearch.add(searchRoot);
@@ -45,6 +51,132 @@ public class CardObjectUtils {
 		// no matching element found
 		return new NullCardObject();
 	}
+
+	/**
+	 * Return the first {@link CardObject} in breadth-first order below the
+	 * search root that is contained in the given candidates and matches all
+	 * identifiers.
+	 * 
+	 * @param searchRoot
+	 *            object the search is started on
+	 * @param candidates
+	 *            all objects that possibly match
+	 * @param identifiers
+	 *            set of identifiers that are required to match on the returned
+	 *            element
+	 * @return first found element that matches all identifiers or
+	 *         {@link NullCardObject} if no matching object can be found
+	 */
+	private static CardObject findFirstObject(CardObject searchRoot, Collection<CardObject> candidates, CardObjectIdentifier... identifiers) {
+		CardObject firstMatch = null;
+		int[] firstPath = null;
+
+		for (CardObject curCandidate : candidates) {
+			if (!matches(curCandidate, identifiers)) {
+				continue;
+			}
+
+			int[] curPath = getPath(searchRoot, curCandidate);
+			if (curPath != null && (firstPath == null || isBefore(curPath, firstPath))) {
+				firstMatch = curCandidate;
+				firstPath = curPath;
+			}
+		}
+
+		return (firstMatch != null) ? firstMatch : new NullCardObject();
+	}
+
+	/**
+	 * Return the indices of all objects within their parents' children on the
+	 * way from the search root to the given object.
+	 * 
+	 * @param searchRoot
+	 *            object the search is started on
+	 * @param element
+	 *            element to compute the path for
+	 * @return the path or null if element is not part of the tree
+	 */
+	private static int[] getPath(CardObject searchRoot, CardObject element) {
+		LinkedList<Integer> path = new LinkedList<>();
+
+		CardObject curElem = element;
+		while (curElem != searchRoot) {
+			CardObject curParent = curElem.getParent();
+			if (curParent == null) {
+				return null;
+			}
+
+			int curIndex = 0;
+			for (CardObject curSibling : curParent.getChildren()) {
+				if (curSibling == curElem) {
+					break;
+				}
+				curIndex++;
+			}
+			path.addFirst(curIndex);
+
+			curElem = curParent;
+		}
+
+		int[] result = new int[path.size()];
+		int i = 0;
+		for (Integer curIndex : path) {
+			result[i++] = curIndex;
+		}
+		return result;
+	}
+
+	/**
+	 * Check whether the element with the first path is visited before the
+	 * element with the second path during a breadth-first-search.
+	 * 
+	 * @param path
+	 *            path of the first element
+	 * @param otherPath
+	 *            path of the second element
+	 * @return true iff the first element is visited before the second one
+	 */
+	private static boolean isBefore(int[] path, int[] otherPath) {
+		if (path.length != otherPath.length) {
+			return path.length < otherPath.length;
+		}
+		for (int i = 0; i < path.length; i++) {
+			if (path[i] != otherPath[i]) {
+				return path[i] < otherPath[i];
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return all objects of the tree the given object belongs to that
+	 * possibly match all identifiers, as provided by the index of the
+	 * {@link MasterFile} of that tree.
+	 * 
+	 * @param object
+	 *            object within the tree
+	 * @param identifiers
+	 *            set of identifiers that are required to match
+	 * @return all candidates (possibly empty) or null if no index can be used
+	 *         for these identifiers
+	 */
+	static Collection<CardObject> getCandidates(CardObject object, CardObjectIdentifier... identifiers) {
+		CardObject root = object;
+		while (root.getParent() != null) {
+			root = root.getParent();
+		}
+
+		if (!(root instanceof MasterFile)) {
+			return null;
+		}
+
+		CardObjectIndex index = ((MasterFile) root).getIndex();
+		if (!index.isComplete()) {
+			return null;
+		}
+
+		return index.getCandidates(identifiers);
+	}
 	
 	/**
 	 * This method returns the only existing child {@link CardObject} of parent
@@ -71,7 +203,7 @@ public class CardObjectUtils {
 			
 		case 1:
 			CardObject matchingCardObject = cardObjects.iterator().next();
-			log(CardObjectUtils.class, "selected " + matchingCardObject, DEBUG);
+			LazyLogger.log(CardObjectUtils.class, () -> "selected " + matchingCardObject, DEBUG);
 			return matchingCardObject;
 
 		default:
@@ -42,7 +42,7 @@ public class DedicatedFile extends AbstractFile {
 	@Override
 	public ConstructedTlvDataObject getFileControlParameterDataObject() {
 		ConstructedTlvDataObject result = super.getFileControlParameterDataObject();
-		result.addTlvDataObject(new PrimitiveTlvDataObject(new TlvTag((byte)0x84), dedicatedFileName.getDedicatedFileName()));
+		result.addTlvDataObject(new PrimitiveTlvDataObject(TlvTag.getInstance((byte)0x84), dedicatedFileName.getDedicatedFileName()));
 		return result;
 	}
 
@@ -46,6 +46,7 @@ public class DomainParameterSetCardObject extends AbstractCardObject {
 	 */
 	public void addOidIdentifier(OidIdentifier oidIdentifier) {
 		furtherIdentifiers.add(oidIdentifier);
+		identifiersChanged();
 	}
 	
 	public DomainParameterSetIdentifier getPrimaryIdentifier() {
@@ -10,6 +10,7 @@ import de.persosim.simulator.secstatus.SecStatus;
 import de.persosim.simulator.tlv.ConstructedTlvDataObject;
 import de.persosim.simulator.tlv.PrimitiveTlvDataObject;
 import de.persosim.simulator.tlv.TlvTag;
+import de.persosim.simulator.tlv.TlvValuePlain;
 import de.persosim.simulator.utils.Utils;
 
 /**
@@ -23,6 +24,9 @@ public class ElementaryFile extends AbstractFile {
 
 	private byte[] content;
 	
+	/** true while {@link #content} is shared with copies of this file, see {@link #shareContent()} */
+	private transient boolean contentShared;
+	
 	private ShortFileIdentifier shortFileIdentifier;
 
 	private SecCondition readingConditions;
@@ -157,11 +161,47 @@ public class ElementaryFile extends AbstractFile {
 	 * @return stored data as byte array
 	 */
 	public byte[] getContent() throws AccessDeniedException {
-		if (securityStatus == null || (readingConditions != null && securityStatus.checkAccessConditions(getLifeCycleState(), readingConditions))) {
+		if (isReadingAllowed()) {
 			return Arrays.copyOf(content, content.length);
 		}
 		throw new AccessDeniedException("Reading forbidden");
 	}
+	
+	/**
+	 * Returns the length of the files internal data.
+	 * @return the number of bytes stored in this file
+	 */
+	public int getContentLength() throws AccessDeniedException {
+		if (isReadingAllowed()) {
+			return content.length;
+		}
+		throw new AccessDeniedException("Reading forbidden");
+	}
+	
+	/**
+	 * Provides a view on a range of the files internal data without copying
+	 * it. The view is not supposed to be kept after the current command has
+	 * been processed as it reflects later modifications of the file.
+	 * 
+	 * @param offset
+	 *            the first byte of the range
+	 * @param length
+	 *            the number of bytes in the range
+	 * @return the stored data within the range
+	 */
+	public TlvValuePlain getContentSlice(int offset, int length) throws AccessDeniedException {
+		if (isReadingAllowed()) {
+			if (offset < 0 || length < 0 || offset + length > content.length) {
+				throw new IllegalArgumentException("range must lie within the file contents");
+			}
+			return TlvValuePlain.view(content, offset, length);
+		}
+		throw new AccessDeniedException("Reading forbidden");
+	}
+	
+	private boolean isReadingAllowed() {
+		return securityStatus == null || (readingConditions != null && securityStatus.checkAccessConditions(getLifeCycleState(), readingConditions));
+	}
 
 	/**
 	 * Replaces the files internal data.
@@ -171,6 +211,7 @@ public class ElementaryFile extends AbstractFile {
 	 */
 	public void update(int offset, byte[] data) throws AccessDeniedException {
 		if (securityStatus == null || (writingConditions != null && securityStatus.checkAccessConditions(getLifeCycleState(), writingConditions))){
+			ensureContentNotShared();
 			for(int i = 0; i < data.length; i++) {
 				content[i + offset] = data[i];
 			}
@@ -214,6 +255,7 @@ public class ElementaryFile extends AbstractFile {
 	public void setShortFileIdentifier(ShortFileIdentifier shortFileIdentifier) throws AccessDeniedException {
 		if (SecStatus.checkAccessConditions(getLifeCycleState())) {
 			this.shortFileIdentifier = shortFileIdentifier;
+			identifiersChanged();
 			return;
 		}
 		throw new AccessDeniedException("Setting SFI forbidden");
@@ -222,6 +264,7 @@ public class ElementaryFile extends AbstractFile {
 	public void setContent(byte[] content) throws AccessDeniedException{
 		if (SecStatus.checkAccessConditions(getLifeCycleState())) {
 			this.content = content;
+			contentShared = false;
 			return;
 		}
 		throw new AccessDeniedException("Setting content forbidden");
@@ -236,6 +279,7 @@ public class ElementaryFile extends AbstractFile {
 	public void replace(byte[] data) throws AccessDeniedException {
 		if (SecStatus.checkAccessConditions(getLifeCycleState())) {
 			content = Arrays.copyOf(data, data.length);
+			contentShared = false;
 			return;
 		}
 		throw new AccessDeniedException("Updating forbidden");
@@ -249,14 +293,14 @@ public class ElementaryFile extends AbstractFile {
 	public ConstructedTlvDataObject getFileControlParameterDataObject() {
 		ConstructedTlvDataObject result = super.getFileControlParameterDataObject();
 
-		result.addTlvDataObject(new PrimitiveTlvDataObject(new TlvTag((byte) 0x80),
+		result.addTlvDataObject(new PrimitiveTlvDataObject(TlvTag.getInstance((byte) 0x80),
 				Utils.removeLeadingZeroBytes(Utils.toUnsignedByteArray(content.length))));
 
 		if(shortFileIdentifier != null) {
-			result.addTlvDataObject(new PrimitiveTlvDataObject(new TlvTag((byte) 0x88),
+			result.addTlvDataObject(new PrimitiveTlvDataObject(TlvTag.getInstance((byte) 0x88),
 					Utils.toUnsignedByteArray((byte) shortFileIdentifier.getShortFileIdentifier())));
 		} else {
-			result.addTlvDataObject(new PrimitiveTlvDataObject(new TlvTag((byte) 0x88)));
+			result.addTlvDataObject(new PrimitiveTlvDataObject(TlvTag.getInstance((byte) 0x88)));
 		}
 		
 		
@@ -307,6 +351,7 @@ public class ElementaryFile extends AbstractFile {
 						"The given offset combination (" + startingOffset + "," + endingOffset + ") is not feasible");
 			}
 
+			ensureContentNotShared();
 			for (int i = startingOffset; i < endingOffset; i++) {
 				content[i] = 0;
 			}
@@ -340,6 +385,28 @@ public class ElementaryFile extends AbstractFile {
 		erase(startingOffset, content.length);
 	}
 	
+	/**
+	 * Marks the contents of this file as shared with copies of this file,
+	 * e.g. created by {@link de.persosim.simulator.perso.CardSnapshot}. Shared
+	 * contents are copied before they are modified for the first time, so
+	 * this file and its copies can be modified independently.
+	 * <p/>
+	 * Copies are expected to reference the returned array as their contents.
+	 * 
+	 * @return the contents to be shared with copies of this file
+	 */
+	public byte[] shareContent() {
+		contentShared = true;
+		return content;
+	}
+	
+	private void ensureContentNotShared() {
+		if (contentShared) {
+			content = Arrays.copyOf(content, content.length);
+			contentShared = false;
+		}
+	}
+	
 	@Override
 	public String toString() {
 		return "elementary file with file identifier " + fileIdentifier + " and short file identifier " + shortFileIdentifier;
@@ -1,6 +1,7 @@
 package de.persosim.simulator.cardobjects;
 
 import de.persosim.simulator.exception.AccessDeniedException;
+import de.persosim.simulator.tlv.TlvValuePlain;
 
 /**
  * This class represents an ISO7816-4 compliant elementary file in the object
@@ -57,6 +58,15 @@ public class ElementaryFileWithReadWriteCounter extends ElementaryFile {
 		return content;
 	}
 	
+	@Override
+	public TlvValuePlain getContentSlice(int offset, int length) throws AccessDeniedException {
+		TlvValuePlain content = super.getContentSlice(offset, length);
+		if(getLifeCycleState().isOperational()) {
+			readCounter++;
+		}
+		return content;
+	}
+	
 	@Override
 	public void update(int offset, byte[] data) throws AccessDeniedException {
 		super.update(offset, data);
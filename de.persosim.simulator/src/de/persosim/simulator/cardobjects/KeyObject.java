@@ -35,6 +35,7 @@ public class KeyObject extends AbstractCardObject {
 	 */
 	public void addOidIdentifier(OidIdentifier oidIdentifier) {
 		furtherIdentifiers.add(oidIdentifier);
+		identifiersChanged();
 	}
 
 }
@@ -9,6 +9,9 @@ package de.persosim.simulator.cardobjects;
  */
 public class MasterFile extends DedicatedFile {
 
+	/** index of the whole object tree, built on first use */
+	private transient CardObjectIndex index;
+
 	public MasterFile() {
 		this(null, null);
 	}
@@ -20,5 +23,27 @@ public class MasterFile extends DedicatedFile {
 	public void setIdentity(FileIdentifier identifier, DedicatedFileIdentifier name) {
 		fileIdentifier = identifier;
 		dedicatedFileName = name;
+		identifiersChanged();
+	}
+
+	/**
+	 * Returns the index of all objects within the tree of this
+	 * {@link MasterFile}. The index is built on first use and maintained on
+	 * all subsequent modifications of the tree.
+	 * 
+	 * @return the index of this tree
+	 */
+	CardObjectIndex getIndex() {
+		if (index == null) {
+			index = new CardObjectIndex(this);
+		}
+		return index;
+	}
+
+	/**
+	 * @return the index of this tree or null if it has not been built yet
+	 */
+	CardObjectIndex getExistingIndex() {
+		return index;
 	}
 }
@@ -4,8 +4,7 @@ import java.io.IOException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
-import org.globaltester.cryptoprovider.Crypto;
-
+import de.persosim.simulator.crypto.CryptoInstanceCache;
 import de.persosim.simulator.documents.Mrz;
 import de.persosim.simulator.documents.MrzTD1;
 
@@ -60,7 +59,7 @@ public class MrzAuthObject extends PasswordAuthObject {
 		sb.append(mrz.getDateOfExpiryCd());
 
 		
-		MessageDigest md = MessageDigest.getInstance("SHA-1", Crypto.getCryptoProvider());
+		MessageDigest md = CryptoInstanceCache.getMessageDigest("SHA-1");
 		return md.digest(sb.toString().getBytes("UTF-8"));
 	}
 
@@ -0,0 +1,167 @@
+package de.persosim.simulator.crypto;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.Signature;
+import java.util.HashMap;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.Mac;
+import javax.crypto.NoSuchPaddingException;
+
+import org.globaltester.cryptoprovider.Crypto;
+
+/**
+ * This class caches instances of {@link Cipher}, {@link Mac},
+ * {@link MessageDigest}, {@link Signature} and {@link KeyAgreement} in order
+ * to avoid repeated provider lookups. Instances are cached per thread and are
+ * keyed by algorithm (resp. transformation) and the provider returned by
+ * {@link Crypto#getCryptoProvider()}. If the provider changes, the cache of
+ * the calling thread is discarded.
+ * <p/>
+ * Returned instances are owned by the calling thread. Callers must complete
+ * their operation (from initialization to the final step) before the same
+ * algorithm is requested again within this thread. Instances must neither be
+ * handed to other threads nor be stored within long-living objects, these
+ * need to request the instance again on every use.
+ * <p/>
+ * {@link MessageDigest} instances are reset before they are returned, all
+ * other instances are reset by their mandatory initialization.
+ */
+public final class CryptoInstanceCache {
+	
+	private static final ThreadLocal<CryptoInstanceCache> caches = new ThreadLocal<CryptoInstanceCache>() {
+		@Override
+		protected CryptoInstanceCache initialValue() {
+			return new CryptoInstanceCache();
+		}
+	};
+	
+	private Provider provider;
+	
+	private final HashMap<String, Cipher> ciphers = new HashMap<>();
+	private final HashMap<String, Mac> macs = new HashMap<>();
+	private final HashMap<String, MessageDigest> messageDigests = new HashMap<>();
+	private final HashMap<String, Signature> signatures = new HashMap<>();
+	private final HashMap<String, KeyAgreement> keyAgreements = new HashMap<>();
+	
+	private CryptoInstanceCache() {
+		// instances are only created per thread
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	
+	/**
+	 * Return the {@link Cipher} instance of the calling thread for the given
+	 * transformation.
+	 * @param transformation the transformation, e.g. "AES/CBC/NoPadding"
+	 * @return the cipher
+	 * @throws NoSuchAlgorithmException if the provider does not support the transformation
+	 * @throws NoSuchPaddingException if the provider does not support the padding
+	 */
+	public static Cipher getCipher(String transformation) throws NoSuchAlgorithmException, NoSuchPaddingException {
+		CryptoInstanceCache cache = getCache();
+		Cipher cipher = cache.ciphers.get(transformation);
+		if (cipher == null) {
+			cipher = Cipher.getInstance(transformation, cache.provider);
+			cache.ciphers.put(transformation, cipher);
+		}
+		return cipher;
+	}
+	
+	/**
+	 * Return the {@link Mac} instance of the calling thread for the given
+	 * algorithm.
+	 * @param algorithm the mac algorithm
+	 * @return the mac
+	 * @throws NoSuchAlgorithmException if the provider does not support the algorithm
+	 */
+	public static Mac getMac(String algorithm) throws NoSuchAlgorithmException {
+		CryptoInstanceCache cache = getCache();
+		Mac mac = cache.macs.get(algorithm);
+		if (mac == null) {
+			mac = Mac.getInstance(algorithm, cache.provider);
+			cache.macs.put(algorithm, mac);
+		}
+		return mac;
+	}
+	
+	/**
+	 * Return the {@link MessageDigest} instance of the calling thread for the
+	 * given algorithm.
+	 * @param algorithm the digest algorithm, e.g. "SHA-256"
+	 * @return the reset message digest
+	 * @throws NoSuchAlgorithmException if the provider does not support the algorithm
+	 */
+	public static MessageDigest getMessageDigest(String algorithm) throws NoSuchAlgorithmException {
+		CryptoInstanceCache cache = getCache();
+		MessageDigest messageDigest = cache.messageDigests.get(algorithm);
+		if (messageDigest == null) {
+			messageDigest = MessageDigest.getInstance(algorithm, cache.provider);
+			cache.messageDigests.put(algorithm, messageDigest);
+		} else {
+			messageDigest.reset();
+		}
+		return messageDigest;
+	}
+	
+	/**
+	 * Return the {@link Signature} instance of the calling thread for the
+	 * given algorithm.
+	 * @param algorithm the signature algorithm, e.g. "SHA256withECDSA"
+	 * @return the signature
+	 * @throws NoSuchAlgorithmException if the provider does not support the algorithm
+	 */
+	public static Signature getSignature(String algorithm) throws NoSuchAlgorithmException {
+		CryptoInstanceCache cache = getCache();
+		Signature signature = cache.signatures.get(algorithm);
+		if (signature == null) {
+			signature = Signature.getInstance(algorithm, cache.provider);
+			cache.signatures.put(algorithm, signature);
+		}
+		return signature;
+	}
+	
+	/**
+	 * Return the {@link KeyAgreement} instance of the calling thread for the
+	 * given algorithm.
+	 * @param algorithm the key agreement algorithm, e.g. "ECDH"
+	 * @return the key agreement
+	 * @throws NoSuchAlgorithmException if the provider does not support the algorithm
+	 */
+	public static KeyAgreement getKeyAgreement(String algorithm) throws NoSuchAlgorithmException {
+		CryptoInstanceCache cache = getCache();
+		KeyAgreement keyAgreement = cache.keyAgreements.get(algorithm);
+		if (keyAgreement == null) {
+			keyAgreement = KeyAgreement.getInstance(algorithm, cache.provider);
+			cache.keyAgreements.put(algorithm, keyAgreement);
+		}
+		return keyAgreement;
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	
+	/**
+	 * @return the cache of the calling thread, matching the current provider
+	 */
+	private static CryptoInstanceCache getCache() {
+		CryptoInstanceCache cache = caches.get();
+		Provider currentProvider = Crypto.getCryptoProvider();
+		if (cache.provider != currentProvider) {
+			cache.clear();
+			cache.provider = currentProvider;
+		}
+		return cache;
+	}
+	
+	private void clear() {
+		ciphers.clear();
+		macs.clear();
+		messageDigests.clear();
+		signatures.clear();
+		keyAgreements.clear();
+	}
+	
+}
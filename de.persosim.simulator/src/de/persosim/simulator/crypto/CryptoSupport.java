@@ -17,7 +17,6 @@ import javax.crypto.Mac;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
-import org.globaltester.cryptoprovider.Crypto;
 
 import de.persosim.simulator.utils.HexString;
 
@@ -26,8 +25,6 @@ public abstract class CryptoSupport {
 	protected String cipherAlgorithmNameModePadding;
 	protected String macName;
 	
-	protected Cipher cipher;
-	protected Mac mac;
 	
 	/*--------------------------------------------------------------------------------*/
 	
@@ -66,19 +63,39 @@ public abstract class CryptoSupport {
 		
 		this.cipherAlgorithmNameModePadding = cipherAlgorithmNameModePadding;
 		
+		// ensure the cipher is available
+		getCipher();
+	}
+
+	public void setMacName(String macName) {
+		this.macName = macName;
+		
+		// ensure the mac is available
+		getMac();
+	}
+	
+	/**
+	 * Return the cipher of the calling thread for the configured algorithm,
+	 * see {@link CryptoInstanceCache}.
+	 * @return the cipher
+	 */
+	protected Cipher getCipher() {
 		try {
-			this.cipher = Cipher.getInstance(this.cipherAlgorithmNameModePadding, Crypto.getCryptoProvider());
+			return CryptoInstanceCache.getCipher(this.cipherAlgorithmNameModePadding);
 		} catch (GeneralSecurityException e) {
 			logException(getClass(), e);
 			throw new IllegalArgumentException(e);
 		}
 	}
-
-	public void setMacName(String macName) {
-		this.macName = macName;
-		
+	
+	/**
+	 * Return the mac of the calling thread for the configured algorithm,
+	 * see {@link CryptoInstanceCache}.
+	 * @return the mac
+	 */
+	protected Mac getMac() {
 		try {
-			this.mac = Mac.getInstance(this.macName, Crypto.getCryptoProvider());
+			return CryptoInstanceCache.getMac(this.macName);
 		} catch (GeneralSecurityException e) {
 			throw new IllegalArgumentException(e);
 		}
@@ -105,7 +122,7 @@ public abstract class CryptoSupport {
 	}
 	
 	public byte[] encrypt(byte[] plainText, Key key, IvParameterSpec ivParams) {
-		return encrypt(this.cipher, plainText, key, ivParams);
+		return encrypt(getCipher(), plainText, key, ivParams);
 	}
 	
 	public static byte[] encrypt(Cipher cipher, byte[] plainText, Key key, IvParameterSpec ivParams) {
@@ -165,7 +182,7 @@ public abstract class CryptoSupport {
 	}
 	
 	public byte[] decrypt(byte[] cipherText, Key key, AlgorithmParameterSpec aps) {
-		return decrypt(this.cipher, cipherText, key, aps);
+		return decrypt(getCipher(), cipherText, key, aps);
 	}
 	
 	public byte[] decryptWithIvZero(byte[] cipherText, Key key) {
@@ -173,7 +190,7 @@ public abstract class CryptoSupport {
 	}
 	
 	public byte[] macPlain(byte[] tokenPlain, Key key) {
-		return macPlain(this.mac, tokenPlain, key);
+		return macPlain(getMac(), tokenPlain, key);
 	}
 	
 	public static byte[] macPlain(Mac mac, byte[] tokenPlain, Key key) {
@@ -202,7 +219,7 @@ public abstract class CryptoSupport {
 	}
 	
 	public byte[] computeInitialBlockFromAuxiliaryData(byte[] auxiliaryBlock, byte[] macInput, Key macKey) {
-		return computeInitialBlockFromAuxiliaryData(auxiliaryBlock, this.cipher, macInput, macKey);
+		return computeInitialBlockFromAuxiliaryData(auxiliaryBlock, getCipher(), macInput, macKey);
 	}
 	
 	public static byte[] computeInitialBlockFromAuxiliaryData(byte[] auxiliaryBlock, Cipher cipherEnc, byte[] macInput, Key macKey) {
@@ -223,11 +240,11 @@ public abstract class CryptoSupport {
 	}
 	
 	public int getBlockSize() {
-		return this.cipher.getBlockSize();
+		return getCipher().getBlockSize();
 	}
 	
 	public IvParameterSpec getIvSetToAllZeros() {
-		return getIvSetToAllZeros(this.cipher.getBlockSize());
+		return getIvSetToAllZeros(getCipher().getBlockSize());
 	}
 	
 	public static IvParameterSpec getIvSetToAllZeros(int blockSizeInBytes) {
@@ -58,6 +58,8 @@ public class CryptoUtil {
 	public static final byte ENCODING_COMPRESSED   = 0;
 	public static final byte ENCODING_HYBRID       = 1;
 	
+	private static volatile EcArithmetic ecArithmetic = new EcArithmeticJacobian();
+	
 	/**
 	 * This method extracts the basic cipher name from the full cipher
 	 * String, e.g. it will turn "AES/CBC/NoPadding" into simply "AES".
@@ -198,7 +200,25 @@ public class CryptoUtil {
 	}
 	
 	/**
-	 * This method performs EC scalar point multiplication using Double-and-add method.
+	 * This method returns the {@link EcArithmetic} used for scalar point multiplication.
+	 * @return the currently used EC arithmetic
+	 */
+	public static EcArithmetic getEcArithmetic() {
+		return ecArithmetic;
+	}
+	
+	/**
+	 * This method sets the {@link EcArithmetic} used for scalar point
+	 * multiplication. By default {@link EcArithmeticJacobian} is used.
+	 * @param ecArithmetic the EC arithmetic to be used
+	 */
+	public static void setEcArithmetic(EcArithmetic ecArithmetic) {
+		if(ecArithmetic == null) {throw new NullPointerException("EC arithmetic must not be null");}
+		CryptoUtil.ecArithmetic = ecArithmetic;
+	}
+	
+	/**
+	 * This method performs EC scalar point multiplication using the configured {@link EcArithmetic}.
 	 * The method is optimized for performance performing actual multiplication with scalar.mod(order).
 	 * @param curve the elliptic curve to be used
 	 * @param order the order of the curve
@@ -211,8 +231,8 @@ public class CryptoUtil {
 	}
 	
 	/**
-	 * This method performs EC scalar point multiplication using Double-and-add
-	 * method. For improved performance preferably use
+	 * This method performs EC scalar point multiplication using the configured
+	 * {@link EcArithmetic}. For improved performance preferably use
 	 * {@link #scalarPointMultiplication(EllipticCurve, BigInteger, ECPoint, BigInteger)}
 	 * or make sure the scalar you provide already is taken modulo the order of the
 	 * field (scalar.mod(order)).
@@ -226,20 +246,7 @@ public class CryptoUtil {
 	 * @return the multiplied EC point
 	 */
 	public static ECPoint scalarPointMultiplication(EllipticCurve curve, ECPoint ecPointP, BigInteger scalar) {
-		if (ecPointP.equals(ECPoint.POINT_INFINITY)) {return ecPointP;}
-		
-		ECPoint ecPointR = ECPoint.POINT_INFINITY;
-		
-		for (int i = (scalar.bitLength()) - 1; i >= 0; i--) {
-			ecPointR = doublePoint(curve, ecPointR);
-			
-			if (scalar.testBit(i)) {
-				ecPointR = addPoint(curve, ecPointR, ecPointP);
-			}
-				
-		}
-		
-		return ecPointR;
+		return ecArithmetic.scalarPointMultiplication(curve, ecPointP, scalar);
 	}
 	
 	/**
@@ -339,6 +346,15 @@ public class CryptoUtil {
 	}
 	
 	public static KeyPair generateKeyPair(DomainParameterSet domParamSet, SecureRandom secRandom) throws NoSuchAlgorithmException, NoSuchProviderException, InvalidAlgorithmParameterException {
+		if(domParamSet instanceof DomainParameterSetEcdh) {
+			DomainParameterSetEcdh domParamSetEcdh = (DomainParameterSetEcdh) domParamSet;
+			EcFixedBaseTable fixedBaseTable = StandardizedDomainParameters.getFixedBaseTable(domParamSetEcdh);
+			
+			if(fixedBaseTable != null) {
+				return generateKeyPair(domParamSetEcdh, fixedBaseTable, secRandom);
+			}
+		}
+		
 		KeyPairGenerator keyPairGenerator;
 		
 		keyPairGenerator = KeyPairGenerator.getInstance(domParamSet.getKeyAgreementAlgorithm(), Crypto.getCryptoProvider());
@@ -347,6 +363,27 @@ public class CryptoUtil {
 		return keyPairGenerator.generateKeyPair();
 	}
 	
+	/**
+	 * This method generates an ECDH key pair using the provided table of precomputed generator multiples.
+	 * The private key s is chosen uniformly from [1, n-1].
+	 * @param domParamSetEcdh the domain parameters to be used
+	 * @param fixedBaseTable the table of precomputed generator multiples matching the domain parameters
+	 * @param secRandom the source of randomness
+	 * @return the generated key pair
+	 */
+	private static KeyPair generateKeyPair(DomainParameterSetEcdh domParamSetEcdh, EcFixedBaseTable fixedBaseTable, SecureRandom secRandom) {
+		BigInteger order = domParamSetEcdh.getOrder();
+		BigInteger privateS;
+		
+		do {
+			privateS = new BigInteger(order.bitLength(), secRandom);
+		} while((privateS.signum() == 0) || (privateS.compareTo(order) >= 0));
+		
+		ECPoint publicW = fixedBaseTable.multiply(privateS);
+		
+		return new KeyPair(domParamSetEcdh.reconstructPublicKey(publicW, Crypto.getCryptoProvider()), domParamSetEcdh.reconstructPrivateKey(privateS));
+	}
+	
 	/**
 	 * This method returns a copy of the provided key pair which is updated to the new provided domain parameters.
 	 * 
@@ -398,13 +435,13 @@ public class CryptoUtil {
 		
 		TlvDataObjectContainer integers = new TlvDataObjectContainer();
 
-		PrimitiveTlvDataObject integerRObject = new PrimitiveTlvDataObject(new TlvTag(Asn1.INTEGER), getPadded(r));
-		PrimitiveTlvDataObject integerSObject = new PrimitiveTlvDataObject(new TlvTag(Asn1.INTEGER), getPadded(s));
+		PrimitiveTlvDataObject integerRObject = new PrimitiveTlvDataObject(TlvTag.getInstance(Asn1.INTEGER), getPadded(r));
+		PrimitiveTlvDataObject integerSObject = new PrimitiveTlvDataObject(TlvTag.getInstance(Asn1.INTEGER), getPadded(s));
 		
 		integers.addTlvDataObject(integerRObject);
 		integers.addTlvDataObject(integerSObject);
 		
-		ConstructedTlvDataObject signatureObject = new ConstructedTlvDataObject(new TlvTag(Asn1.SEQUENCE), integers);
+		ConstructedTlvDataObject signatureObject = new ConstructedTlvDataObject(TlvTag.getInstance(Asn1.SEQUENCE), integers);
 		return signatureObject;
 	}
 
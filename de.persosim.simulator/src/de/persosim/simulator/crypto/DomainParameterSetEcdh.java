@@ -33,6 +33,7 @@ import de.persosim.simulator.tlv.PrimitiveTlvDataObject;
 import de.persosim.simulator.tlv.TlvConstants;
 import de.persosim.simulator.tlv.TlvTag;
 import de.persosim.simulator.utils.HexString;
+import de.persosim.simulator.utils.LazyLogger;
 import de.persosim.simulator.utils.Utils;
 
 /**
@@ -104,14 +105,14 @@ public class DomainParameterSetEcdh implements DomainParameterSet, TlvConstants
 		boolean result = leftSide.compareTo(rightSide) == 0;
 		
 		if(!result) {
-			log(getClass(), "point not on curve - x: " + HexString.encode(x), DEBUG);
-			log(getClass(), "point not on curve - y: " + HexString.encode(y), DEBUG);
-			log(getClass(), "point not on curve - p: " + HexString.encode(p), DEBUG);
-			log(getClass(), "point not on curve - " + HexString.encode(leftSide) + " != " + HexString.encode(rightSide), DEBUG);
-			log(getClass(), "point not on curve - x: " + x, DEBUG);
-			log(getClass(), "point not on curve - y: " + y, DEBUG);
-			log(getClass(), "point not on curve - p: " + p, DEBUG);
-			log(getClass(), "point not on curve - " + leftSide + " != " + rightSide, DEBUG);
+			LazyLogger.log(getClass(), () -> "point not on curve - x: " + HexString.encode(x), DEBUG);
+			LazyLogger.log(getClass(), () -> "point not on curve - y: " + HexString.encode(y), DEBUG);
+			LazyLogger.log(getClass(), () -> "point not on curve - p: " + HexString.encode(p), DEBUG);
+			LazyLogger.log(getClass(), () -> "point not on curve - " + HexString.encode(leftSide) + " != " + HexString.encode(rightSide), DEBUG);
+			LazyLogger.log(getClass(), () -> "point not on curve - x: " + x, DEBUG);
+			LazyLogger.log(getClass(), () -> "point not on curve - y: " + y, DEBUG);
+			LazyLogger.log(getClass(), () -> "point not on curve - p: " + p, DEBUG);
+			LazyLogger.log(getClass(), () -> "point not on curve - " + leftSide + " != " + rightSide, DEBUG);
 		}
 		
 		return result;
@@ -196,20 +197,20 @@ public class DomainParameterSetEcdh implements DomainParameterSet, TlvConstants
 		BigInteger publicPointWmappedX = publicPointWmapped.getAffineX();
 		BigInteger publicPointWmappedY = publicPointWmapped.getAffineY();
 		
-		log(getClass(), "ECDH ephemeral private key d is                    : " + HexString.encode(piccPrivateKeyD), DEBUG);
-		log(getClass(), "ECDH ephemeral public point w.x under unmapped g is: " + HexString.encode(publicPointWx), DEBUG);
-		log(getClass(), "ECDH ephemeral public point w.y under unmapped g is: " + HexString.encode(publicPointWy), DEBUG);
-		log(getClass(), "ECDH ephemeral public point w.x under mapped g is  : " + HexString.encode(publicPointWmappedX), DEBUG);
-		log(getClass(), "ECDH ephemeral public point w.y under mapped g is  : " + HexString.encode(publicPointWmappedY), DEBUG);
-		log(getClass(), "ECDH curve's first coefficient A is                : " + HexString.encode(ecFirstCoefficientA), DEBUG);
-		log(getClass(), "ECDH curve's second coefficient B is               : " + HexString.encode(ecSecondCoefficientB), DEBUG);
-		log(getClass(), "ECDH original generator g.x of group G is          : " + HexString.encode(gUnmappedX), DEBUG);
-		log(getClass(), "ECDH original generator g.y of group G is          : " + HexString.encode(gUnmappedY), DEBUG);
-		log(getClass(), "ECDH mapped generator g.x of group G is            : " + HexString.encode(gMappedX), DEBUG);
-		log(getClass(), "ECDH mapped generator g.y of group G is            : " + HexString.encode(gMappedY), DEBUG);
-		log(getClass(), "ECDH prime modulus p of group G is                 : " + HexString.encode(ecFp), DEBUG);
-		log(getClass(), "ECDH order of group G is                           : " + HexString.encode(order), DEBUG);
-		log(getClass(), "ECDH cofactor is                                   : " + coFactor, DEBUG);
+		LazyLogger.log(getClass(), () -> "ECDH ephemeral private key d is                    : " + HexString.encode(piccPrivateKeyD), DEBUG);
+		LazyLogger.log(getClass(), () -> "ECDH ephemeral public point w.x under unmapped g is: " + HexString.encode(publicPointWx), DEBUG);
+		LazyLogger.log(getClass(), () -> "ECDH ephemeral public point w.y under unmapped g is: " + HexString.encode(publicPointWy), DEBUG);
+		LazyLogger.log(getClass(), () -> "ECDH ephemeral public point w.x under mapped g is  : " + HexString.encode(publicPointWmappedX), DEBUG);
+		LazyLogger.log(getClass(), () -> "ECDH ephemeral public point w.y under mapped g is  : " + HexString.encode(publicPointWmappedY), DEBUG);
+		LazyLogger.log(getClass(), () -> "ECDH curve's first coefficient A is                : " + HexString.encode(ecFirstCoefficientA), DEBUG);
+		LazyLogger.log(getClass(), () -> "ECDH curve's second coefficient B is               : " + HexString.encode(ecSecondCoefficientB), DEBUG);
+		LazyLogger.log(getClass(), () -> "ECDH original generator g.x of group G is          : " + HexString.encode(gUnmappedX), DEBUG);
+		LazyLogger.log(getClass(), () -> "ECDH original generator g.y of group G is          : " + HexString.encode(gUnmappedY), DEBUG);
+		LazyLogger.log(getClass(), () -> "ECDH mapped generator g.x of group G is            : " + HexString.encode(gMappedX), DEBUG);
+		LazyLogger.log(getClass(), () -> "ECDH mapped generator g.y of group G is            : " + HexString.encode(gMappedY), DEBUG);
+		LazyLogger.log(getClass(), () -> "ECDH prime modulus p of group G is                 : " + HexString.encode(ecFp), DEBUG);
+		LazyLogger.log(getClass(), () -> "ECDH order of group G is                           : " + HexString.encode(order), DEBUG);
+		LazyLogger.log(getClass(), () -> "ECDH cofactor is                                   : " + coFactor, DEBUG);
 		
 		KeySpec mappedPrivateKeySpec = getPrivateKeySpec(piccPrivateKeyD);
 		KeySpec mappedPublicKeySpec = getPublicKeySpec(publicPointWmapped);
@@ -231,7 +232,7 @@ public class DomainParameterSetEcdh implements DomainParameterSet, TlvConstants
 	public static ECPoint reconstructPoint(byte[] rawKeyPlain) {
 		if(rawKeyPlain == null) {throw new NullPointerException("raw key material must not be null");};
 		
-		log(DomainParameterSetEcdh.class, "raw public key EC point byte array is: " + HexString.encode(rawKeyPlain), TRACE);
+		LazyLogger.log(DomainParameterSetEcdh.class, () -> "raw public key EC point byte array is: " + HexString.encode(rawKeyPlain), TRACE);
 		
 		if(rawKeyPlain.length % 2 != 1) {throw new IllegalArgumentException("encoded public key EC point must be of uneven byte length");};
 		
@@ -257,14 +258,14 @@ public class DomainParameterSetEcdh implements DomainParameterSet, TlvConstants
 		byte[] pointXplain = Arrays.copyOfRange(rawKeyPlain, 1, 1 + lengthOfCoordinates);
 		byte[] pointYplain = Arrays.copyOfRange(rawKeyPlain, 1 + lengthOfCoordinates, rawKeyPlain.length);
 		
-		log(DomainParameterSetEcdh.class, "byte array x coordinate of public key EC point is: " + HexString.encode(pointXplain), TRACE);
-		log(DomainParameterSetEcdh.class, "byte array y coordinate of public key EC point is: " + HexString.encode(pointYplain), TRACE);
+		LazyLogger.log(DomainParameterSetEcdh.class, () -> "byte array x coordinate of public key EC point is: " + HexString.encode(pointXplain), TRACE);
+		LazyLogger.log(DomainParameterSetEcdh.class, () -> "byte array y coordinate of public key EC point is: " + HexString.encode(pointYplain), TRACE);
 		
 		BigInteger publicPointX = new BigInteger(1, pointXplain);
 		BigInteger publicPointY = new BigInteger(1, pointYplain);
 		
-		log(DomainParameterSetEcdh.class, "x coordinate of public key EC point is: " + publicPointX, TRACE);
-		log(DomainParameterSetEcdh.class, "y coordinate of public key EC point is: " + publicPointY, TRACE);
+		LazyLogger.log(DomainParameterSetEcdh.class, () -> "x coordinate of public key EC point is: " + publicPointX, TRACE);
+		LazyLogger.log(DomainParameterSetEcdh.class, () -> "y coordinate of public key EC point is: " + publicPointY, TRACE);
 		
 		return new ECPoint(publicPointX, publicPointY);
 	}
@@ -287,7 +288,7 @@ public class DomainParameterSetEcdh implements DomainParameterSet, TlvConstants
 	 */
 	public ECPublicKey reconstructPublicKey(byte[] rawKeyPlain, Provider cryptoProvider) {
 		int l = getPublicPointReferenceLengthL();
-		log(getClass(), "reference length l is: " + l + " bytes", TRACE);
+		LazyLogger.log(getClass(), () -> "reference length l is: " + l + " bytes", TRACE);
 		
 		int expectedRawKeyLength = (2*l) + 1;
 		if(rawKeyPlain.length != expectedRawKeyLength) {
@@ -604,8 +605,8 @@ public class DomainParameterSetEcdh implements DomainParameterSet, TlvConstants
 		ECPoint secretPoint = CryptoUtil.scalarPointMultiplication(getCurve(), getOrder(), ecPublicKey.getW(), ecPrivateKey.getS());
 		
 		log(CryptoUtil.class, "result H of ECDH key agreement is", TRACE);
-		log(CryptoUtil.class, "H.x: " + HexString.encode(secretPoint.getAffineX()), TRACE);
-		log(CryptoUtil.class, "H.y: " + HexString.encode(secretPoint.getAffineY()), TRACE);
+		LazyLogger.log(CryptoUtil.class, () -> "H.x: " + HexString.encode(secretPoint.getAffineX()), TRACE);
+		LazyLogger.log(CryptoUtil.class, () -> "H.y: " + HexString.encode(secretPoint.getAffineY()), TRACE);
 		
 		return secretPoint;
 	}
@@ -632,11 +633,18 @@ public class DomainParameterSetEcdh implements DomainParameterSet, TlvConstants
 	}
 	
 	/**
-	 * This method returns a public {@link ECPoint} matching the provided private {@link BigInteger} s
+	 * This method returns a public {@link ECPoint} matching the provided private {@link BigInteger} s.
+	 * For standardized domain parameters the precomputed {@link EcFixedBaseTable} is used.
 	 * @param privateS the private component
 	 * @return the public component
 	 */
 	public ECPoint computePublicPoint(BigInteger privateS) {
+		EcFixedBaseTable fixedBaseTable = StandardizedDomainParameters.getFixedBaseTable(this);
+		
+		if(fixedBaseTable != null) {
+			return fixedBaseTable.multiply(privateS);
+		}
+		
 		return CryptoUtil.scalarPointMultiplication(getCurve(), getGenerator(), privateS);
 	}
 	
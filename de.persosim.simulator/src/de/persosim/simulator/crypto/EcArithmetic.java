@@ -0,0 +1,43 @@
+package de.persosim.simulator.crypto;
+
+import java.math.BigInteger;
+import java.security.spec.ECPoint;
+import java.security.spec.EllipticCurve;
+
+/**
+ * This interface is used to modularize the implementation of EC point
+ * arithmetic on curves over prime fields. All points handed in and out are
+ * affine {@link ECPoint}s, the internal representation is up to the
+ * implementation.
+ * 
+ * @see CryptoUtil#setEcArithmetic(EcArithmetic)
+ */
+public interface EcArithmetic {
+	
+	/**
+	 * This method performs EC point addition
+	 * @param curve the elliptic curve to be used
+	 * @param ecPointQ the first point for addition
+	 * @param ecPointP the second point for addition
+	 * @return the result of the point addition
+	 */
+	ECPoint addPoint(EllipticCurve curve, ECPoint ecPointQ, ECPoint ecPointP);
+	
+	/**
+	 * This method performs EC point doubling
+	 * @param curve the elliptic curve to be used
+	 * @param ecPointP the point to be doubled
+	 * @return the result of the point doubling
+	 */
+	ECPoint doublePoint(EllipticCurve curve, ECPoint ecPointP);
+	
+	/**
+	 * This method performs EC scalar point multiplication.
+	 * @param curve the elliptic curve to be used
+	 * @param ecPointP the point to be multiplied
+	 * @param scalar the scalar multiplier
+	 * @return the multiplied EC point
+	 */
+	ECPoint scalarPointMultiplication(EllipticCurve curve, ECPoint ecPointP, BigInteger scalar);
+	
+}
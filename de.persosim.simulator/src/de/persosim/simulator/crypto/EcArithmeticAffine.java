@@ -0,0 +1,45 @@
+package de.persosim.simulator.crypto;
+
+import java.math.BigInteger;
+import java.security.spec.ECPoint;
+import java.security.spec.EllipticCurve;
+
+/**
+ * This class implements {@link EcArithmetic} directly in affine coordinates
+ * using Double-and-add for scalar point multiplication. Every single point
+ * operation requires a modular inversion.
+ * <p/>
+ * This is the straightforward reference implementation, see
+ * {@link EcArithmeticJacobian} for the implementation used by default.
+ */
+public class EcArithmeticAffine implements EcArithmetic {
+	
+	@Override
+	public ECPoint addPoint(EllipticCurve curve, ECPoint ecPointQ, ECPoint ecPointP) {
+		return CryptoUtil.addPoint(curve, ecPointQ, ecPointP);
+	}
+	
+	@Override
+	public ECPoint doublePoint(EllipticCurve curve, ECPoint ecPointP) {
+		return CryptoUtil.doublePoint(curve, ecPointP);
+	}
+	
+	@Override
+	public ECPoint scalarPointMultiplication(EllipticCurve curve, ECPoint ecPointP, BigInteger scalar) {
+		if (ecPointP.equals(ECPoint.POINT_INFINITY)) {return ecPointP;}
+		
+		ECPoint ecPointR = ECPoint.POINT_INFINITY;
+		
+		for (int i = (scalar.bitLength()) - 1; i >= 0; i--) {
+			ecPointR = doublePoint(curve, ecPointR);
+			
+			if (scalar.testBit(i)) {
+				ecPointR = addPoint(curve, ecPointR, ecPointP);
+			}
+			
+		}
+		
+		return ecPointR;
+	}
+	
+}
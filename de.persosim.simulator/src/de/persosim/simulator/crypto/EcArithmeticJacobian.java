@@ -0,0 +1,254 @@
+package de.persosim.simulator.crypto;
+
+import java.math.BigInteger;
+import java.security.spec.ECFieldFp;
+import java.security.spec.ECPoint;
+import java.security.spec.EllipticCurve;
+
+/**
+ * This class implements {@link EcArithmetic} in Jacobian coordinates. An
+ * affine point (x, y) is represented as (X, Y, Z) with x = X/Z^2 and
+ * y = Y/Z^3, the point at infinity has Z = 0. Intermediate results never need
+ * a modular inversion, a single one is performed when converting the final
+ * result back to affine coordinates.
+ * <p/>
+ * Scalar point multiplication uses a Montgomery ladder over a fixed number of
+ * bits (at least the bit length of the field prime). Every ladder step
+ * performs exactly one addition and one doubling independent of the scalar
+ * bit, so the sequence of point operations does not reveal the scalar.
+ * Note that the underlying {@link BigInteger} arithmetic itself is not
+ * constant-time.
+ */
+public class EcArithmeticJacobian implements EcArithmetic {
+	
+	/**
+	 * This class represents a point in Jacobian coordinates. Instances are
+	 * immutable.
+	 */
+	static final class JacobianPoint {
+		static final JacobianPoint INFINITY = new JacobianPoint(BigInteger.ONE, BigInteger.ONE, BigInteger.ZERO);
+		
+		final BigInteger x;
+		final BigInteger y;
+		final BigInteger z;
+		
+		JacobianPoint(BigInteger x, BigInteger y, BigInteger z) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+		}
+		
+		boolean isInfinity() {
+			return z.signum() == 0;
+		}
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	
+	@Override
+	public ECPoint addPoint(EllipticCurve curve, ECPoint ecPointQ, ECPoint ecPointP) {
+		BigInteger p = getPrime(curve);
+		return toAffine(p, add(p, curve.getA(), fromAffine(ecPointQ), fromAffine(ecPointP)));
+	}
+	
+	@Override
+	public ECPoint doublePoint(EllipticCurve curve, ECPoint ecPointP) {
+		BigInteger p = getPrime(curve);
+		return toAffine(p, twice(p, curve.getA(), fromAffine(ecPointP)));
+	}
+	
+	@Override
+	public ECPoint scalarPointMultiplication(EllipticCurve curve, ECPoint ecPointP, BigInteger scalar) {
+		if (ecPointP.equals(ECPoint.POINT_INFINITY)) {return ecPointP;}
+		
+		BigInteger p = getPrime(curve);
+		
+		if (scalar.signum() < 0) {
+			// k * P = (-k) * (-P)
+			scalar = scalar.negate();
+			ecPointP = new ECPoint(ecPointP.getAffineX(), p.subtract(ecPointP.getAffineY()).mod(p));
+		}
+		
+		return toAffine(p, multiply(p, curve.getA(), fromAffine(ecPointP), scalar));
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	
+	/**
+	 * This method performs scalar point multiplication using a Montgomery
+	 * ladder. The ladder runs over at least as many bits as the field prime
+	 * has, so all reduced scalars cause the same sequence of operations.
+	 * @param p the prime used by the curve
+	 * @param a the coefficient a of the curve
+	 * @param point the point to be multiplied
+	 * @param scalar the non-negative scalar multiplier
+	 * @return the multiplied point in Jacobian coordinates
+	 */
+	static JacobianPoint multiply(BigInteger p, BigInteger a, JacobianPoint point, BigInteger scalar) {
+		int bitLength = Math.max(scalar.bitLength(), p.bitLength());
+		
+		// invariant: ladder[1] - ladder[0] = point
+		JacobianPoint[] ladder = new JacobianPoint[] {JacobianPoint.INFINITY, point};
+		
+		for (int i = bitLength - 1; i >= 0; i--) {
+			int bit = scalar.testBit(i) ? 1 : 0;
+			
+			JacobianPoint sum = add(p, a, ladder[0], ladder[1]);
+			JacobianPoint doubled = twice(p, a, ladder[bit]);
+			
+			ladder[1 - bit] = sum;
+			ladder[bit] = doubled;
+		}
+		
+		return ladder[0];
+	}
+	
+	/**
+	 * This method performs point doubling in Jacobian coordinates (dbl-1998-cmo-2
+	 * formulas for generic a).
+	 * @param p the prime used by the curve
+	 * @param a the coefficient a of the curve
+	 * @param point the point to be doubled
+	 * @return the doubled point
+	 */
+	static JacobianPoint twice(BigInteger p, BigInteger a, JacobianPoint point) {
+		if (point.isInfinity() || point.y.signum() == 0) {
+			return JacobianPoint.INFINITY;
+		}
+		
+		BigInteger xx = point.x.multiply(point.x).mod(p);
+		BigInteger yy = point.y.multiply(point.y).mod(p);
+		BigInteger yyyy = yy.multiply(yy).mod(p);
+		BigInteger zz = point.z.multiply(point.z).mod(p);
+		
+		BigInteger s = point.x.multiply(yy).shiftLeft(2).mod(p);
+		BigInteger m = xx.multiply(CryptoUtil.THREE).add(a.multiply(zz.multiply(zz))).mod(p);
+		
+		BigInteger x3 = m.multiply(m).subtract(s.shiftLeft(1)).mod(p);
+		BigInteger y3 = m.multiply(s.subtract(x3)).subtract(yyyy.shiftLeft(3)).mod(p);
+		BigInteger z3 = point.y.multiply(point.z).shiftLeft(1).mod(p);
+		
+		return new JacobianPoint(x3, y3, z3);
+	}
+	
+	/**
+	 * This method performs point addition in Jacobian coordinates
+	 * (add-1998-cmo-2 formulas). Equal points are doubled and inverse points
+	 * result in the point at infinity.
+	 * @param p the prime used by the curve
+	 * @param a the coefficient a of the curve
+	 * @param pointQ the first point for addition
+	 * @param pointP the second point for addition
+	 * @return the result of the point addition
+	 */
+	static JacobianPoint add(BigInteger p, BigInteger a, JacobianPoint pointQ, JacobianPoint pointP) {
+		if (pointQ.isInfinity()) {return pointP;}
+		if (pointP.isInfinity()) {return pointQ;}
+		
+		BigInteger z1z1 = pointQ.z.multiply(pointQ.z).mod(p);
+		BigInteger z2z2 = pointP.z.multiply(pointP.z).mod(p);
+		
+		BigInteger u1 = pointQ.x.multiply(z2z2).mod(p);
+		BigInteger u2 = pointP.x.multiply(z1z1).mod(p);
+		BigInteger s1 = pointQ.y.multiply(pointP.z).multiply(z2z2).mod(p);
+		BigInteger s2 = pointP.y.multiply(pointQ.z).multiply(z1z1).mod(p);
+		
+		if (u1.equals(u2)) {
+			if (s1.equals(s2)) {
+				return twice(p, a, pointQ);
+			}
+			return JacobianPoint.INFINITY;
+		}
+		
+		BigInteger h = u2.subtract(u1).mod(p);
+		BigInteger r = s2.subtract(s1).mod(p);
+		BigInteger hh = h.multiply(h).mod(p);
+		BigInteger hhh = h.multiply(hh).mod(p);
+		BigInteger v = u1.multiply(hh).mod(p);
+		
+		BigInteger x3 = r.multiply(r).subtract(hhh).subtract(v.shiftLeft(1)).mod(p);
+		BigInteger y3 = r.multiply(v.subtract(x3)).subtract(s1.multiply(hhh)).mod(p);
+		BigInteger z3 = pointQ.z.multiply(pointP.z).multiply(h).mod(p);
+		
+		return new JacobianPoint(x3, y3, z3);
+	}
+	
+	/**
+	 * This method converts an affine point to Jacobian coordinates
+	 * @param ecPoint the affine point
+	 * @return the same point in Jacobian coordinates
+	 */
+	static JacobianPoint fromAffine(ECPoint ecPoint) {
+		if (ecPoint.equals(ECPoint.POINT_INFINITY)) {
+			return JacobianPoint.INFINITY;
+		}
+		return new JacobianPoint(ecPoint.getAffineX(), ecPoint.getAffineY(), BigInteger.ONE);
+	}
+	
+	/**
+	 * This method converts a point in Jacobian coordinates to affine
+	 * coordinates. This requires a single modular inversion.
+	 * @param p the prime used by the curve
+	 * @param point the point in Jacobian coordinates
+	 * @return the same point in affine coordinates
+	 */
+	static ECPoint toAffine(BigInteger p, JacobianPoint point) {
+		if (point.isInfinity()) {
+			return ECPoint.POINT_INFINITY;
+		}
+		
+		BigInteger zInv = point.z.modInverse(p);
+		BigInteger zInv2 = zInv.multiply(zInv).mod(p);
+		BigInteger zInv3 = zInv2.multiply(zInv).mod(p);
+		
+		return new ECPoint(point.x.multiply(zInv2).mod(p), point.y.multiply(zInv3).mod(p));
+	}
+	
+	/**
+	 * This method normalizes all provided points to Z = 1 using a single
+	 * modular inversion for the whole array (Montgomery's trick).
+	 * @param p the prime used by the curve
+	 * @param points the points in Jacobian coordinates
+	 * @return the same points with Z = 1, points at infinity are kept as is
+	 */
+	static JacobianPoint[] normalize(BigInteger p, JacobianPoint[] points) {
+		BigInteger[] partialProducts = new BigInteger[points.length];
+		BigInteger product = BigInteger.ONE;
+		
+		for (int i = 0; i < points.length; i++) {
+			partialProducts[i] = product;
+			if (!points[i].isInfinity()) {
+				product = product.multiply(points[i].z).mod(p);
+			}
+		}
+		
+		BigInteger inverse = product.modInverse(p);
+		JacobianPoint[] normalized = new JacobianPoint[points.length];
+		
+		for (int i = points.length - 1; i >= 0; i--) {
+			JacobianPoint point = points[i];
+			if (point.isInfinity()) {
+				normalized[i] = point;
+				continue;
+			}
+			
+			BigInteger zInv = inverse.multiply(partialProducts[i]).mod(p);
+			inverse = inverse.multiply(point.z).mod(p);
+			
+			BigInteger zInv2 = zInv.multiply(zInv).mod(p);
+			BigInteger zInv3 = zInv2.multiply(zInv).mod(p);
+			normalized[i] = new JacobianPoint(point.x.multiply(zInv2).mod(p), point.y.multiply(zInv3).mod(p), BigInteger.ONE);
+		}
+		
+		return normalized;
+	}
+	
+	/**
+	 * @param curve the elliptic curve
+	 * @return the prime of the field the curve is defined over
+	 */
+	static BigInteger getPrime(EllipticCurve curve) {
+		return ((ECFieldFp) curve.getField()).getP();
+	}
+	
+}
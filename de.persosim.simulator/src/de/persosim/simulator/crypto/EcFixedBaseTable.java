@@ -0,0 +1,125 @@
+package de.persosim.simulator.crypto;
+
+import java.math.BigInteger;
+import java.security.spec.ECPoint;
+import java.security.spec.EllipticCurve;
+
+import de.persosim.simulator.crypto.EcArithmeticJacobian.JacobianPoint;
+
+/**
+ * This class holds precomputed multiples of a fixed base point (usually the
+ * generator of standardized domain parameters) and uses them for fast scalar
+ * multiplication of this base point.
+ * <p/>
+ * The scalar is split into windows of {@link #WINDOW_WIDTH} bits. For every
+ * window i the table contains the points j * 2^(WINDOW_WIDTH * i) * G for all
+ * possible window values j, so multiplication only requires one point addition
+ * per window and no doublings at all. Every window performs exactly one
+ * addition, for a window value of 0 the addition goes to a dummy accumulator.
+ * <p/>
+ * Instances are immutable after construction and can be shared between
+ * threads, see {@link StandardizedDomainParameters#getFixedBaseTable(DomainParameterSetEcdh)}.
+ */
+public class EcFixedBaseTable {
+	
+	public static final int WINDOW_WIDTH = 4;
+	
+	private final EllipticCurve curve;
+	private final ECPoint basePoint;
+	private final BigInteger order;
+	private final BigInteger p;
+	
+	private final JacobianPoint[][] table;
+	
+	/**
+	 * Constructor for constructing an {@link EcFixedBaseTable} object. All
+	 * multiples of the base point are computed immediately.
+	 * @param curve the elliptic curve
+	 * @param basePoint the fixed base point
+	 * @param order the order of the base point
+	 */
+	public EcFixedBaseTable(EllipticCurve curve, ECPoint basePoint, BigInteger order) {
+		if(basePoint.equals(ECPoint.POINT_INFINITY)) {throw new IllegalArgumentException("base point must not be the point at infinity");}
+		
+		this.curve = curve;
+		this.basePoint = basePoint;
+		this.order = order;
+		this.p = EcArithmeticJacobian.getPrime(curve);
+		
+		BigInteger a = curve.getA();
+		int noOfWindows = (order.bitLength() + WINDOW_WIDTH - 1) / WINDOW_WIDTH;
+		int noOfDigits = 1 << WINDOW_WIDTH;
+		
+		JacobianPoint[] points = new JacobianPoint[noOfWindows * noOfDigits];
+		JacobianPoint windowBase = EcArithmeticJacobian.fromAffine(basePoint);
+		
+		for (int i = 0; i < noOfWindows; i++) {
+			int offset = i * noOfDigits;
+			
+			// digit 0 only serves as operand for the dummy addition
+			points[offset] = windowBase;
+			points[offset + 1] = windowBase;
+			for (int j = 2; j < noOfDigits; j++) {
+				points[offset + j] = EcArithmeticJacobian.add(p, a, points[offset + j - 1], windowBase);
+			}
+			
+			windowBase = EcArithmeticJacobian.add(p, a, points[offset + noOfDigits - 1], windowBase);
+		}
+		
+		points = EcArithmeticJacobian.normalize(p, points);
+		
+		table = new JacobianPoint[noOfWindows][noOfDigits];
+		for (int i = 0; i < noOfWindows; i++) {
+			System.arraycopy(points, i * noOfDigits, table[i], 0, noOfDigits);
+		}
+	}
+	
+	/**
+	 * This method performs EC scalar point multiplication of the base point.
+	 * @param scalar the scalar multiplier, it is taken modulo the order
+	 * @return the multiplied EC point
+	 */
+	public ECPoint multiply(BigInteger scalar) {
+		BigInteger k = scalar.mod(order);
+		BigInteger a = curve.getA();
+		
+		// index 0 accumulates the result, index 1 absorbs the additions for zero windows
+		JacobianPoint[] accumulator = new JacobianPoint[] {JacobianPoint.INFINITY, JacobianPoint.INFINITY};
+		
+		for (int i = 0; i < table.length; i++) {
+			int digit = 0;
+			for (int b = 0; b < WINDOW_WIDTH; b++) {
+				digit |= (k.testBit(i * WINDOW_WIDTH + b) ? 1 : 0) << b;
+			}
+			
+			int target = (digit == 0) ? 1 : 0;
+			accumulator[target] = EcArithmeticJacobian.add(p, a, accumulator[target], table[i][digit]);
+		}
+		
+		return EcArithmeticJacobian.toAffine(p, accumulator[0]);
+	}
+	
+	/**
+	 * This method checks whether this table can be used for the provided parameters.
+	 * @param curve the elliptic curve
+	 * @param basePoint the base point
+	 * @param order the order of the base point
+	 * @return true iff the table has been computed for exactly these parameters
+	 */
+	public boolean matches(EllipticCurve curve, ECPoint basePoint, BigInteger order) {
+		return this.basePoint.equals(basePoint) && this.order.equals(order) && this.curve.equals(curve);
+	}
+	
+	public EllipticCurve getCurve() {
+		return curve;
+	}
+	
+	public ECPoint getBasePoint() {
+		return basePoint;
+	}
+	
+	public BigInteger getOrder() {
+		return order;
+	}
+	
+}
@@ -9,9 +9,8 @@ import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.util.Arrays;
 
-import org.globaltester.cryptoprovider.Crypto;
-
 import de.persosim.simulator.utils.HexString;
+import de.persosim.simulator.utils.LazyLogger;
 import de.persosim.simulator.utils.Utils;
 
 /**
@@ -55,9 +54,9 @@ public class KeyDerivationFunction {
 		
 		try {
 			if(keyLengthInBytes <= 16) {
-				this.messageDigest =  MessageDigest.getInstance(DIGEST_ORDER[0], Crypto.getCryptoProvider());
+				this.messageDigest =  CryptoInstanceCache.getMessageDigest(DIGEST_ORDER[0]);
 			} else{
-				this.messageDigest =  MessageDigest.getInstance(DIGEST_ORDER[1], Crypto.getCryptoProvider());
+				this.messageDigest =  CryptoInstanceCache.getMessageDigest(DIGEST_ORDER[1]);
 			}
 		} catch (NoSuchAlgorithmException e) {
 			/* this is not supposed to happen */
@@ -85,27 +84,25 @@ public class KeyDerivationFunction {
 		
 		if(nonce != null) {
 			inputLength += nonce.length;
-			log(KeyDerivationFunction.class, "deriving key from secret \"" + HexString.encode(secret) + "\", nonce \"" + HexString.encode(nonce) + "\" and counter \"" + HexString.encode(counter) +  "\"", DEBUG);
+			LazyLogger.log(KeyDerivationFunction.class, () -> "deriving key from secret \"" + HexString.encode(secret) + "\", nonce \"" + HexString.encode(nonce) + "\" and counter \"" + HexString.encode(counter) +  "\"", DEBUG);
 		} else{
-			log(KeyDerivationFunction.class, "deriving key from secret \"" + HexString.encode(secret) + "\", no nonce and counter \"" + HexString.encode(counter) +  "\"", DEBUG);
+			LazyLogger.log(KeyDerivationFunction.class, () -> "deriving key from secret \"" + HexString.encode(secret) + "\", no nonce and counter \"" + HexString.encode(counter) +  "\"", DEBUG);
 		}
 		
 		if(inputLength <= 0) {
 			throw new IllegalArgumentException("KDF input length must be > 0");
 		}
 		
-		input = new byte[inputLength];
-		
 		if(nonce == null) {
 			input = Utils.concatByteArrays(secret, counter);
 		} else{
 			input = Utils.concatByteArrays(secret, nonce, counter);
 		}
 		
-		log(KeyDerivationFunction.class, "message digest input is: " + HexString.encode(input), DEBUG);
-		log(KeyDerivationFunction.class, "message digest algorithm is: " + messageDigest.getAlgorithm() + " of " + keyLengthInBytes + " bytes length", DEBUG);
+		LazyLogger.log(KeyDerivationFunction.class, () -> "message digest input is: " + HexString.encode(input), DEBUG);
+		LazyLogger.log(KeyDerivationFunction.class, () -> "message digest algorithm is: " + messageDigest.getAlgorithm() + " of " + keyLengthInBytes + " bytes length", DEBUG);
 		digest = this.messageDigest.digest(input);
-		log(KeyDerivationFunction.class, "message digest result is: " + HexString.encode(digest), DEBUG);
+		LazyLogger.log(KeyDerivationFunction.class, () -> "message digest result is: " + HexString.encode(digest), DEBUG);
 		
 		return Arrays.copyOf(digest, this.keyLengthInBytes);
 	}
@@ -1,28 +1,47 @@
 package de.persosim.simulator.crypto;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 
 import de.persosim.simulator.utils.HexString;
-import de.persosim.simulator.utils.Utils;
 
 /**
  * This class represents a counter to be used in the context of sequence numbers
  * in secure messaging. The counter is limited to positive numbers including 0.
  * The default value is 0, the default increment is 1. When exceeding the
  * maximum value the counter is reset to 0.
+ * <p/>
+ * The counter is limited to {@value #MAX_BYTE_LENGTH} bytes and kept as
+ * unsigned 128 bit integer along with its big-endian encoding, both are
+ * updated in place on every increment.
  * 
  * @author slutters
  *
  */
 public class SendSequenceCounter {
 	
-	// the current value
-	// 0 <= current value <= maxValue
-	protected BigInteger value;
+	/** the maximum supported byte length of the counter */
+	public static final int MAX_BYTE_LENGTH = 16;
+	
+	// the current value, only used within the serialized form
+	// see #writeReplace() and #readResolve()
+	private BigInteger value;
 	
 	// maximum achievable value
 	private BigInteger maxValue;
 	
+	// the current value as unsigned 128 bit integer
+	// 0 <= current value <= maxValue
+	private transient long valueHigh;
+	private transient long valueLow;
+	
+	// the maximum achievable value as unsigned 128 bit integer
+	private transient long maxValueHigh;
+	private transient long maxValueLow;
+	
+	// big-endian encoding of the current value, updated in place
+	private transient byte[] encoding;
+	
 	/*--------------------------------------------------------------------------------*/
 	
 	/**
@@ -32,13 +51,20 @@ public class SendSequenceCounter {
 	 */
 	public SendSequenceCounter(BigInteger value, BigInteger maxValue) {
 		if(maxValue.compareTo(BigInteger.ZERO) <= 0) {throw new IllegalArgumentException("max value must not be smaller than 1");}
+		if(maxValue.bitLength() > MAX_BYTE_LENGTH * 8) {throw new IllegalArgumentException("max value must not exceed " + MAX_BYTE_LENGTH + " bytes");}
 		
 		this.maxValue = maxValue;
 		
 		if(value.compareTo(BigInteger.ZERO) < 0) {throw new IllegalArgumentException("ssc must not be smaller than 0");}
 		if(value.compareTo(this.maxValue) > 0) {throw new IllegalArgumentException("ssc must not be larger than max value");}
 		
-		this.value = value;	
+		this.maxValueHigh = maxValue.shiftRight(64).longValue();
+		this.maxValueLow = maxValue.longValue();
+		this.valueHigh = value.shiftRight(64).longValue();
+		this.valueLow = value.longValue();
+		
+		this.encoding = new byte[(int) (Math.ceil(maxValue.bitLength()/8.0))];
+		updateEncoding();
 	}
 	
 	/**
@@ -66,6 +92,19 @@ public class SendSequenceCounter {
 		this(BigInteger.ZERO, maxByteLength);
 	}
 	
+	/**
+	 * This constructor constructs a copy of the provided {@link SendSequenceCounter}
+	 * @param template the counter to copy value and maximum value from
+	 */
+	public SendSequenceCounter(SendSequenceCounter template) {
+		this.maxValue = template.maxValue;
+		this.maxValueHigh = template.maxValueHigh;
+		this.maxValueLow = template.maxValueLow;
+		this.valueHigh = template.valueHigh;
+		this.valueLow = template.valueLow;
+		this.encoding = template.encoding.clone();
+	}
+	
 	/*--------------------------------------------------------------------------------*/
 	
 	/**
@@ -79,24 +118,30 @@ public class SendSequenceCounter {
 	 * @return the value
 	 */
 	public BigInteger getValue() {
-		return value;
+		return new BigInteger(1, encoding);
 	}
 
 	/**
 	 * @return the byteLength
 	 */
 	public int getMaxByteLength() {
-		return (int) (Math.ceil(maxValue.bitLength()/8.0));
+		return encoding.length;
 	}
 	
 	/**
 	 * This method increments the current value by 1
 	 */
 	public void increment() {
-		this.value = this.value.add(BigInteger.ONE);
+		valueLow++;
+		if(valueLow == 0) {
+			valueHigh++;
+		}
 		
-		if(this.value.compareTo(this.maxValue) > 0) {
+		int compareHigh = Long.compareUnsigned(valueHigh, maxValueHigh);
+		if((compareHigh > 0) || ((compareHigh == 0) && (Long.compareUnsigned(valueLow, maxValueLow) > 0))) {
 			this.reset();
+		} else {
+			updateEncoding();
 		}
 	}
 	
@@ -104,7 +149,9 @@ public class SendSequenceCounter {
 	 * This method resets the current value to 0
 	 */
 	public void reset() {
-		this.value = BigInteger.ZERO;
+		valueHigh = 0;
+		valueLow = 0;
+		Arrays.fill(encoding, (byte) 0x00);
 	}
 	
 	/**
@@ -114,13 +161,61 @@ public class SendSequenceCounter {
 	 * @return a byte[] representation of the current value
 	 */
 	public byte[] toByteArray() {
-		byte[] out = Utils.toUnsignedByteArray(this.value);
-		return Utils.padWithLeadingZeroes(out, getMaxByteLength());
+		return encoding.clone();
+	}
+	
+	/**
+	 * This method copies the byte[] representation of the current value (see
+	 * {@link #toByteArray()}) to the provided array.
+	 * 
+	 * @param destination the array to copy the encoding to
+	 * @param destinationOffset the offset within destination
+	 * @return the number of bytes copied
+	 */
+	public int copyTo(byte[] destination, int destinationOffset) {
+		System.arraycopy(encoding, 0, destination, destinationOffset, encoding.length);
+		return encoding.length;
+	}
+	
+	/**
+	 * This method writes the current value to the big-endian encoding.
+	 */
+	private void updateEncoding() {
+		long current = valueLow;
+		for(int i = encoding.length - 1; i >= 0; i--) {
+			if(i == encoding.length - 9) {
+				current = valueHigh;
+			}
+			encoding[i] = (byte) current;
+			current >>>= 8;
+		}
+	}
+	
+	/**
+	 * The serialized form of this class contains the value and maximum value
+	 * as {@link BigInteger}s. This method provides a copy containing the
+	 * current value for serialization.
+	 * 
+	 * @return the object to be serialized instead of this one
+	 */
+	private Object writeReplace() {
+		SendSequenceCounter serializedForm = new SendSequenceCounter(this);
+		serializedForm.value = getValue();
+		return serializedForm;
+	}
+	
+	/**
+	 * This method restores the primitive state from the serialized form.
+	 * 
+	 * @return the deserialized object
+	 */
+	private Object readResolve() {
+		return new SendSequenceCounter(value, maxValue);
 	}
 	
 	@Override
 	public String toString() {
-		return this.value.toString() + " [" + HexString.encode(toByteArray()) + "]";
+		return getValue().toString() + " [" + HexString.encode(toByteArray()) + "]";
 	}
 
 	@Override
@@ -128,7 +223,8 @@ public class SendSequenceCounter {
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + ((maxValue == null) ? 0 : maxValue.hashCode());
-		result = prime * result + ((value == null) ? 0 : value.hashCode());
+		result = prime * result + Long.hashCode(valueHigh);
+		result = prime * result + Long.hashCode(valueLow);
 		return result;
 	}
 
@@ -146,10 +242,9 @@ public class SendSequenceCounter {
 				return false;
 		} else if (!maxValue.equals(other.maxValue))
 			return false;
-		if (value == null) {
-			if (other.value != null)
-				return false;
-		} else if (!value.equals(other.value))
+		if (valueHigh != other.valueHigh)
+			return false;
+		if (valueLow != other.valueLow)
 			return false;
 		return true;
 	}
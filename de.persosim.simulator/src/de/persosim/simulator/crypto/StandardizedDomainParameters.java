@@ -1,8 +1,11 @@
 package de.persosim.simulator.crypto;
 
+import java.security.spec.ECPoint;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.globaltester.logging.BasicLogger;
 import org.osgi.framework.ServiceReference;
@@ -102,6 +105,54 @@ public class StandardizedDomainParameters{
 		return null;
 	}	
 	
+	/**
+	 * This class lazily collects the generators of all standardized ECDH
+	 * domain parameter sets on first access.
+	 */
+	private static class StandardizedEcdhGenerators {
+		static final Map<ECPoint, DomainParameterSetEcdh> GENERATORS = new HashMap<>();
+		
+		static {
+			for (int id = 0; id < NO_OF_STANDARDIZED_DOMAIN_PARAMETERS; id++) {
+				DomainParameterSet domainParameterSet = getDomainParameterSetById(id);
+				if (domainParameterSet instanceof DomainParameterSetEcdh) {
+					DomainParameterSetEcdh domainParameterSetEcdh = (DomainParameterSetEcdh) domainParameterSet;
+					GENERATORS.put(domainParameterSetEcdh.getGenerator(), domainParameterSetEcdh);
+				}
+			}
+		}
+	}
+	
+	static private final ConcurrentHashMap<ECPoint, EcFixedBaseTable> fixedBaseTables = new ConcurrentHashMap<>();
+	
+	/**
+	 * This method returns the table of precomputed generator multiples for
+	 * the provided ECDH domain parameters. Tables are only provided for
+	 * standardized domain parameters, they are built on first use and shared
+	 * by all callers within the JVM.
+	 * 
+	 * @param domainParameterSet
+	 *            the domain parameters to get the table for
+	 * @return the table or null if the domain parameters do not match any
+	 *         standardized domain parameters
+	 */
+	public static EcFixedBaseTable getFixedBaseTable(DomainParameterSetEcdh domainParameterSet) {
+		final ECPoint generator = domainParameterSet.getGenerator();
+		final DomainParameterSetEcdh standardized = StandardizedEcdhGenerators.GENERATORS.get(generator);
+		
+		if (standardized == null) {
+			return null;
+		}
+		
+		EcFixedBaseTable table = fixedBaseTables.computeIfAbsent(generator, g -> new EcFixedBaseTable(standardized.getCurve(), g, standardized.getOrder()));
+		
+		if (!table.matches(domainParameterSet.getCurve(), generator, domainParameterSet.getOrder())) {
+			return null;
+		}
+		
+		return table;
+	}
+	
 	/**
 	 * Simplify the given AlgorithmIdentifier using standardized domain
 	 * parameters if possible
@@ -41,8 +41,7 @@ import de.persosim.simulator.seccondition.TaSecurityCondition;
 import de.persosim.simulator.tlv.Asn1;
 import de.persosim.simulator.tlv.ConstructedTlvDataObject;
 import de.persosim.simulator.tlv.PrimitiveTlvDataObject;
-import de.persosim.simulator.tlv.TlvDataObject;
-import de.persosim.simulator.tlv.TlvDataObjectFactory;
+import de.persosim.simulator.tlv.TlvDataObjectView;
 import de.persosim.simulator.tlv.TlvTag;
 import de.persosim.simulator.utils.BitField;
 import de.persosim.simulator.utils.HexString;
@@ -478,7 +477,8 @@ public abstract class AbstractProfile extends DefaultPersoTestPki implements Asn
 	protected void addEfCardAccess(MasterFile mf) throws AccessDeniedException {
 		initPersonalizationDataContainer();
 		
-		TlvDataObject efCardAccessTlv = TlvDataObjectFactory.createTLVDataObject(persoDataContainer.getEfCardAccess());
+		TlvDataObjectView efCardAccessTlv = new TlvDataObjectView(HexString.toByteArray(persoDataContainer.getEfCardAccess()));
+		efCardAccessTlv.checkEncoding();
 		
 		CardFile eidDgCardAccess = new ElementaryFile(new FileIdentifier(0x011C),
 				new ShortFileIdentifier(0x1C),
@@ -492,7 +492,8 @@ public abstract class AbstractProfile extends DefaultPersoTestPki implements Asn
 	protected void addEfCardSecurity(MasterFile mf) throws AccessDeniedException {
 		initPersonalizationDataContainer();
 		
-		TlvDataObject efCardSecurityTlv = TlvDataObjectFactory.createTLVDataObject(persoDataContainer.getEfCardSecurity());
+		TlvDataObjectView efCardSecurityTlv = new TlvDataObjectView(HexString.toByteArray(persoDataContainer.getEfCardSecurity()));
+		efCardSecurityTlv.checkEncoding();
 		
 		CardFile eidDgCardSecurity = new ElementaryFile(new FileIdentifier(0x011D),
 				new ShortFileIdentifier(0x1D),
@@ -506,7 +507,8 @@ public abstract class AbstractProfile extends DefaultPersoTestPki implements Asn
 	protected void addEfChipSecurity(MasterFile mf) throws AccessDeniedException {
 		initPersonalizationDataContainer();
 		
-		TlvDataObject efChipSecurityTlv = TlvDataObjectFactory.createTLVDataObject(persoDataContainer.getEfChipSecurity());
+		TlvDataObjectView efChipSecurityTlv = new TlvDataObjectView(HexString.toByteArray(persoDataContainer.getEfChipSecurity()));
+		efChipSecurityTlv.checkEncoding();
 		
 		
 		SecCondition taWithIs = new TaSecurityCondition(TerminalType.IS, null);
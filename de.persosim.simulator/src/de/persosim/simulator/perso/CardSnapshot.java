@@ -0,0 +1,336 @@
+package de.persosim.simulator.perso;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.persosim.simulator.PersoSim;
+import de.persosim.simulator.cardobjects.ElementaryFile;
+import de.persosim.simulator.platform.Layer;
+
+/**
+ * This class holds an in-memory snapshot of an initialized card, i.e. the
+ * complete layer list of a {@link Personalization} including object tree,
+ * security status and the state of all layers and protocols. Any number of
+ * independent copies of the card can be created from a snapshot with
+ * {@link #fork()}, which is much cheaper than parsing or building the
+ * personalization again.
+ * <p/>
+ * Copies are created by copying the object graph reachable from the layers.
+ * Objects of PersoSim classes, arrays, collections, maps and dates are
+ * copied, enums and all other objects (e.g. keys, domain parameter specs or
+ * {@link java.security.SecureRandom} instances) are considered immutable and
+ * shared between the copies. The contents of {@link ElementaryFile}s are
+ * shared as well and copied on the first modification. Collections and maps
+ * without public default constructor (e.g. unmodifiable views) are copied
+ * into a {@link LinkedHashSet}, {@link ArrayList} resp. {@link LinkedHashMap}.
+ * <p/>
+ * Forks may be created concurrently from the same snapshot.
+ */
+public class CardSnapshot {
+	
+	private static final String COPIED_PACKAGE = "de.persosim.";
+	
+	private static final Object unsafe;
+	private static final Method allocateInstanceMethod;
+	
+	static {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+			unsafeField.setAccessible(true);
+			unsafe = unsafeField.get(null);
+			allocateInstanceMethod = unsafeClass.getMethod("allocateInstance", Class.class);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("objects can not be instantiated without constructor on this platform", e);
+		}
+	}
+	
+	private static final Map<Class<?>, Field[]> fieldsPerClass = new ConcurrentHashMap<>();
+	
+	private final List<Layer> layers;
+	
+	/**
+	 * Take a snapshot of the current state of the given card. Later changes
+	 * of the card do not affect the snapshot.
+	 *
+	 * @param personalization
+	 *            the initialized personalization, e.g. the one currently
+	 *            loaded into a {@link PersoSim} instance
+	 */
+	public CardSnapshot(Personalization personalization) {
+		layers = copy(personalization.getLayerList());
+	}
+	
+	/**
+	 * Create a new independent copy of the card in the state of this
+	 * snapshot. The returned personalization is already initialized and can be
+	 * loaded with {@link PersoSim#loadPersonalization(Personalization)}.
+	 *
+	 * @return the copy of the card
+	 */
+	public Personalization fork() {
+		return new ForkedPersonalization(copy(layers));
+	}
+	
+	/**
+	 * Create a new instance of the given class without calling any
+	 * constructor, i.e. all fields have their default values.
+	 * @param type the class to instantiate
+	 * @return the new instance
+	 * @throws ReflectiveOperationException if the class can not be instantiated
+	 */
+	static Object allocateInstance(Class<?> type) throws ReflectiveOperationException {
+		return allocateInstanceMethod.invoke(unsafe, type);
+	}
+	
+	/**
+	 * Copy the object graph reachable from the given object.
+	 * @param original the object to copy
+	 * @return the copy
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> T copy(T original) {
+		return (T) new GraphCopy().copy(original);
+	}
+	
+	/**
+	 * A single copy operation, mapping every original object to its copy in
+	 * order to preserve shared references and cycles.
+	 */
+	private static class GraphCopy {
+		
+		private final IdentityHashMap<Object, Object> copies = new IdentityHashMap<>();
+		
+		Object copy(Object original) {
+			if (original == null) {
+				return null;
+			}
+			Object copy = copies.get(original);
+			if (copy != null) {
+				return copy;
+			}
+			
+			Class<?> originalClass = original.getClass();
+			if (originalClass.isArray()) {
+				return copyArray(original);
+			}
+			if (originalClass.getName().startsWith(COPIED_PACKAGE) && !(original instanceof Enum)) {
+				return copyObject(original);
+			}
+			if (original instanceof Collection) {
+				return copyCollection((Collection<?>) original);
+			}
+			if (original instanceof Map) {
+				return copyMap((Map<?, ?>) original);
+			}
+			if (original instanceof Date) {
+				return register(original, ((Date) original).clone());
+			}
+			if (original instanceof Calendar) {
+				return register(original, ((Calendar) original).clone());
+			}
+			return original;
+		}
+		
+		private Object register(Object original, Object copy) {
+			copies.put(original, copy);
+			return copy;
+		}
+		
+		private Object copyArray(Object original) {
+			int length = Array.getLength(original);
+			Object copy = Array.newInstance(original.getClass().getComponentType(), length);
+			register(original, copy);
+			if (original.getClass().getComponentType().isPrimitive()) {
+				System.arraycopy(original, 0, copy, 0, length);
+			} else {
+				Object[] elements = (Object[]) original;
+				Object[] copiedElements = (Object[]) copy;
+				for (int i = 0; i < length; i++) {
+					copiedElements[i] = copy(elements[i]);
+				}
+			}
+			return copy;
+		}
+		
+		private Object copyObject(Object original) {
+			if (original instanceof ElementaryFile) {
+				// map the contents to themselves, they are copied on write
+				byte[] content = ((ElementaryFile) original).shareContent();
+				if (content != null) {
+					copies.put(content, content);
+				}
+			}
+			
+			// PersoSim collections need to be constructed in order to initialize the inherited state
+			boolean isCollection = (original instanceof Collection) || (original instanceof Map);
+			Object copy;
+			try {
+				copy = isCollection ? newInstance(original) : allocateInstance(original.getClass());
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalStateException("unable to instantiate " + original.getClass().getName(), e);
+			}
+			if (copy == null) {
+				throw new IllegalStateException("unable to copy " + original.getClass().getName() + ", no public default constructor");
+			}
+			register(original, copy);
+			
+			try {
+				for (Field field : getFields(original.getClass())) {
+					Object value = field.get(original);
+					if (field.getType().isPrimitive()) {
+						field.set(copy, value);
+					} else {
+						field.set(copy, copy(value));
+					}
+				}
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException("unable to copy " + original.getClass().getName(), e);
+			}
+			
+			if (original instanceof Collection) {
+				addElements((Collection<?>) original, copy);
+			} else if (original instanceof Map) {
+				addEntries((Map<?, ?>) original, copy);
+			}
+			return copy;
+		}
+		
+		@SuppressWarnings("unchecked")
+		private Object copyCollection(Collection<?> original) {
+			Collection<Object> copy;
+			if (original instanceof SortedSet) {
+				copy = new TreeSet<>((Comparator<Object>) copy(((SortedSet<?>) original).comparator()));
+			} else {
+				copy = (Collection<Object>) newInstance(original);
+				if (copy == null) {
+					copy = (original instanceof Set) ? new LinkedHashSet<>() : new ArrayList<>();
+				}
+			}
+			register(original, copy);
+			addElements(original, copy);
+			return copy;
+		}
+		
+		@SuppressWarnings("unchecked")
+		private void addElements(Collection<?> original, Object copy) {
+			Collection<Object> copiedCollection = (Collection<Object>) copy;
+			copiedCollection.clear();
+			for (Object element : original) {
+				copiedCollection.add(copy(element));
+			}
+		}
+		
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private Object copyMap(Map<?, ?> original) {
+			Map<Object, Object> copy;
+			if (original instanceof SortedMap) {
+				copy = new TreeMap<>((Comparator<Object>) copy(((SortedMap<?, ?>) original).comparator()));
+			} else if (original instanceof EnumMap) {
+				copy = new EnumMap((EnumMap) original);
+			} else {
+				copy = (Map<Object, Object>) newInstance(original);
+				if (copy == null) {
+					copy = new LinkedHashMap<>();
+				}
+			}
+			register(original, copy);
+			addEntries(original, copy);
+			return copy;
+		}
+		
+		@SuppressWarnings("unchecked")
+		private void addEntries(Map<?, ?> original, Object copy) {
+			Map<Object, Object> copiedMap = (Map<Object, Object>) copy;
+			copiedMap.clear();
+			for (Entry<?, ?> entry : original.entrySet()) {
+				copiedMap.put(copy(entry.getKey()), copy(entry.getValue()));
+			}
+		}
+		
+		/**
+		 * @return a new instance of the class of the given object or null if the class has no public default constructor
+		 */
+		private static Object newInstance(Object original) {
+			try {
+				return original.getClass().getConstructor().newInstance();
+			} catch (NoSuchMethodException | IllegalAccessException e) {
+				return null;
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalStateException("unable to copy " + original.getClass().getName(), e);
+			}
+		}
+		
+	}
+	
+	/**
+	 * Return all instance fields declared by the given PersoSim class and its
+	 * PersoSim super classes.
+	 */
+	private static Field[] getFields(Class<?> type) {
+		Field[] fields = fieldsPerClass.get(type);
+		if (fields == null) {
+			List<Field> fieldList = new ArrayList<>();
+			Class<?> current = type;
+			for (; (current != null) && current.getName().startsWith(COPIED_PACKAGE); current = current.getSuperclass()) {
+				for (Field field : current.getDeclaredFields()) {
+					if (!Modifier.isStatic(field.getModifiers())) {
+						field.setAccessible(true);
+						fieldList.add(field);
+					}
+				}
+			}
+			if ((current != Object.class) && !Collection.class.isAssignableFrom(current) && !Map.class.isAssignableFrom(current)) {
+				throw new IllegalStateException("unable to copy " + type.getName() + ", the state of " + current.getName() + " can not be copied");
+			}
+			fields = fieldList.toArray(new Field[fieldList.size()]);
+			fieldsPerClass.put(type, fields);
+		}
+		return fields;
+	}
+	
+	/**
+	 * Personalization wrapping the layers of a fork, these are already
+	 * initialized.
+	 */
+	private static class ForkedPersonalization implements Personalization {
+		
+		private final List<Layer> layers;
+		
+		ForkedPersonalization(List<Layer> layers) {
+			this.layers = layers;
+		}
+		
+		@Override
+		public List<Layer> getLayerList() {
+			return layers;
+		}
+		
+		@Override
+		public void initialize() {
+			// the layers have been initialized before the snapshot was taken
+		}
+		
+	}
+	
+}
@@ -0,0 +1,1022 @@
+package de.persosim.simulator.perso;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.InvalidObjectException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.ECFieldFp;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.EllipticCurve;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.globaltester.cryptoprovider.Crypto;
+import org.globaltester.lib.xstream.ShouldSerializeMemberInstruction;
+
+import de.persosim.simulator.cardobjects.MasterFile;
+import de.persosim.simulator.platform.AbstractCommandProcessor;
+import de.persosim.simulator.platform.CommandProcessor;
+import de.persosim.simulator.protocols.Protocol;
+import de.persosim.simulator.tlv.ConstructedTlvDataObject;
+import de.persosim.simulator.tlv.PrimitiveTlvDataObject;
+import de.persosim.simulator.tlv.TlvDataObject;
+
+/**
+ * This class implements a compact binary format for personalizations. It is
+ * an alternative to the XML format of {@link PersonalizationFactory} that is
+ * written and read in a single pass without building a document tree or
+ * parsing hex strings.
+ * <p/>
+ * The format stores the same state as the XML format: all non transient
+ * fields of PersoSim classes except those suppressed by
+ * {@link ShouldSerializeMemberImpl}, {@link Protocol}s by their class only,
+ * {@link AbstractCommandProcessor}s by master file and protocols, keys by
+ * their encoding and {@link TlvDataObject}s by their encoding. Other objects
+ * are stored using Java serialization. Shared references and cycles are
+ * preserved, writeReplace() and readResolve() methods of PersoSim classes are
+ * honored.
+ * <p/>
+ * When reading, only primitive types, PersoSim classes, the JDK value and
+ * collection classes listed in {@link #readableJdkClasses} and arrays of
+ * those are loaded, also within Java serialized objects. Binary
+ * personalizations are picked up automatically next to XML files, so other
+ * classes are rejected instead of being instantiated from untrusted data.
+ * For the same reason arrays other than byte arrays are limited to
+ * {@link #MAX_ARRAY_LENGTH} elements and other buffers only grow as data is
+ * actually read, so corrupted lengths can not exhaust the available memory.
+ * <p/>
+ * The data starts with the magic bytes "PERSOSIM" followed by the format
+ * version. Class names are stored once, the names of the fields of PersoSim
+ * classes are stored once per class. Fields that no longer exist when reading
+ * are skipped, fields that did not exist when writing keep their default
+ * values.
+ */
+public class PersonalizationBinaryFormat {
+	
+	/** the version of the format written by this implementation */
+	public static final int VERSION = 2;
+	
+	private static final byte[] MAGIC = "PERSOSIM".getBytes(StandardCharsets.US_ASCII);
+	
+	private static final String SERIALIZED_PACKAGE = "de.persosim.";
+	
+	/** maximum number of elements of arrays other than byte arrays */
+	static final int MAX_ARRAY_LENGTH = 1 << 20;
+	
+	/** maximum number of bytes or fields allocated before the data is actually read */
+	private static final int MAX_PREALLOCATED_LENGTH = 1 << 16;
+	
+	private static final int NULL = 0;
+	private static final int REFERENCE = 1;
+	private static final int BOOLEAN = 2;
+	private static final int BYTE = 3;
+	private static final int SHORT = 4;
+	private static final int CHARACTER = 5;
+	private static final int INTEGER = 6;
+	private static final int LONG = 7;
+	private static final int FLOAT = 8;
+	private static final int DOUBLE = 9;
+	private static final int STRING = 10;
+	private static final int BIG_INTEGER = 11;
+	private static final int ENUM = 12;
+	private static final int BYTE_ARRAY = 13;
+	private static final int ARRAY = 14;
+	private static final int OBJECT = 15;
+	private static final int COLLECTION = 16;
+	private static final int MAP = 17;
+	private static final int TLV = 18;
+	private static final int PROTOCOL = 19;
+	private static final int COMMAND_PROCESSOR = 20;
+	private static final int KEY_PAIR = 21;
+	private static final int PUBLIC_KEY = 22;
+	private static final int PRIVATE_KEY = 23;
+	private static final int EC_PARAMETER_SPEC = 24;
+	private static final int EC_POINT = 25;
+	private static final int DATE = 26;
+	private static final int SERIALIZED = 27;
+	
+	/** JDK classes that may be read in addition to primitive types and PersoSim classes */
+	private static final Set<String> readableJdkClasses = new HashSet<>();
+	
+	private static final Map<String, Class<?>> primitiveTypes = new HashMap<>();
+	
+	static {
+		for (Class<?> type : Arrays.<Class<?>> asList(boolean.class, byte.class, short.class, char.class, int.class, long.class, float.class, double.class)) {
+			primitiveTypes.put(type.getName(), type);
+		}
+		
+		for (Class<?> type : Arrays.<Class<?>> asList(Object.class, Number.class, Enum.class, String.class,
+				Boolean.class, Byte.class, Short.class, Character.class, Integer.class, Long.class, Float.class, Double.class,
+				BigInteger.class, BigDecimal.class, Date.class,
+				ArrayList.class, LinkedList.class, HashSet.class, LinkedHashSet.class, TreeSet.class,
+				HashMap.class, LinkedHashMap.class, TreeMap.class, IdentityHashMap.class)) {
+			readableJdkClasses.add(type.getName());
+		}
+	}
+	
+	private static final ShouldSerializeMemberInstruction serializeMemberInstruction = new ShouldSerializeMemberImpl();
+	
+	private static final Map<Class<?>, Field[]> fieldsPerClass = new ConcurrentHashMap<>();
+	
+	/**
+	 * Write the object graph reachable from the given object, usually a
+	 * {@link Personalization}. The stream is flushed but not closed.
+	 *
+	 * @param object the object to write
+	 * @param outputStream the stream to write to
+	 * @throws IOException if writing fails or the graph contains objects that can not be stored
+	 */
+	public static void write(Object object, OutputStream outputStream) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+		out.write(MAGIC);
+		out.writeShort(VERSION);
+		new Writer(out).writeValue(object);
+		out.flush();
+	}
+	
+	/**
+	 * Read an object graph written by {@link #write(Object, OutputStream)}.
+	 * The stream is not closed, but may have been read beyond the end of the
+	 * binary personalization.
+	 *
+	 * @param inputStream the stream to read from
+	 * @return the object
+	 * @throws IOException if reading fails or the data is not in a supported version of this format
+	 */
+	public static Object read(InputStream inputStream) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+		byte[] magic = new byte[MAGIC.length];
+		in.readFully(magic);
+		if (!Arrays.equals(MAGIC, magic)) {
+			throw new StreamCorruptedException("data is not a binary personalization");
+		}
+		int version = in.readUnsignedShort();
+		if (version != VERSION) {
+			throw new InvalidClassException("binary personalization version " + version + " is not supported, expected version " + VERSION);
+		}
+		return new Reader(in).readValue();
+	}
+	
+	/**
+	 * Check whether the given file starts like a binary personalization.
+	 * @param file the file to check
+	 * @return true iff the file exists and starts with the magic bytes of this format
+	 */
+	public static boolean isBinaryPersonalization(File file) {
+		if (!file.isFile()) {
+			return false;
+		}
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			byte[] magic = new byte[MAGIC.length];
+			in.readFully(magic);
+			return Arrays.equals(MAGIC, magic);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Return the fields stored for the given PersoSim class, i.e. the non
+	 * static and non transient fields declared by the class and its PersoSim
+	 * super classes that are not suppressed by {@link ShouldSerializeMemberImpl}.
+	 */
+	private static Field[] getFields(Class<?> type) throws NotSerializableException {
+		Field[] fields = fieldsPerClass.get(type);
+		if (fields == null) {
+			List<Field> fieldList = new ArrayList<>();
+			Class<?> current = type;
+			for (; (current != null) && current.getName().startsWith(SERIALIZED_PACKAGE); current = current.getSuperclass()) {
+				for (Field field : current.getDeclaredFields()) {
+					int modifiers = field.getModifiers();
+					if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+						continue;
+					}
+					if (serializeMemberInstruction.shouldSerializeMember(current, field.getName()) == ShouldSerializeMemberInstruction.DO_NOT_SERIALIZE) {
+						continue;
+					}
+					field.setAccessible(true);
+					fieldList.add(field);
+				}
+			}
+			if ((current != Object.class) && !Collection.class.isAssignableFrom(current) && !Map.class.isAssignableFrom(current)) {
+				throw new NotSerializableException(type.getName() + ", the state of " + current.getName() + " can not be stored");
+			}
+			fields = fieldList.toArray(new Field[fieldList.size()]);
+			fieldsPerClass.put(type, fields);
+		}
+		return fields;
+	}
+	
+	private static String getFieldName(Field field) {
+		return field.getDeclaringClass().getName() + "." + field.getName();
+	}
+	
+	/**
+	 * Return the method with the given name and no parameters declared by the
+	 * given class or one of its super classes or null if there is none.
+	 */
+	private static Method getMethod(Class<?> type, String name) {
+		for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+			try {
+				Method method = current.getDeclaredMethod(name);
+				method.setAccessible(true);
+				return method;
+			} catch (NoSuchMethodException e) {
+				// continue with super class
+			}
+		}
+		return null;
+	}
+	
+	private static boolean isPersoSimClass(Class<?> type) {
+		return type.getName().startsWith(SERIALIZED_PACKAGE);
+	}
+	
+	/**
+	 * Check whether the class of the given name may be loaded when reading,
+	 * see {@link PersonalizationBinaryFormat}.
+	 * 
+	 * @param name the name of the class as returned by {@link Class#getName()}
+	 * @return true iff the class may be loaded
+	 */
+	private static boolean isReadableClass(String name) {
+		if (name.startsWith("[")) {
+			String componentName = name.substring(1);
+			if (componentName.startsWith("L") && componentName.endsWith(";")) {
+				return isReadableClass(componentName.substring(1, componentName.length() - 1));
+			}
+			// arrays of primitive types are encoded by a single letter
+			return (componentName.length() == 1) || (componentName.startsWith("[") && isReadableClass(componentName));
+		}
+		return primitiveTypes.containsKey(name) || name.startsWith(SERIALIZED_PACKAGE) || readableJdkClasses.contains(name);
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	
+	/**
+	 * A single write operation, mapping every object already written to its
+	 * handle.
+	 */
+	private static class Writer {
+		
+		private final DataOutputStream out;
+		private final IdentityHashMap<Object, Integer> handles = new IdentityHashMap<>();
+		private final Map<Class<?>, Integer> classIds = new HashMap<>();
+		private final Set<Class<?>> describedClasses = new HashSet<>();
+		private final Map<Class<?>, Method> writeReplaceMethods = new HashMap<>();
+		
+		Writer(DataOutputStream out) {
+			this.out = out;
+		}
+		
+		void writeValue(Object value) throws IOException {
+			if (value == null) {
+				out.writeByte(NULL);
+			} else if (value instanceof Boolean) {
+				out.writeByte(BOOLEAN);
+				out.writeBoolean((Boolean) value);
+			} else if (value instanceof Byte) {
+				out.writeByte(BYTE);
+				out.writeByte((Byte) value);
+			} else if (value instanceof Short) {
+				out.writeByte(SHORT);
+				out.writeShort((Short) value);
+			} else if (value instanceof Character) {
+				out.writeByte(CHARACTER);
+				out.writeChar((Character) value);
+			} else if (value instanceof Integer) {
+				out.writeByte(INTEGER);
+				out.writeInt((Integer) value);
+			} else if (value instanceof Long) {
+				out.writeByte(LONG);
+				out.writeLong((Long) value);
+			} else if (value instanceof Float) {
+				out.writeByte(FLOAT);
+				out.writeFloat((Float) value);
+			} else if (value instanceof Double) {
+				out.writeByte(DOUBLE);
+				out.writeDouble((Double) value);
+			} else if (value instanceof String) {
+				out.writeByte(STRING);
+				writeString((String) value);
+			} else if (value.getClass() == BigInteger.class) {
+				out.writeByte(BIG_INTEGER);
+				writeBytes(((BigInteger) value).toByteArray());
+			} else if (value instanceof Enum) {
+				out.writeByte(ENUM);
+				writeClass(((Enum<?>) value).getDeclaringClass());
+				writeString(((Enum<?>) value).name());
+			} else {
+				Integer handle = handles.get(value);
+				if (handle != null) {
+					out.writeByte(REFERENCE);
+					writeLength(handle);
+				} else {
+					handles.put(value, handles.size());
+					writeObject(replace(value));
+				}
+			}
+		}
+		
+		private Object replace(Object value) throws IOException {
+			Class<?> type = value.getClass();
+			if (!isPersoSimClass(type)) {
+				return value;
+			}
+			if (!writeReplaceMethods.containsKey(type)) {
+				writeReplaceMethods.put(type, getMethod(type, "writeReplace"));
+			}
+			Method writeReplace = writeReplaceMethods.get(type);
+			if (writeReplace == null) {
+				return value;
+			}
+			try {
+				return writeReplace.invoke(value);
+			} catch (ReflectiveOperationException e) {
+				throw new IOException("writeReplace() of " + type.getName() + " failed", e);
+			}
+		}
+		
+		private void writeObject(Object object) throws IOException {
+			Class<?> type = object.getClass();
+			
+			if (type == byte[].class) {
+				out.writeByte(BYTE_ARRAY);
+				writeBytes((byte[]) object);
+			} else if (type.isArray()) {
+				out.writeByte(ARRAY);
+				writeClass(type.getComponentType());
+				int length = Array.getLength(object);
+				if (length > MAX_ARRAY_LENGTH) {
+					throw new NotSerializableException(type.getName() + " with more than " + MAX_ARRAY_LENGTH + " elements");
+				}
+				writeLength(length);
+				for (int i = 0; i < length; i++) {
+					writeValue(Array.get(object, i));
+				}
+			} else if (object instanceof TlvDataObject) {
+				out.writeByte(TLV);
+				out.writeBoolean(object instanceof ConstructedTlvDataObject);
+				writeBytes(((TlvDataObject) object).toByteArray());
+			} else if (object instanceof Protocol) {
+				out.writeByte(PROTOCOL);
+				writeClass(type);
+			} else if (object instanceof AbstractCommandProcessor) {
+				out.writeByte(COMMAND_PROCESSOR);
+				writeValue(((AbstractCommandProcessor) object).getMasterFile());
+				writeValue(((AbstractCommandProcessor) object).getProtocolList());
+			} else if (isPersoSimClass(type)) {
+				writePersoSimObject(object);
+			} else if (object instanceof KeyPair) {
+				out.writeByte(KEY_PAIR);
+				writeValue(((KeyPair) object).getPublic());
+				writeValue(((KeyPair) object).getPrivate());
+			} else if ((object instanceof PublicKey) || (object instanceof PrivateKey)) {
+				out.writeByte((object instanceof PublicKey) ? PUBLIC_KEY : PRIVATE_KEY);
+				writeString(((Key) object).getAlgorithm());
+				writeBytes(((Key) object).getEncoded());
+			} else if (object instanceof ECParameterSpec) {
+				writeEcParameterSpec((ECParameterSpec) object);
+			} else if (object instanceof ECPoint) {
+				out.writeByte(EC_POINT);
+				writePoint((ECPoint) object);
+			} else if (object instanceof Collection) {
+				out.writeByte(COLLECTION);
+				writeClass(type);
+				if (object instanceof SortedSet) {
+					writeValue(((SortedSet<?>) object).comparator());
+				}
+				writeElements((Collection<?>) object);
+			} else if (object instanceof Map) {
+				out.writeByte(MAP);
+				writeClass(type);
+				if (object instanceof SortedMap) {
+					writeValue(((SortedMap<?, ?>) object).comparator());
+				}
+				writeEntries((Map<?, ?>) object);
+			} else if (type == Date.class) {
+				out.writeByte(DATE);
+				out.writeLong(((Date) object).getTime());
+			} else if (object instanceof Serializable) {
+				out.writeByte(SERIALIZED);
+				ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+				try (ObjectOutputStream objectOut = new ObjectOutputStream(serialized)) {
+					objectOut.writeObject(object);
+				}
+				writeBytes(serialized.toByteArray());
+			} else {
+				throw new NotSerializableException(type.getName());
+			}
+		}
+		
+		private void writePersoSimObject(Object object) throws IOException {
+			Class<?> type = object.getClass();
+			Field[] fields = getFields(type);
+			
+			out.writeByte(OBJECT);
+			writeClass(type);
+			if (describedClasses.add(type)) {
+				writeLength(fields.length);
+				for (Field field : fields) {
+					writeClass(field.getDeclaringClass());
+					writeString(field.getName());
+				}
+			}
+			
+			try {
+				for (Field field : fields) {
+					writeValue(field.get(object));
+				}
+			} catch (IllegalAccessException e) {
+				throw new IOException("unable to store " + type.getName(), e);
+			}
+			
+			if (object instanceof Collection) {
+				writeElements((Collection<?>) object);
+			} else if (object instanceof Map) {
+				writeEntries((Map<?, ?>) object);
+			}
+		}
+		
+		private void writeElements(Collection<?> collection) throws IOException {
+			writeLength(collection.size());
+			for (Object element : collection) {
+				writeValue(element);
+			}
+		}
+		
+		private void writeEntries(Map<?, ?> map) throws IOException {
+			writeLength(map.size());
+			for (Entry<?, ?> entry : map.entrySet()) {
+				writeValue(entry.getKey());
+				writeValue(entry.getValue());
+			}
+		}
+		
+		private void writeEcParameterSpec(ECParameterSpec spec) throws IOException {
+			EllipticCurve curve = spec.getCurve();
+			if (!(curve.getField() instanceof ECFieldFp)) {
+				throw new NotSerializableException("only curves over prime fields are supported");
+			}
+			out.writeByte(EC_PARAMETER_SPEC);
+			writeBytes(((ECFieldFp) curve.getField()).getP().toByteArray());
+			writeBytes(curve.getA().toByteArray());
+			writeBytes(curve.getB().toByteArray());
+			writePoint(spec.getGenerator());
+			writeBytes(spec.getOrder().toByteArray());
+			out.writeInt(spec.getCofactor());
+		}
+		
+		private void writePoint(ECPoint point) throws IOException {
+			boolean infinity = ECPoint.POINT_INFINITY.equals(point);
+			out.writeBoolean(infinity);
+			if (!infinity) {
+				writeBytes(point.getAffineX().toByteArray());
+				writeBytes(point.getAffineY().toByteArray());
+			}
+		}
+		
+		private void writeClass(Class<?> type) throws IOException {
+			Integer id = classIds.get(type);
+			if (id != null) {
+				writeLength(id);
+			} else {
+				writeLength(classIds.size());
+				classIds.put(type, classIds.size());
+				writeString(type.getName());
+			}
+		}
+		
+		private void writeString(String string) throws IOException {
+			writeBytes(string.getBytes(StandardCharsets.UTF_8));
+		}
+		
+		private void writeBytes(byte[] bytes) throws IOException {
+			writeLength(bytes.length);
+			out.write(bytes);
+		}
+		
+		/**
+		 * Write a non negative number in 7 bit groups, least significant group
+		 * first, the highest bit of each byte indicates further groups.
+		 */
+		private void writeLength(int length) throws IOException {
+			int remaining = length;
+			while ((remaining & ~0x7F) != 0) {
+				out.writeByte((remaining & 0x7F) | 0x80);
+				remaining >>>= 7;
+			}
+			out.writeByte(remaining);
+		}
+		
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	
+	/**
+	 * A single read operation, mapping every handle to the object read.
+	 */
+	private static class Reader {
+		
+		/** placeholder for objects that are still being read */
+		private static final Object UNRESOLVED = new Object();
+		
+		private final DataInputStream in;
+		private final List<Object> objects = new ArrayList<>();
+		private final List<Class<?>> classes = new ArrayList<>();
+		private final Map<Class<?>, Field[]> descriptors = new HashMap<>();
+		private final Map<Class<?>, Method> readResolveMethods = new HashMap<>();
+		
+		Reader(DataInputStream in) {
+			this.in = in;
+		}
+		
+		Object readValue() throws IOException {
+			int tag = in.readUnsignedByte();
+			switch (tag) {
+			case NULL:
+				return null;
+			case REFERENCE:
+				return readReference();
+			case BOOLEAN:
+				return in.readBoolean();
+			case BYTE:
+				return in.readByte();
+			case SHORT:
+				return in.readShort();
+			case CHARACTER:
+				return in.readChar();
+			case INTEGER:
+				return in.readInt();
+			case LONG:
+				return in.readLong();
+			case FLOAT:
+				return in.readFloat();
+			case DOUBLE:
+				return in.readDouble();
+			case STRING:
+				return readString();
+			case BIG_INTEGER:
+				return new BigInteger(readBytes());
+			case ENUM:
+				return readEnum();
+			default:
+				return readObject(tag);
+			}
+		}
+		
+		private Object readReference() throws IOException {
+			int handle = readLength();
+			if ((handle >= objects.size()) || (objects.get(handle) == UNRESOLVED)) {
+				throw new StreamCorruptedException("invalid reference " + handle);
+			}
+			return objects.get(handle);
+		}
+		
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private Object readEnum() throws IOException {
+			Class<?> type = readClass();
+			String name = readString();
+			if (!type.isEnum()) {
+				throw new InvalidClassException(type.getName(), "not an enum");
+			}
+			try {
+				return Enum.valueOf((Class) type, name);
+			} catch (IllegalArgumentException e) {
+				throw new InvalidObjectException("unknown constant " + name + " of " + type.getName());
+			}
+		}
+		
+		private Object readObject(int tag) throws IOException {
+			int handle = objects.size();
+			objects.add(UNRESOLVED);
+			
+			Object object;
+			switch (tag) {
+			case BYTE_ARRAY:
+				object = readBytes();
+				break;
+			case ARRAY:
+				object = readArray(handle);
+				break;
+			case TLV:
+				object = readTlv();
+				break;
+			case PROTOCOL:
+				object = readProtocol();
+				break;
+			case COMMAND_PROCESSOR:
+				object = readCommandProcessor();
+				break;
+			case OBJECT:
+				object = readPersoSimObject(handle);
+				break;
+			case KEY_PAIR:
+				object = new KeyPair((PublicKey) readValue(), (PrivateKey) readValue());
+				break;
+			case PUBLIC_KEY:
+			case PRIVATE_KEY:
+				object = readKey(tag == PUBLIC_KEY);
+				break;
+			case EC_PARAMETER_SPEC:
+				object = readEcParameterSpec();
+				break;
+			case EC_POINT:
+				object = readPoint();
+				break;
+			case COLLECTION:
+				object = readCollection(handle);
+				break;
+			case MAP:
+				object = readMap(handle);
+				break;
+			case DATE:
+				object = new Date(in.readLong());
+				break;
+			case SERIALIZED:
+				object = readSerialized();
+				break;
+			default:
+				throw new StreamCorruptedException("unknown tag " + tag);
+			}
+			
+			objects.set(handle, object);
+			return object;
+		}
+		
+		private Object readArray(int handle) throws IOException {
+			Class<?> componentType = readClass();
+			int length = readLength();
+			if (length > MAX_ARRAY_LENGTH) {
+				throw new StreamCorruptedException("array length " + length + " exceeds " + MAX_ARRAY_LENGTH);
+			}
+			Object array = Array.newInstance(componentType, length);
+			objects.set(handle, array);
+			try {
+				for (int i = 0; i < length; i++) {
+					Array.set(array, i, readValue());
+				}
+			} catch (IllegalArgumentException e) {
+				throw new InvalidObjectException("invalid element of " + componentType.getName() + " array");
+			}
+			return array;
+		}
+		
+		private Object readTlv() throws IOException {
+			boolean constructed = in.readBoolean();
+			byte[] encoding = readBytes();
+			try {
+				return constructed ? new ConstructedTlvDataObject(encoding) : new PrimitiveTlvDataObject(encoding);
+			} catch (RuntimeException e) {
+				throw new InvalidObjectException("invalid TLV data object " + e.getMessage());
+			}
+		}
+		
+		private Object readProtocol() throws IOException {
+			Class<?> type = readClass();
+			if (!Protocol.class.isAssignableFrom(type)) {
+				throw new InvalidClassException(type.getName(), "not a protocol");
+			}
+			try {
+				return type.newInstance();
+			} catch (ReflectiveOperationException e) {
+				throw new InvalidClassException(type.getName(), "protocol can not be instantiated");
+			}
+		}
+		
+		@SuppressWarnings("unchecked")
+		private Object readCommandProcessor() throws IOException {
+			MasterFile masterFile = (MasterFile) readValue();
+			List<Protocol> protocols = (List<Protocol>) readValue();
+			if ((masterFile == null) || (protocols == null)) {
+				throw new InvalidObjectException("command processor without master file or protocols");
+			}
+			try {
+				return new CommandProcessor(protocols, masterFile);
+			} catch (Exception e) {
+				throw new IOException("unable to create command processor", e);
+			}
+		}
+		
+		private Object readPersoSimObject(int handle) throws IOException {
+			Class<?> type = readClass();
+			Field[] fields = descriptors.get(type);
+			if (fields == null) {
+				fields = readDescriptor(type);
+				descriptors.put(type, fields);
+			}
+			
+			Object object;
+			try {
+				if ((Collection.class.isAssignableFrom(type)) || (Map.class.isAssignableFrom(type))) {
+					// PersoSim collections need to be constructed in order to initialize the inherited state
+					object = type.getConstructor().newInstance();
+				} else {
+					object = CardSnapshot.allocateInstance(type);
+				}
+			} catch (ReflectiveOperationException e) {
+				throw new InvalidClassException(type.getName(), "can not be instantiated");
+			}
+			objects.set(handle, object);
+			
+			for (Field field : fields) {
+				Object value = readValue();
+				if (field != null) {
+					try {
+						field.set(object, value);
+					} catch (IllegalArgumentException | IllegalAccessException e) {
+						throw new InvalidClassException(type.getName(), "incompatible value of field " + field.getName());
+					}
+				}
+			}
+			
+			if (object instanceof Collection) {
+				readElements(object);
+			} else if (object instanceof Map) {
+				readEntries(object);
+			}
+			
+			return resolve(object);
+		}
+		
+		/**
+		 * Read the names of the fields stored for the given class and map them
+		 * to the fields of the class, unknown fields are mapped to null.
+		 */
+		private Field[] readDescriptor(Class<?> type) throws IOException {
+			Map<String, Field> fieldsByName = new HashMap<>();
+			for (Field field : getFields(type)) {
+				fieldsByName.put(getFieldName(field), field);
+			}
+			
+			int noOfFields = readLength();
+			List<Field> fields = new ArrayList<>(Math.min(noOfFields, MAX_PREALLOCATED_LENGTH));
+			for (int i = 0; i < noOfFields; i++) {
+				String declaringClassName = readClass().getName();
+				fields.add(fieldsByName.get(declaringClassName + "." + readString()));
+			}
+			return fields.toArray(new Field[noOfFields]);
+		}
+		
+		private Object resolve(Object object) throws IOException {
+			Class<?> type = object.getClass();
+			if (!readResolveMethods.containsKey(type)) {
+				readResolveMethods.put(type, getMethod(type, "readResolve"));
+			}
+			Method readResolve = readResolveMethods.get(type);
+			if (readResolve == null) {
+				return object;
+			}
+			try {
+				return readResolve.invoke(object);
+			} catch (ReflectiveOperationException e) {
+				throw new IOException("readResolve() of " + type.getName() + " failed", e);
+			}
+		}
+		
+		private Object readKey(boolean publicKey) throws IOException {
+			String algorithm = readString();
+			byte[] encoding = readBytes();
+			try {
+				KeyFactory keyFactory = KeyFactory.getInstance(algorithm, Crypto.getCryptoProvider());
+				if (publicKey) {
+					return keyFactory.generatePublic(new X509EncodedKeySpec(encoding));
+				} else {
+					return keyFactory.generatePrivate(new PKCS8EncodedKeySpec(encoding));
+				}
+			} catch (Exception e) {
+				throw new IOException("unable to create " + algorithm + " key", e);
+			}
+		}
+		
+		private Object readEcParameterSpec() throws IOException {
+			BigInteger p = new BigInteger(readBytes());
+			BigInteger a = new BigInteger(readBytes());
+			BigInteger b = new BigInteger(readBytes());
+			ECPoint generator = readPoint();
+			BigInteger order = new BigInteger(readBytes());
+			int cofactor = in.readInt();
+			return new ECParameterSpec(new EllipticCurve(new ECFieldFp(p), a, b), generator, order, cofactor);
+		}
+		
+		private ECPoint readPoint() throws IOException {
+			if (in.readBoolean()) {
+				return ECPoint.POINT_INFINITY;
+			}
+			return new ECPoint(new BigInteger(readBytes()), new BigInteger(readBytes()));
+		}
+		
+		@SuppressWarnings("unchecked")
+		private Object readCollection(int handle) throws IOException {
+			Class<?> type = readClass();
+			Collection<Object> collection;
+			if (SortedSet.class.isAssignableFrom(type)) {
+				collection = new TreeSet<>((Comparator<Object>) readValue());
+			} else {
+				collection = (Collection<Object>) newInstance(type);
+				if (collection == null) {
+					collection = Set.class.isAssignableFrom(type) ? new LinkedHashSet<>() : new ArrayList<>();
+				}
+			}
+			objects.set(handle, collection);
+			readElements(collection);
+			return collection;
+		}
+		
+		@SuppressWarnings("unchecked")
+		private Object readMap(int handle) throws IOException {
+			Class<?> type = readClass();
+			Map<Object, Object> map;
+			if (SortedMap.class.isAssignableFrom(type)) {
+				map = new TreeMap<>((Comparator<Object>) readValue());
+			} else {
+				map = (Map<Object, Object>) newInstance(type);
+				if (map == null) {
+					map = new LinkedHashMap<>();
+				}
+			}
+			objects.set(handle, map);
+			readEntries(map);
+			return map;
+		}
+		
+		@SuppressWarnings("unchecked")
+		private void readElements(Object collection) throws IOException {
+			Collection<Object> elements = (Collection<Object>) collection;
+			elements.clear();
+			int size = readLength();
+			for (int i = 0; i < size; i++) {
+				elements.add(readValue());
+			}
+		}
+		
+		@SuppressWarnings("unchecked")
+		private void readEntries(Object map) throws IOException {
+			Map<Object, Object> entries = (Map<Object, Object>) map;
+			entries.clear();
+			int size = readLength();
+			for (int i = 0; i < size; i++) {
+				Object key = readValue();
+				entries.put(key, readValue());
+			}
+		}
+		
+		/**
+		 * @return a new instance of the given class or null if the class has no public default constructor
+		 */
+		private static Object newInstance(Class<?> type) throws IOException {
+			try {
+				return type.getConstructor().newInstance();
+			} catch (NoSuchMethodException | IllegalAccessException e) {
+				return null;
+			} catch (ReflectiveOperationException e) {
+				throw new InvalidClassException(type.getName(), "can not be instantiated");
+			}
+		}
+		
+		private Object readSerialized() throws IOException {
+			try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(readBytes())) {
+				@Override
+				protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+					return loadClass(desc.getName());
+				}
+				
+				@Override
+				protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+					throw new InvalidClassException("proxy classes are not supported");
+				}
+			}) {
+				return objectIn.readObject();
+			} catch (ClassNotFoundException e) {
+				throw new InvalidClassException(e.getMessage(), "class not found");
+			}
+		}
+		
+		private Class<?> readClass() throws IOException {
+			int id = readLength();
+			if (id < classes.size()) {
+				return classes.get(id);
+			}
+			if (id > classes.size()) {
+				throw new StreamCorruptedException("invalid class id " + id);
+			}
+			String name = readString();
+			try {
+				Class<?> type = loadClass(name);
+				classes.add(type);
+				return type;
+			} catch (ClassNotFoundException e) {
+				throw new InvalidClassException(name, "class not found");
+			}
+		}
+		
+		private static Class<?> loadClass(String name) throws IOException, ClassNotFoundException {
+			if (!isReadableClass(name)) {
+				throw new InvalidClassException(name, "class is not allowed in binary personalizations");
+			}
+			Class<?> primitiveType = primitiveTypes.get(name);
+			if (primitiveType != null) {
+				return primitiveType;
+			}
+			try {
+				return Class.forName(name, false, PersonalizationBinaryFormat.class.getClassLoader());
+			} catch (ClassNotFoundException e) {
+				ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+				if (contextClassLoader == null) {
+					throw e;
+				}
+				return Class.forName(name, false, contextClassLoader);
+			}
+		}
+		
+		private String readString() throws IOException {
+			return new String(readBytes(), StandardCharsets.UTF_8);
+		}
+		
+		/**
+		 * Read a byte array written by {@link Writer#writeBytes(byte[])}. The
+		 * array only grows as data is actually read, so a corrupted length
+		 * causes an {@link java.io.EOFException} instead of allocating memory
+		 * for data that is not present.
+		 */
+		private byte[] readBytes() throws IOException {
+			int length = readLength();
+			byte[] bytes = new byte[Math.min(length, MAX_PREALLOCATED_LENGTH)];
+			in.readFully(bytes);
+			while (bytes.length < length) {
+				int offset = bytes.length;
+				bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * offset));
+				in.readFully(bytes, offset, bytes.length - offset);
+			}
+			return bytes;
+		}
+		
+		/**
+		 * Read a number written by {@link Writer#writeLength(int)}.
+		 */
+		private int readLength() throws IOException {
+			int length = 0;
+			for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+				int current = in.readUnsignedByte();
+				length |= (current & 0x7F) << shift;
+				if ((current & 0x80) == 0) {
+					if (length < 0) {
+						throw new StreamCorruptedException("negative length " + length);
+					}
+					return length;
+				}
+			}
+			throw new StreamCorruptedException("invalid length");
+		}
+		
+	}
+	
+}
@@ -0,0 +1,191 @@
+package de.persosim.simulator.perso;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class caches personalizations parsed from files in order to avoid
+ * parsing the same file again whenever it is selected.
+ * <p/>
+ * Entries are keyed by the canonical path of the file. A cached entry is
+ * used as long as modification time and size of the file are unchanged. If
+ * only the modification time changed, the entry is still used if the SHA-256
+ * digest of the file content matches the digest of the content that was
+ * parsed. The cache holds at most the given number of entries, the least
+ * recently used entry is evicted first.
+ * <p/>
+ * Cached personalizations are never handed out, callers always receive an
+ * independent copy (see {@link CardSnapshot}), so cards created from the same
+ * cache entry never share mutable state.
+ * <p/>
+ * All methods are thread safe.
+ */
+public class PersonalizationCache {
+	
+	public static final int DEFAULT_CAPACITY = 16;
+	
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+	
+	private final LinkedHashMap<String, CacheEntry> entries;
+	
+	/**
+	 * Create an empty cache.
+	 * @param capacity the maximum number of cached personalizations
+	 */
+	public PersonalizationCache(final int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		entries = new LinkedHashMap<String, CacheEntry>(capacity, 0.75f, true) {
+			
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+				return size() > capacity;
+			}
+			
+		};
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	
+	/**
+	 * Return a copy of the personalization cached for the given file.
+	 * @param file the file the personalization was parsed from
+	 * @return a new copy of the cached personalization or null if the cache
+	 *         holds no personalization for the current content of the file
+	 */
+	public Personalization get(File file) {
+		String key;
+		try {
+			key = file.getCanonicalPath();
+		} catch (IOException e) {
+			return null;
+		}
+		
+		CacheEntry entry;
+		synchronized (this) {
+			entry = entries.get(key);
+		}
+		if (entry == null) {
+			return null;
+		}
+		
+		long lastModified = file.lastModified();
+		long length = file.length();
+		if (length != entry.length) {
+			remove(key, entry);
+			return null;
+		}
+		if (lastModified != entry.lastModified) {
+			try {
+				if (!Arrays.equals(entry.digest, digest(file))) {
+					remove(key, entry);
+					return null;
+				}
+			} catch (IOException e) {
+				remove(key, entry);
+				return null;
+			}
+			// same content, avoid hashing the file on subsequent requests
+			synchronized (this) {
+				if (entries.get(key) == entry) {
+					entries.put(key, new CacheEntry(lastModified, length, entry.digest, entry.personalization));
+				}
+			}
+		}
+		
+		return CardSnapshot.copy(entry.personalization);
+	}
+	
+	/**
+	 * Store a copy of the given personalization for the given file.
+	 * <p/>
+	 * The personalization must not have been used yet, i.e. it must be in the
+	 * state it had directly after parsing. The caller keeps ownership of the
+	 * given object, later changes of it do not affect the cache.
+	 *
+	 * @param file the file the personalization was parsed from
+	 * @param personalization the parsed personalization
+	 * @throws IOException if the file can not be read
+	 */
+	public void put(File file, Personalization personalization) throws IOException {
+		if (personalization == null) {
+			throw new IllegalArgumentException("personalization must not be null");
+		}
+		
+		long lastModified = file.lastModified();
+		long length = file.length();
+		CacheEntry entry = new CacheEntry(lastModified, length, digest(file), CardSnapshot.copy(personalization));
+		
+		synchronized (this) {
+			entries.put(file.getCanonicalPath(), entry);
+		}
+	}
+	
+	/**
+	 * Remove all cached personalizations.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+	
+	/**
+	 * @return the number of cached personalizations
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+	
+	private synchronized void remove(String key, CacheEntry entry) {
+		if (entries.get(key) == entry) {
+			entries.remove(key);
+		}
+	}
+	
+	private static byte[] digest(File file) throws IOException {
+		MessageDigest messageDigest;
+		try {
+			messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(DIGEST_ALGORITHM + " is not supported", e);
+		}
+		
+		try (InputStream in = new FileInputStream(file)) {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) >= 0) {
+				messageDigest.update(buffer, 0, read);
+			}
+		}
+		return messageDigest.digest();
+	}
+	
+	/**
+	 * A cached personalization together with the file attributes it is valid for.
+	 */
+	private static class CacheEntry {
+		
+		final long lastModified;
+		final long length;
+		final byte[] digest;
+		final Personalization personalization;
+		
+		CacheEntry(long lastModified, long length, byte[] digest, Personalization personalization) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.digest = digest;
+			this.personalization = personalization;
+		}
+		
+	}
+	
+}
@@ -1,12 +1,19 @@
 package de.persosim.simulator.perso;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.util.regex.Pattern;
 
 import org.globaltester.lib.xstream.XstreamFactory;
 import org.globaltester.logging.BasicLogger;
@@ -16,7 +23,6 @@ import org.osgi.util.tracker.ServiceTracker;
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.converters.Converter;
 import com.thoughtworks.xstream.core.util.CompositeClassLoader;
-import com.thoughtworks.xstream.io.xml.DomDriver;
 
 import de.persosim.simulator.Activator;
 import de.persosim.simulator.perso.xstream.CommandProcessorConverter;
@@ -26,6 +32,7 @@ import de.persosim.simulator.perso.xstream.KeyConverter;
 import de.persosim.simulator.perso.xstream.KeyPairConverter;
 import de.persosim.simulator.perso.xstream.ProtocolConverter;
 import de.persosim.simulator.perso.xstream.TlvConverter;
+import de.persosim.simulator.utils.StreamingXmlDriver;
 
 /**
  * This class provides methods that serializes/deserializes personalization objects
@@ -35,25 +42,21 @@ import de.persosim.simulator.perso.xstream.TlvConverter;
  */
 public class PersonalizationFactory {
 	
+	//TODO find a alternative to suppress the class attribute, created by xStream, if element is a type of Key
+	private static final Pattern KEY_CLASS_ATTRIBUTE = Pattern.compile("class=\"org.*[Kk]ey\"");
+	
 	/**
 	 * This method serializes the personalization object and writes it into a given writer
 	 * @param pers object which contains the whole personalization
 	 * @param writer object which will be filled with the serialized personalization
 	 */
 	public static void marshal(Object pers, StringWriter writer) throws NullPointerException {
-		if (pers == null) {
-			throw new NullPointerException ("Personalization object is null!");
+		try {
+			marshalXml(pers, writer);
+		} catch (IOException e) {
+			// a StringWriter does not throw IOExceptions
+			throw new IllegalStateException(e);
 		}
-		XStream xstream = getXStream();
-		xstream.autodetectAnnotations(true);
-		
-		StringWriter xmlWriter = new StringWriter();
-		xstream.toXML (pers, xmlWriter);
-		
-		//TODO find a alternative to suppress the class attribute, created by xStream, if element is a type of Key
-		String xmlRepresentation = xmlWriter.toString();
-		xmlRepresentation = xmlRepresentation.replaceAll("class=\"org.*[Kk]ey\"", "");
-		writer.append(xmlRepresentation);
 	}
 	
 	public static void marshal (Object pers, String path) {		
@@ -67,20 +70,41 @@ public class PersonalizationFactory {
 	}	
 	
 	public static void marshal (Object pers, FileWriter file) throws NullPointerException {
-		StringWriter writer = new StringWriter();
-		marshal (pers, writer);
+		if (pers == null) {
+			throw new NullPointerException ("Personalization object is null!");
+		}
 		if (file == null) {
 			throw new NullPointerException ("FileWriter object is null!");
 		} 
 		try {
-			file.write (writer.toString());
-			file.flush();
+			Writer bufferedWriter = new BufferedWriter(file);
+			marshalXml (pers, bufferedWriter);
+			bufferedWriter.flush();
 			file.close();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 	
+	/**
+	 * This method serializes the personalization object and streams the XML
+	 * into the given writer, without holding the complete XML in memory
+	 * @param pers object which contains the whole personalization
+	 * @param writer the writer to be filled with the serialized personalization
+	 * @throws IOException if writing fails
+	 */
+	private static void marshalXml(Object pers, Writer writer) throws IOException {
+		if (pers == null) {
+			throw new NullPointerException ("Personalization object is null!");
+		}
+		XStream xstream = getXStream();
+		xstream.autodetectAnnotations(true);
+		
+		KeyClassAttributeFilter filter = new KeyClassAttributeFilter(writer);
+		xstream.toXML (pers, filter);
+		filter.finish();
+	}
+	
 	/**
 	 * This method deserializes the personalization object
 	 * @param reader object which the personalization
@@ -101,7 +125,51 @@ public class PersonalizationFactory {
 		} else{
 			throw new FileNotFoundException ("File at " + path + " NOT found");
 		}
-		return unmarshal (new FileReader(path));
+		Reader reader = new FileReader(path);
+		try {
+			return unmarshal (reader);
+		} finally {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				BasicLogger.logException(PersonalizationFactory.class, e, BasicLogger.WARN);
+			}
+		}
+	}
+	
+	/**
+	 * This method serializes the personalization object into a file using the
+	 * binary format described in {@link PersonalizationBinaryFormat}
+	 * @param pers object which contains the whole personalization
+	 * @param path the file to be written
+	 * @throws IOException if the personalization can not be written
+	 */
+	public static void marshalBinary(Object pers, String path) throws IOException {
+		if (pers == null) {
+			throw new NullPointerException ("Personalization object is null!");
+		}
+		try (OutputStream out = new FileOutputStream(path)) {
+			PersonalizationBinaryFormat.write(pers, out);
+		}
+	}
+	
+	/**
+	 * This method deserializes the personalization object from a file in the
+	 * binary format described in {@link PersonalizationBinaryFormat}
+	 * @param path the file containing the personalization
+	 * @return a object with a deserialized personalization
+	 * @throws IOException if the file does not exist or does not contain a valid binary personalization
+	 */
+	public static Object unmarshalBinary(String path) throws IOException {
+		File binaryFile = new File(path);
+		if (binaryFile.exists()) {
+			BasicLogger.log(PersonalizationFactory.class, "File at " + path + " found");
+		} else{
+			throw new FileNotFoundException ("File at " + path + " NOT found");
+		}
+		try (InputStream in = new FileInputStream(binaryFile)) {
+			return PersonalizationBinaryFormat.read(in);
+		}
 	}
 	
 	/**
@@ -110,10 +178,10 @@ public class PersonalizationFactory {
 	 */
 	private static XStream getXStream() {
 		
-		DomDriver domDriver = new DomDriver("UTF-8");
+		StreamingXmlDriver driver = new StreamingXmlDriver();
 		ShouldSerializeMemberImpl ssm = new ShouldSerializeMemberImpl();
-		XStream xstream = XstreamFactory.get(domDriver, ssm, PersonalizationFactory.class.getClassLoader());
-
+		XStream xstream = XstreamFactory.get(driver, ssm, PersonalizationFactory.class.getClassLoader());
+		
 		xstream.setMode(XStream.XPATH_RELATIVE_REFERENCES);
 		xstream.setMode(XStream.ID_REFERENCES);
 		
@@ -145,13 +213,72 @@ public class PersonalizationFactory {
 				availableConverters.append(" none");
 			}
 			serviceTracker.close();
-
+			
 			BasicLogger.log(PersonalizationFactory.class, availableConverters.toString());
 		} else {
 			BasicLogger.log(PersonalizationFactory.class,
 					"Could not get the bundle context, no Converter services added to XStream");
 		}
-
+		
 		return xstream;
 	}
+	
+	/**
+	 * This writer removes the class attribute XStream creates for keys. The
+	 * XML is filtered line by line while it is written, as the attribute never
+	 * spans more than one line.
+	 */
+	private static class KeyClassAttributeFilter extends Writer {
+		
+		private final Writer out;
+		private final StringBuilder line = new StringBuilder();
+		
+		KeyClassAttributeFilter(Writer out) {
+			this.out = out;
+		}
+		
+		@Override
+		public void write(char[] buffer, int offset, int length) throws IOException {
+			int lineStart = offset;
+			for (int i = offset; i < offset + length; i++) {
+				if (buffer[i] == '\n') {
+					line.append(buffer, lineStart, i + 1 - lineStart);
+					writeLine();
+					lineStart = i + 1;
+				}
+			}
+			line.append(buffer, lineStart, offset + length - lineStart);
+		}
+		
+		/**
+		 * Flushes the underlying writer, an incomplete last line is retained
+		 * until it is complete or {@link #finish()} is called.
+		 */
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+		
+		@Override
+		public void close() throws IOException {
+			finish();
+			out.close();
+		}
+		
+		/**
+		 * Write the last line and flush the underlying writer.
+		 * @throws IOException if writing fails
+		 */
+		void finish() throws IOException {
+			writeLine();
+			out.flush();
+		}
+		
+		private void writeLine() throws IOException {
+			out.write(KEY_CLASS_ATTRIBUTE.matcher(line).replaceAll(""));
+			line.setLength(0);
+		}
+		
+	}
+	
 }
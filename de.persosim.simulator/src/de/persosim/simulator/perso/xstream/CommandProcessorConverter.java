@@ -76,6 +76,9 @@ public class CommandProcessorConverter implements Converter {
 
 	@Override
 	public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+		// converters are reused for all command processors within a stream
+		masterFile = null;
+		protocols = null;
 		if (reader.getNodeName().toLowerCase().endsWith("commandprocessor")) {
 			getValuesFromXML(reader, context);
 		}
@@ -91,6 +91,11 @@ public class ECParameterSpecConverter implements Converter {
 	public Object unmarshal(HierarchicalStreamReader reader,
 			UnmarshallingContext context) {
 		
+		// converters are reused for all parameter specs within a stream
+		h = 0;
+		n = null;
+		curve = null;
+		point = null;
 		if (reader.getNodeName().toLowerCase().endsWith("ecparameterspec")) {
 			getValuesFromXML(reader, context);
 		}
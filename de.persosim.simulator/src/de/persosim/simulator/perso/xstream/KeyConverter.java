@@ -91,6 +91,10 @@ public class KeyConverter implements Converter {
 		PrivateKey sk = null;
 		PublicKey pk = null;
 		
+		// converters are reused for all keys within a stream
+		keyType = "";
+		algorithmValue = "";
+		byteValue = "";
 		getValuesFromXML (reader, context);
 		
 		if (byteValue == null || algorithmValue == null || algorithmValue.equals("") || byteValue.equals("")) {
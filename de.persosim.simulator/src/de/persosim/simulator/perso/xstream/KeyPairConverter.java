@@ -71,6 +71,9 @@ public class KeyPairConverter implements Converter {
 	public Object unmarshal(HierarchicalStreamReader reader,
 			UnmarshallingContext context) {
 
+		// converters are reused for all key pairs within a stream
+		sk = null;
+		pk = null;
 		if (reader.getNodeName().toLowerCase().endsWith("keypair")) {
 			getValuesFromXML (reader, context);
 		}
@@ -33,20 +33,17 @@ public class TlvConverter implements Converter {
 	public Object unmarshal(HierarchicalStreamReader reader,
 			UnmarshallingContext context) {	
 		byte [] data = HexString.toByteArray(reader.getValue());
-		String currentError = null;
 		
+		// decide by the tag instead of trying to parse the data twice
+		boolean constructed = (data.length > 0) && ((data[0] & 0x20) != 0);
 		try {
-			return new ConstructedTlvDataObject(data);
+			if (constructed) {
+				return new ConstructedTlvDataObject(data);
+			} else {
+				return new PrimitiveTlvDataObject(data);
+			}
 		} catch (Exception e) {
-			currentError = "Object could not be unmarshalled as constructed tlv data.";
+			throw new XStreamException ("Object could not be unmarshalled as " + (constructed ? "constructed" : "primitive") + " tlv data.", e);
 		}
-		
-		try {
-			return new PrimitiveTlvDataObject(data);
-		} catch (Exception e) {
-			currentError = "Object could not be unmarshalled as primitive or constructed tlv data.";
-		}
-		
-		throw new XStreamException (currentError);
 	}
 }
@@ -6,11 +6,10 @@ import static org.globaltester.logging.BasicLogger.logException;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.NoSuchElementException;
 
 import de.persosim.simulator.apdu.ResponseApdu;
+import de.persosim.simulator.apdumatching.ApduSpecification;
 import de.persosim.simulator.cardobjects.MasterFile;
 import de.persosim.simulator.exception.AccessDeniedException;
 import de.persosim.simulator.exception.ProcessingException;
@@ -118,6 +117,7 @@ public abstract class AbstractCommandProcessor extends Layer implements
 	 */
 	public void addProtocol(Protocol newProtocol) {
 		protocols.add(newProtocol);
+		dispatchTable = null;
 	}
 
 	// --------------------------------------------------------
@@ -162,6 +162,18 @@ public abstract class AbstractCommandProcessor extends Layer implements
 	 * the list of known/supported protocols
 	 */
 	protected transient int protocolPointer;
+	
+	/**
+	 * the compiled {@link ApduSpecification}s of all protocols, created on first use
+	 */
+	private transient ApduDispatchTable dispatchTable;
+	
+	/**
+	 * the protocols of {@link #protocols} to be offered the current APDU and
+	 * the position of the next one to be offered
+	 */
+	private transient int[] candidateProtocols;
+	private transient int candidatePointer;
 
 	public void setStackPointerToBottom() {
 		this.stackPointer = 0;
@@ -209,8 +221,17 @@ public abstract class AbstractCommandProcessor extends Layer implements
 	}
 
 	public void currentProtocolProcess() {
-		log(this, "protocol chosen for processing is: " + getCurrentlyActiveProtocol().getProtocolName()); 
-		getCurrentlyActiveProtocol().process(processingData);
+		Protocol protocol = getCurrentlyActiveProtocol();
+		log(this, "protocol chosen for processing is: " + protocol.getProtocolName()); 
+		
+		ProcessingMetrics metrics = ProcessingMetrics.getInstance();
+		if (metrics.isEnabled()) {
+			long start = System.nanoTime();
+			protocol.process(processingData);
+			metrics.recordProtocol(protocol.getProtocolName(), System.nanoTime() - start);
+		} else {
+			protocol.process(processingData);
+		}
 	}
 
 	/**
@@ -222,19 +243,19 @@ public abstract class AbstractCommandProcessor extends Layer implements
 	 *         requests removal of the current protocol.
 	 */
 	public boolean isProtocolFinished() {
-		LinkedList<UpdatePropagation> protocolUpdates = processingData
+		List<UpdatePropagation> protocolUpdates = processingData
 				.getUpdatePropagations(ProtocolUpdate.class);
 
-		try {
-			UpdatePropagation lastProtocolUpdate = protocolUpdates.getLast();
+		if (protocolUpdates.isEmpty()) {
+			return false;
+		}
 
-			if (lastProtocolUpdate != null
-					&& lastProtocolUpdate instanceof ProtocolUpdate) {
-				return ((ProtocolUpdate) lastProtocolUpdate).isFinished();
-			} else {
-				return false;
-			}
-		} catch (NoSuchElementException e) {
+		UpdatePropagation lastProtocolUpdate = protocolUpdates.get(protocolUpdates.size() - 1);
+
+		if (lastProtocolUpdate != null
+				&& lastProtocolUpdate instanceof ProtocolUpdate) {
+			return ((ProtocolUpdate) lastProtocolUpdate).isFinished();
+		} else {
 			return false;
 		}
 	}
@@ -286,21 +307,61 @@ public abstract class AbstractCommandProcessor extends Layer implements
 	/**
 	 * Method used from within state machine code.
 	 * <p/>
-	 * Resets {@link #protocolPointer} to point at first protocol in the
-	 * {@link #protocols protocol list}.
+	 * Resets {@link #protocolPointer} to point at the first protocol in the
+	 * {@link #protocols protocol list} that may be able to process the current
+	 * APDU according to the {@link ApduDispatchTable}.
 	 */
 	public void setProtocolPointerToFirstElementOfProtocolList() {
-		protocolPointer = 0;
+		candidateProtocols = getDispatchTable().getCandidates(processingData);
+		candidatePointer = 0;
+		moveProtocolPointerToNextCandidate(0);
 	}
 
 	/**
 	 * Method used from within state machine code.
 	 * <p/>
 	 * Increments {@link #protocolPointer} to point at the next protocol in the
-	 * {@link #protocols protocol list}.
+	 * {@link #protocols protocol list} that may be able to process the current
+	 * APDU according to the {@link ApduDispatchTable}.
 	 */
 	public void setProtocolPointerToNextElementOfProtocolList() {
-		protocolPointer++;
+		moveProtocolPointerToNextCandidate(protocolPointer + 1);
+	}
+	
+	/**
+	 * Moves {@link #protocolPointer} to the next protocol to be offered the
+	 * current APDU or behind the end of the {@link #protocols protocol list}.
+	 * Protocols on the stack that are skipped, because none of their
+	 * {@link ApduSpecification}s matches the APDU, are reset as if they had
+	 * been offered the APDU.
+	 * 
+	 * @param firstSkipped the index of the first protocol that may be skipped
+	 */
+	private void moveProtocolPointerToNextCandidate(int firstSkipped) {
+		int next = protocols.size();
+		if (candidatePointer < candidateProtocols.length) {
+			next = candidateProtocols[candidatePointer++];
+		}
+		
+		for (int i = firstSkipped; i < next; i++) {
+			Protocol skippedProtocol = protocols.get(i);
+			if (protocolStack.contains(skippedProtocol)) {
+				skippedProtocol.reset();
+			}
+		}
+		
+		protocolPointer = next;
+	}
+	
+	/**
+	 * Returns the {@link ApduDispatchTable} for the current
+	 * {@link #protocols protocol list}.
+	 */
+	private ApduDispatchTable getDispatchTable() {
+		if ((dispatchTable == null) || (dispatchTable.getNoOfProtocols() != protocols.size())) {
+			dispatchTable = new ApduDispatchTable(protocols);
+		}
+		return dispatchTable;
 	}
 
 	/**
@@ -393,6 +454,7 @@ public abstract class AbstractCommandProcessor extends Layer implements
 	@Override
 	public void init() {
 		protocolStack = new ArrayList<>();
+		dispatchTable = null;
 		stackPointer = 0;
 		reset();
 		initialized = true;
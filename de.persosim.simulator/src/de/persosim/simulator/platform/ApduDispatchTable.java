@@ -0,0 +1,184 @@
+package de.persosim.simulator.platform;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import de.persosim.simulator.apdu.CommandApdu;
+import de.persosim.simulator.apdumatching.ApduSpecification;
+import de.persosim.simulator.apdumatching.ApduSpecificationConstants;
+import de.persosim.simulator.processing.ProcessingData;
+import de.persosim.simulator.protocols.AbstractProtocolStateMachine;
+import de.persosim.simulator.protocols.Protocol;
+import de.persosim.simulator.tlv.TlvDataObjectContainer;
+
+/**
+ * This class holds the {@link ApduSpecification}s of all protocols of a
+ * command processor compiled into a table indexed by the INS byte. It is used
+ * to determine which protocols of the protocol list need to be offered a
+ * command APDU, instead of resetting every protocol and letting it probe all
+ * its specifications.
+ * <p/>
+ * For every INS byte the table lists the protocols whose specifications may
+ * match an APDU with this INS byte, together with these specifications. The
+ * remaining parameters (CLA, P1, P2, ISO case, secure messaging, command data
+ * etc.) are checked against these specifications only, the command data field
+ * is parsed at most once per APDU. Protocols that do not provide their
+ * specifications (i.e. all protocols not derived from
+ * {@link AbstractProtocolStateMachine} or without registered specifications)
+ * are offered every APDU.
+ * <p/>
+ * The table reflects the specifications at the time it was created, it needs
+ * to be recreated when the protocol list changes.
+ */
+public class ApduDispatchTable implements ApduSpecificationConstants {
+	
+	private static final int NO_OF_INS_VALUES = 256;
+	
+	private final int noOfProtocols;
+	
+	/*
+	 * Per INS byte the indices of the candidate protocols in ascending order
+	 * and their specifications to be matched, null for protocols that are
+	 * offered every APDU.
+	 */
+	private final int[][] candidatesPerIns;
+	private final ApduSpecification[][][] specificationsPerIns;
+	
+	/**
+	 * Compile the specifications of the given protocols.
+	 * @param protocols the protocol list of the command processor, the
+	 *            protocols are expected to be initialized
+	 */
+	public ApduDispatchTable(List<Protocol> protocols) {
+		noOfProtocols = protocols.size();
+		candidatesPerIns = new int[NO_OF_INS_VALUES][];
+		specificationsPerIns = new ApduSpecification[NO_OF_INS_VALUES][][];
+		
+		List<List<ApduSpecification>> specificationsPerProtocol = new ArrayList<>(noOfProtocols);
+		for (Protocol protocol : protocols) {
+			specificationsPerProtocol.add(getSpecifications(protocol));
+		}
+		
+		for (int ins = 0; ins < NO_OF_INS_VALUES; ins++) {
+			List<Integer> candidates = new ArrayList<>();
+			List<ApduSpecification[]> specifications = new ArrayList<>();
+			
+			for (int i = 0; i < noOfProtocols; i++) {
+				List<ApduSpecification> protocolSpecifications = specificationsPerProtocol.get(i);
+				if (protocolSpecifications == null) {
+					candidates.add(i);
+					specifications.add(null);
+					continue;
+				}
+				
+				List<ApduSpecification> matchingSpecifications = new ArrayList<>();
+				for (ApduSpecification specification : protocolSpecifications) {
+					if (mayMatchIns(specification, (byte) ins)) {
+						matchingSpecifications.add(specification);
+					}
+				}
+				if (!matchingSpecifications.isEmpty()) {
+					candidates.add(i);
+					specifications.add(matchingSpecifications.toArray(new ApduSpecification[matchingSpecifications.size()]));
+				}
+			}
+			
+			candidatesPerIns[ins] = new int[candidates.size()];
+			for (int i = 0; i < candidates.size(); i++) {
+				candidatesPerIns[ins][i] = candidates.get(i);
+			}
+			specificationsPerIns[ins] = specifications.toArray(new ApduSpecification[specifications.size()][]);
+		}
+	}
+	
+	/**
+	 * @return the specifications of the given protocol or null if the protocol
+	 *         does not provide its specifications
+	 */
+	private static List<ApduSpecification> getSpecifications(Protocol protocol) {
+		if (!(protocol instanceof AbstractProtocolStateMachine)) {
+			return null;
+		}
+		Collection<ApduSpecification> specifications = ((AbstractProtocolStateMachine) protocol).getApduSpecifications();
+		if (specifications.isEmpty()) {
+			return null;
+		}
+		return new ArrayList<>(specifications);
+	}
+	
+	private static boolean mayMatchIns(ApduSpecification specification, byte ins) {
+		switch (specification.getReqIns()) {
+		case REQ_MATCH:
+			return specification.getIns() == ins;
+		case REQ_MISMATCH:
+			return specification.getIns() != ins;
+		default:
+			return true;
+		}
+	}
+	
+	/**
+	 * Return the protocols to be offered the command APDU contained in the
+	 * given processing data. If the processing data does not contain a
+	 * command APDU or reports an error all protocols are returned.
+	 *
+	 * @param processingData the processing data of the current APDU
+	 * @return the indices of the protocols within the protocol list in ascending order
+	 */
+	public int[] getCandidates(ProcessingData processingData) {
+		CommandApdu apdu = processingData.getCommandApdu();
+		if ((apdu == null) || processingData.isReportingError()) {
+			int[] all = new int[noOfProtocols];
+			for (int i = 0; i < noOfProtocols; i++) {
+				all[i] = i;
+			}
+			return all;
+		}
+		
+		int ins = apdu.getIns() & 0xFF;
+		int[] candidates = candidatesPerIns[ins];
+		ApduSpecification[][] specifications = specificationsPerIns[ins];
+		
+		int[] result = new int[candidates.length];
+		int noOfResults = 0;
+		TlvDataObjectContainer commandData = null;
+		boolean commandDataParsed = false;
+		
+		for (int i = 0; i < candidates.length; i++) {
+			if (specifications[i] == null) {
+				result[noOfResults++] = candidates[i];
+				continue;
+			}
+			
+			for (ApduSpecification specification : specifications[i]) {
+				if (!specification.matchesHeader(apdu)) {
+					continue;
+				}
+				if (!specification.getTags().isEmpty() && !commandDataParsed) {
+					commandData = ApduSpecification.parseCommandData(apdu);
+					commandDataParsed = true;
+				}
+				if (specification.matchesCommandData(commandData)) {
+					result[noOfResults++] = candidates[i];
+					break;
+				}
+			}
+		}
+		
+		if (noOfResults == result.length) {
+			return result;
+		}
+		int[] trimmed = new int[noOfResults];
+		System.arraycopy(result, 0, trimmed, 0, noOfResults);
+		return trimmed;
+	}
+	
+	/**
+	 * @return the number of protocols this table was compiled for
+	 */
+	public int getNoOfProtocols() {
+		return noOfProtocols;
+	}
+	
+}
@@ -1,7 +1,7 @@
 package de.persosim.simulator.platform;
 
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.List;
 
 import de.persosim.simulator.apdu.CommandApdu;
 import de.persosim.simulator.apdu.CommandApduFactory;
@@ -31,7 +31,7 @@ public class IoManager extends Layer {
 	
 	@Override
 	public void processAscending() {
-		LinkedList<UpdatePropagation> hardwareCommandUpdates = processingData.getUpdatePropagations(HardwareCommandApduPropagation.class);
+		List<UpdatePropagation> hardwareCommandUpdates = processingData.getUpdatePropagations(HardwareCommandApduPropagation.class);
 		
 		//update processingData for every HardwareCommandApduUpdate with a newCommandApdu
 		for (Iterator<UpdatePropagation> iterator = hardwareCommandUpdates.iterator(); iterator
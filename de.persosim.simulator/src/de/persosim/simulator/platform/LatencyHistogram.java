@@ -0,0 +1,152 @@
+package de.persosim.simulator.platform;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class implements a histogram of latencies in nanoseconds with
+ * logarithmic buckets of constant relative precision (similar to
+ * HdrHistogram). Values below {@value #LINEAR_LIMIT} are counted exactly,
+ * larger values are counted in {@value #SUB_BUCKETS} buckets per power of
+ * two, i.e. all percentiles are reported with an error of at most about 3%.
+ * <p/>
+ * Recording is lock-free and may be done concurrently by any number of
+ * threads. Reading is not atomic with respect to concurrent recording, i.e.
+ * figures read while recording is in progress may miss the most recent
+ * values.
+ */
+public class LatencyHistogram {
+	
+	static final int SUB_BUCKET_BITS = 5;
+	static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	static final int LINEAR_LIMIT = SUB_BUCKETS << 1;
+	private static final int BUCKETS = LINEAR_LIMIT + (Long.SIZE - 2 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+	
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder total = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+	
+	/**
+	 * Record a single latency.
+	 * @param nanos the latency in nanoseconds, negative values are recorded as 0
+	 */
+	public void record(long nanos) {
+		long value = Math.max(nanos, 0);
+		counts.incrementAndGet(getBucket(value));
+		count.increment();
+		total.add(value);
+		
+		long currentMax = max.get();
+		while ((value > currentMax) && !max.compareAndSet(currentMax, value)) {
+			currentMax = max.get();
+		}
+	}
+	
+	/**
+	 * @return the number of recorded values
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+	
+	/**
+	 * @return the sum of all recorded values in nanoseconds
+	 */
+	public long getTotal() {
+		return total.sum();
+	}
+	
+	/**
+	 * @return the mean of all recorded values in nanoseconds, 0 if no value has been recorded
+	 */
+	public double getMean() {
+		long currentCount = getCount();
+		return (currentCount == 0) ? 0 : (double) getTotal() / currentCount;
+	}
+	
+	/**
+	 * @return the largest recorded value in nanoseconds
+	 */
+	public long getMax() {
+		return max.get();
+	}
+	
+	/**
+	 * Return the value below or at which the given percentage of all recorded
+	 * values lies. The returned value is the upper bound of the bucket
+	 * containing the percentile, limited to the largest recorded value.
+	 *
+	 * @param percentile
+	 *            the percentile within 0 and 100
+	 * @return the percentile in nanoseconds, 0 if no value has been recorded
+	 */
+	public long getPercentile(double percentile) {
+		if ((percentile < 0) || (percentile > 100)) {
+			throw new IllegalArgumentException("percentile must be within 0 and 100");
+		}
+		
+		long[] snapshot = new long[BUCKETS];
+		long snapshotCount = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			snapshotCount += snapshot[i];
+		}
+		if (snapshotCount == 0) {
+			return 0;
+		}
+		
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * snapshotCount));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return Math.min(getUpperBound(i), getMax());
+			}
+		}
+		return getMax();
+	}
+	
+	/**
+	 * Discard all recorded values. Values recorded concurrently may be
+	 * partially retained.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		count.reset();
+		total.reset();
+		max.set(0);
+	}
+	
+	/**
+	 * Return the index of the bucket counting the given value.
+	 * @param value a non negative value
+	 * @return the bucket index
+	 */
+	static int getBucket(long value) {
+		if (value < LINEAR_LIMIT) {
+			return (int) value;
+		}
+		int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+		return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + subBucket;
+	}
+	
+	/**
+	 * Return the largest value counted by the given bucket.
+	 * @param bucket the bucket index
+	 * @return the largest value of the bucket
+	 */
+	static long getUpperBound(int bucket) {
+		if (bucket < LINEAR_LIMIT) {
+			return bucket;
+		}
+		int shift = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+		long subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+	
+}
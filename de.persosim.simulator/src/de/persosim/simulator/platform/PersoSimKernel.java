@@ -3,7 +3,6 @@ package de.persosim.simulator.platform;
 import static org.globaltester.logging.BasicLogger.TRACE;
 import static org.globaltester.logging.BasicLogger.log;
 
-import java.util.LinkedList;
 import java.util.List;
 
 import org.globaltester.logging.InfoSource;
@@ -14,6 +13,7 @@ import de.persosim.simulator.perso.Personalization;
 import de.persosim.simulator.processing.ProcessingData;
 import de.persosim.simulator.processing.UpdatePropagation;
 import de.persosim.simulator.utils.HexString;
+import de.persosim.simulator.utils.LazyLogger;
 import de.persosim.simulator.utils.Utils;
 
 /**
@@ -86,6 +86,9 @@ public class PersoSimKernel implements InfoSource {
 	 * This method represents the simulator's actual core. APDUs and
 	 * accompanying ProcessingData-Objects are propagated through all available
 	 * layers from bottom to the top and back down again.
+	 * <p/>
+	 * Processing times of all layers and of the complete APDU are recorded in
+	 * {@link ProcessingMetrics#getInstance()} if enabled.
 	 * 
 	 * @param commandApduData
 	 *            the APDU that was recently received
@@ -95,9 +98,14 @@ public class PersoSimKernel implements InfoSource {
 		log(this, "processing incoming APDU", TRACE);
 		log("Processing APDU: " + HexString.encode(commandApduData));
 		log(HexString.encode(commandApduData), LogTags.APDU_TAG_IN);
-		log(this, "incoming APDU:\n" + HexString.dump(commandApduData), TRACE);
+		LazyLogger.log(this, () -> "incoming APDU:\n" + HexString.dump(commandApduData), TRACE);
 		
-		ProcessingData processingData = new ProcessingData();
+		ProcessingMetrics metrics = ProcessingMetrics.getInstance();
+		boolean measure = metrics.isEnabled();
+		long apduStart = measure ? System.nanoTime() : 0;
+		
+		// a new object for every APDU, protocols rely on this to detect new APDUs
+		ProcessingData processingData = new ProcessingData(false);
 		processingData.addUpdatePropagation(this, "initial hardware info", new HardwareCommandApduPropagation(commandApduData));
 		
 		//propagate the event all layers up
@@ -105,19 +113,27 @@ public class PersoSimKernel implements InfoSource {
 		Layer currentLayer;
 		for (; curLayerId < layers.size(); curLayerId++) {
 			currentLayer = layers.get(curLayerId);
+			long layerStart = measure ? System.nanoTime() : 0;
 			currentLayer.processAscending(processingData);
+			if (measure) {
+				metrics.recordLayer(currentLayer.getLayerName(), true, System.nanoTime() - layerStart);
+			}
 		}
 		
 		//propagate the event all layers down
 		for (curLayerId--; curLayerId >= 0; curLayerId--) {
 			currentLayer = layers.get(curLayerId);
+			long layerStart = measure ? System.nanoTime() : 0;
 			currentLayer.processDescending(processingData);
+			if (measure) {
+				metrics.recordLayer(currentLayer.getLayerName(), false, System.nanoTime() - layerStart);
+			}
 		}
 		
 		//extract prepared response
 		byte[] responseApduData;
-		LinkedList<UpdatePropagation> hardwareResponses = processingData.getUpdatePropagations(HardwareResponseApduPropagation.class);
-		UpdatePropagation lastHardwareResponseUpdate = hardwareResponses.getLast();
+		List<UpdatePropagation> hardwareResponses = processingData.getUpdatePropagations(HardwareResponseApduPropagation.class);
+		UpdatePropagation lastHardwareResponseUpdate = hardwareResponses.isEmpty() ? null : hardwareResponses.get(hardwareResponses.size() - 1);
 		
 		if (lastHardwareResponseUpdate != null && lastHardwareResponseUpdate instanceof HardwareResponseApduPropagation) {
 			responseApduData =  ((HardwareResponseApduPropagation)lastHardwareResponseUpdate).getResponseApdu();
@@ -125,8 +141,15 @@ public class PersoSimKernel implements InfoSource {
 			responseApduData = Utils.toUnsignedByteArray(Iso7816.SW_6F00_UNKNOWN+0x45);
 		}
 		
+		if (measure) {
+			int ins = (commandApduData.length > 1) ? commandApduData[1] & 0xFF : -1;
+			int length = responseApduData.length;
+			int sw = (length > 1) ? ((responseApduData[length - 2] & 0xFF) << 8) | (responseApduData[length - 1] & 0xFF) : 0;
+			metrics.recordApdu(ins, sw, System.nanoTime() - apduStart);
+		}
+		
 		log(this, "finished processing APDU");
-		log(this, "outgoing APDU:\n" + HexString.dump(responseApduData), TRACE);
+		LazyLogger.log(this, () -> "outgoing APDU:\n" + HexString.dump(responseApduData), TRACE);
 		log(HexString.encode(responseApduData), LogTags.APDU_TAG_OUT);
 		return responseApduData;
 		
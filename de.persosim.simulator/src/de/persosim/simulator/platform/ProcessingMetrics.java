@@ -0,0 +1,197 @@
+package de.persosim.simulator.platform;
+
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import de.persosim.simulator.utils.HexString;
+
+/**
+ * This class collects counters and latency histograms of the APDU processing
+ * of all {@link PersoSimKernel} instances. Figures are kept per layer and
+ * direction, per protocol, per instruction byte and per status word of the
+ * response.
+ * <p/>
+ * Recording is lock-free, see {@link LatencyHistogram}. Recording can be
+ * disabled at runtime, in this case the kernel does not even read the clock.
+ * <p/>
+ * The instance returned by {@link #getInstance()} is registered as OSGi
+ * service and can be inspected with the console command "metrics".
+ */
+public class ProcessingMetrics {
+	
+	private static final ProcessingMetrics instance = new ProcessingMetrics();
+	
+	private static final double[] PERCENTILES = {50, 90, 99};
+	
+	private volatile boolean enabled = true;
+	
+	private final ConcurrentMap<String, LatencyHistogram> layersAscending = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, LatencyHistogram> layersDescending = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, LatencyHistogram> protocols = new ConcurrentHashMap<>();
+	private final AtomicReferenceArray<LatencyHistogram> instructions = new AtomicReferenceArray<>(256);
+	private final ConcurrentMap<Integer, LatencyHistogram> statusWords = new ConcurrentHashMap<>();
+	
+	/**
+	 * @return the metrics shared by all kernels
+	 */
+	public static ProcessingMetrics getInstance() {
+		return instance;
+	}
+	
+	/**
+	 * @return true iff processing times are currently recorded
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+	
+	/**
+	 * Enable or disable recording. Figures recorded so far are kept.
+	 * @param enabled whether processing times are to be recorded
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+	
+	/**
+	 * Record the time a layer spent processing an APDU.
+	 * @param layerName the name of the layer, see {@link Layer#getLayerName()}
+	 * @param ascending true for the processing of the command APDU, false for the response APDU
+	 * @param nanos the processing time in nanoseconds
+	 */
+	public void recordLayer(String layerName, boolean ascending, long nanos) {
+		getHistogram(ascending ? layersAscending : layersDescending, layerName).record(nanos);
+	}
+	
+	/**
+	 * Record the time a protocol spent processing an APDU.
+	 * @param protocolName the name of the protocol
+	 * @param nanos the processing time in nanoseconds
+	 */
+	public void recordProtocol(String protocolName, long nanos) {
+		getHistogram(protocols, protocolName).record(nanos);
+	}
+	
+	/**
+	 * Record the time the kernel spent processing a complete APDU.
+	 * @param ins the instruction byte of the command APDU, negative if the command APDU is too short
+	 * @param statusWord the status word of the response APDU
+	 * @param nanos the processing time in nanoseconds
+	 */
+	public void recordApdu(int ins, int statusWord, long nanos) {
+		if (ins >= 0) {
+			int index = ins & 0xFF;
+			LatencyHistogram histogram = instructions.get(index);
+			// retry if reset() removed the histogram created concurrently by another thread
+			while (histogram == null) {
+				LatencyHistogram newHistogram = new LatencyHistogram();
+				histogram = instructions.compareAndSet(index, null, newHistogram) ? newHistogram : instructions.get(index);
+			}
+			histogram.record(nanos);
+		}
+		getHistogram(statusWords, statusWord & 0xFFFF).record(nanos);
+	}
+	
+	/**
+	 * @param layerName the name of the layer
+	 * @param ascending true for the processing of the command APDU, false for the response APDU
+	 * @return the histogram of the layer or null if nothing has been recorded
+	 */
+	public LatencyHistogram getLayerHistogram(String layerName, boolean ascending) {
+		return (ascending ? layersAscending : layersDescending).get(layerName);
+	}
+	
+	/**
+	 * @param protocolName the name of the protocol
+	 * @return the histogram of the protocol or null if nothing has been recorded
+	 */
+	public LatencyHistogram getProtocolHistogram(String protocolName) {
+		return protocols.get(protocolName);
+	}
+	
+	/**
+	 * @param ins the instruction byte
+	 * @return the histogram of complete APDUs with this instruction byte or null if nothing has been recorded
+	 */
+	public LatencyHistogram getInstructionHistogram(int ins) {
+		return instructions.get(ins & 0xFF);
+	}
+	
+	/**
+	 * @param statusWord the status word
+	 * @return the histogram of complete APDUs answered with this status word or null if nothing has been recorded
+	 */
+	public LatencyHistogram getStatusWordHistogram(int statusWord) {
+		return statusWords.get(statusWord & 0xFFFF);
+	}
+	
+	/**
+	 * Discard all recorded figures.
+	 */
+	public void reset() {
+		layersAscending.clear();
+		layersDescending.clear();
+		protocols.clear();
+		for (int i = 0; i < instructions.length(); i++) {
+			instructions.set(i, null);
+		}
+		statusWords.clear();
+	}
+	
+	/**
+	 * Return a human readable report of all recorded figures, one line per
+	 * layer, protocol, instruction byte and status word. Times are given in
+	 * microseconds.
+	 *
+	 * @return the report
+	 */
+	public String getReport() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%-32s %10s %10s %10s %10s %10s %10s%n", "", "count", "mean us", "p50 us", "p90 us", "p99 us", "max us"));
+		
+		for (Entry<String, LatencyHistogram> entry : new TreeMap<>(layersAscending).entrySet()) {
+			appendLine(report, "layer " + entry.getKey() + " ascending", entry.getValue());
+		}
+		for (Entry<String, LatencyHistogram> entry : new TreeMap<>(layersDescending).entrySet()) {
+			appendLine(report, "layer " + entry.getKey() + " descending", entry.getValue());
+		}
+		for (Entry<String, LatencyHistogram> entry : new TreeMap<>(protocols).entrySet()) {
+			appendLine(report, "protocol " + entry.getKey(), entry.getValue());
+		}
+		for (int i = 0; i < instructions.length(); i++) {
+			LatencyHistogram histogram = instructions.get(i);
+			if (histogram != null) {
+				appendLine(report, "INS " + HexString.hexifyByte(i), histogram);
+			}
+		}
+		for (Entry<Integer, LatencyHistogram> entry : new TreeMap<>(statusWords).entrySet()) {
+			appendLine(report, "SW " + HexString.hexifyShort(entry.getKey()), entry.getValue());
+		}
+		
+		return report.toString();
+	}
+	
+	private static void appendLine(StringBuilder report, String name, LatencyHistogram histogram) {
+		report.append(String.format("%-32s %10d %10.1f", name, histogram.getCount(), histogram.getMean() / 1000));
+		for (double percentile : PERCENTILES) {
+			report.append(String.format(" %10.1f", histogram.getPercentile(percentile) / 1000.0));
+		}
+		report.append(String.format(" %10.1f%n", histogram.getMax() / 1000.0));
+	}
+	
+	private static <K> LatencyHistogram getHistogram(ConcurrentMap<K, LatencyHistogram> histograms, K key) {
+		LatencyHistogram histogram = histograms.get(key);
+		if (histogram == null) {
+			LatencyHistogram newHistogram = new LatencyHistogram();
+			histogram = histograms.putIfAbsent(key, newHistogram);
+			if (histogram == null) {
+				histogram = newHistogram;
+			}
+		}
+		return histogram;
+	}
+	
+}
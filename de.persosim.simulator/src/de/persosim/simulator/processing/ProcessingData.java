@@ -4,8 +4,11 @@ import static org.globaltester.logging.BasicLogger.TRACE;
 import static org.globaltester.logging.BasicLogger.WARN;
 import static org.globaltester.logging.BasicLogger.log;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map.Entry;
 
 import org.globaltester.logging.InfoSource;
 
@@ -13,6 +16,7 @@ import de.persosim.simulator.apdu.CommandApdu;
 import de.persosim.simulator.apdu.ResponseApdu;
 import de.persosim.simulator.platform.Iso7816;
 import de.persosim.simulator.platform.PlatformUtil;
+import de.persosim.simulator.utils.LazyLogger;
 
 /**
  * The primary purpose of this class is to store data about an APDU which
@@ -29,10 +33,32 @@ public class ProcessingData implements Iso7816, InfoSource {
 	protected CommandApdu commandApdu;
 	protected ResponseApdu responseApdu;
 	
-	protected HashMap<Class<? extends UpdatePropagation>, LinkedList<UpdatePropagation>> updatePropagations = new HashMap<>();
+	/** UpdatePropagations indexed by the slot of their key, see {@link UpdatePropagationSlots} */
+	@SuppressWarnings("unchecked")
+	protected LinkedList<UpdatePropagation>[] updatePropagations = (LinkedList<UpdatePropagation>[]) new LinkedList<?>[UpdatePropagationSlots.size()];
 	
+	protected final boolean recordHistory;
 	protected LinkedList<ProcessingStateUpdate> processingHistory = new LinkedList<>();
 	
+	/**
+	 * Create a new ProcessingData that records the history of all state
+	 * updates.
+	 */
+	public ProcessingData() {
+		this(true);
+	}
+	
+	/**
+	 * Create a new ProcessingData.
+	 * 
+	 * @param recordHistory
+	 *            whether the history of all state updates is recorded, see
+	 *            {@link #getProcessingHistory()}
+	 */
+	public ProcessingData(boolean recordHistory) {
+		this.recordHistory = recordHistory;
+	}
+	
 	/*--------------------------------------------------------------------------------*/
 	/* Variables concerning APDU processing status */
 	/*--------------------------------------------------------------------------------*/
@@ -68,62 +94,32 @@ public class ProcessingData implements Iso7816, InfoSource {
 	 */
 	public void updateProcessingState(InfoSource source, String message, ProcessingStateDelta... update) {
 		//log modifications accordingly
-		log(source, "Update processing state with " + update.length + " deltas.", TRACE);
-		log(source, "Update message\n" + message, TRACE);
+		LazyLogger.log(source, () -> "Update processing state with " + update.length + " deltas.", TRACE);
+		LazyLogger.log(source, () -> "Update message\n" + message, TRACE);
 		for (ProcessingStateDelta curStateDelta : update) {
 			if (curStateDelta != null && curStateDelta.getNrOfModifications() > 0) {
 				// add to state history
-				processingHistory.add(new ProcessingStateUpdate(source, message, curStateDelta));
+				if (recordHistory) {
+					processingHistory.add(new ProcessingStateUpdate(source, message, curStateDelta));
+				}
 
 				//log modifications accordingly
-				log(source, curStateDelta.toString(), TRACE);
+				LazyLogger.log(source, curStateDelta::toString, TRACE);
 				
 				// update command APDU if present
 				if (curStateDelta.getCommandApdu() != null) {
-					
-					//check that current commandApdu is part of history of new commandApdu
-					CommandApdu curPredecessor = curStateDelta.getCommandApdu();
-					while (curPredecessor  != null) {
-						if (curPredecessor == commandApdu) {
-							break;
-						}
-						curPredecessor = curPredecessor.getPredecessor();
-					}
-					if (curPredecessor != commandApdu) {
-						throw new IllegalArgumentException("New CommandApdu must have current CommandApdu in its line of predecessors");
-					}
-					
-					
-					this.commandApdu = curStateDelta.getCommandApdu();
-					log(source, "Command APDU updated\n" + commandApdu, TRACE);
+					setCommandApdu(source, curStateDelta.getCommandApdu());
 				}
 
 				// update response APDU if present
 				if (curStateDelta.getResponseApdu() != null) {
-					this.responseApdu = curStateDelta.getResponseApdu();
-					log(source, "Response APDU updated\n" + responseApdu + "\nreason is: " + message, TRACE);
+					setResponseApdu(source, message, curStateDelta.getResponseApdu());
 				}
 				
 				// update updatePropagations if present
 				if (curStateDelta.getUpdatePropagations() != null) {
-					HashMap<Class<? extends UpdatePropagation>, UpdatePropagation> newPropagations = curStateDelta.getUpdatePropagations();
-					for (Class<? extends UpdatePropagation> curKey : newPropagations.keySet()) {
-						LinkedList<UpdatePropagation> curPropagations = this.updatePropagations.get(curKey);
-						
-						// create new list and add it to the HashMap if needed
-						if (curPropagations == null) {
-							curPropagations = new LinkedList<>();
-							this.updatePropagations.put(curKey, curPropagations);
-						}
-						
-						//skip this propagation if type does not math the curKey
-						UpdatePropagation curNewProp = newPropagations.get(curKey);
-						if (curKey.isInstance(curNewProp)) {
-							// add current new propagation to the list 
-							curPropagations.add(curNewProp);
-						} else {
-							log(this, "Skipping one UpdatePropagation, as type does not match key", WARN);
-						}
+					for (Entry<Class<? extends UpdatePropagation>, UpdatePropagation> curEntry : curStateDelta.getUpdatePropagations().entrySet()) {
+						addToSlot(curEntry.getKey(), curEntry.getValue());
 					}
 				}
 				
@@ -131,16 +127,138 @@ public class ProcessingData implements Iso7816, InfoSource {
 		}
 	}
 	
+	/**
+	 * Replace the current command APDU.
+	 * 
+	 * @param source
+	 *            Source that initiated this update
+	 * @param newCommandApdu
+	 *            the new command APDU, must have the current command APDU in
+	 *            its line of predecessors
+	 */
+	private void setCommandApdu(InfoSource source, CommandApdu newCommandApdu) {
+		//check that current commandApdu is part of history of new commandApdu
+		CommandApdu curPredecessor = newCommandApdu;
+		while (curPredecessor  != null) {
+			if (curPredecessor == commandApdu) {
+				break;
+			}
+			curPredecessor = curPredecessor.getPredecessor();
+		}
+		if (curPredecessor != commandApdu) {
+			throw new IllegalArgumentException("New CommandApdu must have current CommandApdu in its line of predecessors");
+		}
+		
+		this.commandApdu = newCommandApdu;
+		LazyLogger.log(source, () -> "Command APDU updated\n" + commandApdu, TRACE);
+	}
+	
+	/**
+	 * Replace the current response APDU.
+	 * 
+	 * @param source
+	 *            Source that initiated this update
+	 * @param message
+	 *            User readable message shown in log
+	 * @param newResponseApdu
+	 *            the new response APDU
+	 */
+	private void setResponseApdu(InfoSource source, String message, ResponseApdu newResponseApdu) {
+		this.responseApdu = newResponseApdu;
+		LazyLogger.log(source, () -> "Response APDU updated\n" + responseApdu + "\nreason is: " + message, TRACE);
+	}
+	
+	/**
+	 * Add the given UpdatePropagation to the slot of the given key.
+	 * 
+	 * @param key
+	 *            Class used as key
+	 * @param updatePropagation
+	 *            UpdatePropagation to be added, skipped if it is not an
+	 *            instance of key
+	 */
+	private void addToSlot(Class<? extends UpdatePropagation> key, UpdatePropagation updatePropagation) {
+		//skip this propagation if type does not math the key
+		if (key.isInstance(updatePropagation)) {
+			// add current new propagation to the list 
+			getSlot(key).add(updatePropagation);
+		} else {
+			log(this, "Skipping one UpdatePropagation, as type does not match key", WARN);
+		}
+	}
+	
+	/**
+	 * Return the list stored in the slot of the given key, the list is created
+	 * if needed.
+	 * 
+	 * @param key
+	 *            Class used as key
+	 * @return the list of UpdatePropagations for the given key, never null
+	 */
+	private LinkedList<UpdatePropagation> getSlot(Class<? extends UpdatePropagation> key) {
+		int index = UpdatePropagationSlots.getIndex(key);
+		
+		// key types might be registered after creation of this object
+		if (index >= updatePropagations.length) {
+			updatePropagations = Arrays.copyOf(updatePropagations, Math.max(index + 1, UpdatePropagationSlots.size()));
+		}
+		
+		LinkedList<UpdatePropagation> curPropagations = updatePropagations[index];
+		if (curPropagations == null) {
+			curPropagations = new LinkedList<>();
+			updatePropagations[index] = curPropagations;
+		}
+		
+		return curPropagations;
+	}
+	
 	public boolean isProcessingFinished() {
 		return (responseApdu != null && !PlatformUtil.is4xxxStatusWord(responseApdu.getStatusWord())) ;
 	}
 
 	public void updateCommandApdu(InfoSource source, String message, CommandApdu commandApdu) {
-		updateProcessingState(source, message, new ProcessingStateDelta(commandApdu));
+		if (recordHistory || commandApdu == null) {
+			updateProcessingState(source, message, new ProcessingStateDelta(commandApdu));
+			return;
+		}
+		
+		// shortcut avoiding the ProcessingStateDelta if no history is recorded
+		logSingleUpdate(source, message);
+		setCommandApdu(source, commandApdu);
 	}
 
 	public void updateResponseAPDU(InfoSource source, String message, ResponseApdu respApdu) {
-		updateProcessingState(source, message, new ProcessingStateDelta(respApdu));
+		if (recordHistory || respApdu == null) {
+			updateProcessingState(source, message, new ProcessingStateDelta(respApdu));
+			return;
+		}
+		
+		// shortcut avoiding the ProcessingStateDelta if no history is recorded
+		logSingleUpdate(source, message);
+		setResponseApdu(source, message, respApdu);
+	}
+	
+	/**
+	 * Log a state update consisting of a single modification in the same way
+	 * as {@link #updateProcessingState(InfoSource, String, ProcessingStateDelta...)} does.
+	 * 
+	 * @param source
+	 *            Source that initiated this update
+	 * @param message
+	 *            User readable message shown in log
+	 */
+	private void logSingleUpdate(InfoSource source, String message) {
+		log(source, "Update processing state with 1 deltas.", TRACE);
+		LazyLogger.log(source, () -> "Update message\n" + message, TRACE);
+	}
+	
+	/**
+	 * Return the history of all state updates incorporated into this object.
+	 * 
+	 * @return the history of state updates, empty if no history is recorded
+	 */
+	public List<ProcessingStateUpdate> getProcessingHistory() {
+		return Collections.unmodifiableList(processingHistory);
 	}
 
 	@Override
@@ -161,20 +279,23 @@ public class ProcessingData implements Iso7816, InfoSource {
 	 * updateProcessingState} method.
 	 * 
 	 * 
+	 * The returned List is an unmodifiable view, later updates of this object
+	 * are reflected in it.
+	 * 
 	 * @param key
 	 *            Class for which UpdatePrpopagations are requested
 	 * @return possibly empty List, but never null
 	 */
-	public LinkedList<UpdatePropagation> getUpdatePropagations(
+	public List<UpdatePropagation> getUpdatePropagations(
 			Class<? extends UpdatePropagation> key) {
-		LinkedList<UpdatePropagation> retVal = updatePropagations.get(key);
+		int index = UpdatePropagationSlots.getIndex(key);
 		
-		//ensure reVal is not null
-		if (retVal == null) {
-			retVal = new LinkedList<>();
+		// do not create slots for lookups of absent keys
+		if (index >= updatePropagations.length || updatePropagations[index] == null) {
+			return Collections.emptyList();
 		}
-
-		return retVal;
+		
+		return Collections.unmodifiableList(updatePropagations[index]);
 	}
 
 	/**
@@ -194,7 +315,14 @@ public class ProcessingData implements Iso7816, InfoSource {
 	 */
 	public void addUpdatePropagation(InfoSource source, String message,
 			UpdatePropagation updatePropagation) {
-		updateProcessingState(source, message, new ProcessingStateDelta(updatePropagation));
+		if (recordHistory || updatePropagation == null) {
+			updateProcessingState(source, message, new ProcessingStateDelta(updatePropagation));
+			return;
+		}
+		
+		// shortcut avoiding the ProcessingStateDelta if no history is recorded
+		logSingleUpdate(source, message);
+		addToSlot(updatePropagation.getKey(), updatePropagation);
 	}
 
 }
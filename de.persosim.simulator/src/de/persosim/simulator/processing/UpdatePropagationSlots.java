@@ -0,0 +1,44 @@
+package de.persosim.simulator.processing;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class assigns a unique slot index to every {@link UpdatePropagation}
+ * type used as key. {@link ProcessingData} uses these indices to store
+ * {@link UpdatePropagation}s in an array instead of a map.
+ * <p/>
+ * Indices are assigned on first use and stay stable for the lifetime of the
+ * key class.
+ */
+final class UpdatePropagationSlots {
+	
+	private static final AtomicInteger noOfSlots = new AtomicInteger();
+	
+	private static final ClassValue<Integer> slots = new ClassValue<Integer>() {
+		@Override
+		protected Integer computeValue(Class<?> type) {
+			return noOfSlots.getAndIncrement();
+		}
+	};
+	
+	private UpdatePropagationSlots() {
+		// utility class, not to be instantiated
+	}
+	
+	/**
+	 * This method returns the slot index of the provided key.
+	 * @param key the class used as key for {@link UpdatePropagation}s
+	 * @return the slot index of the key
+	 */
+	static int getIndex(Class<? extends UpdatePropagation> key) {
+		return slots.get(key);
+	}
+	
+	/**
+	 * @return the number of slot indices assigned so far
+	 */
+	static int size() {
+		return noOfSlots.get();
+	}
+	
+}
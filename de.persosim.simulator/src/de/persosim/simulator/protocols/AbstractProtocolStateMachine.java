@@ -24,6 +24,7 @@ import de.persosim.simulator.statemachine.AbstractStateMachine;
 import de.persosim.simulator.tlv.TlvDataObject;
 import de.persosim.simulator.tlv.TlvPath;
 import de.persosim.simulator.tlv.TlvTag;
+import de.persosim.simulator.utils.LazyLogger;
 
 /**
  * Generic super class for {@link Protocol} implementations with state machine code.
@@ -103,9 +104,19 @@ public abstract class AbstractProtocolStateMachine extends AbstractStateMachine
 		this.apdus.put(apduSpecification.getId(), apduSpecification);
 	}
 	
+	/**
+	 * Returns the {@link ApduSpecification}s registered by this protocol.
+	 * 
+	 * @return the registered specifications, may be empty if the protocol has
+	 *         not been initialized yet
+	 */
+	public Collection<ApduSpecification> getApduSpecifications() {
+		return apdus.values();
+	}
+	
 	@Override
 	public void logs(String state) {
-		log(this, "State changed to " + state, DEBUG);
+		LazyLogger.log(this, () -> "State changed to " + state, DEBUG);
 	}
 
 	@Override
@@ -161,7 +172,7 @@ public abstract class AbstractProtocolStateMachine extends AbstractStateMachine
 		ApduSpecification apduSpec = apdus.get(apduId);
 		
 		if(apduSpec == null) {
-			log(this, "APDU matching failed due to command \"" + apduId + "\" being unknown", DEBUG);
+			LazyLogger.log(this, () -> "APDU matching failed due to command \"" + apduId + "\" being unknown", DEBUG);
 			return false;
 		}
 		
@@ -173,7 +184,7 @@ public abstract class AbstractProtocolStateMachine extends AbstractStateMachine
 		boolean match = apduSpec.matchesFullApdu(apdu);
 		
 		if(match) {
-			log(this, "received APDU matches definition of command \"" + apduId + "\"", DEBUG);
+			LazyLogger.log(this, () -> "received APDU matches definition of command \"" + apduId + "\"", DEBUG);
 		}
 		
 		return match;
@@ -7,7 +7,6 @@ import java.security.NoSuchAlgorithmException;
 import java.util.Collection;
 import java.util.HashSet;
 
-import org.globaltester.cryptoprovider.Crypto;
 import org.globaltester.logging.InfoSource;
 
 import de.persosim.simulator.cardobjects.CardObject;
@@ -18,6 +17,7 @@ import de.persosim.simulator.cardobjects.ElementaryFile;
 import de.persosim.simulator.cardobjects.FileIdentifier;
 import de.persosim.simulator.cardobjects.MasterFile;
 import de.persosim.simulator.cardobjects.ShortFileIdentifier;
+import de.persosim.simulator.crypto.CryptoInstanceCache;
 import de.persosim.simulator.exception.AccessDeniedException;
 import de.persosim.simulator.exception.ProcessingException;
 import de.persosim.simulator.perso.DefaultPersoGt;
@@ -84,7 +84,7 @@ public class NpaProtocol implements Protocol, Iso7816, InfoSource, TlvConstants
 		
 		//add the concrete hashes
 		try {
-			MessageDigest md = MessageDigest.getInstance(hashAlg, Crypto.getCryptoProvider());
+			MessageDigest md = CryptoInstanceCache.getMessageDigest(hashAlg);
 			
 			DedicatedFileIdentifier eidAppIdentifier = new DedicatedFileIdentifier(
 					HexString.toByteArray(DefaultPersoGt.AID_EID));
@@ -19,8 +19,6 @@ import java.util.HashSet;
 import javax.crypto.KeyAgreement;
 import javax.crypto.spec.SecretKeySpec;
 
-import org.globaltester.cryptoprovider.Crypto;
-
 import de.persosim.simulator.apdu.ResponseApdu;
 import de.persosim.simulator.cardobjects.CardObject;
 import de.persosim.simulator.cardobjects.CardObjectIdentifier;
@@ -30,6 +28,7 @@ import de.persosim.simulator.cardobjects.KeyObject;
 import de.persosim.simulator.cardobjects.KeyPairObject;
 import de.persosim.simulator.cardobjects.MasterFile;
 import de.persosim.simulator.cardobjects.OidIdentifier;
+import de.persosim.simulator.crypto.CryptoInstanceCache;
 import de.persosim.simulator.crypto.CryptoSupport;
 import de.persosim.simulator.crypto.DomainParameterSet;
 import de.persosim.simulator.crypto.KeyDerivationFunction;
@@ -61,6 +60,7 @@ import de.persosim.simulator.tlv.TlvPath;
 import de.persosim.simulator.tlv.TlvTag;
 import de.persosim.simulator.tlv.TlvValue;
 import de.persosim.simulator.utils.HexString;
+import de.persosim.simulator.utils.LazyLogger;
 import de.persosim.simulator.utils.Utils;
 
 /**
@@ -125,7 +125,7 @@ public abstract class AbstractCaProtocol extends AbstractProtocolStateMachine im
 			throw new ProcessingException(PlatformUtil.SW_4A80_WRONG_DATA, e.getMessage());
 		}
 		
-		log(this, "new OID is " + caOid, DEBUG);
+		LazyLogger.log(this, () -> "new OID is " + caOid, DEBUG);
 		return caOid;
 	}
 	
@@ -238,7 +238,7 @@ public abstract class AbstractCaProtocol extends AbstractProtocolStateMachine im
 		
 		try {
 			ephemeralPublicKeyPcd = caDomainParameters.reconstructPublicKey(publicKeyMaterialPcd);
-			log(this, "PCD's  ephemeral public " + keyAgreementAlgorithmName + " key is " + new TlvDataObjectContainer(ephemeralPublicKeyPcd.getEncoded()), TRACE);
+			LazyLogger.log(this, () -> "PCD's  ephemeral public " + keyAgreementAlgorithmName + " key is " + new TlvDataObjectContainer(ephemeralPublicKeyPcd.getEncoded()), TRACE);
 		} catch (IllegalArgumentException e) {
 			throw new ProcessingException(Iso7816.SW_6A80_WRONG_DATA, e.getMessage());
 		} catch (Exception e) {
@@ -264,11 +264,11 @@ public abstract class AbstractCaProtocol extends AbstractProtocolStateMachine im
 			throw new ProcessingException(Iso7816.SW_6982_SECURITY_STATUS_NOT_SATISFIED, "PICC's compressed ephemeral public key from TA is missing. Maybe TA was not performed.");
 		}
 		
-		log(this, "expected compressed PCD's ephemeral public " + keyAgreementAlgorithmName + " key of " + ephemeralPublicKeyPcdCompressedExpected.length + " bytes length is: " + HexString.encode(ephemeralPublicKeyPcdCompressedExpected), DEBUG);
-		log(this, "received compressed PCD's ephemeral public " + keyAgreementAlgorithmName + " key of " + ephemeralPublicKeyPcdCompressedReceived.length + " bytes length is: " + HexString.encode(ephemeralPublicKeyPcdCompressedReceived), DEBUG);
+		LazyLogger.log(this, () -> "expected compressed PCD's ephemeral public " + keyAgreementAlgorithmName + " key of " + ephemeralPublicKeyPcdCompressedExpected.length + " bytes length is: " + HexString.encode(ephemeralPublicKeyPcdCompressedExpected), DEBUG);
+		LazyLogger.log(this, () -> "received compressed PCD's ephemeral public " + keyAgreementAlgorithmName + " key of " + ephemeralPublicKeyPcdCompressedReceived.length + " bytes length is: " + HexString.encode(ephemeralPublicKeyPcdCompressedReceived), DEBUG);
 		
 		if(Arrays.equals(ephemeralPublicKeyPcdCompressedExpected, ephemeralPublicKeyPcdCompressedReceived)) {
-			log(this, "compressed representation of PCD's ephemeral public " + caDomainParameters.getKeyAgreementAlgorithm() + " key matches the one received during previous TA", DEBUG);
+			LazyLogger.log(this, () -> "compressed representation of PCD's ephemeral public " + caDomainParameters.getKeyAgreementAlgorithm() + " key matches the one received during previous TA", DEBUG);
 		} else{
 			throw new ProcessingException(Iso7816.SW_6984_REFERENCE_DATA_NOT_USABLE, "compressed representation of PCD's public " + keyAgreementAlgorithmName + " key does NOT match the one received during previous TA");
 		}
@@ -283,10 +283,10 @@ public abstract class AbstractCaProtocol extends AbstractProtocolStateMachine im
 	protected byte[] performKeyAgreement(PrivateKey staticPrivateKeyPicc, PublicKey ephemeralPublicKeyPcd) {
 		//perform key agreement
 		KeyAgreement keyAgreement;
-		byte[] sharedSecret = null;
+		byte[] sharedSecret;
 		
 		try {
-			keyAgreement = KeyAgreement.getInstance(caOid.getKeyAgreementName(), Crypto.getCryptoProvider());
+			keyAgreement = CryptoInstanceCache.getKeyAgreement(caOid.getKeyAgreementName());
 			keyAgreement.init(staticPrivateKeyPicc);
 			keyAgreement.doPhase(ephemeralPublicKeyPcd, true);
 			sharedSecret = keyAgreement.generateSecret();
@@ -296,7 +296,7 @@ public abstract class AbstractCaProtocol extends AbstractProtocolStateMachine im
 			throw new ProcessingException(Iso7816.SW_6FFF_IMPLEMENTATION_ERROR, e.getMessage());
 		}
 		
-		log(this, "shared secret K of " + sharedSecret.length + " bytes length is: " + HexString.encode(sharedSecret), DEBUG);
+		LazyLogger.log(this, () -> "shared secret K of " + sharedSecret.length + " bytes length is: " + HexString.encode(sharedSecret), DEBUG);
 		
 		return sharedSecret;
 	}
@@ -311,16 +311,16 @@ public abstract class AbstractCaProtocol extends AbstractProtocolStateMachine im
 		int keyLengthInBytes = caOid.getSymmetricCipherKeyLengthInBytes();
 		KeyDerivationFunction kdf = new KeyDerivationFunction(keyLengthInBytes);
 		
-		log(this, "computing " + getIDString() + " session keys", DEBUG);
-		log(this, "shared secret is: " + HexString.encode(sharedSecret), DEBUG);
-		log(this, "nonce is        : " + HexString.encode(rPiccNonce), DEBUG);
-		log(this, "key length specified by " + getIDString() + " OID " + caOid + " is: " + keyLengthInBytes, DEBUG);
+		LazyLogger.log(this, () -> "computing " + getIDString() + " session keys", DEBUG);
+		LazyLogger.log(this, () -> "shared secret is: " + HexString.encode(sharedSecret), DEBUG);
+		LazyLogger.log(this, () -> "nonce is        : " + HexString.encode(rPiccNonce), DEBUG);
+		LazyLogger.log(this, () -> "key length specified by " + getIDString() + " OID " + caOid + " is: " + keyLengthInBytes, DEBUG);
 		
 		byte[] keyMaterialMac = kdf.deriveMAC(sharedSecret, rPiccNonce);
 		byte[] keyMaterialEnc = kdf.deriveENC(sharedSecret, rPiccNonce);
 		
-		log(this, "chip's session key for MAC of " + keyMaterialMac.length + " bytes length is: " + HexString.encode(keyMaterialMac), DEBUG);
-		log(this, "chip's session key for ENC of " + keyMaterialMac.length + " bytes length is: " + HexString.encode(keyMaterialEnc), DEBUG);
+		LazyLogger.log(this, () -> "chip's session key for MAC of " + keyMaterialMac.length + " bytes length is: " + HexString.encode(keyMaterialMac), DEBUG);
+		LazyLogger.log(this, () -> "chip's session key for ENC of " + keyMaterialMac.length + " bytes length is: " + HexString.encode(keyMaterialEnc), DEBUG);
 		
 		secretKeySpecMAC = cryptoSupport.generateSecretKeySpecMac(keyMaterialMac);
 		secretKeySpecENC = cryptoSupport.generateSecretKeySpecCipher(keyMaterialEnc);
@@ -335,7 +335,7 @@ public abstract class AbstractCaProtocol extends AbstractProtocolStateMachine im
 		int nonceSizeInBytes = 8;
 		byte[] rPiccNonce = new byte[nonceSizeInBytes];
 		this.secureRandom.nextBytes(rPiccNonce);
-		log(this, "nonce r_PICC of " + nonceSizeInBytes + " bytes length is: " + HexString.encode(rPiccNonce), DEBUG);
+		LazyLogger.log(this, () -> "nonce r_PICC of " + nonceSizeInBytes + " bytes length is: " + HexString.encode(rPiccNonce), DEBUG);
 		return rPiccNonce;
 	}
 	
@@ -351,9 +351,9 @@ public abstract class AbstractCaProtocol extends AbstractProtocolStateMachine im
 	protected static byte[] computeAuthenticationTokenTpicc(DomainParameterSet caDomainParameters, CaOid caOid, PublicKey ephemeralPublicKeyPcd, CryptoSupport cryptoSupport, SecretKeySpec secretKeySpecMAC) {
 		//compute authentication token T_PICC
 		TlvDataObjectContainer authenticationTokenInput = buildAuthenticationTokenInput(ephemeralPublicKeyPcd, caDomainParameters, caOid);
-		log(AbstractCaProtocol.class, "authentication token raw data " + authenticationTokenInput, DEBUG);
+		LazyLogger.log(AbstractCaProtocol.class, () -> "authentication token raw data " + authenticationTokenInput, DEBUG);
 		byte[] authenticationTokenTpicc = Arrays.copyOf(cryptoSupport.macAuthenticationToken(authenticationTokenInput.toByteArray(), secretKeySpecMAC), 8);
-		log(AbstractCaProtocol.class, "PICC's authentication token T_PICC of " + authenticationTokenTpicc.length + " bytes length is: " + HexString.encode(authenticationTokenTpicc), DEBUG);
+		LazyLogger.log(AbstractCaProtocol.class, () -> "PICC's authentication token T_PICC of " + authenticationTokenTpicc.length + " bytes length is: " + HexString.encode(authenticationTokenTpicc), DEBUG);
 		
 		return authenticationTokenTpicc;
 	}
@@ -376,14 +376,14 @@ public abstract class AbstractCaProtocol extends AbstractProtocolStateMachine im
 	protected TlvValue prepareResponseData(byte[] rPiccNonce, byte[] authenticationTokenTpicc) {
 		//create and prepare response APDU
 		PrimitiveTlvDataObject primitive81 = new PrimitiveTlvDataObject(TAG_81, rPiccNonce);
-		log(this, "primitive tag 81 is: " + primitive81, TRACE);
+		LazyLogger.log(this, () -> "primitive tag 81 is: " + primitive81, TRACE);
 		PrimitiveTlvDataObject primitive82 = new PrimitiveTlvDataObject(TAG_82, authenticationTokenTpicc);
-		log(this, "primitive tag 82 is: " + primitive82, TRACE);
+		LazyLogger.log(this, () -> "primitive tag 82 is: " + primitive82, TRACE);
 		ConstructedTlvDataObject constructed7C = new ConstructedTlvDataObject(TAG_7C);
 		constructed7C.addTlvDataObject(primitive81);
 		constructed7C.addTlvDataObject(primitive82);
 		
-		log(this, "response data to be sent is: " + constructed7C, DEBUG);
+		LazyLogger.log(this, () -> "response data to be sent is: " + constructed7C, DEBUG);
 		
 		//create and propagate response APDU
 		TlvValue responseData = new TlvDataObjectContainer(constructed7C);
@@ -414,11 +414,11 @@ public abstract class AbstractCaProtocol extends AbstractProtocolStateMachine im
 		TlvDataObjectContainer commandData = processingData.getCommandApdu().getCommandDataObjectContainer();
 		
 		//retrieve PCD's public key
-		TlvDataObject tlvObject = commandData.getTlvDataObject(new TlvPath(new TlvTag((byte) 0x7C), new TlvTag((byte) 0x80)));
+		TlvDataObject tlvObject = commandData.getTlvDataObject(new TlvPath(TlvTag.getInstance((byte) 0x7C), TlvTag.getInstance((byte) 0x80)));
 		byte[] pcdPublicKeyMaterial = tlvObject.getValueField();
 		
 		keyAgreementAlgorithmName = caDomainParameters.getKeyAgreementAlgorithm();
-		log(this, "PCD's ephemeral public " + keyAgreementAlgorithmName + " key material of " + pcdPublicKeyMaterial.length + " bytes length is: " + HexString.encode(pcdPublicKeyMaterial), TRACE);
+		LazyLogger.log(this, () -> "PCD's ephemeral public " + keyAgreementAlgorithmName + " key material of " + pcdPublicKeyMaterial.length + " bytes length is: " + HexString.encode(pcdPublicKeyMaterial), TRACE);
 		
 		return pcdPublicKeyMaterial;
 	}
@@ -336,9 +336,9 @@ public abstract class AbstractFileProtocol extends AbstractProtocolStateMachine
 			throw new TagNotFoundException("DDO encapsulation object does not contain enough DDOs.");
 		
 		TlvDataObject candidate = ddoEncapsulation.getTlvObjects().get(ddoNumber);
-		if (candidate.getTlvTag().equals(new TlvTag(ODDINS_COMMAND_TAG)) || 
-				candidate.getTlvTag().equals(new TlvTag(ODDINS_COMMAND_DDO_TAG_73)) || 
-						candidate.getTlvTag().equals(new TlvTag(ODDINS_COMMAND_DDO_TAG_53))){
+		if (candidate.getTlvTag().equals(TlvTag.getInstance(ODDINS_COMMAND_TAG)) || 
+				candidate.getTlvTag().equals(TlvTag.getInstance(ODDINS_COMMAND_DDO_TAG_73)) || 
+						candidate.getTlvTag().equals(TlvTag.getInstance(ODDINS_COMMAND_DDO_TAG_53))){
 			return candidate;
 			}
 		throw new TagNotFoundException("DDO at index " + ddoNumber + " does not have tag " + ODDINS_COMMAND_TAG);
@@ -365,7 +365,7 @@ public abstract class AbstractFileProtocol extends AbstractProtocolStateMachine
 	 * @return the value to be used as file offset
 	 */
 	private int getOffset(TlvDataObjectContainer tlv) {
-		TlvDataObject offset = tlv.getTlvDataObject(new TlvTag(ODDINS_COMMAND_TAG));
+		TlvDataObject offset = tlv.getTlvDataObject(TlvTag.getInstance(ODDINS_COMMAND_TAG));
 		return Utils.getIntFromUnsignedByteArray(offset.getValueField());
 	}
 
@@ -483,20 +483,21 @@ public abstract class AbstractFileProtocol extends AbstractProtocolStateMachine
 	 *            the offset in the file contents
 	 * @param ne
 	 *            the NE fields value
-	 * @param rawFileContents
-	 *            the file contents
-	 * @return the file contents starting with the offset and containing up to
-	 *         NE value bytes of the file
+	 * @param file
+	 *            the file to read from
+	 * @return a view on the file contents starting with the offset and
+	 *         containing up to NE value bytes of the file
 	 * @throws FileToShortException
+	 * @throws AccessDeniedException
 	 */
-	private static byte [] getFileContents(int offset, int ne, byte [] rawFileContents) throws FileToShortException{
-		int bytesToBeRead = Math.min(ne, rawFileContents.length - offset);
+	private static TlvValuePlain getFileContents(int offset, int ne, ElementaryFile file) throws FileToShortException, AccessDeniedException{
+		int bytesToBeRead = Math.min(ne, file.getContentLength() - offset);
 		
 		if (bytesToBeRead < 0) {
 			throw new FileToShortException();
 		}
 
-		return Arrays.copyOfRange(rawFileContents, offset, offset + bytesToBeRead);
+		return file.getContentSlice(offset, bytesToBeRead);
 	}
 	
 	protected void processCommandReadBinary() {
@@ -530,18 +531,18 @@ public abstract class AbstractFileProtocol extends AbstractProtocolStateMachine
 			ElementaryFile binaryFile = (ElementaryFile) file;
 			
 			try {
-				if (offset < binaryFile.getContent().length) {
+				if (offset < binaryFile.getContentLength()) {
 					
-					byte [] data = getFileContents(offset, ne, binaryFile.getContent());
-					boolean shortRead = !zeroEncoded && data.length < ne;
+					TlvValuePlain data = getFileContents(offset, ne, binaryFile);
+					boolean shortRead = !zeroEncoded && data.getLength() < ne;
 					TlvValue toSend = null;
 	
 					if (isOddInstruction) {
 						toSend = new TlvDataObjectContainer(
-								new PrimitiveTlvDataObject(new TlvTag(
+								new PrimitiveTlvDataObject(TlvTag.getInstance(
 										ODDINS_RESPONSE_TAG), data));
 					} else {
-						toSend = new TlvValuePlain(data);
+						toSend = data;
 					}
 					
 						selectFile((CardFile)file);
@@ -23,8 +23,6 @@ import java.util.HashSet;
 import javax.crypto.KeyAgreement;
 import javax.crypto.spec.SecretKeySpec;
 
-import org.globaltester.cryptoprovider.Crypto;
-
 import de.persosim.simulator.apdu.ResponseApdu;
 import de.persosim.simulator.cardobjects.AuthObjectIdentifier;
 import de.persosim.simulator.cardobjects.CardObject;
@@ -39,6 +37,7 @@ import de.persosim.simulator.cardobjects.PasswordAuthObject;
 import de.persosim.simulator.cardobjects.PasswordAuthObjectWithRetryCounter;
 import de.persosim.simulator.cardobjects.TrustPointCardObject;
 import de.persosim.simulator.cardobjects.TrustPointIdentifier;
+import de.persosim.simulator.crypto.CryptoInstanceCache;
 import de.persosim.simulator.crypto.CryptoSupport;
 import de.persosim.simulator.crypto.DomainParameterSet;
 import de.persosim.simulator.crypto.KeyDerivationFunction;
@@ -77,6 +76,7 @@ import de.persosim.simulator.tlv.TlvPath;
 import de.persosim.simulator.tlv.TlvTag;
 import de.persosim.simulator.tlv.TlvValue;
 import de.persosim.simulator.utils.HexString;
+import de.persosim.simulator.utils.LazyLogger;
 
 /**
  * @author slutters
@@ -183,7 +183,7 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 	
 			if (pwdCandidate instanceof PasswordAuthObject){
 				pacePassword = (PasswordAuthObject) pwdCandidate;
-				log(this, "selected password is: " + getPasswordName(), DEBUG);
+				LazyLogger.log(this, () -> "selected password is: " + getPasswordName(), DEBUG);
 			} else {
 				ResponseApdu resp = new ResponseApdu(Iso7816.SW_6A88_REFERENCE_DATA_NOT_FOUND);
 				this.processingData.updateResponseAPDU(this, "no fitting authentication object found", resp);
@@ -280,15 +280,15 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 			KeyDerivationFunction kdf = new KeyDerivationFunction(paceOid.getSymmetricCipherKeyLengthInBytes());
 			byte[] commonSecret = pacePassword.getPassword();
 			
-			log(this, "common secret is: " + HexString.encode(commonSecret), TRACE);
+			LazyLogger.log(this, () -> "common secret is: " + HexString.encode(commonSecret), TRACE);
 			
 			byte[] keyMaterialForEncryptionOfNonce = kdf.derivePI(commonSecret);
 			
-			log(this, "computed raw key material of byte length " + keyMaterialForEncryptionOfNonce.length + " is: " + HexString.encode(keyMaterialForEncryptionOfNonce), TRACE);
+			LazyLogger.log(this, () -> "computed raw key material of byte length " + keyMaterialForEncryptionOfNonce.length + " is: " + HexString.encode(keyMaterialForEncryptionOfNonce), TRACE);
 			
 			this.secretKeySpecNonce = this.cryptoSupport.generateSecretKeySpecCipher(keyMaterialForEncryptionOfNonce);
 			
-			log(this, "computed " + paceOid.getSymmetricCipherAlgorithmName() + " key material: " + HexString.encode(keyMaterialForEncryptionOfNonce), DEBUG);
+			LazyLogger.log(this, () -> "computed " + paceOid.getSymmetricCipherAlgorithmName() + " key material: " + HexString.encode(keyMaterialForEncryptionOfNonce), DEBUG);
 			
 			// If PIN is used, check for retry counter.
 			ResponseData isPasswordUsable = isPasswordUsable(pacePassword, cardState);
@@ -435,19 +435,19 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 		multiplicationFactor = (int) Math.ceil(keySizeInBytes/(double) blockSizeInBytes);
 		nonceSizeInBytes = multiplicationFactor * blockSizeInBytes;
 		
-		log(this, "key length k in Bytes is " + keySizeInBytes + ", block size in Bytes is " + blockSizeInBytes + " --> nonce s must be of smallest length l in Bytes, l being a multiple of the block size, such that l<=k", TRACE);
+		LazyLogger.log(this, () -> "key length k in Bytes is " + keySizeInBytes + ", block size in Bytes is " + blockSizeInBytes + " --> nonce s must be of smallest length l in Bytes, l being a multiple of the block size, such that l<=k", TRACE);
 		
 		this.piccsPlainNonceS = new byte[nonceSizeInBytes];
 		this.secureRandom.nextBytes(this.piccsPlainNonceS);
 		
-		log(this, "new (plain) nonce s of byte length " + this.piccsPlainNonceS.length + " is " + HexString.encode(this.piccsPlainNonceS), TRACE);
+		LazyLogger.log(this, () -> "new (plain) nonce s of byte length " + this.piccsPlainNonceS.length + " is " + HexString.encode(this.piccsPlainNonceS), TRACE);
 		
 		encryptedNonce = this.cryptoSupport.encryptWithIvZero(this.piccsPlainNonceS, this.secretKeySpecNonce);
 		
-		log(this, "(encryted) nonce z = E_KPi(s) is " + HexString.encode(encryptedNonce), TRACE);
+		LazyLogger.log(this, () -> "(encryted) nonce z = E_KPi(s) is " + HexString.encode(encryptedNonce), TRACE);
 		
 		primitive80 = new PrimitiveTlvDataObject(TAG_80, encryptedNonce);
-		log(this, "primitive tag 80 is: " + primitive80, TRACE);
+		LazyLogger.log(this, () -> "primitive tag 80 is: " + primitive80, TRACE);
 		constructed7C = new ConstructedTlvDataObject(TAG_7C);
 		constructed7C.addTlvDataObject(primitive80);
 		
@@ -481,14 +481,14 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 		 */
 		byte[] mappingDataFromPcd = tlvObject.getValueField();
 		
-		log(this, "mapping data received from PCD is expected to contain " + mapping.getMeaningOfMappingData(), DEBUG);
-		log(this, "unchecked mapping data content of " + mappingDataFromPcd.length + " bytes length is: " + HexString.encode(mappingDataFromPcd), DEBUG);
-		log(this, "nonce s generated by PICC during processing of GetNonce command is " + HexString.encode(piccsPlainNonceS), TRACE);
+		LazyLogger.log(this, () -> "mapping data received from PCD is expected to contain " + mapping.getMeaningOfMappingData(), DEBUG);
+		LazyLogger.log(this, () -> "unchecked mapping data content of " + mappingDataFromPcd.length + " bytes length is: " + HexString.encode(mappingDataFromPcd), DEBUG);
+		LazyLogger.log(this, () -> "nonce s generated by PICC during processing of GetNonce command is " + HexString.encode(piccsPlainNonceS), TRACE);
 		
 		byte[] mappingResponse;
 		
 		try {
-			log(this, "about to perform " + mapping.getMappingName(), DEBUG);
+			LazyLogger.log(this, () -> "about to perform " + mapping.getMappingName(), DEBUG);
 			mappingResult = mapping.performMapping(paceDomainParametersUnmapped, piccsPlainNonceS, mappingDataFromPcd);
 			
 			ephemeralKeyPairPicc = mappingResult.getKeyPairPiccMapped();
@@ -509,8 +509,8 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 		}
 
 		
-		log(this, "PICC's ephemeral public  mapped " + keyAgreementName + " key is " + new TlvDataObjectContainer(ephemeralKeyPairPicc.getPublic().getEncoded()), TRACE);
-		log(this, "PICC's ephemeral private mapped " + keyAgreementName + " key is " + new TlvDataObjectContainer(ephemeralKeyPairPicc.getPrivate().getEncoded()), TRACE);
+		LazyLogger.log(this, () -> "PICC's ephemeral public  mapped " + keyAgreementName + " key is " + new TlvDataObjectContainer(ephemeralKeyPairPicc.getPublic().getEncoded()), TRACE);
+		LazyLogger.log(this, () -> "PICC's ephemeral private mapped " + keyAgreementName + " key is " + new TlvDataObjectContainer(ephemeralKeyPairPicc.getPrivate().getEncoded()), TRACE);
 		
 		// Build response data
 		TlvValue responseData = buildResponseDataForMapNonce(mappingResponse);
@@ -545,15 +545,15 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 		//get commandDataContainer
 		TlvDataObjectContainer commandData = processingData.getCommandApdu().getCommandDataObjectContainer();
 						
-		TlvDataObject tlvObject = commandData.getTlvDataObject(new TlvPath(new TlvTag((byte) 0x7C), new TlvTag((byte) 0x83)));
+		TlvDataObject tlvObject = commandData.getTlvDataObject(new TlvPath(TlvTag.getInstance((byte) 0x7C), TlvTag.getInstance((byte) 0x83)));
 		byte[] rawKeyPlain = tlvObject.getValueField();
 		
-		log(this, "PCD's public raw key of " + rawKeyPlain.length + " bytes length is: " + HexString.encode(rawKeyPlain), TRACE);
+		LazyLogger.log(this, () -> "PCD's public raw key of " + rawKeyPlain.length + " bytes length is: " + HexString.encode(rawKeyPlain), TRACE);
 		
 		try {
 			ephemeralPublicKeyPcd = paceDomainParametersMapped.reconstructPublicKey(rawKeyPlain);
 			ephemeralPublicKeyComponentPicc = paceDomainParametersMapped.encodePublicKey(ephemeralKeyPairPicc.getPublic());
-			log(this, "PCD's  ephemeral public  mapped " + paceDomainParametersMapped.getKeyAgreementAlgorithm() + " key is " + new TlvDataObjectContainer(ephemeralPublicKeyPcd.getEncoded()), TRACE);
+			LazyLogger.log(this, () -> "PCD's  ephemeral public  mapped " + paceDomainParametersMapped.getKeyAgreementAlgorithm() + " key is " + new TlvDataObjectContainer(ephemeralPublicKeyPcd.getEncoded()), TRACE);
 		} catch (IllegalArgumentException e) {
 			logException(this, e, ERROR);
 			ResponseApdu resp = new ResponseApdu(Iso7816.SW_6A80_WRONG_DATA);
@@ -566,7 +566,7 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 			return;
 		}
 		
-		log(this, "bare response data of byte length " + ephemeralPublicKeyComponentPicc.length + " is " + HexString.encode(ephemeralPublicKeyComponentPicc), DEBUG);
+		LazyLogger.log(this, () -> "bare response data of byte length " + ephemeralPublicKeyComponentPicc.length + " is " + HexString.encode(ephemeralPublicKeyComponentPicc), DEBUG);
 		
 		/* create and propagate response APDU */
 		TlvValue responseData = buildResponseDataForKeyAgreement(paceDomainParametersMapped, ephemeralPublicKeyComponentPicc);
@@ -612,17 +612,17 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 		TlvDataObjectContainer piccTokenInput = buildAuthenticationTokenInput(ephemeralPublicKeyPcd, paceDomainParametersMapped, paceOid);
 		TlvDataObjectContainer pcdTokenInput = buildAuthenticationTokenInput(ephemeralKeyPairPicc.getPublic(), paceDomainParametersMapped, paceOid);
 		
-		log(this, "picc token raw data " + piccTokenInput, DEBUG);
-		log(this, "pcd  token raw data " + pcdTokenInput, DEBUG);
+		LazyLogger.log(this, () -> "picc token raw data " + piccTokenInput, DEBUG);
+		LazyLogger.log(this, () -> "pcd  token raw data " + pcdTokenInput, DEBUG);
 		
 		try {
-			KeyAgreement keyAgreement = KeyAgreement.getInstance(paceOid.getKeyAgreementName(), Crypto.getCryptoProvider());
+			KeyAgreement keyAgreement = CryptoInstanceCache.getKeyAgreement(paceOid.getKeyAgreementName());
 			keyAgreement.init(this.ephemeralKeyPairPicc.getPrivate());
 			keyAgreement.doPhase(this.ephemeralPublicKeyPcd, true);
 			
 			byte[] sharedSecret = keyAgreement.generateSecret();
 			
-			log(this, "shared secret of byte length " + sharedSecret.length + " resulting from " + paceOid.getKeyAgreementName() + " key agreement is " + HexString.encode(sharedSecret), DEBUG);
+			LazyLogger.log(this, () -> "shared secret of byte length " + sharedSecret.length + " resulting from " + paceOid.getKeyAgreementName() + " key agreement is " + HexString.encode(sharedSecret), DEBUG);
 			
 			KeyDerivationFunction kdf = new KeyDerivationFunction(paceOid.getSymmetricCipherKeyLengthInBytes());
 			
@@ -632,8 +632,8 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 			this.secretKeySpecMAC = this.cryptoSupport.generateSecretKeySpecMac(keyMaterialMAC);
 			this.secretKeySpecENC = this.cryptoSupport.generateSecretKeySpecCipher(keyMaterialENC);
 			
-			log(this, "final " + secretKeySpecENC.getAlgorithm() + " symmetric key material ENC is " + HexString.encode(secretKeySpecENC.getEncoded()), DEBUG);
-			log(this, "final " + secretKeySpecMAC.getAlgorithm() + " symmetric key material MAC is " + HexString.encode(secretKeySpecMAC.getEncoded()), DEBUG);
+			LazyLogger.log(this, () -> "final " + secretKeySpecENC.getAlgorithm() + " symmetric key material ENC is " + HexString.encode(secretKeySpecENC.getEncoded()), DEBUG);
+			LazyLogger.log(this, () -> "final " + secretKeySpecMAC.getAlgorithm() + " symmetric key material MAC is " + HexString.encode(secretKeySpecMAC.getEncoded()), DEBUG);
 		} catch (InvalidKeyException | IllegalStateException | NoSuchAlgorithmException e) {
 			ResponseApdu resp = new ResponseApdu(Iso7816.SW_6A80_WRONG_DATA);
 			processingData.updateResponseAPDU(this, "Invalid symmetric key", resp);
@@ -643,13 +643,13 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 		
 		/* get first 8 bytes of mac */
 		piccToken = Arrays.copyOf(this.cryptoSupport.macAuthenticationToken(piccTokenInput.toByteArray(), this.secretKeySpecMAC), 8);
-		log(this, "picc token data is: " + HexString.encode(piccToken), DEBUG);
+		LazyLogger.log(this, () -> "picc token data is: " + HexString.encode(piccToken), DEBUG);
 		
 		pcdToken = Arrays.copyOf(this.cryptoSupport.macAuthenticationToken(pcdTokenInput.toByteArray(), this.secretKeySpecMAC), 8);
-		log(this, "pcd  token data is: " + HexString.encode(pcdToken), DEBUG);
+		LazyLogger.log(this, () -> "pcd  token data is: " + HexString.encode(pcdToken), DEBUG);
 		
-		log(this, "expected pcd token data is: " + HexString.encode(pcdToken), DEBUG);
-		log(this, "received pcd token data is: " + HexString.encode(pcdTokenReceivedFromPCD), DEBUG);
+		LazyLogger.log(this, () -> "expected pcd token data is: " + HexString.encode(pcdToken), DEBUG);
+		LazyLogger.log(this, () -> "received pcd token data is: " + HexString.encode(pcdTokenReceivedFromPCD), DEBUG);
 		
 		boolean paceSuccessful;
 		short sw;
@@ -909,7 +909,7 @@ public abstract class AbstractPaceProtocol extends AbstractProtocolStateMachine
 			PaceMechanism paceMechanism = (PaceMechanism) currentMechanisms.toArray()[0];
 			PasswordAuthObject previouslyUsedPwd = paceMechanism.getUsedPassword();
 			int previouslyUsedPasswordIdentifier = previouslyUsedPwd.getPasswordIdentifier();
-			log(AbstractPaceProtocol.class, "last successfull PACE run used " + getPasswordName(previouslyUsedPasswordIdentifier) + " as password with value " + HexString.encode(previouslyUsedPwd.getPassword()), DEBUG);
+			LazyLogger.log(AbstractPaceProtocol.class, () -> "last successfull PACE run used " + getPasswordName(previouslyUsedPasswordIdentifier) + " as password with value " + HexString.encode(previouslyUsedPwd.getPassword()), DEBUG);
 			return previouslyUsedPasswordIdentifier == Pace.ID_CAN;
 		} else{
 			return false;
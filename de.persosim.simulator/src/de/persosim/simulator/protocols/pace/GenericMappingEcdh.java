@@ -15,6 +15,7 @@ import de.persosim.simulator.crypto.CryptoUtil;
 import de.persosim.simulator.crypto.DomainParameterSet;
 import de.persosim.simulator.crypto.DomainParameterSetEcdh;
 import de.persosim.simulator.utils.HexString;
+import de.persosim.simulator.utils.LazyLogger;
 import de.persosim.simulator.utils.Utils;
 
 /**
@@ -48,7 +49,7 @@ public class GenericMappingEcdh extends GenericMapping {
 		log(this.getClass(), "gUnMapped y: " + HexString.encode(Utils.toUnsignedByteArray(gUnMapped.getAffineY())));
 		log(this.getClass(), "nonce S: " + HexString.encode(nonceS));
 		
-		ECPoint gspm = CryptoUtil.scalarPointMultiplication(curve, domainParameterSetEcdhUnMapped.getOrder(), gUnMapped, sNonceBigInt);
+		ECPoint gspm = domainParameterSetEcdhUnMapped.computePublicPoint(sNonceBigInt);
 		
 		log(this.getClass(), "gspm x: " + HexString.encode(Utils.toUnsignedByteArray(gspm.getAffineX())));
 		log(this.getClass(), "gspm y: " + HexString.encode(Utils.toUnsignedByteArray(gspm.getAffineY())));
@@ -74,11 +75,11 @@ public class GenericMappingEcdh extends GenericMapping {
 		ECPoint secretPoint = domainParameterSetEcdh.performEcdhKeyAgreement(ecPublicKeyPcd, ecPrivateKeyPicc);
 		
 		log(GenericMappingEcdh.class, "result H of ECDH key agreement is", TRACE);
-		log(GenericMappingEcdh.class, "H.x: " + HexString.encode(secretPoint.getAffineX()), TRACE);
-		log(GenericMappingEcdh.class, "H.y: " + HexString.encode(secretPoint.getAffineY()), TRACE);
+		LazyLogger.log(GenericMappingEcdh.class, () -> "H.x: " + HexString.encode(secretPoint.getAffineX()), TRACE);
+		LazyLogger.log(GenericMappingEcdh.class, () -> "H.y: " + HexString.encode(secretPoint.getAffineY()), TRACE);
 		
 		byte[] encodedPoint = CryptoUtil.encode(secretPoint, domainParameterSetEcdh.getPublicPointReferenceLengthL(), CryptoUtil.ENCODING_UNCOMPRESSED);
-		log(GenericMappingEcdh.class, "H uncompressed encoding: " + HexString.encode(encodedPoint), TRACE);
+		LazyLogger.log(GenericMappingEcdh.class, () -> "H uncompressed encoding: " + HexString.encode(encodedPoint), TRACE);
 		
 		return encodedPoint;
 	}
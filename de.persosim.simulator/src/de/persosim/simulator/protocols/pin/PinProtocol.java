@@ -31,6 +31,7 @@ import de.persosim.simulator.tlv.TlvConstants;
 import de.persosim.simulator.tlv.TlvDataObject;
 import de.persosim.simulator.tlv.TlvValue;
 import de.persosim.simulator.utils.HexString;
+import de.persosim.simulator.utils.LazyLogger;
 import de.persosim.simulator.utils.Utils;
 
 public class PinProtocol implements Protocol, Iso7816, Tr03110, TlvConstants, ApduSpecificationConstants, InfoSource{
@@ -191,9 +192,9 @@ public class PinProtocol implements Protocol, Iso7816, Tr03110, TlvConstants, Ap
 		
 		byte[] newPasswordPlain = tlvData.toByteArray();
 		
-		log(this, "received data of " + newPasswordPlain.length + " bytes length for new " + passwordName + " is: " + HexString.dump(newPasswordPlain), DEBUG);
+		LazyLogger.log(this, () -> "received data of " + newPasswordPlain.length + " bytes length for new " + passwordName + " is: " + HexString.dump(newPasswordPlain), DEBUG);
 		
-		log(this, "old " + passwordName + " is: " + HexString.dump(passwordObject.getPassword()), DEBUG);
+		LazyLogger.log(this, () -> "old " + passwordName + " is: " + HexString.dump(passwordObject.getPassword()), DEBUG);
 		
 		try {
 			passwordObject.setPassword(newPasswordPlain);
@@ -215,7 +216,7 @@ public class PinProtocol implements Protocol, Iso7816, Tr03110, TlvConstants, Ap
 			/* there is nothing more to be done here */
 			return;
 		}
-		log(this, "new " + passwordName + " is: " + HexString.dump(newPasswordPlain), DEBUG);
+		LazyLogger.log(this, () -> "new " + passwordName + " is: " + HexString.dump(newPasswordPlain), DEBUG);
 		
 		ResponseApdu resp = new ResponseApdu(SW_9000_NO_ERROR);
 		this.processingData.updateResponseAPDU(this, passwordName + " successfully changed", resp);
@@ -276,7 +277,7 @@ public class PinProtocol implements Protocol, Iso7816, Tr03110, TlvConstants, Ap
 		PasswordAuthObjectWithRetryCounter pinObject = (PasswordAuthObjectWithRetryCounter) object;
 		String passwordName =  pinObject.getPasswordName();
 		
-		log(this, "old " + passwordName +" retry counter is: " + pinObject.getRetryCounterCurrentValue(), DEBUG);
+		LazyLogger.log(this, () -> "old " + passwordName +" retry counter is: " + pinObject.getRetryCounterCurrentValue(), DEBUG);
 		
 		try {
 			pinObject.resetRetryCounterToDefault();
@@ -299,7 +300,7 @@ public class PinProtocol implements Protocol, Iso7816, Tr03110, TlvConstants, Ap
 			return;
 		}
 		
-		log(this, "new " + passwordName + " retry counter is: " + pinObject.getRetryCounterCurrentValue(), DEBUG);
+		LazyLogger.log(this, () -> "new " + passwordName + " retry counter is: " + pinObject.getRetryCounterCurrentValue(), DEBUG);
 		
 		ResponseApdu resp = new ResponseApdu(SW_9000_NO_ERROR);
 		this.processingData.updateResponseAPDU(this, passwordName +" successfully unblocked", resp);
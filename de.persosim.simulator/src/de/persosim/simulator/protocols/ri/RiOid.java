@@ -10,8 +10,7 @@ import java.util.Arrays;
 
 import javax.crypto.KeyAgreement;
 
-import org.globaltester.cryptoprovider.Crypto;
-
+import de.persosim.simulator.crypto.CryptoInstanceCache;
 import de.persosim.simulator.crypto.CryptoUtil;
 import de.persosim.simulator.protocols.GenericOid;
 import de.persosim.simulator.protocols.ca.Ca;
@@ -99,9 +98,9 @@ public class RiOid extends GenericOid implements Ri, TlvConstants {
 			NoSuchProviderException {
 		switch (this.getKeyAgreementAsByte()) {
 		case Ca.DH:
-			return KeyAgreement.getInstance("DH", Crypto.getCryptoProvider());
+			return CryptoInstanceCache.getKeyAgreement("DH");
 		case Ca.ECDH:
-			return KeyAgreement.getInstance("ECDH", Crypto.getCryptoProvider());
+			return CryptoInstanceCache.getKeyAgreement("ECDH");
 		default:
 			throw new InvalidParameterException(
 					"no or invalid key agreement selected");
@@ -118,20 +117,15 @@ public class RiOid extends GenericOid implements Ri, TlvConstants {
 			NoSuchProviderException {
 		switch (getHashAsByte()) {
 		case SHA_1:
-			return MessageDigest.getInstance("SHA-1",
-					Crypto.getCryptoProvider());
+			return CryptoInstanceCache.getMessageDigest("SHA-1");
 		case SHA_224:
-			return MessageDigest.getInstance("SHA-224",
-					Crypto.getCryptoProvider());
+			return CryptoInstanceCache.getMessageDigest("SHA-224");
 		case SHA_256:
-			return MessageDigest.getInstance("SHA-256",
-					Crypto.getCryptoProvider());
+			return CryptoInstanceCache.getMessageDigest("SHA-256");
 		case SHA_384:
-			return MessageDigest.getInstance("SHA-384",
-					Crypto.getCryptoProvider());
+			return CryptoInstanceCache.getMessageDigest("SHA-384");
 		case SHA_512:
-			return MessageDigest.getInstance("SHA-512",
-					Crypto.getCryptoProvider());
+			return CryptoInstanceCache.getMessageDigest("SHA-512");
 		default:
 			throw new InvalidParameterException(
 					"no or invalid hash function selected");
@@ -13,7 +13,6 @@ import java.util.HashSet;
 
 import javax.crypto.KeyAgreement;
 
-import org.globaltester.cryptoprovider.Crypto;
 import org.globaltester.logging.InfoSource;
 
 import de.persosim.simulator.apdu.ResponseApdu;
@@ -25,6 +24,7 @@ import de.persosim.simulator.cardobjects.KeyIdentifier;
 import de.persosim.simulator.cardobjects.KeyPairObject;
 import de.persosim.simulator.cardobjects.MasterFile;
 import de.persosim.simulator.cardobjects.OidIdentifier;
+import de.persosim.simulator.crypto.CryptoInstanceCache;
 import de.persosim.simulator.crypto.StandardizedDomainParameters;
 import de.persosim.simulator.exception.VerificationException;
 import de.persosim.simulator.platform.CardStateAccessor;
@@ -238,7 +238,7 @@ public class RiProtocol implements Protocol, Iso7816, ApduSpecificationConstants
 	 *            {@link MessageDigest} to use
 	 * @return the sector identifier as byte array or null in case of errors
 	 */
-	private byte[] calculateSectorIdentifier(PrivateKey staticPrivateKey, PublicKey sectorPublicKey,
+	static byte[] calculateSectorIdentifier(PrivateKey staticPrivateKey, PublicKey sectorPublicKey,
 			KeyAgreement keyAgreement, MessageDigest hash) {
 		byte[] result;
 		// perform key agreement
@@ -332,7 +332,7 @@ public class RiProtocol implements Protocol, Iso7816, ApduSpecificationConstants
 				byte [] secondSectorPublicKeyHash = taMechanism.getSecondSectorPublicKeyHash();
 				MessageDigest publicKeyCheckingHash;
 				try {
-					publicKeyCheckingHash = MessageDigest.getInstance(taMechanism.getSectorPublicKeyHashAlgorithm(), Crypto.getCryptoProvider());
+					publicKeyCheckingHash = CryptoInstanceCache.getMessageDigest(taMechanism.getSectorPublicKeyHashAlgorithm());
 				} catch (GeneralSecurityException e) {
 					// create and propagate response APDU
 					ResponseApdu resp = new ResponseApdu(Iso7816.SW_6FFF_IMPLEMENTATION_ERROR);
@@ -860,14 +860,14 @@ public abstract class AbstractTaProtocol extends AbstractProtocolStateMachine im
 	public Collection<TlvDataObject> getSecInfos(SecInfoPublicity publicity, MasterFile mf) {
 		// TAInfo
 		ConstructedTlvDataObject taInfo = new ConstructedTlvDataObject(
-				new TlvTag(Asn1.SEQUENCE));
+				TlvTag.getInstance(Asn1.SEQUENCE));
 
 		PrimitiveTlvDataObject protocol = new PrimitiveTlvDataObject(
-				new TlvTag(Asn1.OBJECT_IDENTIFIER),
+				TlvTag.getInstance(Asn1.OBJECT_IDENTIFIER),
 				new TlvValuePlain(HexString
 						.toByteArray("04 00 7F 00 07 02 02 02")));
 
-		PrimitiveTlvDataObject version = new PrimitiveTlvDataObject(new TlvTag(Asn1.INTEGER),
+		PrimitiveTlvDataObject version = new PrimitiveTlvDataObject(TlvTag.getInstance(Asn1.INTEGER),
 				new TlvValuePlain(new byte[] { 2 }));
 		taInfo.addTlvDataObject(protocol);
 		taInfo.addTlvDataObject(version);
@@ -9,8 +9,7 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
-import org.globaltester.cryptoprovider.Crypto;
-
+import de.persosim.simulator.crypto.CryptoInstanceCache;
 import de.persosim.simulator.crypto.certificates.CvOid;
 import de.persosim.simulator.protocols.GenericOid;
 import de.persosim.simulator.protocols.Oid;
@@ -129,7 +128,7 @@ public class TaOid extends GenericOid implements Tr03110, CvOid {
 	public Signature getSignature() throws NoSuchAlgorithmException {
 		String signatureString = getSignatureString();
 		if(signatureString != null) {
-			return Signature.getInstance(signatureString, Crypto.getCryptoProvider());
+			return CryptoInstanceCache.getSignature(signatureString);
 		} else{
 			return null;
 		}
@@ -6,10 +6,13 @@ import static org.globaltester.logging.BasicLogger.TRACE;
 import static org.globaltester.logging.BasicLogger.log;
 import static org.globaltester.logging.BasicLogger.logException;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.List;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
 
 import org.globaltester.simulator.LogTags;
 
@@ -29,8 +32,11 @@ import de.persosim.simulator.tlv.PrimitiveTlvDataObject;
 import de.persosim.simulator.tlv.TlvConstants;
 import de.persosim.simulator.tlv.TlvDataObject;
 import de.persosim.simulator.tlv.TlvDataObjectContainer;
+import de.persosim.simulator.tlv.TlvLength;
 import de.persosim.simulator.tlv.TlvValue;
+import de.persosim.simulator.tlv.TlvValuePlain;
 import de.persosim.simulator.utils.HexString;
+import de.persosim.simulator.utils.LazyLogger;
 import de.persosim.simulator.utils.Utils;
 
 /**
@@ -166,7 +172,7 @@ public class SecureMessaging extends Layer implements TlvConstants{
 	}
 	
 	public void handleUpdatePropagations() {
-		LinkedList<UpdatePropagation> dataProviderList = processingData.getUpdatePropagations(SmDataProvider.class);
+		List<UpdatePropagation> dataProviderList = processingData.getUpdatePropagations(SmDataProvider.class);
 		for (UpdatePropagation curDataProvider : dataProviderList) {
 			if (curDataProvider != null && curDataProvider instanceof SmDataProvider) {
 				setDataProvider((SmDataProvider) curDataProvider);
@@ -182,49 +188,72 @@ public class SecureMessaging extends Layer implements TlvConstants{
 		log(this, "START encryption of outgoing SM APDU");
 		dataProvider.nextOutgoing();
 		
-		TlvDataObjectContainer container = new TlvDataObjectContainer();
+		ResponseApdu plainResponse = processingData.getResponseApdu();
+		TlvValue dataObject = plainResponse.getData();
+		int dataLength = (dataObject != null) ? dataObject.getLength() : 0;
+		
+		int blockSize = dataProvider.getCipher().getBlockSize();
+		int macLength = dataProvider.getMacLength();
 		
-		TlvValue dataObject = this.processingData.getResponseApdu().getData();
-		if((dataObject != null) && (dataObject.getLength() > 0)) {
+		/* compute the layout of the protected response data: [87 L 01 cryptogram] 99 02 SW 8E L mac */
+		int paddedLength = (dataLength > 0) ? (dataLength / blockSize + 1) * blockSize : 0;
+		byte[] lengthField87 = (dataLength > 0) ? TlvLength.getLengthEncoding(paddedLength + 1) : new byte[0];
+		int offsetCryptogram = (dataLength > 0) ? 1 + lengthField87.length + 1 : 0;
+		int offset99 = offsetCryptogram + paddedLength;
+		
+		int offset8E = offset99 + 4;
+		byte[] smData = new byte[offset8E + 2 + macLength];
+		
+		if(dataLength > 0) {
 			log(this, "APDU to be sent contains data", TRACE);
 			
-			byte[] data, postpaddedData, paddedData, encryptedData;
-			PrimitiveTlvDataObject primitive87;
-			
-			data = dataObject.toByteArray();
+			smData[0] = (byte) 0x87;
+			System.arraycopy(lengthField87, 0, smData, 1, lengthField87.length);
+			smData[offsetCryptogram - 1] = (byte) 0x01;
 			
-			log(this, "data to be padded is: " + HexString.encode(data), TRACE);
-			
-			paddedData = this.padData(data);
-			
-			log(this, "padded data is: " + HexString.encode(paddedData), DEBUG);
-			log(this, "block size is: " + dataProvider.getCipher().getBlockSize(), DEBUG);
-			
-			encryptedData = CryptoSupport.encrypt(dataProvider.getCipher(), paddedData, dataProvider.getKeyEnc(), dataProvider.getCipherIv());
-			log(this, "encrypted data is: " + HexString.encode(encryptedData), DEBUG);
+			if (dataObject instanceof TlvValuePlain) {
+				((TlvValuePlain) dataObject).copyTo(smData, offsetCryptogram);
+			} else {
+				System.arraycopy(dataObject.toByteArray(), 0, smData, offsetCryptogram, dataLength);
+			}
 			
-			postpaddedData = new byte[paddedData.length + 1];
-			System.arraycopy(encryptedData, 0, postpaddedData, 1, encryptedData.length);
-			postpaddedData[0] = (byte) 0x01;
+			/* padding is done in place, the following bytes are already 0x00 */
+			smData[offsetCryptogram + dataLength] = (byte) 0x80;
+			LazyLogger.log(this, () -> "padded data is: " + HexString.encode(Arrays.copyOfRange(smData, offsetCryptogram, offsetCryptogram + paddedLength)), DEBUG);
 			
-			primitive87 = new PrimitiveTlvDataObject(TAG_87, postpaddedData);
-			container.addTlvDataObject(primitive87);
+			encrypt(smData, offsetCryptogram, paddedLength);
+			LazyLogger.log(this, () -> "encrypted data is: " + HexString.encode(Arrays.copyOfRange(smData, offsetCryptogram, offsetCryptogram + paddedLength)), DEBUG);
 		} else{
 			log(this, "APDU to be sent contains NO data", DEBUG);
 		}
 		
 		//add status word
-		byte[] sw = Utils.toUnsignedByteArray(this.processingData.getResponseApdu().getStatusWord());
-		PrimitiveTlvDataObject primitive99 = new PrimitiveTlvDataObject(TAG_99, sw);
-		container.addTlvDataObject(primitive99);
+		short sw = plainResponse.getStatusWord();
+		smData[offset99] = (byte) 0x99;
+		smData[offset99 + 1] = (byte) 0x02;
+		smData[offset99 + 2] = (byte) (sw >>> 8);
+		smData[offset99 + 3] = (byte) sw;
 		
 		//add MAC
-		byte[] macedData = this.padAndMac(container);
-		PrimitiveTlvDataObject primitive8E = new PrimitiveTlvDataObject(TAG_8E, macedData);
-		container.addTlvDataObject(primitive8E);
+		Mac mac = initMac();
+		mac.update(smData, 0, offset8E);
+		updateMacWithPadding(mac, offset8E, blockSize);
+		byte[] macResult = mac.doFinal();
+		
+		smData[offset8E] = (byte) 0x8E;
+		smData[offset8E + 1] = (byte) macLength;
+		System.arraycopy(macResult, 0, smData, offset8E + 2, macLength);
+		
+		//the data objects are views on the protected response data
+		TlvDataObjectContainer container = new TlvDataObjectContainer();
+		if(dataLength > 0) {
+			container.addTlvDataObject(new PrimitiveTlvDataObject(TAG_87, TlvValuePlain.view(smData, offsetCryptogram - 1, paddedLength + 1)));
+		}
+		container.addTlvDataObject(new PrimitiveTlvDataObject(TAG_99, TlvValuePlain.view(smData, offset99 + 2, 2)));
+		container.addTlvDataObject(new PrimitiveTlvDataObject(TAG_8E, TlvValuePlain.view(smData, offset8E + 2, macLength)));
 		
 		//create and propagate response APDU
-		ResponseApdu resp = new ResponseApdu(container, this.processingData.getResponseApdu().getStatusWord());
+		ResponseApdu resp = new ResponseApdu(container, sw);
 		this.processingData.updateResponseAPDU(this, "Encrypted outgoing SM APDU", resp);
 	}
 	
@@ -240,17 +269,19 @@ public class SecureMessaging extends Layer implements TlvConstants{
 		dataProvider.nextIncoming();
 		CommandApdu smApdu = processingData.getCommandApdu();
 		
-		log(this, "Incoming SM APDU is: " + smApdu.toString(), DEBUG);
-		log(this, "Incoming SM APDU is ISO case: " + smApdu.getIsoCase(), DEBUG);
+		LazyLogger.log(this, () -> "Incoming SM APDU is: " + smApdu.toString(), DEBUG);
+		LazyLogger.log(this, () -> "Incoming SM APDU is ISO case: " + smApdu.getIsoCase(), DEBUG);
 		
 		try {
-			//create new CommandAPDU
-			CommandApdu plainCommand = extractPlainTextAPDU();
-			log(this, "plain text APDU is " + plainCommand, DEBUG);
+			SmDataObjects smDataObjects = getSmDataObjects();
 			
-			if (verifyMac()) {
+			if (verifyMac(smDataObjects)) {
 				log(this, "verification of mac: correct", DEBUG);
 				
+				//create new CommandAPDU
+				CommandApdu plainCommand = extractPlainTextAPDU(smDataObjects);
+				LazyLogger.log(this, () -> "plain text APDU is " + plainCommand, DEBUG);
+				
 				//propagate new CommandAPDU
 				processingData.updateCommandApdu(this, "SM APDU extracted", plainCommand);
 				
@@ -278,113 +309,79 @@ public class SecureMessaging extends Layer implements TlvConstants{
 	 * @return a byte array representation of an SM secured APDU
 	 */
 	public CommandApdu extractPlainTextAPDU() {
-		TlvDataObject cryptogram, tlvObject8E, tlvObject97;
-		byte[] encryptedData, paddedData, data, le, plainApduCommandData, dbgIv;
-		int isoCaseOfPlainAPDU;
-		ByteArrayOutputStream apduStream;
-		
+		return extractPlainTextAPDU(getSmDataObjects());
+	}
+	
+	/**
+	 * This method returns a plain APDU created from the already located SM
+	 * data objects of the current command APDU.
+	 * @param smDataObjects the SM data objects of the current command APDU
+	 * @return a byte array representation of an SM secured APDU
+	 */
+	private CommandApdu extractPlainTextAPDU(SmDataObjects smDataObjects) {
 		log(this, "started extracting SM APDU", TRACE);
 		
-		if(processingData.getCommandApdu().getIsoCase() != ISO_CASE_4) {
-			throw new IllegalArgumentException("SM APDU is expected to be ISO case 4");
-		}
-		
-		if (!(processingData.getCommandApdu() instanceof IsoSecureMessagingCommandApdu)){
-			throw new IllegalArgumentException("SM APDU is expected to be an IsoSecureMessagingCommandApdu");
-		}
-		
-		TlvDataObjectContainer constructedCommandDataField = processingData.getCommandApdu().getCommandDataObjectContainer();
-		tlvObject8E = constructedCommandDataField .getTlvDataObject(TAG_8E);
-		log(this, "TLV object 8E is: " + tlvObject8E, TRACE);
+		byte[] smApdu = smDataObjects.apdu;
+		boolean extendedLength = processingData.getCommandApdu().isExtendedLength();
 		
-		if(tlvObject8E == null) {
-			//create and propagate response APDU
-			ResponseApdu resp = new ResponseApdu(Iso7816.SW_6987_EXPECTED_SM_DATA_OBJECTS_MISSING);
-			processingData.updateResponseAPDU(this, "SM APDU is expected to contain tag 8E (mac)", resp);
-
-			throw new IllegalArgumentException("SM APDU is expected to contain tag 8E (mac)");
-		}
+		byte[] paddedData = null;
+		int dataLength = 0;
 		
-		if (processingData.getCommandApdu().getIns() %2 == 0) {
-			cryptogram = constructedCommandDataField.getTlvDataObject(TAG_87);
-		} else {
-			cryptogram = constructedCommandDataField.getTlvDataObject(TAG_85);
+		// decrypt data if present
+		if(smDataObjects.hasCryptogram()) {
+			int offsetEncryptedData = smDataObjects.valueOffsetCryptogram;
+			int lengthEncryptedData = smDataObjects.valueLengthCryptogram;
+			if (smDataObjects.tagCryptogram == (byte) 0x87) {
+				// skip padding content indicator
+				offsetEncryptedData++;
+				lengthEncryptedData--;
+			}
+			
+			paddedData = decrypt(smApdu, offsetEncryptedData, lengthEncryptedData);
+			
+			//TODO should padding be handled differently for odd instruction/tag 85 contents?
+			final byte[] paddedDataForLog = paddedData;
+			LazyLogger.log(this, () -> "padded data is: " + HexString.encode(paddedDataForLog), TRACE);
+			
+			dataLength = getUnpaddedLength(paddedData, dataProvider.getCipher().getBlockSize());
 		}
-		tlvObject97 = constructedCommandDataField.getTlvDataObject(TAG_97);
 		
-		if(cryptogram == null) {
-			if(tlvObject97 == null) {
-				isoCaseOfPlainAPDU = 1;
-			} else{
-				isoCaseOfPlainAPDU = 2;
-			}
-		} else{
-			if(tlvObject97 == null) {
-				isoCaseOfPlainAPDU = 3;
-			} else{
-				isoCaseOfPlainAPDU = 4;
+		int leLength = 0;
+		if(smDataObjects.has97()) {
+			leLength = smDataObjects.valueLength97;
+			
+			//ensure correct length of le field
+			if (extendedLength && (leLength == 1)) {
+				leLength = 2;
 			}
 		}
 		
-		apduStream = new ByteArrayOutputStream();
+		int lcLength = (paddedData == null) ? 0 : (extendedLength ? 2 : 1);
+		byte[] plainApduCommandData = new byte[(extendedLength ? 1 : 0) + lcLength + dataLength + leLength];
+		int offset = 0;
+		
 		// append extendedLengthIndicator if needed
-		if (processingData.getCommandApdu().isExtendedLength()) {
-			apduStream.write(0x00);
+		if (extendedLength) {
+			plainApduCommandData[offset++] = 0x00;
 		}
 		
-		// append data if present 
-		if(isoCaseOfPlainAPDU > 2) {
-			log(this, "Cryptogram is: " + cryptogram);
-			encryptedData = this.getEncryptedDataFromFormattedEncryptedData(cryptogram);
-			log(this, "encrypted data is: " + HexString.encode(encryptedData));
-			log(this, "used cipher iv is     : " + HexString.encode(dataProvider.getCipherIv().getIV()));
-			
-			dbgIv = CryptoSupport.decryptWithIvZero(dataProvider.getCipher(), dataProvider.getCipherIv().getIV(), dataProvider.getKeyEnc());
-			log(this, "decrypted cipher iv is: " + HexString.encode(dbgIv));
-			
-			paddedData = CryptoSupport.decrypt(dataProvider.getCipher(), encryptedData, dataProvider.getKeyEnc(), dataProvider.getCipherIv());
-			
-			//TODO should padding be handled differently for odd instruction/tag 85 contents?
-			log(this, "padded data is: " + HexString.encode(paddedData));
-			
-			data = this.unpadPlainTextData(paddedData);
-			log(this, "plain text data is: " + HexString.encode(data));
-			
-			try {
-				if (processingData.getCommandApdu().isExtendedLength()) {
-					apduStream.write(Utils.toUnsignedByteArray((short) data.length));
-				} else {			
-					apduStream.write(data.length);
-				}
-			
-				apduStream.write(data);
-			} catch (IOException e) {
-				logException(this, e);
+		// append data if present
+		if(paddedData != null) {
+			if (extendedLength) {
+				plainApduCommandData[offset++] = (byte) (dataLength >>> 8);
 			}
+			plainApduCommandData[offset++] = (byte) dataLength;
 			
+			System.arraycopy(paddedData, 0, plainApduCommandData, offset, dataLength);
+			offset += dataLength;
 		}
 		
 		// append le if present
-		if((isoCaseOfPlainAPDU == 2) || (isoCaseOfPlainAPDU == 4)) {
-			log(this, "TLV object 97 is: " + tlvObject97, TRACE);
-			le = tlvObject97.getValueField();
-			
-			//ensure correct length of le field
-			if (processingData.getCommandApdu().isExtendedLength()) {
-				if (le.length == 1) {
-					le = new byte[]{0, le[0]};
-				}
-			}
-			
-			try {
-				
-				apduStream.write(le);
-			} catch (IOException e) {
-				logException(this, e);
-			}
+		if(smDataObjects.has97()) {
+			int lengthOfLeField = smDataObjects.valueLength97;
+			System.arraycopy(smApdu, smDataObjects.valueOffset97, plainApduCommandData, offset + leLength - lengthOfLeField, lengthOfLeField);
 		}
 		
-		plainApduCommandData = apduStream.toByteArray();
 		CommandApdu result = ((IsoSecureMessagingCommandApdu)this.processingData.getCommandApdu()).rewrapApdu(Iso7816.SM_OFF_OR_NO_INDICATION, plainApduCommandData);
 		log(this, "completed extracting SM APDU", TRACE);
 		return result;
@@ -395,135 +392,254 @@ public class SecureMessaging extends Layer implements TlvConstants{
 	 * @return the result of mac verification: true iff verified, false otherwise
 	 */
 	public boolean verifyMac() {
-		TlvDataObject cryptogram, tlvObject8E, tlvObject97;
-		byte[] extractedMac, tlv97Plain, tlv87Plain;
-		byte[] header, paddingHeader, paddingMacInput, macResult;
-		int paddingLengthHeader, blockSize, lengthOfMacInputData, paddingLengthMacInput;
-		ByteArrayOutputStream macInputStream;
-		int isoCaseOfPlainAPDU;
-		
+		return verifyMac(getSmDataObjects());
+	}
+	
+	/**
+	 * This method performs the mac verification for the already located SM
+	 * data objects of the current command APDU. The mac is computed directly
+	 * on the raw APDU bytes.
+	 * @param smDataObjects the SM data objects of the current command APDU
+	 * @return the result of mac verification: true iff verified, false otherwise
+	 */
+	private boolean verifyMac(SmDataObjects smDataObjects) {
 		log(this, "started verifying SM APDU", TRACE);
 		
-		header = this.processingData.getCommandApdu().getHeader();
-		
-		if(processingData.getCommandApdu().getIsoCase() != ISO_CASE_4) {
-			throw new IllegalArgumentException("SM APDU is expected to be ISO case 4");
-		}
+		byte[] smApdu = smDataObjects.apdu;
+		int blockSize = dataProvider.getCipher().getBlockSize();
 		
-		TlvDataObjectContainer constructedCommandDataField = processingData.getCommandApdu().getCommandDataObjectContainer();
-		tlvObject8E = constructedCommandDataField.getTlvDataObject(TAG_8E);
-		log(this, "TLV object 8E is: " + tlvObject8E, TRACE);
+		Mac mac = initMac();
 		
-		if(tlvObject8E == null) {
-			throw new IllegalArgumentException("SM APDU is expected to contain tag 8E (mac)");
-		}
+		/* header must be padded to match block size */
+		mac.update(smApdu, 0, 4);
+		updateMacWithPadding(mac, 4, blockSize);
 		
-		if (processingData.getCommandApdu().getIns() %2 == 0) {
-			cryptogram = constructedCommandDataField.getTlvDataObject(TAG_87);
-		} else {
-			cryptogram = constructedCommandDataField.getTlvDataObject(TAG_85);
-		}
-		tlvObject97 = constructedCommandDataField.getTlvDataObject(TAG_97);
+		int lengthOfMacInputData = 0;
 		
-		if(cryptogram == null) {
-			if(tlvObject97 == null) {
-				isoCaseOfPlainAPDU = 1;
-			} else{
-				isoCaseOfPlainAPDU = 2;
-			}
-		} else{
-			if(tlvObject97 == null) {
-				isoCaseOfPlainAPDU = 3;
-			} else{
-				isoCaseOfPlainAPDU = 4;
-			}
+		if(smDataObjects.hasCryptogram()) {
+			mac.update(smApdu, smDataObjects.offsetCryptogram, smDataObjects.lengthCryptogram);
+			lengthOfMacInputData += smDataObjects.lengthCryptogram;
 		}
 		
-		if((isoCaseOfPlainAPDU == 2) || (isoCaseOfPlainAPDU == 4)) {
-			log(this, "TLV object 97 is: " + tlvObject97, TRACE);
+		if(smDataObjects.has97()) {
+			mac.update(smApdu, smDataObjects.offset97, smDataObjects.length97);
+			lengthOfMacInputData += smDataObjects.length97;
 		}
 		
-		if(isoCaseOfPlainAPDU > 2) {
-			log(this, "Cryptogram is: " + cryptogram, TRACE);
+		if(lengthOfMacInputData > 0) {
+			/* mac input must be padded to match block size */
+			int macInputLength = lengthOfMacInputData;
+			LazyLogger.log(this, () -> "length of mac input data is " + macInputLength + " bytes", TRACE);
+			updateMacWithPadding(mac, macInputLength, blockSize);
 		}
 		
-		/* verify mac */
+		byte[] macResult = mac.doFinal();
+		int macLength = dataProvider.getMacLength();
 		
-		blockSize = dataProvider.getCipher().getBlockSize();
-		macInputStream = new ByteArrayOutputStream();
+		LazyLogger.log(this, () -> "expected mac is : " + HexString.encode(Arrays.copyOf(macResult, macLength)), DEBUG);
+		LazyLogger.log(this, () -> "extracted mac is: " + HexString.encode(Arrays.copyOfRange(smApdu, smDataObjects.valueOffset8E, smDataObjects.valueOffset8E + smDataObjects.valueLength8E)), DEBUG);
 		
-		/* header must be padded to match block size */
-		paddingLengthHeader = blockSize - header.length;
-		paddingHeader = new byte[paddingLengthHeader];
-		Arrays.fill(paddingHeader, (byte) 0x00);
-		paddingHeader[0] = (byte) 0x80;
+		boolean match = (smDataObjects.valueLength8E == macLength);
+		for (int i = 0; match && (i < macLength); i++) {
+			match = (macResult[i] == smApdu[smDataObjects.valueOffset8E + i]);
+		}
 		
-		try {
-			macInputStream.write(header);
-			macInputStream.write(paddingHeader);
-		} catch (IOException e) {
-			logException(this, e);
+		if(match) {
+			log(this, "mac match", DEBUG);
+			return true;
+		} else {
+			log(this, "mac mismatch", ERROR);
+			return false;
 		}
+	}
+	
+	/**
+	 * This method locates the SM data objects within the raw bytes of the
+	 * current command APDU.
+	 * @return the located SM data objects
+	 */
+	private SmDataObjects getSmDataObjects() {
+		CommandApdu smApdu = processingData.getCommandApdu();
 		
-		lengthOfMacInputData = header.length + paddingHeader.length;
+		if(smApdu.getIsoCase() != ISO_CASE_4) {
+			throw new IllegalArgumentException("SM APDU is expected to be ISO case 4");
+		}
 		
-		if(isoCaseOfPlainAPDU > 2) {
-			tlv87Plain = cryptogram.toByteArray();
-			lengthOfMacInputData += tlv87Plain.length;
-			
-			try {
-				macInputStream.write(tlv87Plain);
-			} catch (IOException e) {
-				logException(this, e);
-			}
+		if (!(smApdu instanceof IsoSecureMessagingCommandApdu)){
+			throw new IllegalArgumentException("SM APDU is expected to be an IsoSecureMessagingCommandApdu");
 		}
 		
-		if((isoCaseOfPlainAPDU == 2) || (isoCaseOfPlainAPDU == 4)) {
-			tlv97Plain = tlvObject97.toByteArray();
-			lengthOfMacInputData += tlvObject97.getLength();
+		byte[] apdu = smApdu.toByteArray();
+		int offsetData = smApdu.isExtendedLength() ? 7 : 5;
+		byte tagCryptogram = (smApdu.getIns() % 2 == 0) ? (byte) 0x87 : (byte) 0x85;
+		
+		SmDataObjects smDataObjects = new SmDataObjects(apdu, offsetData, offsetData + smApdu.getNc(), tagCryptogram);
+		
+		if(!smDataObjects.has8E()) {
+			//create and propagate response APDU
+			ResponseApdu resp = new ResponseApdu(Iso7816.SW_6987_EXPECTED_SM_DATA_OBJECTS_MISSING);
+			processingData.updateResponseAPDU(this, "SM APDU is expected to contain tag 8E (mac)", resp);
 			
-			try {
-				macInputStream.write(tlv97Plain);
-			} catch (IOException e) {
-				logException(this, e);
-			}
+			throw new IllegalArgumentException("SM APDU is expected to contain tag 8E (mac)");
 		}
 		
-		if(isoCaseOfPlainAPDU > 1) {
-			/* mac input must be padded to match block size */
-			log(this, "length of mac input data is " + lengthOfMacInputData + " bytes", TRACE);
-			paddingLengthMacInput = blockSize - ((lengthOfMacInputData + 1) % blockSize) + 1;
-			log(this, "mac input data needs " + paddingLengthMacInput + " bytes padding to match multiple of blockSize " + blockSize, TRACE);
-			paddingMacInput = new byte[paddingLengthMacInput];
-			Arrays.fill(paddingMacInput, (byte) 0x00);
-			paddingMacInput[0] = (byte) 0x80;
-			log(this, "padding of mac input data is " + HexString.encode(paddingMacInput), TRACE);
+		return smDataObjects;
+	}
+	
+	/**
+	 * This method returns the {@link Mac} provided by the data provider
+	 * initialized with the mac key and the auxiliary data.
+	 * @return the initialized mac
+	 */
+	private Mac initMac() {
+		Mac mac = dataProvider.getMac();
+		try {
+			mac.init(dataProvider.getKeyMac());
+		} catch (InvalidKeyException e) {
+			throw new IllegalArgumentException(e);
+		}
+		mac.update(dataProvider.getMacAuxiliaryData());
+		return mac;
+	}
+	
+	/**
+	 * This method feeds the padding according to ISO7816-4 into the provided
+	 * mac.
+	 * @param mac the mac to update
+	 * @param lengthOfMacInputData the number of bytes to be padded
+	 * @param blockSize the block size
+	 */
+	private static void updateMacWithPadding(Mac mac, int lengthOfMacInputData, int blockSize) {
+		mac.update((byte) 0x80);
+		for (int i = (lengthOfMacInputData + 1) % blockSize; (i > 0) && (i < blockSize); i++) {
+			mac.update((byte) 0x00);
+		}
+	}
+	
+	/**
+	 * This method encrypts the provided range in place using the cipher, key
+	 * and iv provided by the data provider.
+	 * @param data the array containing the padded plain text
+	 * @param offset the offset of the plain text
+	 * @param length the length of the plain text
+	 */
+	private void encrypt(byte[] data, int offset, int length) {
+		Cipher cipher = dataProvider.getCipher();
+		try {
+			cipher.init(Cipher.ENCRYPT_MODE, dataProvider.getKeyEnc(), dataProvider.getCipherIv());
+			cipher.doFinal(data, offset, length, data, offset);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalArgumentException("encryption failed", e);
+		}
+	}
+	
+	/**
+	 * This method decrypts the provided range using the cipher, key and iv
+	 * provided by the data provider.
+	 * @param data the array containing the cipher text
+	 * @param offset the offset of the cipher text
+	 * @param length the length of the cipher text
+	 * @return the padded plain text
+	 */
+	private byte[] decrypt(byte[] data, int offset, int length) {
+		Cipher cipher = dataProvider.getCipher();
+		try {
+			cipher.init(Cipher.DECRYPT_MODE, dataProvider.getKeyEnc(), dataProvider.getCipherIv());
+			return cipher.doFinal(data, offset, length);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalArgumentException("decryption failed", e);
+		}
+	}
+	
+	/**
+	 * This class locates the data objects relevant for secure messaging within
+	 * the raw bytes of an SM secured command APDU. Only the first occurrence of
+	 * each data object is taken into account.
+	 */
+	private static final class SmDataObjects {
+		
+		private final byte[] apdu;
+		private final byte tagCryptogram;
+		
+		private int offsetCryptogram = -1, lengthCryptogram, valueOffsetCryptogram, valueLengthCryptogram;
+		private int offset97 = -1, length97, valueOffset97, valueLength97;
+		private int valueOffset8E = -1, valueLength8E;
+		
+		/**
+		 * @param apdu the raw APDU bytes
+		 * @param offsetData the offset of the command data field
+		 * @param endData the offset following the command data field
+		 * @param tagCryptogram the tag of the data object containing the cryptogram
+		 */
+		SmDataObjects(byte[] apdu, int offsetData, int endData, byte tagCryptogram) {
+			this.apdu = apdu;
+			this.tagCryptogram = tagCryptogram;
 			
-			try {
-				macInputStream.write(paddingMacInput);
-			} catch (IOException e) {
-				logException(this, e);
+			int offset = offsetData;
+			while (offset < endData) {
+				int offsetTag = offset;
+				byte tag = apdu[offset++];
+				boolean multiByteTag = (tag & 0x1F) == 0x1F;
+				if (multiByteTag) {
+					while ((offset < endData) && ((apdu[offset++] & 0x80) != 0)) {
+						// skip subsequent tag bytes
+					}
+				}
+				
+				if (offset >= endData) {
+					throw new IllegalArgumentException("SM data object is truncated");
+				}
+				
+				int length = apdu[offset++] & 0xFF;
+				if (length > 0x80) {
+					int noOfLengthBytes = length & 0x7F;
+					if ((noOfLengthBytes > 3) || (offset + noOfLengthBytes > endData)) {
+						throw new IllegalArgumentException("invalid length field of SM data object");
+					}
+					length = 0;
+					for (int i = 0; i < noOfLengthBytes; i++) {
+						length = (length << 8) | (apdu[offset++] & 0xFF);
+					}
+				} else if (length == 0x80) {
+					throw new IllegalArgumentException("invalid length field of SM data object");
+				}
+				
+				if (offset + length > endData) {
+					throw new IllegalArgumentException("SM data object exceeds command data field");
+				}
+				
+				if (!multiByteTag) {
+					if ((tag == tagCryptogram) && (offsetCryptogram < 0)) {
+						offsetCryptogram = offsetTag;
+						lengthCryptogram = offset + length - offsetTag;
+						valueOffsetCryptogram = offset;
+						valueLengthCryptogram = length;
+					} else if ((tag == (byte) 0x97) && (offset97 < 0)) {
+						offset97 = offsetTag;
+						length97 = offset + length - offsetTag;
+						valueOffset97 = offset;
+						valueLength97 = length;
+					} else if ((tag == (byte) 0x8E) && (valueOffset8E < 0)) {
+						valueOffset8E = offset;
+						valueLength8E = length;
+					}
+				}
+				
+				offset += length;
 			}
 		}
 		
-
-		log(this, "padded mac input is " + HexString.encode(macInputStream.toByteArray()), TRACE);
-		
-		macResult = CryptoSupport.mac(dataProvider.getMac(), dataProvider.getMacAuxiliaryData(),
-				dataProvider.getCipher(), macInputStream.toByteArray(), dataProvider.getKeyMac(), dataProvider.getMacLength());
-		
-		log(this, "expected mac is : " + HexString.encode(macResult), DEBUG);
-		extractedMac = tlvObject8E.getValueField();
-		log(this, "extracted mac is: " + HexString.encode(extractedMac), DEBUG);
+		boolean hasCryptogram() {
+			return offsetCryptogram >= 0;
+		}
 		
-		if(Arrays.equals(macResult, extractedMac)) {
-			log(this, "mac match", DEBUG);
-			return true;
-		} else {
-			log(this, "mac mismatch", ERROR);
-			return false;
+		boolean has97() {
+			return offset97 >= 0;
 		}
 		
+		boolean has8E() {
+			return valueOffset8E >= 0;
+		}
 		
 	}
 	
@@ -587,15 +703,23 @@ public class SecureMessaging extends Layer implements TlvConstants{
 	 * @return the unpadded data
 	 */
 	public static byte[] unpadData(byte[] paddedData, int blockSize) {
+		return Arrays.copyOf(paddedData, getUnpaddedLength(paddedData, blockSize));
+	}
+	
+	/**
+	 * This method returns the length of padded data without its padding.
+	 * @param paddedData paddedData the data to check the padding of
+	 * @param blockSize the block size
+	 * @return the length of the unpadded data
+	 */
+	private static int getUnpaddedLength(byte[] paddedData, int blockSize) {
 		if(paddedData == null) {throw new NullPointerException("padded data must not be null");}
 		if(blockSize < 1) {throw new IllegalArgumentException("block size must be > 0");}
 		if(paddedData.length < 1) {throw new IllegalArgumentException("padded data is too short");}
 		
-		byte[] unpaddedData;
 		byte currentByte;
-		int offsetStart, offsetEnd;
+		int offsetEnd;
 		
-		offsetStart = 0;
 		offsetEnd = paddedData.length - 1;
 		
 		for (int i = 0; i < blockSize; i++) {
@@ -605,9 +729,7 @@ public class SecureMessaging extends Layer implements TlvConstants{
 				offsetEnd--;
 			} else{
 				if(currentByte == (byte) 0x80) {
-					unpaddedData = new byte[offsetEnd - offsetStart];
-					System.arraycopy(paddedData, offsetStart, unpaddedData, 0, unpaddedData.length);
-					return unpaddedData;
+					return offsetEnd;
 				} else{
 					throw new IllegalArgumentException("invalid padding");
 				}
@@ -8,8 +8,7 @@ import javax.crypto.NoSuchPaddingException;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
-import org.globaltester.cryptoprovider.Crypto;
-
+import de.persosim.simulator.crypto.CryptoInstanceCache;
 import de.persosim.simulator.crypto.CryptoSupport;
 import de.persosim.simulator.crypto.CryptoUtil;
 import de.persosim.simulator.crypto.SendSequenceCounter;
@@ -23,10 +22,10 @@ public class SmDataProviderTr03110 implements SmDataProvider {
 		return SmDataProvider.class;
 	}
 
-	private Cipher cipher;
+	private String cipherAlgorithm;
 	private SecretKeySpec keyEnc;
 
-	private Mac mac;
+	private String macAlgorithm;
 	private SecretKeySpec keyMac;
 	
 	private boolean pendingCommandApdu;
@@ -36,13 +35,22 @@ public class SmDataProviderTr03110 implements SmDataProvider {
 	 */
 	private SendSequenceCounter ssc;
 
+	/**
+	 * Initialization vector derived from the current value of {@link #ssc},
+	 * computed on first request and discarded whenever the ssc is incremented
+	 */
+	private transient IvParameterSpec cipherIv;
+
 	public SmDataProviderTr03110(SecretKeySpec cipherKey, SecretKeySpec macKey, SendSequenceCounter newSsc) {
 		keyEnc = cipherKey;
 		keyMac = macKey;
 		
+		cipherAlgorithm = keyEnc.getAlgorithm();
+		
+		// ensure the cipher is available
+		getCipher(cipherAlgorithm);
+		
 		try {
-			cipher = getCipher(keyEnc.getAlgorithm());
-			
 			// XXX AMY use new Crypto wrappers here
 			// According to developer consens we want to create wrapper objects that
 			// encapsulate Cipher or Mac resp. together with the relevant key. These
@@ -53,14 +61,17 @@ public class SmDataProviderTr03110 implements SmDataProvider {
 			// The differentiation between Cipher and Mac wrappers is intended to be
 			// according to the JavaCryptoApi. 
 			// {@link CryptoSupport}
-			if (CryptoUtil.getCipherNameAsString(cipher.getAlgorithm()).equals(
+			if (CryptoUtil.getCipherNameAsString(cipherAlgorithm).equals(
 					"DESede")) {
 				// 3DES
-				mac = Mac.getInstance("ISO9797ALG3", Crypto.getCryptoProvider());
+				macAlgorithm = "ISO9797ALG3";
 			} else {
 				//AES
-				mac = Mac.getInstance(keyMac.getAlgorithm(), Crypto.getCryptoProvider());
+				macAlgorithm = keyMac.getAlgorithm();
 			}
+			
+			// ensure the mac is available
+			CryptoInstanceCache.getMac(macAlgorithm);
 		} catch (NoSuchAlgorithmException e) {
 			throw new CryptoException(e);
 		}
@@ -76,7 +87,7 @@ public class SmDataProviderTr03110 implements SmDataProvider {
 	
 	private static Cipher getCipher(String algorithm) {
 		try {
-			return Cipher.getInstance(algorithm, Crypto.getCryptoProvider());
+			return CryptoInstanceCache.getCipher(algorithm);
 		} catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
 			throw new CryptoException(e);
 		}
@@ -92,6 +103,7 @@ public class SmDataProviderTr03110 implements SmDataProvider {
 	public void nextIncoming() {
 		if(!pendingCommandApdu) {
 			ssc.increment();
+			cipherIv = null;
 			pendingCommandApdu = true;
 		}
 	}
@@ -100,27 +112,37 @@ public class SmDataProviderTr03110 implements SmDataProvider {
 	public void nextOutgoing() {
 		if(pendingCommandApdu) {
 			ssc.increment();
+			cipherIv = null;
 			pendingCommandApdu = false;
 		}
 	}
 
+	/**
+	 * The cipher is requested from {@link CryptoInstanceCache} on every call,
+	 * so the returned instance must only be used within the calling thread.
+	 */
 	@Override
 	public Cipher getCipher() {
-		return cipher;
+		return getCipher(cipherAlgorithm);
 	}
 
 	@Override
 	public IvParameterSpec getCipherIv() {
+		if (cipherIv != null) {
+			return cipherIv;
+		}
+
 		byte[] cipherIvPlain;
 		//XXX AMY use new Crypto wrappers here (details see above)
-		if (CryptoUtil.getCipherNameAsString(cipher.getAlgorithm()).equals("DESede")) {
+		if (CryptoUtil.getCipherNameAsString(cipherAlgorithm).equals("DESede")) {
 			//3DES
 			cipherIvPlain = new byte[8];
 		} else {
 			//AES
-			cipherIvPlain = CryptoSupport.encryptWithIvZero(cipher, ssc.toByteArray(), keyEnc);
+			cipherIvPlain = CryptoSupport.encryptWithIvZero(getCipher(), ssc.toByteArray(), keyEnc);
 		}
-		return new IvParameterSpec(cipherIvPlain);
+		cipherIv = new IvParameterSpec(cipherIvPlain);
+		return cipherIv;
 	}
 
 	@Override
@@ -128,9 +150,17 @@ public class SmDataProviderTr03110 implements SmDataProvider {
 		return keyEnc;
 	}
 
+	/**
+	 * The mac is requested from {@link CryptoInstanceCache} on every call, so
+	 * the returned instance must only be used within the calling thread.
+	 */
 	@Override
 	public Mac getMac() {
-		return mac;
+		try {
+			return CryptoInstanceCache.getMac(macAlgorithm);
+		} catch (NoSuchAlgorithmException e) {
+			throw new CryptoException(e);
+		}
 	}
 
 	@Override
@@ -5,28 +5,31 @@ import javax.crypto.spec.SecretKeySpec;
 import de.persosim.simulator.crypto.SendSequenceCounter;
 import de.persosim.simulator.secstatus.AbstractSecMechanism;
 import de.persosim.simulator.secstatus.SecMechanism;
-import de.persosim.simulator.utils.Serialized;
-import de.persosim.simulator.utils.Serializer;
 
 /**
  * This class represents an immutable representation of an {@link SmDataProviderTr03110}.
  * 
+ * The session state is stored as a plain value snapshot. The keys are kept by
+ * reference as {@link SecretKeySpec} objects are immutable, the
+ * {@link SendSequenceCounter} is copied on construction and again on every
+ * generation of a new {@link SmDataProviderTr03110}.
+ * 
  * @author slutters
- *
+ * 
  */
 public class SmDataProviderTr03110Generator extends AbstractSecMechanism implements SmDataProviderGenerator {
 	
-	private Serialized<SecretKeySpec> serializedKeyEnc;
-	private Serialized<SecretKeySpec> serializedKeyMac;
-	private Serialized<SendSequenceCounter> serializedSsc;
-	private boolean pendingCommandApdu;
+	private final SecretKeySpec keyEnc;
+	private final SecretKeySpec keyMac;
+	private final SendSequenceCounter ssc;
+	private final boolean pendingCommandApdu;
 	
 	
 	
 	public SmDataProviderTr03110Generator(SecretKeySpec keyEnc, SecretKeySpec keyMac, SendSequenceCounter ssc, boolean pendingCommandApdu) {
-		serializedKeyEnc = Serializer.serialize(keyEnc);
-		serializedKeyMac = Serializer.serialize(keyMac);
-		serializedSsc    = Serializer.serialize(ssc);
+		this.keyEnc = keyEnc;
+		this.keyMac = keyMac;
+		this.ssc    = new SendSequenceCounter(ssc);
 		
 		this.pendingCommandApdu = pendingCommandApdu;
 	}
@@ -40,20 +43,18 @@ public class SmDataProviderTr03110Generator extends AbstractSecMechanism impleme
 	
 	@Override
 	public SmDataProviderTr03110 generateSmDataProvider() {
-		SecretKeySpec keyEncNew = Serializer.deserialize(serializedKeyEnc);
-		SecretKeySpec keyMacNew = Serializer.deserialize(serializedKeyMac);
-		SendSequenceCounter sscNew = Serializer.deserialize(serializedSsc);
+		SendSequenceCounter sscNew = new SendSequenceCounter(ssc);
 		
 		if(pendingCommandApdu) {
 			sscNew.increment();
 		}
 		
-		return new SmDataProviderTr03110(keyEncNew, keyMacNew, sscNew);
+		return new SmDataProviderTr03110(keyEnc, keyMac, sscNew);
 	}
 	
 	@Override
 	public Class<? extends SecMechanism> getKey() {
 		return SmDataProviderGenerator.class;
 	}
-
+	
 }
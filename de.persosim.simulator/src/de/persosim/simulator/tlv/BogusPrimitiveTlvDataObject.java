@@ -39,6 +39,15 @@ public class BogusPrimitiveTlvDataObject extends PrimitiveTlvDataObject {
 		this.omitTlvValue = omitTlvValue;
 	}
 	
+	/**
+	 * Copy constructor, creates a deep copy of the provided object.
+	 * @param template the object to copy
+	 */
+	protected BogusPrimitiveTlvDataObject(BogusPrimitiveTlvDataObject template) {
+		super(template);
+		this.omitTlvValue = template.omitTlvValue;
+	}
+	
 	@Override
 	public void setTag(TlvTag tlvTagInput, boolean performValidityChecksInput) {
 		if(tlvTagInput == null) {throw new NullPointerException("tag must not be null");}
@@ -46,11 +55,25 @@ public class BogusPrimitiveTlvDataObject extends PrimitiveTlvDataObject {
 		performValidityChecks = false;
 		
 		/*
-		 * TLV tag must be cloned to eliminate outside access to this object.
-		 * The tag must only be set by methods offered by this class e.g. to
-		 * prevent setting the primitive tag to be a constructed tag.
+		 * TLV tags are immutable and hence are shared instead of cloned.
+		 * Containers index their objects by tag, so they must be notified
+		 * if the tag of an existing object changes.
 		 */
-		tlvTag = tlvTagInput.clone();
+		if((tlvTag != null) && !tlvTag.matches(tlvTagInput)) {
+			TlvDataObjectContainer.tagModified();
+		}
+		tlvTag = tlvTagInput;
+		modified();
+	}
+	
+	@Override
+	public BogusPrimitiveTlvDataObject copy() {
+		return new BogusPrimitiveTlvDataObject(this);
+	}
+	
+	@Override
+	boolean hasCustomEncoding() {
+		return omitTlvValue;
 	}
 	
 	@Override
@@ -158,6 +158,16 @@ public class ConstructedTlvDataObject extends TlvDataObject implements TlvDataSt
 		this(tlvTagInput, new TlvDataObjectContainer());
 	}
 	
+	/**
+	 * Copy constructor, creates a deep copy of the provided object including
+	 * all of its sub-elements.
+	 * @param template the object to copy
+	 */
+	protected ConstructedTlvDataObject(ConstructedTlvDataObject template) {
+		super(template);
+		tlvDataObjectContainer = template.tlvDataObjectContainer.copy();
+	}
+	
 	/*--------------------------------------------------------------------------------*/
 
 	@Override
@@ -173,11 +183,15 @@ public class ConstructedTlvDataObject extends TlvDataObject implements TlvDataSt
 		}
 		
 		/*
-		 * TLV tag must be cloned to eliminate outside access to this object.
-		 * The tag must only be set by methods offered by this class e.g. to
-		 * prevent setting the primitive tag to be a constructed tag.
+		 * TLV tags are immutable and hence are shared instead of cloned.
+		 * Containers index their objects by tag, so they must be notified
+		 * if the tag of an existing object changes.
 		 */
-		tlvTag = tlvTagInput.clone();
+		if((tlvTag != null) && !tlvTag.matches(tlvTagInput)) {
+			TlvDataObjectContainer.tagModified();
+		}
+		tlvTag = tlvTagInput;
+		modified();
 	}
 	
 	/**
@@ -292,6 +306,7 @@ public class ConstructedTlvDataObject extends TlvDataObject implements TlvDataSt
 	public void setValue(TlvDataObjectContainer tlvDataObjectContainerInput) {
 		if(tlvDataObjectContainerInput == null) {throw new NullPointerException("value must not be null");}
 		tlvDataObjectContainer = (TlvDataObjectContainer) tlvDataObjectContainerInput;
+		modified();
 	}
 
 	@Override
@@ -299,6 +314,21 @@ public class ConstructedTlvDataObject extends TlvDataObject implements TlvDataSt
 		return tlvDataObjectContainer;
 	}
 	
+	@Override
+	int measureValue(TlvEncoder encoder) {
+		return encoder.measure(tlvDataObjectContainer);
+	}
+	
+	@Override
+	void writeValue(TlvEncoder encoder) {
+		encoder.writeChildren(tlvDataObjectContainer);
+	}
+	
+	@Override
+	public ConstructedTlvDataObject copy() {
+		return new ConstructedTlvDataObject(this);
+	}
+	
 	@Override
 	public boolean isValidBerEncoding() {
 		if(!super.isValidBerEncoding()) {return false;}
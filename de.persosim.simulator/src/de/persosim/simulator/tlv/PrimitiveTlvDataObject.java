@@ -142,6 +142,15 @@ public class PrimitiveTlvDataObject extends TlvDataObject {
 		this(tlvTagInput, new TlvValuePlain());
 	}
 	
+	/**
+	 * Copy constructor, creates a deep copy of the provided object.
+	 * @param template the object to copy
+	 */
+	protected PrimitiveTlvDataObject(PrimitiveTlvDataObject template) {
+		super(template);
+		tlvValuePlain = template.tlvValuePlain.copy();
+	}
+	
 	/*--------------------------------------------------------------------------------*/
 	
 	@Override
@@ -157,11 +166,15 @@ public class PrimitiveTlvDataObject extends TlvDataObject {
 		}
 		
 		/*
-		 * TLV tag must be cloned to eliminate outside access to this object.
-		 * The tag must only be set by methods offered by this class e.g. to
-		 * prevent setting the primitive tag to be a constructed tag.
+		 * TLV tags are immutable and hence are shared instead of cloned.
+		 * Containers index their objects by tag, so they must be notified
+		 * if the tag of an existing object changes.
 		 */
-		tlvTag = tlvTagInput.clone();
+		if((tlvTag != null) && !tlvTag.matches(tlvTagInput)) {
+			TlvDataObjectContainer.tagModified();
+		}
+		tlvTag = tlvTagInput;
+		modified();
 	}
 	
 	@Override
@@ -193,6 +206,7 @@ public class PrimitiveTlvDataObject extends TlvDataObject {
 	public void setValue(TlvValuePlain tlvValuePlainInput) {
 		if(tlvValuePlainInput == null) {throw new NullPointerException("value must not be null");}	
 		tlvValuePlain = tlvValuePlainInput;
+		modified();
 	}
 
 	@Override
@@ -200,6 +214,21 @@ public class PrimitiveTlvDataObject extends TlvDataObject {
 		return tlvValuePlain;
 	}
 	
+	@Override
+	int measureValue(TlvEncoder encoder) {
+		return encoder.measure(tlvValuePlain);
+	}
+	
+	@Override
+	void writeValue(TlvEncoder encoder) {
+		encoder.write(tlvValuePlain);
+	}
+	
+	@Override
+	public PrimitiveTlvDataObject copy() {
+		return new PrimitiveTlvDataObject(this);
+	}
+	
 	@Override
 	public boolean isValidBerEncoding() {
 		if(!super.isValidBerEncoding()) {return false;}
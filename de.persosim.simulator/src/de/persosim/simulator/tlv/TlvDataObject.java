@@ -1,10 +1,6 @@
 package de.persosim.simulator.tlv;
 
-import static org.globaltester.logging.BasicLogger.DEBUG;
-import static org.globaltester.logging.BasicLogger.logException;
-
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import de.persosim.simulator.exception.ISO7816Exception;
@@ -25,16 +21,15 @@ import de.persosim.simulator.platform.Iso7816;
  * modified by direct access via reference later on, e.g. a primitive encoded
  * TLV data object being converted to a constructed one, a tag must not be
  * changed in any way without being noticed. Any change of this element hence
- * must be committed through methods provided by this object. In order for this
- * to happen the element is not set directly but as a clone of the respective
- * element, eliminating any outside access by reference. Accordingly any get
- * method also returns a clone of this element. On the contrary, these
- * precautions are unnecessary for the length field. As e.g. for constructed TLV
- * data objects the length field may change through changes to sub-objects, the
- * length field, when requested, can not be taken for being up-to-date. Hence
- * any length encoding that may be present must be checked. If no length
- * encoding is present or the length encoding does not match the actual value
- * field, the length field is re-calculated based upon the actual value field.
+ * must be committed through methods provided by this object. As tags are
+ * immutable, they can be set and returned by reference without allowing such
+ * modifications. On the contrary, the length field is not protected. As e.g.
+ * for constructed TLV data objects the length field may change through
+ * changes to sub-objects, the length field, when requested, can not be taken
+ * for being up-to-date. Hence any length encoding that may be present must be
+ * checked. If no length encoding is present or the length encoding does not
+ * match the actual value field, the length field is re-calculated based upon
+ * the actual value field.
  * Access to value fields also is not restricted. Validity of these fields is
  * checked on access. While value fields of primitive encoded TLV data objects
  * are always valid, validity of value fields of constructed TLV data objects
@@ -47,10 +42,9 @@ public abstract class TlvDataObject extends TlvElement implements Iso7816, Valid
 	
 	/* The tag component of any TLV data object 
 	 * 
-	 * The tag does not have to be immutable. However only methods from within this class hierarchy are allowed
-	 * to perform changes as long as they fulfill the following conditions
-	 * 1) No construct/set/get method is allowed to permit outside references to the tag.
-	 * 2) Tags may only be set or modified if the result matches the tag-class of its class
+	 * The tag is immutable and may be shared. However only methods from within this class hierarchy are allowed
+	 * to replace it as long as they fulfill the following condition:
+	 * Tags may only be set if they match the tag-class of its class
 	 * (e.g. tags within PrimitiveTlvDataObject must always be primitive).
 	 */
 	protected TlvTag tlvTag;
@@ -74,6 +68,9 @@ public abstract class TlvDataObject extends TlvElement implements Iso7816, Valid
 	
 	protected boolean performValidityChecks;
 	
+	/* The encoding cached by TlvEncoder, if any */
+	transient TlvEncoder.CachedEncoding cachedEncoding;
+	
 	/*--------------------------------------------------------------------------------*/
 	
 	/**
@@ -104,7 +101,7 @@ public abstract class TlvDataObject extends TlvElement implements Iso7816, Valid
 		 */
 		int currentOffset = minOffset;
 		
-		tlvTag = new TlvTag(dataField, currentOffset, maxOffset);
+		tlvTag = TlvTag.getInstance(dataField, currentOffset, maxOffset);
 		
 		/*
 		 * Determine Length
@@ -127,6 +124,21 @@ public abstract class TlvDataObject extends TlvElement implements Iso7816, Valid
 		/* The actual value is set by the sub-class constructors */
 	}
 	
+	/**
+	 * Copy constructor for TLV objects. The immutable tag is shared with and
+	 * an explicitly set length field is cloned from the provided template,
+	 * the value is to be copied by the sub-class constructors.
+	 * @param template the object to copy
+	 */
+	protected TlvDataObject(TlvDataObject template) {
+		performValidityChecks = template.performValidityChecks;
+		tlvTag = template.tlvTag;
+		
+		if(template.tlvLength != null) {
+			tlvLength = template.tlvLength.clone();
+		}
+	}
+	
 	/*--------------------------------------------------------------------------------*/
 	
 	/**
@@ -163,6 +175,7 @@ public abstract class TlvDataObject extends TlvElement implements Iso7816, Valid
 		}
 		
 		this.tlvLength = tlvLengthInput;
+		modified();
 	}
 	
 	/**
@@ -196,29 +209,23 @@ public abstract class TlvDataObject extends TlvElement implements Iso7816, Valid
 	
 	@Override
 	public int getLength() {
-		return getNoOfTagBytes() + getNoOfLengthBytes() + getNoOfValueBytes();
+		return TlvEncoder.getLength(this);
 	}
 	
 	/*--------------------------------------------------------------------------------*/
 	
 	@Override
 	public byte[] toByteArray() {
-		ByteArrayOutputStream outputStream;
-		
-		outputStream = new ByteArrayOutputStream();
-		
-		try {
-			/* tag can be accessed directly */
-			outputStream.write(tlvTag.toByteArray());
-			/* length must be accessed by getter in case there is a valid override */
-			outputStream.write(getTlvLength().toByteArray());
-			/* value must be accessed by getter as values are only specified by sub classes */
-			outputStream.write(getTlvValue().toByteArray());
-		} catch (IOException e) {
-			logException(this.getClass(), e, DEBUG);
-		}
-
-		return outputStream.toByteArray();
+		return TlvEncoder.encode(this);
+	}
+	
+	/**
+	 * Encodes this object into the provided buffer, see {@link TlvEncoder#encode(TlvDataObject, ByteBuffer)}.
+	 * @param buffer the buffer to write the encoding to
+	 * @return the number of bytes written
+	 */
+	public int writeTo(ByteBuffer buffer) {
+		return TlvEncoder.encode(this, buffer);
 	}
 	
 	/**
@@ -243,17 +250,13 @@ public abstract class TlvDataObject extends TlvElement implements Iso7816, Valid
 	public abstract byte[] getValueField();
 
 	/**
-	 * The tag returned is a clone of the original object.
-	 * This is necessary for the following reasons:
-	 * The type of this object allows changes in general.
-	 * These changes may be valid for themselves while being
-	 * invalid as part of the TLV data object represented
-	 * by this class.
+	 * The tag returned is the original object, this is safe as
+	 * tags are immutable.
 	 * 
 	 * @return the tlvTag
 	 */
 	public TlvTag getTlvTag() {
-		return tlvTag.clone();
+		return tlvTag;
 	}
 
 	/**
@@ -292,11 +295,70 @@ public abstract class TlvDataObject extends TlvElement implements Iso7816, Valid
 		}
 	}
 	
+	/**
+	 * Returns the explicitly set length field to be encoded for a value field
+	 * of the given length, following the same rules as {@link #getTlvLength()}.
+	 * @param noOfValueBytes the actual length of the value field
+	 * @return the length field to be encoded or null if the length is to be DER encoded
+	 */
+	TlvLength getExplicitTlvLength(int noOfValueBytes) {
+		if(tlvLength == null) {
+			return null;
+		}
+		
+		if((tlvLength.getIndicatedLength() == noOfValueBytes) || !performValidityChecks) {
+			return tlvLength;
+		}
+		
+		/* discard invalid length field */
+		tlvLength = null;
+		return null;
+	}
+	
+	/**
+	 * Returns the length of the value field for {@link TlvEncoder}. Sub
+	 * classes override this method and {@link #writeValue(TlvEncoder)}
+	 * according to the type of their value field.
+	 * @param encoder the encoder measuring this object
+	 * @return the number of bytes of the value field
+	 */
+	int measureValue(TlvEncoder encoder) {
+		encoder.disableCaching();
+		return getTlvValue().getLength();
+	}
+	
+	/**
+	 * Writes the value field measured by {@link #measureValue(TlvEncoder)}.
+	 * @param encoder the encoder writing this object
+	 */
+	void writeValue(TlvEncoder encoder) {
+		encoder.write(getTlvValue().toByteArray());
+	}
+	
+	/**
+	 * Returns whether this object deviates from the encoding rules implemented
+	 * by {@link TlvEncoder}. If so, its encoding is taken from {@link #toByteArray()}.
+	 * @return whether this object provides a custom encoding
+	 */
+	boolean hasCustomEncoding() {
+		return false;
+	}
+	
 	/**
 	 * @return the tlvValue
 	 */
 	public abstract TlvValue getTlvValue();
 	
+	/**
+	 * Returns a deep copy of this TLV data object. The copy is created
+	 * structurally, i.e. without re-parsing any encoding, and preserves
+	 * explicitly set (even intentionally damaged) length fields as well as the
+	 * validity check setting of the original object.
+	 * 
+	 * @return a deep copy of this object
+	 */
+	public abstract TlvDataObject copy();
+	
 	@Override
 	public boolean isValidBerEncoding() {
 		/* first all T-L-V elements must be of valid encoding for themselves */
@@ -379,6 +441,7 @@ public abstract class TlvDataObject extends TlvElement implements Iso7816, Valid
 	
 	public void setPerformValidityChecksTo(boolean performValidityChecksInput) {
 		performValidityChecks = performValidityChecksInput;
+		modified();
 	}
 	
 	/**
@@ -1,14 +1,12 @@
 package de.persosim.simulator.tlv;
 
-import static org.globaltester.logging.BasicLogger.logException;
-
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
 
 import de.persosim.simulator.platform.Iso7816;
 
@@ -24,12 +22,28 @@ import de.persosim.simulator.platform.Iso7816;
  * dedicated tag or explicit length field. Objects of this class may also be
  * used as a representation of APDU command data fields.
  * 
+ * The contained objects are kept in the order they have been added. Objects
+ * of this class are not synchronized. Lookups by tag scan the contained
+ * objects, wide containers additionally build an index of the first
+ * occurrence of each tag on the first lookup. The index is dropped by every
+ * modification of the container and by every tag changed in any TLV data
+ * object.
+ * 
  * @author slutters
  * 
  */
 public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvDataStructure {
 	
-	protected Vector<TlvDataObject> tlvObjects;
+	/* the minimum number of contained objects for lookups to use an index */
+	private static final int MIN_NO_OF_INDEXED_ELEMENTS = 8;
+	
+	private static final AtomicLong tagModificationCount = new AtomicLong();
+	
+	protected List<TlvDataObject> tlvObjects;
+	
+	/* index of the first occurrence of each tag, null if not yet built or outdated */
+	private transient HashMap<TlvTag, Integer> tagIndex;
+	private transient long tagIndexModificationCount;
 	
 	/*--------------------------------------------------------------------------------*/
 	
@@ -40,7 +54,7 @@ public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvData
 	 * this TLV structure although the structure is empty.
 	 */
 	public TlvDataObjectContainer() {
-		this.tlvObjects = new Vector<TlvDataObject>();
+		this.tlvObjects = new ArrayList<TlvDataObject>();
 	}
 	
 	/**
@@ -55,7 +69,7 @@ public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvData
 		if(maxOffset < minOffset) {throw new IllegalArgumentException("max offset must not be smaller than min offset");}
 		if(maxOffset > dataField.length) {throw new IllegalArgumentException("selected array area must not lie outside of data array");}
 		
-		this.tlvObjects = new Vector<TlvDataObject>();
+		this.tlvObjects = new ArrayList<TlvDataObject>();
 		
 		if(minOffset == maxOffset) {
 			/* The TLV data object container is empty */
@@ -108,8 +122,8 @@ public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvData
 		this(tlvValue.toByteArray(), 0, tlvValue.getLength());
 	}
 	
-	public TlvDataObjectContainer(Vector<TlvDataObject> tlvObjects) {
-		this.tlvObjects = tlvObjects;
+	public TlvDataObjectContainer(List<TlvDataObject> tlvObjects) {
+		this.tlvObjects = new ArrayList<TlvDataObject>(tlvObjects);
 	}
 
 	/*--------------------------------------------------------------------------------*/
@@ -146,10 +160,21 @@ public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvData
 	@Override
 	public TlvDataObject getTlvDataObject(TlvTagIdentifier tagIdentifier) {
 		if(tagIdentifier == null) {throw new NullPointerException("tag must not be null");}
+		TlvTag tlvTag = tagIdentifier.getTag();
 		int remainingOccurences = tagIdentifier.getNoOfPreviousOccurrences();
+		int firstIndex = 0;
 		
-		for(TlvDataObject tlvDataObject : this.tlvObjects) {
-			if(tlvDataObject.getTlvTag().equals(tagIdentifier.getTag())) {
+		if(tlvObjects.size() >= MIN_NO_OF_INDEXED_ELEMENTS) {
+			Integer indexedFirstIndex = getTagIndex().get(tlvTag);
+			if(indexedFirstIndex == null) {
+				return null;
+			}
+			firstIndex = indexedFirstIndex;
+		}
+		
+		for(int i = firstIndex; i < tlvObjects.size(); i++) {
+			TlvDataObject tlvDataObject = tlvObjects.get(i);
+			if(tlvDataObject.matches(tlvTag)) {
 				if (remainingOccurences == 0) {
 					return tlvDataObject;
 				} else {
@@ -161,6 +186,44 @@ public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvData
 		return null;
 	}
 	
+	/**
+	 * Returns the index of the first occurrence of each tag, building it if
+	 * necessary.
+	 */
+	private HashMap<TlvTag, Integer> getTagIndex() {
+		long currentModificationCount = tagModificationCount.get();
+		
+		if((tagIndex == null) || (tagIndexModificationCount != currentModificationCount)) {
+			HashMap<TlvTag, Integer> newTagIndex = new HashMap<>(tlvObjects.size() * 2);
+			for(int i = tlvObjects.size() - 1; i >= 0; i--) {
+				newTagIndex.put(tlvObjects.get(i).getTlvTag(), i);
+			}
+			tagIndex = newTagIndex;
+			tagIndexModificationCount = currentModificationCount;
+		}
+		
+		return tagIndex;
+	}
+	
+	/**
+	 * Invalidates the tag index of this container. This method must be called
+	 * by every method that modifies the list of contained objects.
+	 */
+	@Override
+	void modified() {
+		tagIndex = null;
+		super.modified();
+	}
+	
+	/**
+	 * Invalidates the tag indexes of all containers. This method must be
+	 * called whenever the tag of an existing TLV data object is changed as
+	 * the object may be part of any number of containers.
+	 */
+	static void tagModified() {
+		tagModificationCount.incrementAndGet();
+	}
+	
 	@Override
 	public TlvDataObject getTlvDataObject(TlvTag tlvTag) {
 		return getTlvDataObject(new TlvTagIdentifier(tlvTag));
@@ -198,36 +261,42 @@ public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvData
 	}
 
 	/**
-	 * @return the tlvObjects
+	 * @return an unmodifiable view of the tlvObjects
 	 */
 	public List<TlvDataObject> getTlvObjects() {
-		return tlvObjects;
+		return Collections.unmodifiableList(tlvObjects);
 	}
 	
 	@Override
 	public byte[] toByteArray() {
-		ByteArrayOutputStream outputStream;
-		byte[] tlvObjectAsByteArray;
-		
-		outputStream = new ByteArrayOutputStream();
-		
-		for(TlvDataObject tlvObject : this.tlvObjects) {
-			try {
-				tlvObjectAsByteArray = tlvObject.toByteArray();
-				outputStream.write(tlvObjectAsByteArray);
-			} catch (IOException e) {
-				logException(getClass(), e);
-			}
-		}
-
-		return outputStream.toByteArray();
+		return TlvEncoder.encode(this);
 	}
 	
 	/*--------------------------------------------------------------------------------*/
 
 	@Override
 	public Iterator<TlvDataObject> iterator() {
-		return this.tlvObjects.iterator();
+		final Iterator<TlvDataObject> iterator = this.tlvObjects.iterator();
+		
+		return new Iterator<TlvDataObject>() {
+			
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+			
+			@Override
+			public TlvDataObject next() {
+				return iterator.next();
+			}
+			
+			@Override
+			public void remove() {
+				iterator.remove();
+				modified();
+			}
+			
+		};
 	}
 	
 	/*--------------------------------------------------------------------------------*/
@@ -235,6 +304,7 @@ public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvData
 	@Override
 	public void sort(Comparator<TlvDataObject> comparator) {
 		Collections.sort(this.tlvObjects, comparator);
+		modified();
 	}
 	
 	@Override
@@ -252,6 +322,7 @@ public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvData
 		for (int i = 0; i < tlvDataObject.length; i++) {
 			this.tlvObjects.add(tlvDataObject[i]);	
 		}
+		modified();
 	}
 	
 	@Override
@@ -276,6 +347,7 @@ public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvData
 	public void removeTlvDataObject(TlvTagIdentifier tagIdentifier) {
 		TlvDataObject objToRemove = getTlvDataObject(tagIdentifier);
 		tlvObjects.remove(objToRemove);		
+		modified();
 	}
 	
 	@Override
@@ -285,15 +357,7 @@ public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvData
 
 	@Override
 	public int getLength() {
-		int length;
-		
-		length = 0;
-		
-		for(TlvDataObject tlvDataObject : this.tlvObjects) {
-			length += tlvDataObject.getLength();
-		}
-		
-		return length;
+		return TlvEncoder.getLength(this);
 	}
 	
 	@Override
@@ -341,9 +405,19 @@ public class TlvDataObjectContainer extends TlvValue implements Iso7816, TlvData
 		return true;
 	}
 	
+	/**
+	 * Returns a deep copy of this container. All contained objects are copied
+	 * structurally (see {@link TlvDataObject#copy()}) keeping their order.
+	 */
 	@Override
 	public TlvDataObjectContainer copy(){
-		return new TlvDataObjectContainer(this.toByteArray());
+		List<TlvDataObject> copiedObjects = new ArrayList<TlvDataObject>(tlvObjects.size());
+		
+		for(TlvDataObject tlvDataObject : tlvObjects) {
+			copiedObjects.add(tlvDataObject.copy());
+		}
+		
+		return new TlvDataObjectContainer(copiedObjects);
 	}
 	
 }
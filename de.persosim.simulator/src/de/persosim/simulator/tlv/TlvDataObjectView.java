@@ -0,0 +1,561 @@
+package de.persosim.simulator.tlv;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import de.persosim.simulator.exception.ISO7816Exception;
+import de.persosim.simulator.platform.Iso7816;
+import de.persosim.simulator.utils.HexString;
+
+/**
+ * This class implements a read-only view on a TLV data object that is encoded
+ * within a byte array. In contrast to {@link TlvDataObjectFactory} no object
+ * tree is built up front. Tag and length field are decoded when they are
+ * accessed, the value field is not copied and sub elements are only visited
+ * when they are explicitly traversed, e.g. by iterating over this view or
+ * navigating it with a {@link TlvPath}. Navigation works on offsets within the
+ * original byte array and does not allocate any intermediate objects, only the
+ * view on the finally identified object is created.
+ * <p/>
+ * This makes views the preferred way to inspect large encoded structures like
+ * CV certificates or EF.CardSecurity when only some of their elements are of
+ * interest. Where the full {@link TlvDataObject} API is needed, the viewed
+ * object or any of its sub elements can be materialized with
+ * {@link #toTlvDataObject()}.
+ * <p/>
+ * The encoding is checked with the same rules that are applied when parsing
+ * {@link TlvDataObject}s, but only for the parts that are actually accessed.
+ * {@link #checkEncoding()} performs the complete check up front. Malformed
+ * encodings cause an {@link ISO7816Exception}, just like the according
+ * constructors of {@link TlvDataObject}s.
+ * <p/>
+ * The view does not copy the byte array it is created on, hence the array must
+ * not be modified as long as the view or any of its sub views is in use.
+ */
+public final class TlvDataObjectView implements Iso7816, Iterable<TlvDataObjectView> {
+	
+	private final byte[] data;
+	private final int offset;
+	private final int maxOffset;
+	
+	/* decoded on first access, 0 indicates that the header has not yet been decoded */
+	private int noOfTagBytes;
+	private int noOfLengthBytes;
+	private int noOfValueBytes;
+	
+	/*--------------------------------------------------------------------------------*/
+	
+	/**
+	 * Constructor for a view on the TLV data object that starts at minOffset.
+	 * @param data the byte array that in a certain range contains the TLV data object
+	 * @param minOffset the first offset of the range to contain the TLV data object (inclusive)
+	 * @param maxOffset the first offset not to be part of the range to contain the TLV data object (exclusive).
+	 */
+	public TlvDataObjectView(byte[] data, int minOffset, int maxOffset) {
+		if(data == null) {throw new NullPointerException();}
+		if(minOffset < 0) {throw new IllegalArgumentException("min offset must not be less than 0");}
+		if(maxOffset < minOffset) {throw new IllegalArgumentException("max offset must not be smaller than min offset");}
+		if(maxOffset > data.length) {throw new IllegalArgumentException("selected array area must not lie outside of data array");}
+		if(minOffset == maxOffset) {throw new IllegalArgumentException("selected part of data field must be greater than 0");}
+		
+		this.data = data;
+		this.offset = minOffset;
+		this.maxOffset = maxOffset;
+	}
+	
+	/**
+	 * Constructor for a view on the TLV data object that starts at the first byte of the array.
+	 * @param data the byte array that contains the TLV data object
+	 */
+	public TlvDataObjectView(byte[] data) {
+		this(data, 0, data.length);
+	}
+	
+	/**
+	 * Constructor for a view on the encoding of an existing TLV data object.
+	 * @param tlvDataObject the TLV data object to be viewed
+	 */
+	public TlvDataObjectView(TlvDataObject tlvDataObject) {
+		this(tlvDataObject.toByteArray());
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	
+	private void decodeHeader() {
+		if(noOfTagBytes != 0) {
+			return;
+		}
+		
+		int tagBytes = getNoOfTagBytes(data, offset, maxOffset);
+		int lengthOffset = offset + tagBytes;
+		if(lengthOffset >= maxOffset) {
+			ISO7816Exception.throwIt(SW_6A85_NC_INCONSISTENT_WITH_TLV_STRUCTURE, "offset outside data array");
+		}
+		int lengthBytes = getNoOfLengthBytes(data, lengthOffset, maxOffset);
+		int valueBytes = getIndicatedLength(data, lengthOffset, lengthBytes);
+		
+		if((valueBytes < 0) || (valueBytes > (maxOffset - lengthOffset - lengthBytes))) {
+			/* error, length indicated by TLV would exceed expected length */
+			ISO7816Exception.throwIt(SW_6A85_NC_INCONSISTENT_WITH_TLV_STRUCTURE, "offset outside data array");
+		}
+		
+		noOfLengthBytes = lengthBytes;
+		noOfValueBytes = valueBytes;
+		noOfTagBytes = tagBytes;
+	}
+	
+	/**
+	 * @return the number of bytes occupied by the tag field
+	 */
+	public int getNoOfTagBytes() {
+		decodeHeader();
+		return noOfTagBytes;
+	}
+	
+	/**
+	 * @return the number of bytes occupied by the length field
+	 */
+	public int getNoOfLengthBytes() {
+		decodeHeader();
+		return noOfLengthBytes;
+	}
+	
+	/**
+	 * @return the number of bytes occupied by the value field
+	 */
+	public int getNoOfValueBytes() {
+		decodeHeader();
+		return noOfValueBytes;
+	}
+	
+	/**
+	 * @return the number of bytes occupied by the complete TLV data object
+	 */
+	public int getLength() {
+		decodeHeader();
+		return noOfTagBytes + noOfLengthBytes + noOfValueBytes;
+	}
+	
+	/**
+	 * @return the offset of the first byte of this TLV data object within the viewed byte array
+	 */
+	public int getOffset() {
+		return offset;
+	}
+	
+	/**
+	 * @return the offset of the first byte of the value field within the viewed byte array
+	 */
+	public int getValueOffset() {
+		decodeHeader();
+		return offset + noOfTagBytes + noOfLengthBytes;
+	}
+	
+	/**
+	 * @return the first offset after this TLV data object within the viewed byte array
+	 */
+	private int getEndOffset() {
+		return getValueOffset() + noOfValueBytes;
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	
+	/**
+	 * Returns the tag of this TLV data object. Common tags are interned by {@link TlvTag#getInstance(byte[], int, int)}.
+	 * Use {@link #matches(TlvTag)} in order to compare tags without creating them.
+	 * @return the tag of this TLV data object
+	 */
+	public TlvTag getTlvTag() {
+		decodeHeader();
+		return TlvTag.getInstance(data, offset, offset + noOfTagBytes);
+	}
+	
+	/**
+	 * This method matches the tag of this object against a provided tag
+	 * @param tlvTag the tlv tag to compare with
+	 * @return whether the tag of this object matches the provided tag
+	 */
+	public boolean matches(TlvTag tlvTag) {
+		decodeHeader();
+		return tlvTag.matches(data, offset, noOfTagBytes);
+	}
+	
+	/**
+	 * Returns whether this object is constructed encoded (bit 6 of first tag field == 1)
+	 * @return whether this object is constructed encoded
+	 */
+	public boolean isConstructed() {
+		return (data[offset] & (byte) 0x20) == (byte) 0x20;
+	}
+	
+	/**
+	 * Returns the length of the value field as indicated by the length field
+	 * @return the length of the value field as indicated by the length field
+	 */
+	public int getLengthValue() {
+		return getNoOfValueBytes();
+	}
+	
+	/**
+	 * @return a copy of the value field
+	 */
+	public byte[] getValueField() {
+		return Arrays.copyOfRange(data, getValueOffset(), getEndOffset());
+	}
+	
+	/**
+	 * @return a copy of the encoding of this TLV data object as present in the viewed byte array
+	 */
+	public byte[] toByteArray() {
+		return Arrays.copyOfRange(data, offset, getEndOffset());
+	}
+	
+	/**
+	 * Materializes the viewed TLV data object (including all of its sub
+	 * elements) as it would have been created by {@link TlvDataObjectFactory}.
+	 * @return a new TLV data object parsed from the viewed encoding
+	 */
+	public TlvDataObject toTlvDataObject() {
+		return TlvDataObjectFactory.createTLVDataObject(data, offset, getEndOffset());
+	}
+	
+	/**
+	 * Checks the complete encoding of this object including all sub elements
+	 * of constructed objects the same way it is checked when creating a
+	 * {@link TlvDataObject} from it. No objects are created during the check.
+	 * @throws ISO7816Exception if the encoding is malformed
+	 */
+	public void checkEncoding() {
+		checkEncoding(data, offset, getEndOffset());
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	
+	/**
+	 * Returns the view on the sub element identified by the provided path.
+	 * Navigation is performed the same way as for {@link TlvDataStructure}s.
+	 * @param path the path identifying the sub element relative to this object
+	 * @return the view on the identified sub element or null if there is none
+	 */
+	public TlvDataObjectView getTlvDataObject(TlvPath path) {
+		if((path == null) || (path.size() == 0)) {throw new NullPointerException();}
+		
+		int currentOffset = offset;
+		int currentMaxOffset = getEndOffset();
+		
+		for(int i = 0; i < path.size(); i++) {
+			if(!isConstructed(data, currentOffset)) {
+				return null;
+			}
+			int valueOffset = getValueOffset(data, currentOffset, currentMaxOffset);
+			int valueEndOffset = getEndOffset(data, currentOffset, currentMaxOffset);
+			
+			currentOffset = find(data, valueOffset, valueEndOffset, path.get(i));
+			if(currentOffset < 0) {
+				return null;
+			}
+			currentMaxOffset = valueEndOffset;
+		}
+		
+		return new TlvDataObjectView(data, currentOffset, currentMaxOffset);
+	}
+	
+	/**
+	 * Returns the view on the direct sub element identified by the provided tag identifier.
+	 * @param tagIdentifier the tag identifier identifying the sub element
+	 * @return the view on the identified sub element or null if there is none
+	 */
+	public TlvDataObjectView getTlvDataObject(TlvTagIdentifier tagIdentifier) {
+		if(tagIdentifier == null) {throw new NullPointerException("tag must not be null");}
+		if(!isConstructed()) {
+			return null;
+		}
+		
+		int valueEndOffset = getEndOffset();
+		int foundOffset = find(data, getValueOffset(), valueEndOffset, tagIdentifier);
+		if(foundOffset < 0) {
+			return null;
+		}
+		
+		return new TlvDataObjectView(data, foundOffset, valueEndOffset);
+	}
+	
+	/**
+	 * Returns the view on the first direct sub element with the provided tag.
+	 * @param tlvTag the tag of the sub element
+	 * @return the view on the identified sub element or null if there is none
+	 */
+	public TlvDataObjectView getTlvDataObject(TlvTag tlvTag) {
+		return getTlvDataObject(new TlvTagIdentifier(tlvTag));
+	}
+	
+	/**
+	 * Returns whether this object contains a direct sub element with the provided tag.
+	 * @param tlvTag the tag of the sub element
+	 * @return whether this object contains a direct sub element with the provided tag
+	 */
+	public boolean containsTlvDataObject(TlvTag tlvTag) {
+		if(!isConstructed()) {
+			return false;
+		}
+		
+		return find(data, getValueOffset(), getEndOffset(), new TlvTagIdentifier(tlvTag)) >= 0;
+	}
+	
+	/**
+	 * @return the number of direct sub elements, 0 for primitive objects
+	 */
+	public int getNoOfElements() {
+		if(!isConstructed()) {
+			return 0;
+		}
+		
+		int noOfElements = 0;
+		int valueEndOffset = getEndOffset();
+		int currentOffset = getValueOffset();
+		while(currentOffset < valueEndOffset) {
+			currentOffset = getEndOffset(data, currentOffset, valueEndOffset);
+			noOfElements++;
+		}
+		
+		return noOfElements;
+	}
+	
+	/**
+	 * Returns an iterator over views on the direct sub elements of this
+	 * object. Sub elements are decoded one by one while iterating. Primitive
+	 * objects do not have any sub elements.
+	 */
+	@Override
+	public Iterator<TlvDataObjectView> iterator() {
+		final int valueEndOffset = isConstructed() ? getEndOffset() : offset;
+		final int firstOffset = isConstructed() ? getValueOffset() : offset;
+		
+		return new Iterator<TlvDataObjectView>() {
+			
+			private int nextOffset = firstOffset;
+			
+			@Override
+			public boolean hasNext() {
+				return nextOffset < valueEndOffset;
+			}
+			
+			@Override
+			public TlvDataObjectView next() {
+				if(!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				
+				TlvDataObjectView next = new TlvDataObjectView(data, nextOffset, valueEndOffset);
+				nextOffset = next.getEndOffset();
+				return next;
+			}
+			
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException("TLV data object views are read-only");
+			}
+			
+		};
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	
+	@Override
+	public String toString() {
+		return HexString.encode(toByteArray());
+	}
+	
+	@Override
+	public boolean equals(Object anotherTlvDataObjectView) {
+		if(anotherTlvDataObjectView == null) {return false;}
+		
+		if (!(anotherTlvDataObjectView instanceof TlvDataObjectView)) {
+			return false;
+		}
+		
+		TlvDataObjectView other = (TlvDataObjectView) anotherTlvDataObjectView;
+		int length = getLength();
+		if(length != other.getLength()) {
+			return false;
+		}
+		
+		//views are considered equal iff they view the same T-L-V combination encoded in the same way
+		for(int i = 0; i < length; i++) {
+			if(data[offset + i] != other.data[other.offset + i]) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	@Override
+	public int hashCode() {
+		int hash = 1;
+		int endOffset = getEndOffset();
+		for (int i = offset; i < endOffset; i++) {
+			hash = 31 * hash + data[i];
+		}
+		return hash;
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	/*------------------- allocation free decoding of raw encodings ------------------*/
+	/*--------------------------------------------------------------------------------*/
+	
+	private static boolean isConstructed(byte[] data, int offset) {
+		return (data[offset] & (byte) 0x20) == (byte) 0x20;
+	}
+	
+	/**
+	 * Returns the offset of the first element within the given range that is
+	 * identified by the provided tag identifier.
+	 * @return the offset of the identified element or -1 if there is none
+	 */
+	private static int find(byte[] data, int minOffset, int maxOffset, TlvTagIdentifier tagIdentifier) {
+		TlvTag tag = tagIdentifier.getTag();
+		int remainingOccurrences = tagIdentifier.getNoOfPreviousOccurrences();
+		
+		int currentOffset = minOffset;
+		while(currentOffset < maxOffset) {
+			int endOffset = getEndOffset(data, currentOffset, maxOffset);
+			if(tag.matches(data, currentOffset, getNoOfTagBytes(data, currentOffset, maxOffset))) {
+				if(remainingOccurrences == 0) {
+					return currentOffset;
+				}
+				remainingOccurrences--;
+			}
+			currentOffset = endOffset;
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Checks the encoding of all TLV data objects contained in the given range recursively.
+	 */
+	private static void checkEncoding(byte[] data, int minOffset, int maxOffset) {
+		int currentOffset = minOffset;
+		while(currentOffset < maxOffset) {
+			int endOffset = getEndOffset(data, currentOffset, maxOffset);
+			if(isConstructed(data, currentOffset)) {
+				checkEncoding(data, getValueOffset(data, currentOffset, maxOffset), endOffset);
+			}
+			currentOffset = endOffset;
+		}
+	}
+	
+	/**
+	 * @return the offset of the value field of the TLV data object starting at offset
+	 */
+	private static int getValueOffset(byte[] data, int offset, int maxOffset) {
+		int lengthOffset = offset + getNoOfTagBytes(data, offset, maxOffset);
+		if(lengthOffset >= maxOffset) {
+			ISO7816Exception.throwIt(SW_6A85_NC_INCONSISTENT_WITH_TLV_STRUCTURE, "offset outside data array");
+		}
+		return lengthOffset + getNoOfLengthBytes(data, lengthOffset, maxOffset);
+	}
+	
+	/**
+	 * @return the first offset after the TLV data object starting at offset
+	 */
+	private static int getEndOffset(byte[] data, int offset, int maxOffset) {
+		int lengthOffset = offset + getNoOfTagBytes(data, offset, maxOffset);
+		if(lengthOffset >= maxOffset) {
+			ISO7816Exception.throwIt(SW_6A85_NC_INCONSISTENT_WITH_TLV_STRUCTURE, "offset outside data array");
+		}
+		int noOfLengthBytes = getNoOfLengthBytes(data, lengthOffset, maxOffset);
+		int valueOffset = lengthOffset + noOfLengthBytes;
+		int indicatedLength = getIndicatedLength(data, lengthOffset, noOfLengthBytes);
+		
+		if((indicatedLength < 0) || (indicatedLength > (maxOffset - valueOffset))) {
+			/* error, length indicated by TLV would exceed expected length */
+			ISO7816Exception.throwIt(SW_6A85_NC_INCONSISTENT_WITH_TLV_STRUCTURE, "offset outside data array");
+		}
+		
+		return valueOffset + indicatedLength;
+	}
+	
+	/**
+	 * Returns the number of bytes of the tag field starting at offset. The
+	 * same checks as in {@link TlvTag#TlvTag(byte[], int, int)} are applied.
+	 */
+	private static int getNoOfTagBytes(byte[] data, int offset, int maxOffset) {
+		if((data[offset] & (byte) 0x1F) != (byte) 0x1F) {
+			/* if this tag has a short tag, i.e. 1 byte tag field (0 <= tag <= 30) */
+			return 1;
+		}
+		
+		int currentOffset = offset + 1;
+		if(currentOffset >= maxOffset) {ISO7816Exception.throwIt(SW_6A85_NC_INCONSISTENT_WITH_TLV_STRUCTURE, "offset outside data array");}
+		byte currentByte = data[currentOffset];
+		
+		if((currentByte & (byte) 0x7F) == (byte) 0x00) {
+			/* error, second byte must not be 0 in bits 7-1, i.e. indicated tag length would have also fit into smaller tag */
+			ISO7816Exception.throwIt(SW_6A80_WRONG_DATA);
+		}
+		
+		if(((currentByte & (byte) 0x80) == (byte) 0x00) && ((currentByte & (byte) 0x7F) <= 30)) {
+			/* error, 2 byte tag must not encode a tag number <= 30 */
+			ISO7816Exception.throwIt(SW_6A80_WRONG_DATA);
+		}
+		
+		while((currentByte & (byte) 0x80) == (byte) 0x80) {
+			currentOffset++;
+			if(currentOffset >= maxOffset) {ISO7816Exception.throwIt(SW_6A85_NC_INCONSISTENT_WITH_TLV_STRUCTURE, "offset outside data array");}
+			currentByte = data[currentOffset];
+		}
+		
+		if(((currentOffset - offset) + 1) > 3) {
+			/* error, tag is longer than the allowed 3 bytes */
+			ISO7816Exception.throwIt(SW_6A80_WRONG_DATA);
+		}
+		
+		return (currentOffset - offset) + 1;
+	}
+	
+	/**
+	 * Returns the number of bytes of the length field starting at offset. The
+	 * same checks as in {@link TlvLength#setLengthField(byte[], int, int)} are applied.
+	 */
+	private static int getNoOfLengthBytes(byte[] data, int offset, int maxOffset) {
+		byte firstLengthByte = data[offset];
+		if((firstLengthByte & (byte) 0x80) != (byte) 0x80) {
+			return 1;
+		}
+		
+		/* if most significant bit is '1', i.e. we are not dealing with a 1-Byte length field */
+		int noOfBytesUsedToIndicateLength = (firstLengthByte & 0x7F) + 1;
+		
+		if((noOfBytesUsedToIndicateLength <= 1) || (noOfBytesUsedToIndicateLength > 5)) {
+			/* error, unspecified no of length bytes */
+			ISO7816Exception.throwIt(SW_6A80_WRONG_DATA);
+		}
+		
+		if((offset + noOfBytesUsedToIndicateLength) > maxOffset) {
+			ISO7816Exception.throwIt(SW_6A85_NC_INCONSISTENT_WITH_TLV_STRUCTURE, "offset outside data array");
+		}
+		
+		return noOfBytesUsedToIndicateLength;
+	}
+	
+	/**
+	 * Returns the length indicated by the length field starting at offset,
+	 * a negative value if the indicated length exceeds the range of int.
+	 */
+	private static int getIndicatedLength(byte[] data, int offset, int noOfLengthBytes) {
+		if(noOfLengthBytes == 1) {
+			return data[offset] & 0xFF;
+		}
+		
+		long indicatedLength = 0;
+		for(int i = 1; i < noOfLengthBytes; i++) {
+			indicatedLength = (indicatedLength << 8) | (data[offset + i] & 0xFF);
+		}
+		
+		return (indicatedLength > Integer.MAX_VALUE) ? -1 : (int) indicatedLength;
+	}
+	
+}
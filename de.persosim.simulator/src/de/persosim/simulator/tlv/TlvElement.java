@@ -20,6 +20,19 @@ import de.persosim.simulator.utils.HexString;
  */
 public abstract class TlvElement implements Iso7816, ValidityChecks {
 	
+	/* The number of modifications of this element, used by TlvEncoder to validate cached encodings */
+	transient int modificationCount;
+	
+	/*--------------------------------------------------------------------------------*/
+	
+	/**
+	 * Records a modification of this element. This method must be called by
+	 * every method that modifies the encoding of an existing element.
+	 */
+	void modified() {
+		modificationCount++;
+	}
+	
 	/**
 	 * Returns a byte array representation of this object.
 	 * @return a byte array representation of this object
@@ -0,0 +1,414 @@
+package de.persosim.simulator.tlv;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class encodes TLV data objects and containers in two passes. The first
+ * pass walks the tree once, computes the length of every value field and
+ * records it. The second pass writes tag, length and value fields of the
+ * whole tree into a single array of exactly the required size (or a provided
+ * {@link ByteBuffer}) using the recorded lengths, so no intermediate arrays
+ * are created and no sub tree is measured twice.
+ * <p/>
+ * The encoding of a {@link TlvDataObject} is cached once it has been requested
+ * twice without the object being modified in between. Cached encodings are
+ * reused whenever the object is encoded again, either directly or as part of
+ * an enclosing object. As TLV data structures may be shared and do not know
+ * their parents, every {@link TlvElement} counts its own modifications and a
+ * cached encoding stores the counts of all elements of the encoded tree. The
+ * encoding is valid as long as all of these counts are unchanged, i.e. only
+ * modifications within the tree invalidate it. Encodings of trees
+ * that contain values viewing foreign arrays (see
+ * {@link TlvValuePlain#view(byte[], int, int)}) or objects with custom
+ * encodings (see {@link BogusPrimitiveTlvDataObject}) are never cached.
+ * <p/>
+ * The resulting encodings are identical to the ones defined by
+ * {@link TlvDataObject#getTlvLength()}, i.e. explicitly set length fields are
+ * preserved as long as they are valid or validity checks are disabled.
+ */
+public final class TlvEncoder {
+	
+	/* markers for recorded value lengths */
+	private static final int RECORDED_ENCODING = -1;
+	
+	/* marker for objects without explicitly set length field within recorded modification counts */
+	private static final int NO_EXPLICIT_LENGTH = -1;
+	
+	private final boolean recording;
+	
+	/* modification counts of all visited elements in the order they are visited, only recorded if the encoding may be cached */
+	private int[] modificationCounts;
+	private int noOfModificationCounts;
+	
+	/* value lengths in the order the objects are visited, only recorded if needed for writing */
+	private int[] valueLengths;
+	private int noOfValueLengths;
+	private int nextValueLength;
+	
+	/* complete encodings of cached or custom encoded objects in the order they are visited */
+	private List<byte[]> encodings;
+	private int nextEncoding;
+	
+	/* difference between the actual encoded length and the length indicated by custom encoded objects */
+	private int lengthCorrection;
+	private boolean cacheable = true;
+	
+	private byte[] target;
+	private int targetOffset;
+	
+	private TlvEncoder(boolean recording) {
+		this.recording = recording;
+		if(recording) {
+			valueLengths = new int[16];
+		}
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	
+	/**
+	 * Returns the length of the given object as defined by {@link TlvDataObject#getLength()}.
+	 * @param tlvDataObject the object to be measured
+	 * @return the number of bytes of tag, length and value field
+	 */
+	public static int getLength(TlvDataObject tlvDataObject) {
+		return new TlvEncoder(false).measure(tlvDataObject);
+	}
+	
+	/**
+	 * Returns the length of the given container as defined by {@link TlvDataObjectContainer#getLength()}.
+	 * @param container the container to be measured
+	 * @return the number of bytes of all contained objects
+	 */
+	public static int getLength(TlvDataObjectContainer container) {
+		return new TlvEncoder(false).measure(container);
+	}
+	
+	/**
+	 * Encodes the given object.
+	 * @param tlvDataObject the object to be encoded
+	 * @return a new array containing the encoding
+	 */
+	public static byte[] encode(TlvDataObject tlvDataObject) {
+		CachedEncoding cachedEncoding = tlvDataObject.cachedEncoding;
+		boolean requestedBefore = (cachedEncoding != null) && cachedEncoding.isValidFor(tlvDataObject);
+		if(requestedBefore && (cachedEncoding.encoding != null)) {
+			return cachedEncoding.encoding.clone();
+		}
+		
+		TlvEncoder encoder = new TlvEncoder(true);
+		encoder.modificationCounts = new int[16];
+		byte[] encoding = new byte[encoder.measure(tlvDataObject) + encoder.lengthCorrection];
+		encoder.write(tlvDataObject, encoding, 0);
+		
+		if(encoder.cacheable) {
+			/* keep the encoding only if it is requested repeatedly, the first request just records the modification counts */
+			int[] modificationCounts = Arrays.copyOf(encoder.modificationCounts, encoder.noOfModificationCounts);
+			tlvDataObject.cachedEncoding = new CachedEncoding(modificationCounts, requestedBefore ? encoding.clone() : null);
+		}
+		
+		return encoding;
+	}
+	
+	/**
+	 * Encodes all objects of the given container.
+	 * @param container the container to be encoded
+	 * @return a new array containing the concatenated encodings of all contained objects
+	 */
+	public static byte[] encode(TlvDataObjectContainer container) {
+		TlvEncoder encoder = new TlvEncoder(true);
+		byte[] encoding = new byte[encoder.measure(container) + encoder.lengthCorrection];
+		encoder.target = encoding;
+		encoder.writeChildren(container);
+		return encoding;
+	}
+	
+	/**
+	 * Encodes the given object into the provided buffer, starting at its
+	 * current position. The position is advanced by the number of bytes
+	 * written.
+	 * @param tlvDataObject the object to be encoded
+	 * @param buffer the buffer to write the encoding to
+	 * @return the number of bytes written
+	 * @throws BufferOverflowException if the remaining space of the buffer is insufficient, the buffer is not modified in this case
+	 */
+	public static int encode(TlvDataObject tlvDataObject, ByteBuffer buffer) {
+		CachedEncoding cachedEncoding = tlvDataObject.cachedEncoding;
+		if((cachedEncoding != null) && (cachedEncoding.encoding != null) && cachedEncoding.isValidFor(tlvDataObject)) {
+			buffer.put(cachedEncoding.encoding);
+			return cachedEncoding.encoding.length;
+		}
+		
+		TlvEncoder encoder = new TlvEncoder(true);
+		int length = encoder.measure(tlvDataObject) + encoder.lengthCorrection;
+		if(buffer.remaining() < length) {
+			throw new BufferOverflowException();
+		}
+		
+		if(buffer.hasArray()) {
+			encoder.write(tlvDataObject, buffer.array(), buffer.arrayOffset() + buffer.position());
+			buffer.position(buffer.position() + length);
+		} else{
+			byte[] encoding = new byte[length];
+			encoder.write(tlvDataObject, encoding, 0);
+			buffer.put(encoding);
+		}
+		
+		return length;
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	/*------------------------------- first pass: measure ----------------------------*/
+	/*--------------------------------------------------------------------------------*/
+	
+	private int measure(TlvDataObject tlvDataObject) {
+		CachedEncoding cachedEncoding = tlvDataObject.cachedEncoding;
+		if((cachedEncoding != null) && (cachedEncoding.encoding != null) && cachedEncoding.isValidFor(tlvDataObject)) {
+			if(recording) {
+				recordEncoding(cachedEncoding.encoding);
+			}
+			recordModificationCounts(cachedEncoding.modificationCounts);
+			return cachedEncoding.encoding.length;
+		}
+		
+		if(recording && tlvDataObject.hasCustomEncoding()) {
+			int length = getLength(tlvDataObject);
+			byte[] encoding = tlvDataObject.toByteArray();
+			recordEncoding(encoding);
+			lengthCorrection += encoding.length - length;
+			cacheable = false;
+			return length;
+		}
+		
+		recordModificationCount(tlvDataObject.modificationCount);
+		int index = recordValueLength(0);
+		int noOfValueBytes = tlvDataObject.measureValue(this);
+		if(recording) {
+			valueLengths[index] = noOfValueBytes;
+		}
+		
+		int noOfLengthBytes = getNoOfLengthBytes(tlvDataObject, noOfValueBytes);
+		recordModificationCount((tlvDataObject.tlvLength == null) ? NO_EXPLICIT_LENGTH : tlvDataObject.tlvLength.modificationCount);
+		
+		return tlvDataObject.getNoOfTagBytes() + noOfLengthBytes + noOfValueBytes;
+	}
+	
+	/**
+	 * Measures all objects of the given container.
+	 * @return the sum of the lengths of all objects
+	 */
+	int measure(TlvDataObjectContainer container) {
+		recordModificationCount(container.modificationCount);
+		int length = 0;
+		for(TlvDataObject tlvDataObject : container.tlvObjects) {
+			length += measure(tlvDataObject);
+		}
+		return length;
+	}
+	
+	/**
+	 * Measures the given primitive value.
+	 * @return the length of the value
+	 */
+	int measure(TlvValuePlain tlvValuePlain) {
+		if(tlvValuePlain.isView()) {
+			cacheable = false;
+		}
+		recordModificationCount(tlvValuePlain.modificationCount);
+		return tlvValuePlain.getLength();
+	}
+	
+	/**
+	 * Excludes the current encoding from being cached.
+	 */
+	void disableCaching() {
+		cacheable = false;
+	}
+	
+	private int recordValueLength(int valueLength) {
+		if(!recording) {
+			return -1;
+		}
+		
+		if(noOfValueLengths == valueLengths.length) {
+			int[] newValueLengths = new int[valueLengths.length * 2];
+			System.arraycopy(valueLengths, 0, newValueLengths, 0, noOfValueLengths);
+			valueLengths = newValueLengths;
+		}
+		valueLengths[noOfValueLengths] = valueLength;
+		return noOfValueLengths++;
+	}
+	
+	private void recordModificationCount(int modificationCount) {
+		if(modificationCounts == null) {
+			return;
+		}
+		
+		if(noOfModificationCounts == modificationCounts.length) {
+			modificationCounts = Arrays.copyOf(modificationCounts, modificationCounts.length * 2);
+		}
+		modificationCounts[noOfModificationCounts++] = modificationCount;
+	}
+	
+	private void recordModificationCounts(int[] recordedModificationCounts) {
+		if(modificationCounts == null) {
+			return;
+		}
+		
+		int minLength = noOfModificationCounts + recordedModificationCounts.length;
+		if(minLength > modificationCounts.length) {
+			modificationCounts = Arrays.copyOf(modificationCounts, Math.max(minLength, modificationCounts.length * 2));
+		}
+		System.arraycopy(recordedModificationCounts, 0, modificationCounts, noOfModificationCounts, recordedModificationCounts.length);
+		noOfModificationCounts = minLength;
+	}
+	
+	private void recordEncoding(byte[] encoding) {
+		recordValueLength(RECORDED_ENCODING);
+		if(encodings == null) {
+			encodings = new ArrayList<>();
+		}
+		encodings.add(encoding);
+	}
+	
+	private static int getNoOfLengthBytes(TlvDataObject tlvDataObject, int noOfValueBytes) {
+		TlvLength explicitLength = tlvDataObject.getExplicitTlvLength(noOfValueBytes);
+		if(explicitLength != null) {
+			return explicitLength.getLength();
+		}
+		
+		return TlvLength.getMinNoOfBytesEncodingLength(noOfValueBytes);
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	/*-------------------------------- second pass: write ----------------------------*/
+	/*--------------------------------------------------------------------------------*/
+	
+	private void write(TlvDataObject tlvDataObject, byte[] target, int targetOffset) {
+		this.target = target;
+		this.targetOffset = targetOffset;
+		write(tlvDataObject);
+	}
+	
+	private void write(TlvDataObject tlvDataObject) {
+		int noOfValueBytes = valueLengths[nextValueLength++];
+		if(noOfValueBytes == RECORDED_ENCODING) {
+			write(encodings.get(nextEncoding++));
+			return;
+		}
+		
+		targetOffset += tlvDataObject.tlvTag.copyTo(target, targetOffset);
+		
+		TlvLength explicitLength = tlvDataObject.getExplicitTlvLength(noOfValueBytes);
+		if(explicitLength != null) {
+			targetOffset += explicitLength.copyTo(target, targetOffset);
+		} else{
+			writeDerLength(noOfValueBytes);
+		}
+		
+		tlvDataObject.writeValue(this);
+	}
+	
+	/**
+	 * Writes all objects of the given container.
+	 */
+	void writeChildren(TlvDataObjectContainer container) {
+		for(TlvDataObject tlvDataObject : container.tlvObjects) {
+			write(tlvDataObject);
+		}
+	}
+	
+	/**
+	 * Writes the given primitive value.
+	 */
+	void write(TlvValuePlain tlvValuePlain) {
+		targetOffset += tlvValuePlain.copyTo(target, targetOffset);
+	}
+	
+	/**
+	 * Writes the given bytes.
+	 */
+	void write(byte[] bytes) {
+		System.arraycopy(bytes, 0, target, targetOffset, bytes.length);
+		targetOffset += bytes.length;
+	}
+	
+	private void writeDerLength(int length) {
+		int noOfLengthBytes = TlvLength.getMinNoOfBytesEncodingLength(length);
+		if(noOfLengthBytes == 1) {
+			target[targetOffset++] = (byte) length;
+			return;
+		}
+		
+		target[targetOffset++] = (byte) (0x80 | (noOfLengthBytes - 1));
+		for(int i = noOfLengthBytes - 2; i >= 0; i--) {
+			target[targetOffset++] = (byte) (length >>> (8 * i));
+		}
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	
+	/**
+	 * The encoding of a TLV data object together with the modification counts
+	 * of all elements of the encoded tree it is valid for. The counts are
+	 * stored in the order the elements are visited by the first pass. The
+	 * encoding is null if it has only been requested once.
+	 */
+	static final class CachedEncoding {
+		
+		final int[] modificationCounts;
+		final byte[] encoding;
+		
+		CachedEncoding(int[] modificationCounts, byte[] encoding) {
+			this.modificationCounts = modificationCounts;
+			this.encoding = encoding;
+		}
+		
+		/**
+		 * Returns whether none of the elements of the given tree has been
+		 * modified since this encoding has been created.
+		 * @param tlvDataObject the object this encoding has been created for
+		 * @return whether this encoding is still valid
+		 */
+		boolean isValidFor(TlvDataObject tlvDataObject) {
+			return matches(tlvDataObject, 0) == modificationCounts.length;
+		}
+		
+		/**
+		 * Compares the modification counts of the given tree with the ones
+		 * recorded starting at the given index. As every modification of the
+		 * structure of a tree changes the count of the modified element, the
+		 * recorded counts can only run out if a count has been modified before.
+		 * @return the index following the counts of the given tree or -1 if any count differs
+		 */
+		private int matches(TlvDataObject tlvDataObject, int index) {
+			if(modificationCounts[index++] != tlvDataObject.modificationCount) {
+				return -1;
+			}
+			
+			/* cached trees only contain primitive and constructed objects, see TlvDataObject.measureValue(TlvEncoder) */
+			TlvValue tlvValue = tlvDataObject.getTlvValue();
+			if(modificationCounts[index++] != tlvValue.modificationCount) {
+				return -1;
+			}
+			
+			if(tlvValue instanceof TlvDataObjectContainer) {
+				for(TlvDataObject child : ((TlvDataObjectContainer) tlvValue).tlvObjects) {
+					index = matches(child, index);
+					if(index < 0) {
+						return -1;
+					}
+				}
+			}
+			
+			TlvLength tlvLength = tlvDataObject.tlvLength;
+			int lengthModificationCount = (tlvLength == null) ? NO_EXPLICIT_LENGTH : tlvLength.modificationCount;
+			return (modificationCounts[index] == lengthModificationCount) ? index + 1 : -1;
+		}
+		
+	}
+	
+}
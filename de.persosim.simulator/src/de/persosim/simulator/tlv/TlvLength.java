@@ -10,12 +10,26 @@ import de.persosim.simulator.utils.Utils;
  * field may be created or set with any value, i.e. by explicitly bypassing any
  * checks for validity or encoding. This explicitly allows for generating
  * intentionally damaged length fields.
+ * <p/>
+ * The length field is stored as a number, i.e. its bytes are packed into a
+ * long, so neither construction from a length value nor comparison of length
+ * fields requires any arrays. Only length fields longer than 8 bytes, which
+ * can only be created by skipping validity checks, are stored as byte array.
  * 
  * @author slutters
  * 
  */
 public class TlvLength extends TlvElement {
-	protected byte[] lengthField;
+	/* the maximum number of bytes that can be packed into lengthFieldValue */
+	private static final int MAX_NO_OF_PACKED_BYTES = 8;
+	
+	private int noOfLengthBytes;
+	
+	/* the bytes of the length field, the last byte being the least significant one */
+	private long lengthFieldValue;
+	
+	/* the length field iff it is longer than MAX_NO_OF_PACKED_BYTES, null otherwise */
+	private byte[] longLengthField;
 	
 	/*--------------------------------------------------------------------------------*/
 	
@@ -84,12 +98,12 @@ public class TlvLength extends TlvElement {
 	public TlvLength(int lengthValue, boolean safetyOnOff) {
 		super();
 		
-		byte[] lengthField = TlvLength.getLengthEncoding(lengthValue);
-		
-		if(safetyOnOff == PERFORM_VALIDITY_CHECKS) {
-			this.setLengthField(lengthField);
+		/* the minimum length encoding is always valid, so there is nothing to be checked */
+		int noOfLengthBytes = getMinNoOfBytesEncodingLength(lengthValue);
+		if(noOfLengthBytes == 1) {
+			this.setPackedLengthField(1, lengthValue);
 		} else{
-			this.forceLengthField(lengthField);
+			this.setPackedLengthField(noOfLengthBytes, ((0x80L | (noOfLengthBytes - 1)) << (8 * (noOfLengthBytes - 1))) | lengthValue);
 		}
 	}
 	
@@ -101,6 +115,18 @@ public class TlvLength extends TlvElement {
 		this(lengthValue, PERFORM_VALIDITY_CHECKS);
 	}
 	
+	/**
+	 * Constructor for a copy of the provided object.
+	 * @param tlvLength the object to be copied
+	 */
+	private TlvLength(TlvLength tlvLength) {
+		super();
+		
+		this.noOfLengthBytes = tlvLength.noOfLengthBytes;
+		this.lengthFieldValue = tlvLength.lengthFieldValue;
+		this.longLengthField = tlvLength.longLengthField;
+	}
+	
 	/*--------------------------------------------------------------------------------*/
 	
 	/**
@@ -144,8 +170,8 @@ public class TlvLength extends TlvElement {
 			endOffset = minOffset + 1;
 		}
 		
-		//copy relevant part of input into member lengthField
-		lengthField = Arrays.copyOfRange(lengthFieldInput, minOffset, endOffset);
+		//copy relevant part of input into the packed length field
+		setPackedLengthField(endOffset - minOffset, pack(lengthFieldInput, minOffset, endOffset - minOffset));
 	}
 	
 	/**
@@ -169,7 +195,46 @@ public class TlvLength extends TlvElement {
 	 */
 	public void forceLengthField(byte[] lengthFieldInput) {
 		if(lengthFieldInput == null) {throw new NullPointerException();}
-		this.lengthField = Arrays.copyOf(lengthFieldInput, lengthFieldInput.length);
+		
+		if(lengthFieldInput.length > MAX_NO_OF_PACKED_BYTES) {
+			noOfLengthBytes = lengthFieldInput.length;
+			lengthFieldValue = 0;
+			longLengthField = Arrays.copyOf(lengthFieldInput, lengthFieldInput.length);
+			modified();
+		} else{
+			setPackedLengthField(lengthFieldInput.length, pack(lengthFieldInput, 0, lengthFieldInput.length));
+		}
+	}
+	
+	private void setPackedLengthField(int noOfLengthBytes, long lengthFieldValue) {
+		this.noOfLengthBytes = noOfLengthBytes;
+		this.lengthFieldValue = lengthFieldValue;
+		this.longLengthField = null;
+		modified();
+	}
+	
+	/**
+	 * Packs the given bytes into a long, the last byte being the least significant one.
+	 */
+	private static long pack(byte[] data, int offset, int length) {
+		long value = 0;
+		for(int i = offset; i < offset + length; i++) {
+			value = (value << 8) | (data[i] & 0xFF);
+		}
+		return value;
+	}
+	
+	/**
+	 * Returns the byte of the length field at the given index.
+	 */
+	private byte getByte(int index) {
+		if((index < 0) || (index >= noOfLengthBytes)) {throw new ArrayIndexOutOfBoundsException(index);}
+		
+		if(longLengthField != null) {
+			return longLengthField[index];
+		}
+		
+		return (byte) (lengthFieldValue >>> (8 * (noOfLengthBytes - 1 - index)));
 	}
 	
 	/**
@@ -177,19 +242,18 @@ public class TlvLength extends TlvElement {
 	 * @return the length of the value field as indicated by the length field
 	 */
 	public int getIndicatedLength() {
-		int lengthNo;
-		byte[] actualLength;
-		
-		actualLength = this.lengthField;
-		
 		if(this.getLength() == 1) {
-			lengthNo = Utils.maskUnsignedByteToInt(actualLength[0]);
-		} else{
-			actualLength = Arrays.copyOfRange(this.lengthField, 1, this.lengthField.length);
-			lengthNo = Utils.getIntFromUnsignedByteArray(actualLength);
+			return (int) (lengthFieldValue & 0xFF);
 		}
 		
-		return lengthNo;
+		if((this.getLength() > 1) && (this.getLength() <= 5)) {
+			/* the bytes following the first one, at most 4 */
+			return (int) (lengthFieldValue & ((1L << (8 * (this.getLength() - 1))) - 1));
+		}
+		
+		/* forced length fields that can not be represented by an int */
+		byte[] lengthField = this.toByteArray();
+		return Utils.getIntFromUnsignedByteArray(Arrays.copyOfRange(lengthField, 1, lengthField.length));
 	}
 	
 	@Override
@@ -201,47 +265,71 @@ public class TlvLength extends TlvElement {
 		}
 		
 		//TlvLengths are considered equal iff they encode the same length value in the same way
-		return Arrays.equals(lengthField, ((TlvLength) anotherTlvLength).lengthField);
+		TlvLength other = (TlvLength) anotherTlvLength;
+		if((noOfLengthBytes != other.noOfLengthBytes) || (lengthFieldValue != other.lengthFieldValue)) {
+			return false;
+		}
+		return Arrays.equals(longLengthField, other.longLengthField);
 	}
 	
 	@Override
 	public int hashCode() {
-		int hash = 1;
-		for (int i = 0; i < lengthField.length; i++) {
-			hash *= lengthField[i];
-		}
-		return hash;
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + (int) (lengthFieldValue ^ (lengthFieldValue >>> 32));
+		result = prime * result + noOfLengthBytes;
+		result = prime * result + Arrays.hashCode(longLengthField);
+		return result;
 	}
 	
 	@Override
 	public byte[] toByteArray() {
-		return Arrays.copyOf(lengthField, lengthField.length);
+		byte[] lengthField = new byte[noOfLengthBytes];
+		copyTo(lengthField, 0);
+		return lengthField;
 	}
 	
 	@Override
 	public int getLength() {
-		return this.lengthField.length;
+		return this.noOfLengthBytes;
+	}
+	
+	/**
+	 * Copy the length field to the given array.
+	 * @param destination the array to copy the length field to
+	 * @param destinationOffset the offset within destination
+	 * @return the number of bytes copied
+	 */
+	int copyTo(byte[] destination, int destinationOffset) {
+		if(longLengthField != null) {
+			System.arraycopy(longLengthField, 0, destination, destinationOffset, noOfLengthBytes);
+		} else{
+			for(int i = 0; i < noOfLengthBytes; i++) {
+				destination[destinationOffset + i] = (byte) (lengthFieldValue >>> (8 * (noOfLengthBytes - 1 - i)));
+			}
+		}
+		return noOfLengthBytes;
 	}
 	
 	@Override
 	public TlvLength clone() {
-		return new TlvLength(this.toByteArray(), SKIP_VALIDITY_CHECKS);
+		return new TlvLength(this);
 	}
 	
 	@Override
 	public boolean isValidBerEncoding() {
-		int lengthFieldLength = lengthField.length;
+		int lengthFieldLength = noOfLengthBytes;
 		
 		/* ensure valid length */
 		if((lengthFieldLength < 1) || (lengthFieldLength > 5)) {return false;}
 		
 		/* ensure valid formatting of length */
 		if(lengthFieldLength == 1) {
-			if((lengthField[0] & ((short) 0x80)) == ((short) 0x80)) {return false;}
+			if((getByte(0) & ((short) 0x80)) == ((short) 0x80)) {return false;}
 		} else{
-			if((lengthField[0] & ((short) 0x80)) != ((short) 0x80)) {return false;}
+			if((getByte(0) & ((short) 0x80)) != ((short) 0x80)) {return false;}
 			
-			int noOfBytesUsedToIndicateLength = Utils.maskUnsignedByteToInt((byte) (lengthField[0] & (byte) 0x7F)) + 1;
+			int noOfBytesUsedToIndicateLength = Utils.maskUnsignedByteToInt((byte) (getByte(0) & (byte) 0x7F)) + 1;
 			
 			if(noOfBytesUsedToIndicateLength != lengthFieldLength) {return false;}
 			if((noOfBytesUsedToIndicateLength < 2) || (noOfBytesUsedToIndicateLength > 5)) {return false;}
@@ -255,7 +343,7 @@ public class TlvLength extends TlvElement {
 		/* Must be valid BER encoding */
 		if(!isValidBerEncoding()) {return false;}
 		/* Must be minimum length encoding */
-		return getMinNoOfBytesEncodingLength(getIndicatedLength()) == lengthField.length;
+		return getMinNoOfBytesEncodingLength(getIndicatedLength()) == noOfLengthBytes;
 	}
 	
 	/*--------------------------------------------------------------------------------*/
@@ -292,7 +380,13 @@ public class TlvLength extends TlvElement {
 	 * @return the minimum number of bytes that is needed to encode the given length
 	 */
 	public static int getMinNoOfBytesEncodingLength(int indicatedLength) {
-		return getLengthEncoding(indicatedLength).length;
+		if(indicatedLength < 0) {throw new NullPointerException("length must not be smaller than 0");}
+		
+		if(indicatedLength <= 0x7F) {return 1;}
+		if(indicatedLength <= 0xFF) {return 2;}
+		if(indicatedLength <= 0xFFFF) {return 3;}
+		if(indicatedLength <= 0xFFFFFF) {return 4;}
+		return 5;
 	}
 	
 }
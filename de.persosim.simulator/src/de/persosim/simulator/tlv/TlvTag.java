@@ -1,6 +1,7 @@
 package de.persosim.simulator.tlv;
 
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
 
 import de.persosim.simulator.exception.ISO7816Exception;
 import de.persosim.simulator.utils.Utils;
@@ -10,13 +11,33 @@ import de.persosim.simulator.utils.Utils;
  * Tag fields are immutable in order to prevent accidental corruption of existing data structures.
  * In the field tags do not need to be changed for themselves. They may only need to be exchanged as part of another data structure, i.e. {@link PrimitiveTlvDataObject}.
  * The preferred way of doing so is to provide/use an according unchecked setter method for/of respective data structures.
+ * <p/>
+ * The tag field is stored as a number, i.e. its bytes are packed into a long. Comparing tags thus is a
+ * comparison of numbers. Only tag fields longer than 8 bytes, which can only be created by skipping
+ * validity checks, are stored as byte array. Valid tags can be obtained from an interning cache by
+ * the getInstance() methods, which should be preferred over the constructors.
  * 
  * @author slutters
  *
  */
 public final class TlvTag extends TlvElement implements Asn1 {
 	
-	private byte[] tagField;
+	/* the maximum number of bytes that can be packed into tagValue */
+	private static final int MAX_NO_OF_PACKED_BYTES = 8;
+	
+	/* the maximum number of interned multi byte tags, further tags are created but not cached */
+	private static final int MAX_NO_OF_INTERNED_MULTI_BYTE_TAGS = 1024;
+	
+	private static final TlvTag[] singleByteTags = new TlvTag[256];
+	private static final ConcurrentHashMap<Integer, TlvTag> multiByteTags = new ConcurrentHashMap<>();
+	
+	private final int noOfTagBytes;
+	
+	/* the bytes of the tag field, the last byte being the least significant one */
+	private final long tagValue;
+	
+	/* the tag field iff it is longer than MAX_NO_OF_PACKED_BYTES, null otherwise */
+	private final byte[] longTagField;
 	
 	/*--------------------------------------------------------------------------------*/
 	
@@ -34,18 +55,7 @@ public final class TlvTag extends TlvElement implements Asn1 {
 	 * @param performValidityChecks true: perform validity checks, false: do not perform validity checks
 	 */
 	public TlvTag(byte[] tagFieldInput, int minOffset, int maxOffset, boolean performValidityChecks) {
-		super();
-		
-		if(performValidityChecks == PERFORM_VALIDITY_CHECKS) {
-			this.setTagField(tagFieldInput, minOffset, maxOffset);
-		} else{
-			if(tagFieldInput == null) {throw new NullPointerException("tag field must not be null");}
-			if(minOffset < 0) {throw new IllegalArgumentException("min offset must not be less than 0");}
-			if(maxOffset < minOffset) {throw new IllegalArgumentException("max offset must not be smaller than min offset");}
-			if(maxOffset > tagFieldInput.length) {throw new IllegalArgumentException("selected array area must not lie outside of data array");}
-			
-			this.tagField = Arrays.copyOfRange(tagFieldInput, minOffset, maxOffset);
-		}
+		this(getNoOfTagBytes(tagFieldInput, minOffset, maxOffset, performValidityChecks), tagFieldInput, minOffset);
 	}
 	
 	/**
@@ -96,7 +106,7 @@ public final class TlvTag extends TlvElement implements Asn1 {
 	 */
 	public TlvTag(short tagFieldInput, boolean performValidityChecks) {
 		this(Utils.toUnsignedByteArray(tagFieldInput), 0, 2, performValidityChecks);
-		}
+	}
 	
 	/**
 	 * Constructor for this object based on a short.
@@ -148,7 +158,7 @@ public final class TlvTag extends TlvElement implements Asn1 {
 	/*--------------------------------------------------------------------------------*/
 	
 	/**
-	 * This method sets the TLV tag based on a raw byte array.
+	 * This method determines the length of the TLV tag contained in a raw byte array.
 	 * 
 	 * The variables minOffset and maxOffset specify a range that is supposed to contain the tag.
 	 * When parsing a raw byte array representation of a tag, the exact length of it is previously unknown.
@@ -156,17 +166,24 @@ public final class TlvTag extends TlvElement implements Asn1 {
 	 * The tag finally will exclusively be created from the bytes that have been identified as being part of a valid
 	 * tag field. This explicitly allows for the range to contain more bytes than are actually part of the tag.
 	 * This is the exact reason why this method can not be executed without performing validity checks.
-	 * In case validity checks are to be omitted, the setting can be forced using the force method.
+	 * In case validity checks are to be omitted, the full range is treated as tag field.
 	 * 
 	 * @param tagFieldInput the data field that contains the range containing the tag field
 	 * @param minOffset the first offset of the tag field (inclusive)
 	 * @param maxOffset the first offset no longer belonging to the range containing the tag field (exclusive)
+	 * @param performValidityChecks true: perform validity checks, false: do not perform validity checks
+	 * @return the number of bytes of the tag field
 	 */
-	private void setTagField(byte[] tagFieldInput, int minOffset, int maxOffset) {
+	private static int getNoOfTagBytes(byte[] tagFieldInput, int minOffset, int maxOffset, boolean performValidityChecks) {
 		if(tagFieldInput == null) {throw new NullPointerException("tag field must not be null");}
 		if(minOffset < 0) {throw new IllegalArgumentException("min offset must not be less than 0");}
 		if(maxOffset < minOffset) {throw new IllegalArgumentException("max offset must not be smaller than min offset");}
 		if(maxOffset > tagFieldInput.length) {throw new IllegalArgumentException("selected array area must not lie outside of data array");}
+		
+		if(performValidityChecks != PERFORM_VALIDITY_CHECKS) {
+			return maxOffset - minOffset;
+		}
+		
 		if(minOffset == maxOffset) {throw new IllegalArgumentException("selected part of data field must be greater than 0");}
 		
 		int currentOff = minOffset;
@@ -178,7 +195,7 @@ public final class TlvTag extends TlvElement implements Asn1 {
 		boolean isSecondByteOfMultiByteTag = false;
 		if(!((byte) (currentByte & (byte) 0x1F) == (byte) 0x1F)) {
 			/* if this tag has a short tag, i.e. 1 byte tag field (0 <= tag <= 30) */
-			this.tagField = Arrays.copyOfRange(tagFieldInput, currentOff, currentOff + 1);
+			return 1;
 		} else{
 			isSecondByteOfMultiByteTag = true;
 			while(true) {
@@ -187,14 +204,14 @@ public final class TlvTag extends TlvElement implements Asn1 {
 			currentOff++;
 			if(currentOff >= maxOffset) {ISO7816Exception.throwIt(SW_6A85_NC_INCONSISTENT_WITH_TLV_STRUCTURE, "offset outside data array");}
 				currentByte = tagFieldInput[currentOff];
-			
+				
 				if(isSecondByteOfMultiByteTag) {
 					isSecondByteOfMultiByteTag = false;
 					if(((byte) (currentByte & (byte) 0x7F) == (byte) 0x00)) {
 						/* error, second byte must not be 0 in bits 7-1, i.e. indicated tag length would have also fit into smaller tag */
 						ISO7816Exception.throwIt(SW_6A80_WRONG_DATA);
 					}
-			
+					
 					if(((byte) (currentByte & (byte) 0x80)) == (byte) 0x00) {
 						/* if this is a 2 byte Tag */
 						if(((byte) (currentByte & (byte) 0x7F)) <= 30) {
@@ -208,37 +225,188 @@ public final class TlvTag extends TlvElement implements Asn1 {
 				
 				if(((byte) (currentByte & (byte) 0x80)) == (byte) 0x00) {
 					/* if this is the last byte of the tag */
-				
+					
 					if(((currentOff - minOffset) + 1) > 3) {
 						/* error, tag is longer than the allowed 3 bytes */
 					ISO7816Exception.throwIt(SW_6A80_WRONG_DATA);
 				}
-				
-					this.tagField = Arrays.copyOfRange(tagFieldInput, minOffset, currentOff + 1);
-					return;
+					
+					return (currentOff - minOffset) + 1;
 				}
 			}
 		}
 	}
 	
+	/**
+	 * Constructor for this object based on a tag field of known length.
+	 * @param noOfTagBytes the number of bytes of the tag field
+	 * @param tagFieldInput the byte array that contains the TLV tag
+	 * @param offset the first offset of the tag field
+	 */
+	private TlvTag(int noOfTagBytes, byte[] tagFieldInput, int offset) {
+		super();
+		
+		this.noOfTagBytes = noOfTagBytes;
+		
+		if(noOfTagBytes > MAX_NO_OF_PACKED_BYTES) {
+			this.tagValue = 0;
+			this.longTagField = Arrays.copyOfRange(tagFieldInput, offset, offset + noOfTagBytes);
+		} else{
+			this.tagValue = pack(tagFieldInput, offset, noOfTagBytes);
+			this.longTagField = null;
+		}
+	}
+	
+	/**
+	 * Constructor for this object based on a packed tag field.
+	 * @param noOfTagBytes the number of bytes of the tag field, at most {@link #MAX_NO_OF_PACKED_BYTES}
+	 * @param tagValue the packed tag field
+	 */
+	private TlvTag(int noOfTagBytes, long tagValue) {
+		super();
+		
+		this.noOfTagBytes = noOfTagBytes;
+		this.tagValue = tagValue;
+		this.longTagField = null;
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	
+	/**
+	 * Returns the valid tag contained in the given range of a byte array. Tags
+	 * of up to 3 bytes are interned, i.e. equal tags are represented by the
+	 * same object.
+	 * 
+	 * @param tagFieldInput the byte array that in a certain range contains the TLV tag
+	 * @param minOffset the first offset of the range to contain the TLV tag (inclusive)
+	 * @param maxOffset the first offset not to be part of the range to contain the TLV tag (exclusive).
+	 * @return the tag contained in the given range
+	 */
+	public static TlvTag getInstance(byte[] tagFieldInput, int minOffset, int maxOffset) {
+		int noOfTagBytes = getNoOfTagBytes(tagFieldInput, minOffset, maxOffset, PERFORM_VALIDITY_CHECKS);
+		return getInstance(noOfTagBytes, pack(tagFieldInput, minOffset, noOfTagBytes));
+	}
+	
+	/**
+	 * Returns the valid tag contained in the given array.
+	 * @see #getInstance(byte[], int, int)
+	 * 
+	 * @param tagFieldInput the byte array that contains the TLV tag
+	 * @return the tag contained in the given array
+	 */
+	public static TlvTag getInstance(byte[] tagFieldInput) {
+		return getInstance(tagFieldInput, 0, tagFieldInput.length);
+	}
+	
+	/**
+	 * Returns the valid 2 byte tag contained in the given short.
+	 * @see #getInstance(byte[], int, int)
+	 * 
+	 * @param tagFieldInput the short that contains the TLV tag
+	 * @return the tag contained in the given short
+	 */
+	public static TlvTag getInstance(short tagFieldInput) {
+		/* only valid tags are interned, so a cached tag needs no further checks */
+		TlvTag tlvTag = multiByteTags.get(tagFieldInput & 0xFFFF);
+		if(tlvTag != null) {
+			return tlvTag;
+		}
+		
+		return getInstance(Utils.toUnsignedByteArray(tagFieldInput), 0, 2);
+	}
+	
+	/**
+	 * Returns the valid 1 byte tag contained in the given byte.
+	 * @see #getInstance(byte[], int, int)
+	 * 
+	 * @param tagFieldInput the byte that contains the TLV tag
+	 * @return the tag contained in the given byte
+	 */
+	public static TlvTag getInstance(byte tagFieldInput) {
+		TlvTag tlvTag = singleByteTags[tagFieldInput & 0xFF];
+		if(tlvTag != null) {
+			return tlvTag;
+		}
+		
+		return getInstance(new byte[] {tagFieldInput}, 0, 1);
+	}
+	
+	/**
+	 * Returns the interned tag for the given packed tag field.
+	 */
+	private static TlvTag getInstance(int noOfTagBytes, long tagValue) {
+		if(noOfTagBytes == 1) {
+			/* tags are immutable, so concurrently creating the same tag twice is harmless */
+			TlvTag tlvTag = singleByteTags[(int) tagValue];
+			if(tlvTag == null) {
+				tlvTag = new TlvTag(noOfTagBytes, tagValue);
+				singleByteTags[(int) tagValue] = tlvTag;
+			}
+			return tlvTag;
+		}
+		
+		/* valid multi byte tags have at most 3 bytes and the first byte always is non-zero, so the value is unique */
+		Integer key = (int) tagValue;
+		TlvTag tlvTag = multiByteTags.get(key);
+		if(tlvTag != null) {
+			return tlvTag;
+		}
+		
+		tlvTag = new TlvTag(noOfTagBytes, tagValue);
+		if(multiByteTags.size() < MAX_NO_OF_INTERNED_MULTI_BYTE_TAGS) {
+			TlvTag existingTlvTag = multiByteTags.putIfAbsent(key, tlvTag);
+			if(existingTlvTag != null) {
+				return existingTlvTag;
+			}
+		}
+		
+		return tlvTag;
+	}
+	
+	/**
+	 * Packs the given bytes into a long, the last byte being the least significant one.
+	 */
+	private static long pack(byte[] data, int offset, int length) {
+		long value = 0;
+		for(int i = offset; i < offset + length; i++) {
+			value = (value << 8) | (data[i] & 0xFF);
+		}
+		return value;
+	}
+	
+	/**
+	 * Returns the byte of the tag field at the given index.
+	 */
+	private byte getByte(int index) {
+		if((index < 0) || (index >= noOfTagBytes)) {throw new ArrayIndexOutOfBoundsException(index);}
+		
+		if(longTagField != null) {
+			return longTagField[index];
+		}
+		
+		return (byte) (tagValue >>> (8 * (noOfTagBytes - 1 - index)));
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	
 	@Override
 	public boolean isValidBerEncoding() {
-		int tagFieldLength = tagField.length;
+		int tagFieldLength = noOfTagBytes;
 		
 		/* ensure valid length */
 		if((tagFieldLength < 1) || (tagFieldLength > 3)) {return false;};
 		
 		/* ensure valid formatting of value */
 		if(tagFieldLength == 1) {
-			if((tagField[0] & ((short) 0x1F)) == ((short) 0x1F)) {return false;};
+			if((getByte(0) & ((short) 0x1F)) == ((short) 0x1F)) {return false;};
 		} else{
-			if((tagField[1] & ((short) 0x7F)) == ((short) 0x00)) {return false;};
+			if((getByte(1) & ((short) 0x7F)) == ((short) 0x00)) {return false;};
 			
 			for(int i = 1; i < tagFieldLength; i++) {
 				if(i == (tagFieldLength - 1)) {
-					if((tagField[i] & ((short) 0x80)) == ((short) 0x80)) {return false;};
+					if((getByte(i) & ((short) 0x80)) == ((short) 0x80)) {return false;};
 				} else{
-					if((tagField[i] & ((short) 0x80)) != ((short) 0x80)) {return false;};
+					if((getByte(i) & ((short) 0x80)) != ((short) 0x80)) {return false;};
 				}
 			}
 		}
@@ -264,17 +432,17 @@ public final class TlvTag extends TlvElement implements Asn1 {
 		currentOffset = 0;
 		tagNo = 0;
 		
-		if(((byte) (this.tagField[currentOffset] & (byte) 0x1F)) == (byte) 0x1F) {
+		if(((byte) (getByte(currentOffset) & (byte) 0x1F)) == (byte) 0x1F) {
 			/* if tag length > 1 */
 			for(int i = 1; i < this.getLength(); i++) {
 				currentOffset++;
 				
 				tagNo <<= 7;
-				tagNo |= (byte) (this.tagField[currentOffset] & (byte) 0x7F);
+				tagNo |= (byte) (getByte(currentOffset) & (byte) 0x7F);
 			}
 		} else{
 			/* if tag length == 1 */
-			tagNo = Utils.maskUnsignedByteToInt((byte) (this.tagField[currentOffset] & (byte) 0x1F));
+			tagNo = Utils.maskUnsignedByteToInt((byte) (getByte(currentOffset) & (byte) 0x1F));
 		}
 		
 		return tagNo;
@@ -285,7 +453,7 @@ public final class TlvTag extends TlvElement implements Asn1 {
 	 * @return whether this tag field indicates primitive encoding
 	 */
 	public boolean indicatesEncodingPrimitive() {
-		return getEncoding(this.tagField) == ENCODING_PRIMITIVE;
+		return (byte) (getByte(0) & ENCODING) == ENCODING_PRIMITIVE;
 	}
 	
 	/**
@@ -293,7 +461,7 @@ public final class TlvTag extends TlvElement implements Asn1 {
 	 * @return whether this tag field indicates constructed encoding
 	 */
 	public boolean indicatesEncodingConstructed() {
-		return getEncoding(this.tagField) == ENCODING_CONSTRUCTED;
+		return (byte) (getByte(0) & ENCODING) == ENCODING_CONSTRUCTED;
 	}
 	
 	/**
@@ -306,22 +474,63 @@ public final class TlvTag extends TlvElement implements Asn1 {
 	 * @return whether this tag field indicates the provided class
 	 */
 	public boolean indicatesClass(byte indicatedClass) {
-		return getEncodedClass(this.tagField) == indicatedClass;
+		return getEncodedClass() == indicatedClass;
 	}
 	
+	/**
+	 * This method matches this tag against the provided tag. As tag fields
+	 * are stored as numbers this is a comparison of numbers.
+	 * @param anotherTlvTag the tag to match against
+	 * @return whether this tag matches the provided tag
+	 */
 	public boolean matches(TlvTag anotherTlvTag) {
-		if (!Arrays.equals(this.tagField, anotherTlvTag.tagField)) {
+		if (this == anotherTlvTag) {
+			return true;
+		}
+		
+		if ((this.tagValue != anotherTlvTag.tagValue) || (this.noOfTagBytes != anotherTlvTag.noOfTagBytes)) {
+			return false;
+		}
+		
+		return (longTagField == null) || Arrays.equals(this.longTagField, anotherTlvTag.longTagField);
+	}
+	
+	/**
+	 * This method matches this tag against a tag field contained in the given
+	 * range of a byte array without copying it.
+	 * @param data the byte array containing the tag field
+	 * @param offset the first offset of the tag field (inclusive)
+	 * @param length the number of bytes of the tag field
+	 * @return whether this tag matches the provided tag field
+	 */
+	boolean matches(byte[] data, int offset, int length) {
+		if (noOfTagBytes != length) {
 			return false;
 		}
 		
+		if (longTagField == null) {
+			return tagValue == pack(data, offset, length);
+		}
+		
+		for (int i = 0; i < length; i++) {
+			if (longTagField[i] != data[offset + i]) {
+				return false;
+			}
+		}
+		
 		return true;
 	}
 	
 	@Override
 	public int hashCode() {
-		return Arrays.hashCode(tagField);
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + (int) (tagValue ^ (tagValue >>> 32));
+		result = prime * result + noOfTagBytes;
+		result = prime * result + Arrays.hashCode(longTagField);
+		return result;
 	}
-
+	
 	@Override
 	public boolean equals(Object obj) {
 		if (this == obj)
@@ -330,29 +539,48 @@ public final class TlvTag extends TlvElement implements Asn1 {
 			return false;
 		if (getClass() != obj.getClass())
 			return false;
-		TlvTag other = (TlvTag) obj;
-		if (!Arrays.equals(tagField, other.tagField))
-			return false;
-		return true;
+		return matches((TlvTag) obj);
 	}
-
+	
 	public byte getEncodedClass() {
-		return getEncodedClass(this.tagField);
+		return (byte) (getByte(0) & CLASS);
 	}
 	
 	@Override
 	public int getLength() {
-		return tagField.length;
+		return noOfTagBytes;
 	}
 	
 	@Override
 	public byte[] toByteArray() {
-		return Arrays.copyOf(tagField, tagField.length);
+		byte[] tagField = new byte[noOfTagBytes];
+		copyTo(tagField, 0);
+		return tagField;
 	}
 	
+	/**
+	 * Copy the tag field to the given array.
+	 * @param destination the array to copy the tag field to
+	 * @param destinationOffset the offset within destination
+	 * @return the number of bytes copied
+	 */
+	int copyTo(byte[] destination, int destinationOffset) {
+		if(longTagField != null) {
+			System.arraycopy(longTagField, 0, destination, destinationOffset, noOfTagBytes);
+		} else{
+			for(int i = 0; i < noOfTagBytes; i++) {
+				destination[destinationOffset + i] = (byte) (tagValue >>> (8 * (noOfTagBytes - 1 - i)));
+			}
+		}
+		return noOfTagBytes;
+	}
+	
+	/**
+	 * Returns this object as tags are immutable.
+	 */
 	@Override
 	public TlvTag clone() {
-		return new TlvTag(this.toByteArray(), SKIP_VALIDITY_CHECKS);
+		return this;
 	}
 	
 	/**
@@ -12,6 +12,14 @@ import java.util.Arrays;
 public class TlvValuePlain extends TlvValue {
 	/* The valueField is allowed to be empty if intentionally damaged but must never be null */
 	private byte[] valueField;
+	/* The value is stored in valueField starting at valueOffset, views may share valueField with other objects */
+	private int valueOffset;
+	private int valueLength;
+	/* true if valueField is shared, see view(byte[], int, int) */
+	private transient boolean view;
+	
+	/* shared by all empty values, never modified as it has no elements */
+	private static final byte[] EMPTY_VALUE_FIELD = new byte[0];
 	
 	/*--------------------------------------------------------------------------------*/
 	
@@ -29,10 +37,12 @@ public class TlvValuePlain extends TlvValue {
 		if(maxOffset > valueFieldInput.length) {throw new IllegalArgumentException("selected array area must not lie outside of data array");}
 		
 		if(minOffset == maxOffset) {
-			this.valueField = new byte[0];
+			this.valueField = EMPTY_VALUE_FIELD;
 		} else{
 			this.valueField = Arrays.copyOfRange(valueFieldInput, minOffset, maxOffset);
 		}
+		this.valueOffset = 0;
+		this.valueLength = this.valueField.length;
 	}
 	
 	/**
@@ -57,7 +67,32 @@ public class TlvValuePlain extends TlvValue {
 	 * Constructor for an empty object of this type.
 	 */
 	public TlvValuePlain() {
-		this(new byte[0]);
+		this(EMPTY_VALUE_FIELD);
+	}
+	
+	/**
+	 * Create a view on a range of an array of raw bytes. In contrast to the
+	 * constructors the bytes are not copied, so later modifications of the
+	 * array are reflected by the returned object. The object itself never
+	 * modifies the array.
+	 * 
+	 * @param valueFieldInput the byte array that in a certain range contains the TLV value
+	 * @param offset the first offset of the range to contain the TLV value
+	 * @param length the length of the TLV value
+	 * @return the view on the range
+	 */
+	public static TlvValuePlain view(byte[] valueFieldInput, int offset, int length) {
+		if(valueFieldInput == null) {throw new NullPointerException();}
+		if(offset < 0) {throw new IllegalArgumentException("offset must not be less than 0");}
+		if(length < 0) {throw new IllegalArgumentException("length must not be less than 0");}
+		if(offset + length > valueFieldInput.length) {throw new IllegalArgumentException("selected array area must not lie outside of data array");}
+		
+		TlvValuePlain viewOnRange = new TlvValuePlain();
+		viewOnRange.valueField = valueFieldInput;
+		viewOnRange.valueOffset = offset;
+		viewOnRange.valueLength = length;
+		viewOnRange.view = true;
+		return viewOnRange;
 	}
 	
 	/*--------------------------------------------------------------------------------*/
@@ -70,6 +105,29 @@ public class TlvValuePlain extends TlvValue {
 		byte[] tlvValueField = valueFieldInput.toByteArray();
 		
 		this.valueField = Arrays.copyOf(tlvValueField, tlvValueField.length);
+		this.valueOffset = 0;
+		this.valueLength = this.valueField.length;
+		this.view = false;
+		modified();
+	}
+	
+	/**
+	 * @return whether this object is a view on an array that may be modified by others
+	 */
+	boolean isView() {
+		return view;
+	}
+	
+	/**
+	 * Copy the value to the given array.
+	 * 
+	 * @param destination the array to copy the value to
+	 * @param destinationOffset the offset within destination
+	 * @return the number of bytes copied
+	 */
+	public int copyTo(byte[] destination, int destinationOffset) {
+		System.arraycopy(valueField, valueOffset, destination, destinationOffset, valueLength);
+		return valueLength;
 	}
 	
 	/*--------------------------------------------------------------------------------*/
@@ -83,13 +141,22 @@ public class TlvValuePlain extends TlvValue {
 		}
 		
 		/* TlvValuePlain objects are considered equal iff they encode the same value in the same way */
-		return Arrays.equals(this.valueField, ((TlvValuePlain) anotherTlvValuePlainInput).valueField);
+		TlvValuePlain other = (TlvValuePlain) anotherTlvValuePlainInput;
+		if (this.valueLength != other.valueLength) {
+			return false;
+		}
+		for (int i = 0; i < valueLength; i++) {
+			if (this.valueField[this.valueOffset + i] != other.valueField[other.valueOffset + i]) {
+				return false;
+			}
+		}
+		return true;
 	}
 	
 	@Override
 	public int hashCode() {
 		int hash = 1;
-		for (int i = 0; i < valueField.length; i++) {
+		for (int i = valueOffset; i < valueOffset + valueLength; i++) {
 			hash *= valueField[i];
 		}
 		return hash;
@@ -97,17 +164,17 @@ public class TlvValuePlain extends TlvValue {
 	
 	@Override
 	public int getLength() {
-		return this.valueField.length;
+		return this.valueLength;
 	}
 	
 	@Override
 	public byte[] toByteArray() {
-		return Arrays.copyOf(this.valueField, this.valueField.length);
+		return Arrays.copyOfRange(this.valueField, this.valueOffset, this.valueOffset + this.valueLength);
 	}
 	
 	@Override
 	public TlvValuePlain copy() {
-		return new TlvValuePlain(this.valueField);
+		return new TlvValuePlain(this.valueField, this.valueOffset, this.valueOffset + this.valueLength);
 	}
 	
 	@Override
@@ -154,19 +154,37 @@ public class HexString {
 	 */
 	
 	public static byte[] toByteArray(String inputString) {
-
-		inputString = inputString.replaceAll("\\s", "");
-		if (inputString.length() % 2 != 0) {
+		// count the digits first in order to avoid copying the string for removing whitespace
+		int noOfDigits = 0;
+		for (int i = 0; i < inputString.length(); i++) {
+			if (!Character.isWhitespace(inputString.charAt(i))) {
+				noOfDigits++;
+			}
+		}
+		
+		if (noOfDigits % 2 != 0) {
 			throw new IllegalArgumentException(
 					"hexadecimal string must be of even length");
 			};
-
-		if (inputString.length() == 0) {
-			return new byte[0];};
-		byte[] result = new byte[inputString.length() / 2];
-		for (int i = 0; i < inputString.length(); i=i+2) {
-			int v = Integer.parseInt(inputString.substring(i, i + 2),16);
-			result[i/2] = (byte) v;
+		
+		byte[] result = new byte[noOfDigits / 2];
+		int highNibble = -1;
+		int resultOffset = 0;
+		for (int i = 0; i < inputString.length(); i++) {
+			char currentChar = inputString.charAt(i);
+			if (Character.isWhitespace(currentChar)) {
+				continue;
+			}
+			int nibble = Character.digit(currentChar, 16);
+			if (nibble < 0) {
+				throw new NumberFormatException("invalid hexadecimal character '" + currentChar + "'");
+			}
+			if (highNibble < 0) {
+				highNibble = nibble;
+			} else {
+				result[resultOffset++] = (byte) ((highNibble << 4) | nibble);
+				highNibble = -1;
+			}
 		}
 		return result;
 	}
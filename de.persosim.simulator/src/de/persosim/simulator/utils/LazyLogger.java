@@ -0,0 +1,106 @@
+package de.persosim.simulator.utils;
+
+import java.util.function.Supplier;
+
+import org.globaltester.logging.BasicLogger;
+import org.globaltester.logging.InfoSource;
+
+/**
+ * This class provides level-checked logging on top of {@link BasicLogger}.
+ * Messages are handed in as {@link Supplier} and are only built if the
+ * requested log level is enabled, so expensive message construction (e.g.
+ * hex dumps or TLV parsing) costs nothing for suppressed log levels.
+ * <p/>
+ * The minimum log level defaults to {@link #DEFAULT_LOG_LEVEL}, i.e. all
+ * messages are forwarded and filtering is left to the log listeners, as is
+ * done for messages logged directly via {@link BasicLogger}. Setups not
+ * interested in lower log levels, e.g. headless or benchmark runs, can raise
+ * the threshold using the system property {@value #PROP_LOG_LEVEL} or
+ * {@link #setMinimumLogLevel(byte)} to avoid building suppressed messages.
+ */
+public class LazyLogger {
+	
+	public static final String PROP_LOG_LEVEL = "de.persosim.simulator.log.level";
+	public static final byte DEFAULT_LOG_LEVEL = BasicLogger.TRACE;
+	
+	private static volatile byte minimumLogLevel = getInitialLogLevel();
+	
+	private LazyLogger() {
+		// utility class, not to be instantiated
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	
+	/**
+	 * This method returns whether messages of the provided log level are
+	 * forwarded to {@link BasicLogger}.
+	 * @param logLevel the log level to check
+	 * @return true iff messages of this log level are logged
+	 */
+	public static boolean isLogLevelEnabled(byte logLevel) {
+		return logLevel >= minimumLogLevel;
+	}
+	
+	/**
+	 * @return the minimum log level of messages forwarded to {@link BasicLogger}
+	 */
+	public static byte getMinimumLogLevel() {
+		return minimumLogLevel;
+	}
+	
+	/**
+	 * This method sets the minimum log level of messages forwarded to
+	 * {@link BasicLogger}. Messages of lower log levels are neither built nor
+	 * logged.
+	 * @param logLevel the minimum log level
+	 */
+	public static void setMinimumLogLevel(byte logLevel) {
+		minimumLogLevel = logLevel;
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	
+	/**
+	 * Log the message provided by the given {@link Supplier} if the log level
+	 * is enabled.
+	 * @param source the source of the message
+	 * @param message the supplier of the message, only called if the log level is enabled
+	 * @param logLevel the log level of the message
+	 */
+	public static void log(InfoSource source, Supplier<String> message, byte logLevel) {
+		if (isLogLevelEnabled(logLevel)) {
+			BasicLogger.log(source, message.get(), logLevel);
+		}
+	}
+	
+	/**
+	 * Log the message provided by the given {@link Supplier} if the log level
+	 * is enabled.
+	 * @param source the source of the message
+	 * @param message the supplier of the message, only called if the log level is enabled
+	 * @param logLevel the log level of the message
+	 */
+	public static void log(Class<?> source, Supplier<String> message, byte logLevel) {
+		if (isLogLevelEnabled(logLevel)) {
+			BasicLogger.log(source, message.get(), logLevel);
+		}
+	}
+	
+	/*--------------------------------------------------------------------------------*/
+	
+	/**
+	 * @return the initial log level as configured by the system property {@value #PROP_LOG_LEVEL}, {@link #DEFAULT_LOG_LEVEL} otherwise
+	 */
+	private static byte getInitialLogLevel() {
+		String value = System.getProperty(PROP_LOG_LEVEL);
+		if (value != null) {
+			try {
+				return Byte.parseByte(value.trim());
+			} catch (NumberFormatException e) {
+				BasicLogger.log(LazyLogger.class, "ignoring invalid log level \"" + value + "\"", BasicLogger.WARN);
+			}
+		}
+		return DEFAULT_LOG_LEVEL;
+	}
+	
+}
@@ -6,7 +6,6 @@ import org.globaltester.cryptoprovider.Crypto;
 
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.core.util.CompositeClassLoader;
-import com.thoughtworks.xstream.io.xml.DomDriver;
 
 /**
  * This class contains methods to serialize and deserialize objects. The format
@@ -32,7 +31,7 @@ public class Serializer {
 		}
 		
 		
-		xstream = new XStream(new DomDriver("UTF-8"));
+		xstream = new XStream(new StreamingXmlDriver());
 		xstream.setClassLoader(loader);
 	}
 	
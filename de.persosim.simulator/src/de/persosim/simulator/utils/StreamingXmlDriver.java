@@ -0,0 +1,31 @@
+package de.persosim.simulator.utils;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.io.xml.DomDriver;
+import com.thoughtworks.xstream.io.xml.PrettyPrintWriter;
+import com.thoughtworks.xstream.io.xml.StaxDriver;
+
+/**
+ * This XStream driver reads XML with the streaming StAX parser of the JRE
+ * instead of building a DOM of the complete document first. XML is written
+ * indented exactly like the {@link DomDriver} does, so documents written with
+ * either driver are identical and can be read by both of them.
+ */
+public class StreamingXmlDriver extends StaxDriver {
+	
+	@Override
+	public HierarchicalStreamWriter createWriter(Writer out) {
+		return new PrettyPrintWriter(out, getNameCoder());
+	}
+	
+	@Override
+	public HierarchicalStreamWriter createWriter(OutputStream out) {
+		return createWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+	}
+	
+}